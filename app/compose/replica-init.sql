@@ -0,0 +1,10 @@
+-- Runs once, when the mysql-replica volume is created: replicate everything from the mysql service.
+-- GTID auto-positioning replays the primary's binary log from its start, so no dump is needed.
+CHANGE REPLICATION SOURCE TO
+    SOURCE_HOST = 'mysql',
+    SOURCE_PORT = 3306,
+    SOURCE_USER = 'root',
+    SOURCE_PASSWORD = '',
+    SOURCE_AUTO_POSITION = 1,
+    GET_SOURCE_PUBLIC_KEY = 1;
+START REPLICA;
@@ -0,0 +1,257 @@
+package com.immobilier.app.capture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Opt-in request recorder (app.capture.enabled=true) used to build replayable traces of real traffic.
+// The request thread only copies what it needs into a bounded queue; masking, encoding and disk writes
+// happen on a single background thread, and records are dropped rather than slowing requests down.
+@Component
+@ConditionalOnProperty(name = "app.capture.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class TrafficCaptureFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(TrafficCaptureFilter.class);
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+    private static final int MAX_MASK_LENGTH = 64;
+
+    // JSON fields whose values describe the query mix rather than a person, so they are kept
+    private static final Set<String> KEPT_FIELDS = Set.of("typeBien", "typeDemande", "statutOffre",
+            "localisationVille", "localisationQuartier", "localisationSouhaitee", "ids");
+
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<Captured> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private final Thread writerThread;
+    private final TrafficLogWriter writer;
+    private final Set<String> maskedParams;
+    private final List<String> excludedPaths;
+    private final double sampleRate;
+    private volatile boolean running = true;
+
+    public TrafficCaptureFilter(
+            ObjectMapper objectMapper,
+            @Value("${app.capture.dir:capture}") String directory,
+            @Value("${app.capture.queue-size:8192}") int queueSize,
+            @Value("${app.capture.sample-rate:1.0}") double sampleRate,
+            @Value("${app.capture.mask-params:email,password,telephone,token,message}") String maskedParams,
+            @Value("${app.capture.exclude-paths:/uploads/,/offers/,/api/events}") String excludedPaths)
+            throws IOException {
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.sampleRate = sampleRate;
+        this.maskedParams = Arrays.stream(maskedParams.split(",")).map(String::trim).collect(Collectors.toSet());
+        this.excludedPaths = Arrays.stream(excludedPaths.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        long now = System.currentTimeMillis();
+        Path file = dir.resolve("capture-" + now + ".trc");
+        this.writer = new TrafficLogWriter(file, now);
+        this.writerThread = new Thread(this::drain, "traffic-capture-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+        logger.info("Capturing request traces to {}", file.toAbsolutePath());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        for (String excluded : excludedPaths) {
+            if (uri.startsWith(excluded)) {
+                return true;
+            }
+        }
+        return sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        String contentType = request.getContentType();
+        boolean multipart = contentType != null && contentType.startsWith("multipart/");
+        HttpServletRequest wrapped = multipart ? request : new ContentCachingRequestWrapper(request, MAX_BODY_BYTES);
+        try {
+            chain.doFilter(wrapped, response);
+        } finally {
+            long end = System.nanoTime();
+            Captured captured = new Captured(
+                    (start - startNanos) / 1000,
+                    request.getMethod(),
+                    request.getRequestURI(),
+                    request.getQueryString(),
+                    contentType,
+                    wrapped instanceof ContentCachingRequestWrapper cached ? cached.getContentAsByteArray() : null,
+                    multipart ? parts(request) : null,
+                    request.getContentLengthLong(),
+                    response.getStatus(),
+                    (end - start) / 1000);
+            if (!queue.offer(captured)) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    private List<TrafficRecord.Part> parts(HttpServletRequest request) {
+        try {
+            List<TrafficRecord.Part> parts = new ArrayList<>();
+            for (Part part : request.getParts()) {
+                parts.add(new TrafficRecord.Part(part.getName(), part.getContentType(), part.getSize()));
+            }
+            return parts;
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Captured captured = queue.poll(1, TimeUnit.SECONDS);
+                if (captured == null) {
+                    writer.flush();
+                    continue;
+                }
+                writer.write(toRecord(captured));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.warn("Could not write traffic record: {}", e.getMessage());
+            }
+        }
+    }
+
+    private TrafficRecord toRecord(Captured captured) {
+        List<TrafficRecord.Param> params = new ArrayList<>();
+        if (captured.queryString() != null) {
+            for (String pair : captured.queryString().split("&")) {
+                if (pair.isEmpty()) {
+                    continue;
+                }
+                int separator = pair.indexOf('=');
+                String name = URLDecoder.decode(separator < 0 ? pair : pair.substring(0, separator), StandardCharsets.UTF_8);
+                String value = separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+                params.add(new TrafficRecord.Param(name, maskedParams.contains(name) ? mask(value) : value));
+            }
+        }
+
+        TrafficRecord.BodyKind kind = TrafficRecord.BodyKind.NONE;
+        String json = null;
+        long size = Math.max(captured.contentLength(), 0);
+        if (captured.parts() != null) {
+            kind = TrafficRecord.BodyKind.MULTIPART;
+        } else if (captured.body() != null && captured.body().length > 0) {
+            json = sanitizeJson(captured.body());
+            kind = json != null ? TrafficRecord.BodyKind.JSON : TrafficRecord.BodyKind.OTHER;
+            size = Math.max(size, captured.body().length);
+        } else if (size > 0) {
+            kind = TrafficRecord.BodyKind.OTHER;
+        }
+        return new TrafficRecord(captured.offsetMicros(), captured.method(), captured.path(), params,
+                captured.contentType() != null ? captured.contentType() : "", kind, json,
+                captured.parts() != null ? captured.parts() : List.of(), size, captured.status(),
+                captured.durationMicros());
+    }
+
+    private String sanitizeJson(byte[] body) {
+        try {
+            JsonNode root = objectMapper.readTree(body);
+            return root == null ? null : objectMapper.writeValueAsString(maskNode(null, root));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private JsonNode maskNode(String field, JsonNode node) {
+        if (node instanceof ObjectNode object) {
+            Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> entry = fields.next();
+                entry.setValue(maskNode(entry.getKey(), entry.getValue()));
+            }
+            return object;
+        }
+        if (node instanceof ArrayNode array) {
+            for (int i = 0; i < array.size(); i++) {
+                array.set(i, maskNode(field, array.get(i)));
+            }
+            return array;
+        }
+        if (node.isTextual() && !KEPT_FIELDS.contains(field)) {
+            return TextNode.valueOf(mask(node.asText()));
+        }
+        return node;
+    }
+
+    // Keeps the length, which is what matters for payload size and LIKE/keyword costs
+    private static String mask(String value) {
+        return "x".repeat(Math.min(value.length(), MAX_MASK_LENGTH));
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+            writer.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.warn("Could not close traffic capture log: {}", e.getMessage());
+        }
+        if (dropped.get() > 0) {
+            logger.warn("{} request traces were dropped because the capture queue was full", dropped.get());
+        }
+    }
+
+    private record Captured(
+            long offsetMicros,
+            String method,
+            String path,
+            String queryString,
+            String contentType,
+            byte[] body,
+            List<TrafficRecord.Part> parts,
+            long contentLength,
+            int status,
+            long durationMicros) {
+    }
+}
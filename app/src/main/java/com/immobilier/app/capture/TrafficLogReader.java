@@ -0,0 +1,139 @@
+package com.immobilier.app.capture;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Reads logs produced by TrafficLogWriter. A record cut short by a crash ends the log.
+public class TrafficLogReader implements Closeable {
+    private final InputStream in;
+    private final List<String> strings = new ArrayList<>();
+    private final long startEpochMillis;
+    private long previousOffset;
+
+    public TrafficLogReader(Path file) throws IOException {
+        this.in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024);
+        byte[] magic = in.readNBytes(TrafficLogWriter.MAGIC.length);
+        if (!Arrays.equals(magic, TrafficLogWriter.MAGIC) || in.read() != TrafficLogWriter.VERSION) {
+            throw new IOException("Not a traffic capture log: " + file);
+        }
+        this.startEpochMillis = readVarLong();
+    }
+
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    // Returns null at the end of the log
+    public TrafficRecord next() throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        try {
+            long offset = previousOffset + unzigzag(readVarLong(first));
+            previousOffset = offset;
+            String method = readString();
+            String path = readString();
+            int paramCount = (int) readVarLong();
+            List<TrafficRecord.Param> params = new ArrayList<>(paramCount);
+            for (int i = 0; i < paramCount; i++) {
+                params.add(new TrafficRecord.Param(readString(), readString()));
+            }
+            String contentType = readString();
+            int kind = in.read();
+            if (kind < 0 || kind >= TrafficRecord.BodyKind.values().length) {
+                throw new EOFException();
+            }
+            TrafficRecord.BodyKind bodyKind = TrafficRecord.BodyKind.values()[kind];
+            String jsonBody = null;
+            List<TrafficRecord.Part> parts = List.of();
+            long bodySize = 0;
+            switch (bodyKind) {
+                case JSON -> {
+                    readVarLong();
+                    jsonBody = readLiteral();
+                    bodySize = jsonBody.length();
+                }
+                case MULTIPART -> {
+                    int count = (int) readVarLong();
+                    parts = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        TrafficRecord.Part part = new TrafficRecord.Part(readString(), readString(), readVarLong());
+                        parts.add(part);
+                        bodySize += part.size();
+                    }
+                }
+                case OTHER -> bodySize = readVarLong();
+                default -> {
+                }
+            }
+            int status = (int) readVarLong();
+            long duration = readVarLong();
+            return new TrafficRecord(offset, method, path, params, contentType, bodyKind, jsonBody, parts,
+                    bodySize, status, duration);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private String readString() throws IOException {
+        long code = readVarLong();
+        if (code > 0) {
+            return strings.get((int) code - 1);
+        }
+        String text = readLiteral();
+        if (strings.size() < TrafficLogWriter.MAX_STRINGS) {
+            strings.add(text);
+        }
+        return text;
+    }
+
+    // Reads the length and bytes following a literal marker
+    private String readLiteral() throws IOException {
+        int length = (int) readVarLong();
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long readVarLong() throws IOException {
+        return readVarLong(in.read());
+    }
+
+    private long readVarLong(int first) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b = first;
+        while (true) {
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            b = in.read();
+        }
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
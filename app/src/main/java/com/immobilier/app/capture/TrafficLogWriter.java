@@ -0,0 +1,107 @@
+package com.immobilier.app.capture;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+// Append-only binary trace log.
+//
+// Layout: "ITRC", version byte, varint capture start (epoch ms), then one record after another.
+// Integers are unsigned LEB128 varints, offsets are zigzag deltas from the previous record.
+// Repeated strings (methods, paths, parameter names and values) are written once and then
+// referenced by index: a string is varint 0 + length + UTF-8 bytes, or varint (index + 1).
+public class TrafficLogWriter implements Closeable {
+    static final byte[] MAGIC = {'I', 'T', 'R', 'C'};
+    static final int VERSION = 1;
+    static final int MAX_STRINGS = 8192;
+
+    private final OutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private long previousOffset;
+
+    public TrafficLogWriter(Path file, long startEpochMillis) throws IOException {
+        this.out = new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 64 * 1024);
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeVarLong(startEpochMillis);
+    }
+
+    public void write(TrafficRecord record) throws IOException {
+        writeVarLong(zigzag(record.offsetMicros() - previousOffset));
+        previousOffset = record.offsetMicros();
+        writeString(record.method());
+        writeString(record.path());
+        writeVarLong(record.params().size());
+        for (TrafficRecord.Param param : record.params()) {
+            writeString(param.name());
+            writeString(param.value());
+        }
+        writeString(record.contentType());
+        out.write(record.bodyKind().ordinal());
+        switch (record.bodyKind()) {
+            case JSON -> writeLiteral(record.jsonBody());
+            case MULTIPART -> {
+                writeVarLong(record.parts().size());
+                for (TrafficRecord.Part part : record.parts()) {
+                    writeString(part.name());
+                    writeString(part.contentType());
+                    writeVarLong(part.size());
+                }
+            }
+            case OTHER -> writeVarLong(record.bodySize());
+            default -> {
+            }
+        }
+        writeVarLong(record.status());
+        writeVarLong(record.durationMicros());
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeString(String value) throws IOException {
+        String text = value != null ? value : "";
+        Integer index = strings.get(text);
+        if (index != null) {
+            writeVarLong(index + 1);
+            return;
+        }
+        writeLiteral(text);
+        if (strings.size() < MAX_STRINGS) {
+            strings.put(text, strings.size());
+        }
+    }
+
+    private void writeLiteral(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(0);
+        writeVarLong(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
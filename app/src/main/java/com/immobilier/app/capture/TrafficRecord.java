@@ -0,0 +1,40 @@
+package com.immobilier.app.capture;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+// One captured request. Bodies are kept as a shape only: JSON with personal values masked,
+// or the list of multipart part sizes for uploads.
+public record TrafficRecord(
+        long offsetMicros,
+        String method,
+        String path,
+        List<Param> params,
+        String contentType,
+        BodyKind bodyKind,
+        String jsonBody,
+        List<Part> parts,
+        long bodySize,
+        int status,
+        long durationMicros) {
+
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+    public enum BodyKind {
+        NONE,
+        JSON,
+        MULTIPART,
+        OTHER
+    }
+
+    public record Param(String name, String value) {
+    }
+
+    public record Part(String name, String contentType, long size) {
+    }
+
+    // Groups requests by route, e.g. "GET /offres/{id}"
+    public String endpoint() {
+        return method + " " + NUMERIC_SEGMENT.matcher(path).replaceAll("/{id}");
+    }
+}
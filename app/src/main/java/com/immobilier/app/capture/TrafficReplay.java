@@ -0,0 +1,176 @@
+package com.immobilier.app.capture;
+
+import com.immobilier.app.loadtest.LatencyRecorder;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Re-drives a capture log against a running build and compares latencies per endpoint with the
+// ones observed at capture time. Plain JDK, no Spring context needed:
+//
+//   java -cp target/classes com.immobilier.app.capture.TrafficReplay \
+//       --log=capture/capture-123.trc --target=http://localhost:8080 --speed=4
+//
+// --speed is the time compression factor (1 = original pacing, 0 = as fast as --concurrency allows).
+// Replays are most meaningful against a database seeded like the captured one (see the loadtest profile).
+public class TrafficReplay {
+    private static final String BOUNDARY = "replay-boundary";
+    private static final byte[] PNG_HEADER = Base64.getDecoder().decode(
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAQAAAC1HAwCAAAAC0lEQVR42mNkYAAAAAYAAjCB0C8AAAAASUVORK5CYII=");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        if (!options.containsKey("log")) {
+            System.err.println("Usage: TrafficReplay --log=<capture.trc> [--target=http://localhost:8080] [--speed=1] [--concurrency=64]");
+            System.exit(2);
+        }
+        Path log = Paths.get(options.get("log"));
+        String target = options.getOrDefault("target", "http://localhost:8080");
+        double speed = Double.parseDouble(options.getOrDefault("speed", "1"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+
+        new TrafficReplay().replay(log, target, speed, concurrency);
+    }
+
+    public void replay(Path log, String target, double speed, int concurrency) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        LatencyRecorder original = new LatencyRecorder();
+        LatencyRecorder replayed = new LatencyRecorder();
+        Semaphore inFlight = new Semaphore(concurrency);
+
+        long started = System.nanoTime();
+        long firstOffset = -1;
+        int count = 0;
+        try (TrafficLogReader reader = new TrafficLogReader(log)) {
+            TrafficRecord record;
+            while ((record = reader.next()) != null) {
+                if (firstOffset < 0) {
+                    firstOffset = record.offsetMicros();
+                }
+                if (speed > 0) {
+                    long due = started + (long) ((record.offsetMicros() - firstOffset) * 1000 / speed);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                }
+                String endpoint = record.endpoint();
+                original.record(endpoint, record.durationMicros(), record.status() >= 400);
+
+                inFlight.acquire();
+                long sent = System.nanoTime();
+                int originalStatus = record.status();
+                client.sendAsync(toRequest(record, target), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, failure) -> {
+                            inFlight.release();
+                            boolean error = failure != null || (response.statusCode() >= 400 && originalStatus < 400);
+                            replayed.record(endpoint, (System.nanoTime() - sent) / 1000, error);
+                        });
+                count++;
+            }
+        }
+        inFlight.acquire(concurrency);
+        double elapsed = (System.nanoTime() - started) / 1e9;
+        System.out.printf("Replayed %d requests in %.1f s%n", count, elapsed);
+        System.out.println(compare(original, replayed));
+    }
+
+    // Errors in the replay column only count requests that succeeded when they were captured
+    static String compare(LatencyRecorder original, LatencyRecorder replayed) {
+        Map<String, LatencyRecorder.Histogram> before = original.snapshot();
+        Map<String, LatencyRecorder.Histogram> after = replayed.snapshot();
+        StringBuilder report = new StringBuilder(String.format("%n%-34s %8s %7s %12s %12s %8s %12s %12s %8s%n",
+                "endpoint", "requests", "errors", "p50 capt ms", "p50 repl ms", "p50 chg%", "p99 capt ms", "p99 repl ms", "p99 chg%"));
+        TreeSet<String> endpoints = new TreeSet<>(before.keySet());
+        endpoints.addAll(after.keySet());
+        for (String endpoint : endpoints) {
+            LatencyRecorder.Histogram b = before.get(endpoint);
+            LatencyRecorder.Histogram a = after.get(endpoint);
+            long p50b = b != null ? b.percentile(50) : 0;
+            long p50a = a != null ? a.percentile(50) : 0;
+            long p99b = b != null ? b.percentile(99) : 0;
+            long p99a = a != null ? a.percentile(99) : 0;
+            report.append(String.format("%-34s %8d %7d %12.2f %12.2f %8s %12.2f %12.2f %8s%n",
+                    endpoint, a != null ? a.count() : 0, a != null ? a.errors() : 0,
+                    p50b / 1000.0, p50a / 1000.0, delta(p50b, p50a),
+                    p99b / 1000.0, p99a / 1000.0, delta(p99b, p99a)));
+        }
+        return report.toString();
+    }
+
+    private static String delta(long before, long after) {
+        if (before == 0) {
+            return "n/a";
+        }
+        return String.format("%+.1f", (after - before) * 100.0 / before);
+    }
+
+    private HttpRequest toRequest(TrafficRecord record, String target) {
+        StringBuilder uri = new StringBuilder(target).append(record.path());
+        char separator = '?';
+        for (TrafficRecord.Param param : record.params()) {
+            uri.append(separator).append(encode(param.name())).append('=').append(encode(param.value()));
+            separator = '&';
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(uri.toString()))
+                .timeout(Duration.ofSeconds(60));
+        HttpRequest.BodyPublisher body = switch (record.bodyKind()) {
+            case JSON -> {
+                builder.header("Content-Type", "application/json");
+                yield HttpRequest.BodyPublishers.ofString(record.jsonBody());
+            }
+            case MULTIPART -> {
+                builder.header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY);
+                yield HttpRequest.BodyPublishers.ofByteArray(multipart(record));
+            }
+            case OTHER -> {
+                if (!record.contentType().isEmpty()) {
+                    builder.header("Content-Type", record.contentType());
+                }
+                yield HttpRequest.BodyPublishers.ofByteArray(new byte[(int) Math.min(record.bodySize(), Integer.MAX_VALUE)]);
+            }
+            default -> HttpRequest.BodyPublishers.noBody();
+        };
+        return builder.method(record.method(), body).build();
+    }
+
+    // Rebuilds an upload of the same size: a PNG signature followed by padding
+    private static byte[] multipart(TrafficRecord record) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (TrafficRecord.Part part : record.parts()) {
+            String contentType = part.contentType() != null && !part.contentType().isEmpty()
+                    ? part.contentType() : "application/octet-stream";
+            out.writeBytes(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + part.name() +
+                    "\"; filename=\"replay.png\"\r\nContent-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            byte[] content = new byte[(int) Math.max(part.size(), PNG_HEADER.length)];
+            System.arraycopy(PNG_HEADER, 0, content, 0, PNG_HEADER.length);
+            out.writeBytes(content);
+            out.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        out.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
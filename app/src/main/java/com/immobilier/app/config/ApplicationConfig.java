@@ -1,7 +1,9 @@
 package com.immobilier.app.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
+@EnableScheduling
 public class ApplicationConfig {
 } 
\ No newline at end of file
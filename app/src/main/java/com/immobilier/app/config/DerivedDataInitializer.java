@@ -0,0 +1,46 @@
+package com.immobilier.app.config;
+
+import com.immobilier.app.service.DemandeService;
+import com.immobilier.app.service.LocalisationService;
+import com.immobilier.app.service.MarketStatsService;
+import com.immobilier.app.service.OffreHistoryService;
+import com.immobilier.app.service.OffreCatalog;
+import com.immobilier.app.service.OffreReadModelService;
+import com.immobilier.app.service.OffreSimilarService;
+import com.immobilier.app.service.SupplyDemandService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+// Runs after every other initializer (including the load-test data generator), so rows
+// inserted with plain SQL get their read model, search columns and location before the first read
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 10)
+@RequiredArgsConstructor
+public class DerivedDataInitializer implements CommandLineRunner {
+
+    private final OffreReadModelService offreReadModelService;
+    private final DemandeService demandeService;
+    private final LocalisationService localisationService;
+    private final OffreCatalog offreCatalog;
+    private final MarketStatsService marketStatsService;
+    private final OffreHistoryService offreHistoryService;
+    private final SupplyDemandService supplyDemandService;
+    private final OffreSimilarService offreSimilarService;
+
+    @Override
+    public void run(String... args) {
+        offreReadModelService.rebuildIfStale();
+        offreCatalog.rebuild();
+        marketStatsService.rebuild();
+        demandeService.backfillSearchText();
+        // Demande locations are resolved against the gazetteer, so it is synced first
+        localisationService.syncFromOffres();
+        demandeService.backfillLocalisations();
+        supplyDemandService.reconcile();
+        offreHistoryService.ensurePartitions();
+        offreSimilarService.requestRebuild();
+    }
+}
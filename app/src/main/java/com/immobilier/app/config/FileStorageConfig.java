@@ -17,6 +17,9 @@ public class FileStorageConfig implements WebMvcConfigurer {
     @Value("${app.file.upload-path:/uploads}")
     private String uploadPath;
 
+    @Value("${app.storage.backend:local}")
+    private String storageBackend;
+
     public Path getUploadPath() {
         return Paths.get(uploadDir);
     }
@@ -31,6 +34,10 @@ public class FileStorageConfig implements WebMvcConfigurer {
 
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        // Object store uploads are read from presigned URLs (StorageRedirectController)
+        if (!"local".equals(storageBackend)) {
+            return;
+        }
         // Serve uploaded files statically
         registry.addResourceHandler(uploadPath + "/**")
                 .addResourceLocations("file:" + uploadDir + "/");
@@ -35,9 +35,14 @@ public class SecurityConfig {
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:3000"));
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With"));
-        configuration.setExposedHeaders(Arrays.asList("Authorization"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
+        // This filter answers every preflight, so controller-level @CrossOrigin settings never apply to them;
+        // the tus headers of /api/uploads (UploadController) have to be listed here
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With",
+                "If-None-Match", "If-Modified-Since",
+                "Tus-Resumable", "Upload-Length", "Upload-Metadata", "Upload-Offset"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "ETag", "Last-Modified",
+                "Location", "Tus-Resumable", "Upload-Offset", "Upload-Length", "Upload-Expires"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
         
@@ -0,0 +1,83 @@
+package com.immobilier.app.controller;
+
+import com.immobilier.app.dto.MarketStatsDto;
+import com.immobilier.app.dto.SupplyDemandCellDto;
+import com.immobilier.app.dto.TrendPointDto;
+import com.immobilier.app.entity.Offre.TypeBien;
+import com.immobilier.app.entity.OffreRollup.Period;
+import com.immobilier.app.service.MarketStatsService;
+import com.immobilier.app.service.OffreHistoryService;
+import com.immobilier.app.service.SupplyDemandService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = "http://localhost:3000")
+@RequiredArgsConstructor
+public class AnalyticsController {
+
+    private final MarketStatsService marketStatsService;
+    private final OffreHistoryService offreHistoryService;
+    private final SupplyDemandService supplyDemandService;
+
+    // Price per m² of the offers in a ville, a quartier of a ville and/or a type; no filter gives the whole market
+    @GetMapping("/market-stats")
+    public ResponseEntity<MarketStatsDto> getMarketStats(
+            @RequestParam(required = false) String ville,
+            @RequestParam(required = false) String quartier,
+            @RequestParam(required = false) TypeBien typeBien) {
+        try {
+            return marketStatsService.find(ville, quartier, typeBien)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // The same figures for every ville, or for every quartier of the given ville
+    @GetMapping("/market-stats/breakdown")
+    public ResponseEntity<List<MarketStatsDto>> getMarketStatsBreakdown(
+            @RequestParam(required = false) String ville,
+            @RequestParam(required = false) TypeBien typeBien) {
+        return ResponseEntity.ok(marketStatsService.breakdown(ville, typeBien));
+    }
+
+    // New listings, average asking price, sales, days on market and withdrawals per day or week,
+    // read from the pre-aggregated rollups
+    @GetMapping("/trends")
+    public ResponseEntity<List<TrendPointDto>> getTrends(
+            @RequestParam(defaultValue = "WEEK") Period period,
+            @RequestParam(required = false) String ville,
+            @RequestParam(required = false) String quartier,
+            @RequestParam(required = false) TypeBien typeBien,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(offreHistoryService.trends(period, ville, quartier, typeBien, from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // DISPONIBLE offers against demandes per ville, quartier, type and budget band, from memory.
+    // The ETag changes with every offer or demande write, so pollers mostly get 304s.
+    @GetMapping("/supply-demand")
+    public ResponseEntity<List<SupplyDemandCellDto>> getSupplyDemand(
+            @RequestParam(required = false) String ville,
+            @RequestParam(required = false) String quartier,
+            @RequestParam(required = false) TypeBien typeBien,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified("\"supply-demand-" + supplyDemandService.version() + "\"")) {
+            return null;
+        }
+        return ResponseEntity.ok(supplyDemandService.matrix(ville, quartier, typeBien != null ? typeBien.name() : null));
+    }
+}
@@ -0,0 +1,39 @@
+package com.immobilier.app.controller;
+
+import com.immobilier.app.service.ChangeEventLog;
+import com.immobilier.app.service.ChangeTracker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/events")
+@CrossOrigin(origins = "http://localhost:3000")
+@RequiredArgsConstructor
+public class ChangeEventController {
+    private static final Set<String> ENTITIES = Set.of(ChangeTracker.OFFRES, ChangeTracker.DEMANDES);
+
+    private final ChangeEventLog changeEventLog;
+
+    // Server-Sent Events of committed writes, each with its sequence as id. EventSource resumes with
+    // Last-Event-ID on its own; since does the same for a first connection. entity: offres or demandes.
+    // No produces condition: the default JSON content type would keep it from matching */*
+    @GetMapping
+    public ResponseEntity<SseEmitter> subscribe(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(required = false) Long since,
+            @RequestParam(required = false) String entity) {
+        if (entity != null && !ENTITIES.contains(entity)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(changeEventLog.subscribe(lastEventId != null ? lastEventId : since, entity));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+}
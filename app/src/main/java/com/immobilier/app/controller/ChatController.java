@@ -1,5 +1,9 @@
 package com.immobilier.app.controller;
 
+import com.immobilier.app.dto.MarketStatsDto;
+import com.immobilier.app.entity.Offre.TypeBien;
+import com.immobilier.app.service.MarketStatsService;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.RestTemplate;
@@ -11,7 +15,11 @@ import java.util.ArrayList;
 @RestController
 @RequestMapping("/api/chat")
 @CrossOrigin(origins = "http://localhost:3000")
+@RequiredArgsConstructor
 public class ChatController {
+    private static final int PROMPT_VILLES = 8;
+
+    private final MarketStatsService marketStatsService;
 
     private final RestTemplate restTemplate = new RestTemplate();
     private final String OLLAMA_URL = "http://localhost:11434/api/generate";
@@ -77,7 +85,7 @@ public class ChatController {
             // Prepare the request for Ollama
             Map<String, Object> ollamaRequest = new HashMap<>();
             ollamaRequest.put("model", MODEL_NAME);
-            ollamaRequest.put("prompt", SYSTEM_PROMPT + "\n\nUtilisateur: " + userMessage + "\n\nAssistant:");
+            ollamaRequest.put("prompt", systemPrompt() + "\n\nUtilisateur: " + userMessage + "\n\nAssistant:");
             ollamaRequest.put("stream", false);
 
             // Set headers
@@ -129,7 +137,7 @@ public class ChatController {
             // Prepare the request for Ollama with streaming
             Map<String, Object> ollamaRequest = new HashMap<>();
             ollamaRequest.put("model", MODEL_NAME);
-            ollamaRequest.put("prompt", SYSTEM_PROMPT + "\n\nUtilisateur: " + userMessage + "\n\nAssistant:");
+            ollamaRequest.put("prompt", systemPrompt() + "\n\nUtilisateur: " + userMessage + "\n\nAssistant:");
             ollamaRequest.put("stream", true);
 
             // Set headers
@@ -168,6 +176,32 @@ public class ChatController {
         }
     }
 
+    // The fixed prompt followed by the current price per m² of the listings, when the statistics are built
+    private String systemPrompt() {
+        if (!marketStatsService.isReady()) {
+            return SYSTEM_PROMPT;
+        }
+        StringBuilder prompt = new StringBuilder(SYSTEM_PROMPT)
+                .append("\nPRIX AU M² DES ANNONCES DU SITE (médiane, fourchette p10-p90), à préférer aux prix moyens ci-dessus:\n");
+        List<MarketStatsDto> villes = marketStatsService.breakdown(null, null);
+        for (MarketStatsDto stats : villes.subList(0, Math.min(PROMPT_VILLES, villes.size()))) {
+            appendStats(prompt, stats.getVille(), stats);
+        }
+        for (TypeBien typeBien : TypeBien.values()) {
+            marketStatsService.find(null, null, typeBien)
+                    .ifPresent(stats -> appendStats(prompt, typeBien.name(), stats));
+        }
+        return prompt.toString();
+    }
+
+    private static void appendStats(StringBuilder prompt, String label, MarketStatsDto stats) {
+        if (stats.getPrixM2Median() == null) {
+            return;
+        }
+        prompt.append(String.format("- %s: %.0f MAD/m² (%.0f - %.0f), %d annonces%n", label,
+                stats.getPrixM2Median(), stats.getPrixM2P10(), stats.getPrixM2P90(), stats.getListings()));
+    }
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> healthCheck() {
         Map<String, Object> health = new HashMap<>();
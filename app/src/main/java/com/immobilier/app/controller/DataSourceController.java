@@ -0,0 +1,27 @@
+package com.immobilier.app.controller;
+
+import com.immobilier.app.datasource.ReplicaRoutingDataSource;
+import com.immobilier.app.dto.DataSourceRoutingDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/datasources")
+@CrossOrigin(origins = "http://localhost:3000")
+@ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class DataSourceController {
+
+    private final ReplicaRoutingDataSource routingDataSource;
+
+    // Replica state, routing counters and pool usage
+    @GetMapping
+    public ResponseEntity<DataSourceRoutingDto> getRouting() {
+        return ResponseEntity.ok(routingDataSource.stats());
+    }
+}
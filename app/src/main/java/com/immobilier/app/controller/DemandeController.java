@@ -1,43 +1,103 @@
 package com.immobilier.app.controller;
 
 import com.immobilier.app.dto.DemandeDto;
+import com.immobilier.app.dto.FacetedPage;
+import com.immobilier.app.dto.OffreDto;
 import com.immobilier.app.entity.Demande.TypeDemande;
 import com.immobilier.app.entity.Demande.TypeBien;
+import com.immobilier.app.repository.ChangeStamp;
+import com.immobilier.app.service.ChangeTracker;
 import com.immobilier.app.service.DemandeService;
+import com.immobilier.app.service.OffreService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/demandes")
 @RequiredArgsConstructor
 public class DemandeController {
     private final DemandeService demandeService;
+    private final OffreService offreService;
+    private final ChangeTracker changeTracker;
 
     @GetMapping
-    public ResponseEntity<Page<DemandeDto>> getAllDemandes(
+    public ResponseEntity<Page<?>> getAllDemandes(
             @RequestParam(required = false) TypeDemande typeDemande,
             @RequestParam(required = false) TypeBien typeBien,
             @RequestParam(required = false) Double prixMin,
             @RequestParam(required = false) Double prixMax,
             @RequestParam(required = false) Double surfaceMin,
             @RequestParam(required = false) Double surfaceMax,
+            @RequestParam(required = false) String ville,
+            @RequestParam(required = false) String quartier,
             @RequestParam(required = false) String searchKeyword,
-            Pageable pageable) {
-        return ResponseEntity.ok(demandeService.findAllWithFilters(
-                typeDemande, typeBien, prixMin, prixMax,
-                surfaceMin, surfaceMax, searchKeyword, pageable));
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestParam(defaultValue = "false") boolean multiSelect,
+            Pageable pageable,
+            WebRequest webRequest) {
+        // The tag and the page come from the same connection, see ChangeTracker.read
+        return changeTracker.read(ChangeTracker.DEMANDES, stamp -> webRequest.checkNotModified(stamp.etag(),
+                stamp.lastModified()) ? null : search(fields, typeDemande, typeBien, prixMin, prixMax,
+                surfaceMin, surfaceMax, ville, quartier, searchKeyword, pageable, facets, multiSelect));
+    }
+
+    // Only the listed columns are selected, fields=summary gives the list-view shape;
+    // facets=true adds counts per typeDemande, typeBien, ville, quartier and prixBand
+    private ResponseEntity<Page<?>> search(String fields, TypeDemande typeDemande, TypeBien typeBien,
+                                           Double prixMin, Double prixMax, Double surfaceMin, Double surfaceMax,
+                                           String ville, String quartier, String searchKeyword, Pageable pageable,
+                                           boolean facets, boolean multiSelect) {
+        try {
+            Page<?> result = fields == null
+                    ? demandeService.findAllWithFilters(typeDemande, typeBien, prixMin, prixMax,
+                            surfaceMin, surfaceMax, ville, quartier, searchKeyword, pageable)
+                    : demandeService.findFieldsWithFilters(fields, typeDemande, typeBien, prixMin, prixMax,
+                            surfaceMin, surfaceMax, ville, quartier, searchKeyword, pageable);
+            if (facets) {
+                result = new FacetedPage<>(result, demandeService.facets(typeDemande, typeBien, prixMin, prixMax,
+                        surfaceMin, surfaceMax, ville, quartier, searchKeyword, multiSelect));
+            }
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<DemandeDto> getDemandeById(@PathVariable Long id) {
+    public ResponseEntity<DemandeDto> getDemandeById(@PathVariable Long id, WebRequest webRequest) {
+        Optional<ChangeStamp> stamp = demandeService.findStamp(id);
+        if (stamp.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (webRequest.checkNotModified(ChangeTracker.etag(ChangeTracker.DEMANDES, id, stamp.get()),
+                ChangeTracker.lastModified(stamp.get()))) {
+            return null;
+        }
         return demandeService.findById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Offers this demande could be shown, see OffreService.findMatching
+    @GetMapping("/{id}/offres")
+    public ResponseEntity<Page<OffreDto>> getMatchingOffres(@PathVariable Long id, Pageable pageable) {
+        try {
+            return demandeService.findById(id)
+                    .map(demande -> ResponseEntity.ok(offreService.findMatching(demande, pageable)))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping
     public ResponseEntity<DemandeDto> createDemande(@RequestBody DemandeDto demandeDto) {
         return ResponseEntity.ok(demandeService.create(demandeDto));
@@ -47,15 +107,29 @@ public class DemandeController {
     public ResponseEntity<DemandeDto> updateDemande(
             @PathVariable Long id,
             @RequestBody DemandeDto demandeDto) {
+        // A replacement must name the version it replaces, or it would silently overwrite a concurrent edit
+        if (demandeDto.getVersion() == null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).build();
+        }
         return demandeService.update(id, demandeDto)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @PatchMapping("/{id}")
+    public ResponseEntity<DemandeDto> patchDemande(
+            @PathVariable Long id,
+            @RequestBody DemandeDto demandeDto) {
+        return demandeService.patch(id, demandeDto)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteDemande(@PathVariable Long id) {
-        demandeService.delete(id);
-        return ResponseEntity.ok().build();
+        return demandeService.delete(id)
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.notFound().build();
     }
 
     @GetMapping("/all")
@@ -1,7 +1,10 @@
 package com.immobilier.app.controller;
 
+import com.immobilier.app.dto.UploadCollectorReportDto;
 import com.immobilier.app.service.FileStorageService;
+import com.immobilier.app.service.UploadCollector;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -17,6 +20,7 @@ import java.util.Map;
 public class ImageController {
 
     private final FileStorageService fileStorageService;
+    private final UploadCollector uploadCollector;
 
     @PostMapping("/upload")
     public ResponseEntity<Map<String, Object>> uploadImage(@RequestParam("image") MultipartFile image) {
@@ -51,6 +55,11 @@ public class ImageController {
     public ResponseEntity<Map<String, Object>> deleteImage(@RequestParam("imageUrl") String imageUrl) {
         Map<String, Object> response = new HashMap<>();
         
+        // Photos are removed with their offer
+        if (uploadCollector.isReferenced(imageUrl)) {
+            response.put("error", "Image is used by an offer");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
         try {
             fileStorageService.deleteFile(imageUrl);
             response.put("success", true);
@@ -73,4 +82,10 @@ public class ImageController {
         
         return ResponseEntity.ok(response);
     }
-} 
\ No newline at end of file
+
+    // Manifest size and bytes reclaimed by the orphan collector
+    @GetMapping("/gc")
+    public ResponseEntity<UploadCollectorReportDto> getCollectorReport() {
+        return ResponseEntity.ok(uploadCollector.report());
+    }
+}
@@ -1,30 +1,58 @@
 package com.immobilier.app.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.immobilier.app.dto.BulkResultDto;
+import com.immobilier.app.dto.DeletionProgressDto;
+import com.immobilier.app.dto.DemandeDto;
+import com.immobilier.app.dto.FacetedPage;
+import com.immobilier.app.dto.OffreEventDto;
 import com.immobilier.app.dto.OffreDto;
+import com.immobilier.app.dto.OffreViewsDto;
 import com.immobilier.app.entity.Offre;
 import com.immobilier.app.entity.Offre.TypeBien;
+import com.immobilier.app.repository.ChangeStamp;
+import com.immobilier.app.service.ChangeTracker;
+import com.immobilier.app.service.DemandeService;
+import com.immobilier.app.service.OffreDeletionService;
+import com.immobilier.app.service.OffreHistoryService;
 import com.immobilier.app.service.OffreService;
+import com.immobilier.app.service.OffreViewService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/offres")
 @CrossOrigin(origins = "http://localhost:3000")
 @RequiredArgsConstructor
 public class OffreController {
+    private static final int MAX_BULK_IDS = 1000;
+    private static final int MAX_BATCH_IDS = 500;
+
     private final OffreService offreService;
+    private final DemandeService demandeService;
+    private final OffreHistoryService offreHistoryService;
+    private final OffreDeletionService offreDeletionService;
+    private final OffreViewService offreViewService;
+    private final ChangeTracker changeTracker;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public ResponseEntity<Page<OffreDto>> getAllOffres(
+    public ResponseEntity<Page<?>> getAllOffres(
             @RequestParam(required = false) TypeBien typeBien,
             @RequestParam(required = false) Double prixMin,
             @RequestParam(required = false) Double prixMax,
@@ -33,14 +61,20 @@ public class OffreController {
             @RequestParam(required = false) String ville,
             @RequestParam(required = false) String quartier,
             @RequestParam(required = false) String searchKeyword,
-            Pageable pageable) {
-        return ResponseEntity.ok(offreService.findAllWithFilters(
-                typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
-                ville, quartier, searchKeyword, pageable));
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestParam(defaultValue = "false") boolean multiSelect,
+            @RequestParam(defaultValue = "false") boolean includeArchived,
+            Pageable pageable,
+            WebRequest webRequest) {
+        // The tag and the page come from the same connection, see ChangeTracker.read
+        return changeTracker.read(ChangeTracker.OFFRES, stamp -> webRequest.checkNotModified(stamp.etag(),
+                stamp.lastModified()) ? null : search(fields, typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                ville, quartier, searchKeyword, pageable, facets, multiSelect, includeArchived));
     }
 
     @GetMapping("/paginated")
-    public ResponseEntity<Page<OffreDto>> getPaginatedOffres(
+    public ResponseEntity<Page<?>> getPaginatedOffres(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "30") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
@@ -50,23 +84,147 @@ public class OffreController {
             @RequestParam(required = false) Double prixMax,
             @RequestParam(required = false) String ville,
             @RequestParam(required = false) String quartier,
-            @RequestParam(required = false) String searchKeyword) {
-        
+            @RequestParam(required = false) String searchKeyword,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestParam(defaultValue = "false") boolean multiSelect,
+            @RequestParam(defaultValue = "false") boolean includeArchived,
+            WebRequest webRequest) {
         Sort sort = Sort.by(Sort.Direction.fromString(sortDir), sortBy);
         Pageable pageable = PageRequest.of(page, size, sort);
-        
-        return ResponseEntity.ok(offreService.findAllWithFilters(
-                typeBien, prixMin, prixMax, null, null,
-                ville, quartier, searchKeyword, pageable));
+
+        // Any write to the table changes the tag, so the page is neither loaded nor serialized on a 304.
+        // The tag and the page come from the same connection, see ChangeTracker.read
+        return changeTracker.read(ChangeTracker.OFFRES, stamp -> webRequest.checkNotModified(stamp.etag(),
+                stamp.lastModified()) ? null : search(fields, typeBien, prixMin, prixMax, null, null,
+                ville, quartier, searchKeyword, pageable, facets, multiSelect, includeArchived));
+    }
+
+    // Full DTOs by default, or only the columns listed in fields (fields=summary for the card shape).
+    // facets=true adds counts per typeBien, statutOffre, ville, quartier and prixBand for the same filters.
+    // includeArchived=true also returns archived offers, as full DTOs only.
+    private ResponseEntity<Page<?>> search(String fields, TypeBien typeBien, Double prixMin, Double prixMax,
+                                           Double surfaceMin, Double surfaceMax, String ville, String quartier,
+                                           String searchKeyword, Pageable pageable,
+                                           boolean facets, boolean multiSelect, boolean includeArchived) {
+        try {
+            if (includeArchived) {
+                if (fields != null || facets) {
+                    return ResponseEntity.badRequest().build();
+                }
+                return ResponseEntity.ok(offreService.findAllIncludingArchived(typeBien, prixMin, prixMax,
+                        surfaceMin, surfaceMax, ville, quartier, searchKeyword, pageable));
+            }
+            Page<?> result = fields == null
+                    ? offreService.findAllWithFilters(typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                            ville, quartier, searchKeyword, pageable)
+                    : offreService.findFieldsWithFilters(fields, typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                            ville, quartier, searchKeyword, pageable);
+            if (facets) {
+                result = new FacetedPage<>(result, offreService.facets(typeBien, prixMin, prixMax,
+                        surfaceMin, surfaceMax, ville, quartier, searchKeyword, multiSelect));
+            }
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Favorites and comparison views: offers in request order, unknown ids listed under "missing"
+    @GetMapping("/batch")
+    public ResponseEntity<StreamingResponseBody> getOffresByIds(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Long> requested = ids.stream().distinct().toList();
+        Map<Long, OffreDto> found = offreService.findByIds(requested);
+
+        // Serialized one offer at a time straight to the response instead of building the whole body
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("offres");
+                for (Long id : requested) {
+                    OffreDto offre = found.get(id);
+                    if (offre != null) {
+                        objectMapper.writeValue(generator, offre);
+                    }
+                }
+                generator.writeEndArray();
+                generator.writeArrayFieldStart("missing");
+                for (Long id : requested) {
+                    if (!found.containsKey(id)) {
+                        generator.writeNumber(id);
+                    }
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // Most viewed offers of the last 7 days, refreshed every app.views.flush-ms
+    @GetMapping("/most-viewed")
+    public ResponseEntity<List<OffreViewsDto>> getMostViewed(@RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(offreViewService.mostViewed(limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<OffreDto> getOffreById(@PathVariable Long id) {
+    public ResponseEntity<OffreDto> getOffreById(@PathVariable Long id,
+                                                 @RequestParam(defaultValue = "false") boolean includeArchived,
+                                                 WebRequest webRequest) {
+        Optional<ChangeStamp> stamp = offreService.findStamp(id);
+        if (stamp.isEmpty()) {
+            // Archived offers no longer change
+            return (includeArchived ? offreService.findArchivedById(id) : Optional.<OffreDto>empty())
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        }
+        // A revalidated page is still a view
+        offreViewService.recordView(id);
+        if (webRequest.checkNotModified(ChangeTracker.etag(ChangeTracker.OFFRES, id, stamp.get()),
+                ChangeTracker.lastModified(stamp.get()))) {
+            return null;
+        }
         return offreService.findById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Up to app.similar.k DISPONIBLE offers of the same type and city, closest in price and surface first,
+    // refreshed by a background job; empty until it has seen the offer
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<OffreDto>> getSimilarOffres(@PathVariable Long id) {
+        if (offreService.findStamp(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(offreService.findSimilar(id));
+    }
+
+    // Demandes this offer could be proposed to, see DemandeRepositoryCustom.findMatching
+    @GetMapping("/{id}/demandes")
+    public ResponseEntity<Page<DemandeDto>> getMatchingDemandes(@PathVariable Long id, Pageable pageable) {
+        try {
+            return offreService.findById(id)
+                    .map(offre -> ResponseEntity.ok(demandeService.findMatching(offre, pageable)))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Listing, price and status changes of the offer, oldest first
+    @GetMapping("/{id}/history")
+    public ResponseEntity<List<OffreEventDto>> getOffreHistory(@PathVariable Long id) {
+        List<OffreEventDto> history = offreHistoryService.history(id);
+        return history.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(history);
+    }
+
     @PostMapping
     public ResponseEntity<OffreDto> createOffre(@RequestBody OffreDto offreDto) {
         return ResponseEntity.ok(offreService.create(offreDto));
@@ -76,23 +234,35 @@ public class OffreController {
     public ResponseEntity<OffreDto> updateOffre(
             @PathVariable Long id,
             @RequestBody OffreDto offreDto) {
+        // A replacement must name the version it replaces, or it would silently overwrite a concurrent edit
+        if (offreDto.getVersion() == null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).build();
+        }
         return offreService.update(id, offreDto)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @PatchMapping("/{id}")
+    public ResponseEntity<OffreDto> patchOffre(
+            @PathVariable Long id,
+            @RequestBody OffreDto offreDto) {
+        return offreService.patch(id, offreDto)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // The offer disappears at once, its rows and photo files are removed in the background
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteOffre(@PathVariable Long id) {
-        try {
-            offreService.delete(id);
-            return ResponseEntity.ok().build();
-        } catch (RuntimeException e) {
-            System.err.println("Error in delete endpoint: " + e.getMessage());
-            return ResponseEntity.badRequest().build();
-        } catch (Exception e) {
-            System.err.println("Unexpected error in delete endpoint: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+        return offreService.delete(id)
+                ? ResponseEntity.accepted().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/deletions")
+    public ResponseEntity<DeletionProgressDto> getDeletionProgress() {
+        return ResponseEntity.ok(offreDeletionService.progress());
     }
 
     @PostMapping("/upload-image")
@@ -116,7 +286,7 @@ public class OffreController {
 
     @GetMapping("/all")
     public List<OffreDto> getAllOffersSimple() {
-        return offreService.findAll().stream().map(OffreDto::fromEntity).toList();
+        return offreService.findAll();
     }
 
     @GetMapping("/test")
@@ -124,6 +294,45 @@ public class OffreController {
         return ResponseEntity.ok("OffreController is working!");
     }
 
+    @PatchMapping("/status")
+    public ResponseEntity<BulkResultDto> bulkUpdateStatus(@RequestBody Map<String, Object> request) {
+        try {
+            List<Long> ids = bulkIds(request);
+            Object statusValue = request.get("statutOffre");
+            if (ids == null || statusValue == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            Offre.StatutOffre newStatus = Offre.StatutOffre.valueOf(statusValue.toString());
+            return ResponseEntity.ok(offreService.bulkUpdateStatus(ids, newStatus));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<BulkResultDto> bulkDelete(@RequestBody Map<String, Object> request) {
+        try {
+            List<Long> ids = bulkIds(request);
+            if (ids == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(offreService.bulkDelete(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Reads the "ids" array of a bulk request, null when it is missing or too long
+    private static List<Long> bulkIds(Map<String, Object> request) {
+        if (!(request.get("ids") instanceof List<?> values) || values.size() > MAX_BULK_IDS) {
+            return null;
+        }
+        return values.stream()
+                .map(value -> Long.valueOf(value.toString()))
+                .distinct()
+                .toList();
+    }
+
     @PatchMapping("/{id}/status")
     public ResponseEntity<OffreDto> updateOffreStatus(
             @PathVariable Long id,
@@ -135,7 +344,9 @@ public class OffreController {
             }
             
             Offre.StatutOffre newStatus = Offre.StatutOffre.valueOf(statusString);
-            return offreService.updateStatus(id, newStatus)
+            String versionString = statusRequest.get("version");
+            Long expectedVersion = versionString != null ? Long.valueOf(versionString) : null;
+            return offreService.updateStatus(id, newStatus, expectedVersion)
                     .map(ResponseEntity::ok)
                     .orElse(ResponseEntity.notFound().build());
         } catch (IllegalArgumentException e) {
@@ -143,4 +354,3 @@ public class OffreController {
         }
     }
 }
-
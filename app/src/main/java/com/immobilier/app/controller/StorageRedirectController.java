@@ -0,0 +1,51 @@
+package com.immobilier.app.controller;
+
+import com.immobilier.app.service.FileStorageService;
+import com.immobilier.app.storage.StorageBackend;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+// Photo URLs keep their /uploads/... form with an object store backend: each request is redirected to
+// a presigned URL of the object, so the image bytes go from the store to the client directly.
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "s3")
+@RequiredArgsConstructor
+public class StorageRedirectController {
+
+    private final StorageBackend storage;
+    private final FileStorageService fileStorageService;
+
+    @GetMapping("${app.file.upload-path:/uploads}/**")
+    public ResponseEntity<Void> redirect(HttpServletRequest request) {
+        String url = URLDecoder.decode(request.getRequestURI().substring(request.getContextPath().length()),
+                StandardCharsets.UTF_8);
+        String key = fileStorageService.keyOf(url);
+        if (key == null || !fileStorageService.fileExists(url)) {
+            return ResponseEntity.notFound().build();
+        }
+        return storage.presignedReadUrl(key)
+                .map(target -> ResponseEntity.status(HttpStatus.FOUND).location(toUri(target)).<Void>build())
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static URI toUri(URL url) {
+        try {
+            return url.toURI();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
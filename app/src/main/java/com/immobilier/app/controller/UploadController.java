@@ -0,0 +1,140 @@
+package com.immobilier.app.controller;
+
+import com.immobilier.app.dto.UploadSessionDto;
+import com.immobilier.app.service.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Resumable uploads following the tus 1.0 core protocol, plus an explicit finalize step:
+// POST with Upload-Length and Upload-Metadata (filename, filetype) creates the upload, HEAD returns its
+// Upload-Offset, PATCH appends the chunk found at Upload-Offset, POST .../finalize returns the image URL.
+@RestController
+@RequestMapping("/api/uploads")
+@CrossOrigin(origins = "http://localhost:3000")
+@RequiredArgsConstructor
+public class UploadController {
+    private static final String TUS_VERSION = "1.0.0";
+    private static final String CHUNK_CONTENT_TYPE = "application/offset+octet-stream";
+
+    private final ResumableUploadService uploadService;
+
+    @PostMapping
+    public ResponseEntity<?> create(@RequestHeader("Upload-Length") long length,
+                                    @RequestHeader(value = "Upload-Metadata", required = false) String metadata) {
+        Map<String, String> values = parseMetadata(metadata);
+        try {
+            UploadSessionDto upload = uploadService.create(length, values.get("filename"), values.get("filetype"));
+            return ResponseEntity.created(URI.create("/api/uploads/" + upload.getId()))
+                    .headers(headers(upload))
+                    .body(upload);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(error("Failed to start upload: " + e.getMessage()));
+        }
+    }
+
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> head(@PathVariable String id) {
+        return uploadService.find(id)
+                .map(upload -> ResponseEntity.ok().headers(headers(upload)).<Void>build())
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionDto> get(@PathVariable String id) {
+        return uploadService.find(id)
+                .map(upload -> ResponseEntity.ok().headers(headers(upload)).body(upload))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PatchMapping(value = "/{id}", consumes = CHUNK_CONTENT_TYPE)
+    public ResponseEntity<?> append(@PathVariable String id, @RequestHeader("Upload-Offset") long offset,
+                                    HttpServletRequest request) {
+        try {
+            Optional<UploadSessionDto> upload = uploadService.append(id, offset, request.getContentLengthLong(),
+                    request.getInputStream());
+            return upload
+                    .map(value -> ResponseEntity.noContent().headers(headers(value)).build())
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error(e.getMessage()));
+        } catch (IOException e) {
+            // Nothing was kept, the client resumes from the current offset
+            return ResponseEntity.internalServerError().body(error("Failed to store chunk: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{id}/finalize")
+    public ResponseEntity<?> finalizeUpload(@PathVariable String id) {
+        try {
+            return uploadService.finalizeUpload(id)
+                    .<ResponseEntity<?>>map(upload -> ResponseEntity.ok().headers(headers(upload)).body(upload))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error(e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(error("Failed to finalize upload: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> delete(@PathVariable String id) {
+        try {
+            return uploadService.abort(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error(e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(error("Failed to delete upload: " + e.getMessage()));
+        }
+    }
+
+    private static HttpHeaders headers(UploadSessionDto upload) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Tus-Resumable", TUS_VERSION);
+        headers.set("Upload-Offset", Long.toString(upload.getOffset()));
+        headers.set("Upload-Length", Long.toString(upload.getLength()));
+        headers.set("Upload-Expires", upload.getExpiresAt().toString());
+        headers.setCacheControl("no-store");
+        return headers;
+    }
+
+    // "key base64value,key base64value"
+    private static Map<String, String> parseMetadata(String metadata) {
+        Map<String, String> values = new HashMap<>();
+        if (metadata == null) {
+            return values;
+        }
+        for (String pair : metadata.split(",")) {
+            String[] parts = pair.trim().split(" ", 2);
+            try {
+                values.put(parts[0], parts.length > 1
+                        ? new String(Base64.getDecoder().decode(parts[1].trim()), StandardCharsets.UTF_8)
+                        : "");
+            } catch (IllegalArgumentException e) {
+                // Not base64, ignored
+            }
+        }
+        return values;
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", message);
+        return response;
+    }
+}
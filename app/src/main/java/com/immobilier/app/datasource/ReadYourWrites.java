@@ -0,0 +1,62 @@
+package com.immobilier.app.datasource;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+// Read-your-writes stickiness: once a client's write commits, its reads go to the primary for
+// stickyMs, until the replica has caught up. Remembered in a cookie, so it holds on whichever node
+// serves the next request. The front end is on another origin, so its calls have to be made with
+// credentials: 'include' for the browser to keep and send the cookie (CORS allows credentials).
+// Writes made outside a request, e.g. by scheduled jobs, are not tracked.
+public class ReadYourWrites {
+    static final String COOKIE = "primary-until";
+    private static final String ATTRIBUTE = ReadYourWrites.class.getName();
+
+    private final long stickyMs;
+
+    public ReadYourWrites(long stickyMs) {
+        this.stickyMs = stickyMs;
+    }
+
+    public void written() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return;
+        }
+        long until = System.currentTimeMillis() + stickyMs;
+        attributes.getRequest().setAttribute(ATTRIBUTE, until);
+        HttpServletResponse response = attributes.getResponse();
+        if (response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(until));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, stickyMs / 1000));
+            response.addCookie(cookie);
+        }
+    }
+
+    public boolean isSticky() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        long now = System.currentTimeMillis();
+        if (request.getAttribute(ATTRIBUTE) instanceof Long until) {
+            return until > now;
+        }
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (COOKIE.equals(cookie.getName())) {
+                    try {
+                        return Long.parseLong(cookie.getValue()) > now;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
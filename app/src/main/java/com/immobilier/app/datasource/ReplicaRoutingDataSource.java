@@ -0,0 +1,193 @@
+package com.immobilier.app.datasource;
+
+import com.immobilier.app.dto.DataSourcePoolDto;
+import com.immobilier.app.dto.DataSourceRoutingDto;
+import com.immobilier.app.service.AfterCommit;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+// Sends the read-only transactions of HTTP requests to the replica pool and everything else to the primary. Reads stay on
+// the primary while the client is sticky (ReadYourWrites) and fall back to it while the replica is
+// down or lags more than maxLagSeconds, as seen by the last probe. Wrapped in a
+// LazyConnectionDataSourceProxy, so the connection is taken once the transaction's read-only flag is set.
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    private final ReadYourWrites readYourWrites;
+    private final long maxLagSeconds;
+    private final String lagQuery;
+    private final String lagColumn;
+
+    private volatile boolean replicaAvailable;
+    private volatile Long replicaLagSeconds;
+    private volatile String replicaStatus = "not probed yet";
+    private volatile LocalDateTime lastProbeAt;
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder stickyReads = new LongAdder();
+    private final LongAdder fallbackReads = new LongAdder();
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, HikariDataSource replica, ReadYourWrites readYourWrites,
+                                    long maxLagSeconds, String lagQuery, String lagColumn) {
+        this.primary = primary;
+        this.replica = replica;
+        this.readYourWrites = readYourWrites;
+        this.maxLagSeconds = maxLagSeconds;
+        this.lagQuery = lagQuery;
+        this.lagColumn = lagColumn;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        // Startup loaders and scheduled jobs derive state from what they read, they stay on the primary
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && RequestContextHolder.getRequestAttributes() != null) {
+            if (readYourWrites.isSticky()) {
+                stickyReads.increment();
+                return primaryConnection();
+            }
+            if (replicaAvailable) {
+                try {
+                    Connection connection = replica.getConnection();
+                    replicaConnections.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    unavailable("connection failed: " + e.getMessage());
+                }
+            }
+            fallbackReads.increment();
+            return primaryConnection();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            AfterCommit.run(readYourWrites::written);
+        }
+        return primaryConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        primaryConnections.increment();
+        return primary.getConnection(username, password);
+    }
+
+    private Connection primaryConnection() throws SQLException {
+        primaryConnections.increment();
+        return primary.getConnection();
+    }
+
+    // Replication lag as reported by the replica itself; without a lag query only connectivity is checked
+    @Scheduled(fixedDelayString = "${app.datasource.replica.probe-interval-ms:1000}")
+    public void probe() {
+        lastProbeAt = LocalDateTime.now();
+        Connection connection;
+        try {
+            connection = replica.getConnection();
+        } catch (SQLException e) {
+            probeFailed("Could not connect to the read replica", e);
+            return;
+        }
+        try (connection) {
+            if (lagQuery.isBlank()) {
+                replicaLagSeconds = null;
+                available();
+                return;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(lagQuery)) {
+                if (!rs.next()) {
+                    unavailable("not replicating");
+                    return;
+                }
+                long lag = rs.getLong(lagColumn);
+                if (rs.wasNull()) {
+                    // The replication threads are stopped
+                    replicaLagSeconds = null;
+                    unavailable("replication stopped");
+                    return;
+                }
+                replicaLagSeconds = lag;
+                if (lag > maxLagSeconds) {
+                    unavailable("lagging " + lag + " s");
+                } else {
+                    available();
+                }
+            }
+        } catch (SQLException e) {
+            // Most often a server that does not know the query or column, see lag-query in application.properties
+            probeFailed("Replica lag query '" + lagQuery + "' / column '" + lagColumn + "' failed (SHOW REPLICA STATUS "
+                    + "and Seconds_Behind_Source need MySQL 8.0.22 or later; older MySQL and MariaDB need "
+                    + "SHOW SLAVE STATUS and Seconds_Behind_Master)", e);
+        }
+    }
+
+    // A failing probe keeps every read on the primary, so each new failure is logged even if the replica
+    // was never available; repeats of the same failure are not
+    private void probeFailed(String what, SQLException e) {
+        String reason = "probe failed: " + e.getMessage();
+        if (!reason.equals(replicaStatus)) {
+            logger.warn("{}, reads stay on the primary: {}", what, e.getMessage());
+        }
+        unavailable(reason);
+    }
+
+    private void available() {
+        if (!replicaAvailable) {
+            logger.info("Read replica available, reads go to it");
+        }
+        replicaStatus = "available";
+        replicaAvailable = true;
+    }
+
+    private void unavailable(String reason) {
+        if (replicaAvailable && !reason.startsWith("probe failed")) {
+            logger.warn("Read replica unavailable ({}), reads go to the primary", reason);
+        }
+        replicaStatus = reason;
+        replicaAvailable = false;
+    }
+
+    public DataSourceRoutingDto stats() {
+        return DataSourceRoutingDto.builder()
+                .replicaAvailable(replicaAvailable)
+                .replicaStatus(replicaStatus)
+                .replicaLagSeconds(replicaLagSeconds)
+                .maxLagSeconds(maxLagSeconds)
+                .lastProbeAt(lastProbeAt)
+                .stickyReads(stickyReads.sum())
+                .fallbackReads(fallbackReads.sum())
+                .pools(List.of(pool("primary", primary, primaryConnections), pool("replica", replica, replicaConnections)))
+                .build();
+    }
+
+    private static DataSourcePoolDto pool(String name, HikariDataSource dataSource, LongAdder connections) {
+        DataSourcePoolDto.DataSourcePoolDtoBuilder pool = DataSourcePoolDto.builder()
+                .name(name)
+                .url(dataSource.getJdbcUrl())
+                .maximumPoolSize(dataSource.getMaximumPoolSize())
+                .connectionsRouted(connections.sum());
+        HikariPoolMXBean bean = dataSource.getHikariPoolMXBean();
+        if (bean != null) {
+            pool.activeConnections(bean.getActiveConnections())
+                    .idleConnections(bean.getIdleConnections())
+                    .totalConnections(bean.getTotalConnections())
+                    .threadsAwaitingConnection(bean.getThreadsAwaitingConnection());
+        }
+        return pool.build();
+    }
+}
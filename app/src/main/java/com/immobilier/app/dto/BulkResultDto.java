@@ -0,0 +1,19 @@
+package com.immobilier.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkResultDto {
+    private int requested;
+    private int succeeded;
+    private int notFound;
+    // Outcome per id, in request order: UPDATED, DELETED or NOT_FOUND
+    private Map<Long, String> results;
+}
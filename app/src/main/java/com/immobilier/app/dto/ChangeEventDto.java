@@ -0,0 +1,31 @@
+package com.immobilier.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// One committed write, as sent on /api/events
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeEventDto {
+    public enum Type {
+        CREATED, UPDATED, STATUS_CHANGED, DELETED, PHOTOS_ADDED,
+        // Moved to offres_archive, gone from the lists like a deleted offer
+        ARCHIVED
+    }
+
+    private long sequence;
+    // ChangeTracker.OFFRES or ChangeTracker.DEMANDES
+    private String entity;
+    private Type type;
+    // Several for the bulk endpoints
+    private List<Long> ids;
+    // New status, STATUS_CHANGED only
+    private String statut;
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,23 @@
+package com.immobilier.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One connection pool of the routing datasource
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DataSourcePoolDto {
+    private String name;
+    private String url;
+    private int maximumPoolSize;
+    // Connections handed out for this pool since the application started
+    private long connectionsRouted;
+    private int activeConnections;
+    private int idleConnections;
+    private int totalConnections;
+    private int threadsAwaitingConnection;
+}
@@ -0,0 +1,28 @@
+package com.immobilier.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// State of the read/write routing, counters since the application started
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DataSourceRoutingDto {
+    private boolean replicaAvailable;
+    // "available" or why reads fall back to the primary
+    private String replicaStatus;
+    // Null when unknown or not checked
+    private Long replicaLagSeconds;
+    private long maxLagSeconds;
+    private LocalDateTime lastProbeAt;
+    // Read-only transactions kept on the primary after the client's own write
+    private long stickyReads;
+    // Read-only transactions sent to the primary because the replica was unavailable
+    private long fallbackReads;
+    private List<DataSourcePoolDto> pools;
+}
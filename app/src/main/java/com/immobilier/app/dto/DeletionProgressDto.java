@@ -0,0 +1,26 @@
+package com.immobilier.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Progress of the background offer deletion, counters since the application started
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeletionProgressDto {
+    // Offers marked deleted whose rows are still there
+    private long pendingOffres;
+    private long deletedOffres;
+    private long deletedFiles;
+    // Files whose deletion failed and will be tried again
+    private int retryingFiles;
+    // Offers and files given up after too many failures
+    private List<Long> failedOffres;
+    private long failedFiles;
+    private LocalDateTime lastRunAt;
+}
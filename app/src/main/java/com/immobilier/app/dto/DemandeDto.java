@@ -25,7 +25,10 @@ public class DemandeDto {
     private Integer etageSouhaite;
     private Double prixSouhaite;
     private String localisationSouhaitee;
+    private String localisationVille;
+    private String localisationQuartier;
     private String notesSupplementaires;
+    private Long version;
     private LocalDateTime createdAt;
 
     public static DemandeDto fromEntity(Demande demande) {
@@ -41,7 +44,10 @@ public class DemandeDto {
                 .etageSouhaite(demande.getEtageSouhaite())
                 .prixSouhaite(demande.getPrixSouhaite())
                 .localisationSouhaitee(demande.getLocalisationSouhaitee())
+                .localisationVille(demande.getLocalisationVille())
+                .localisationQuartier(demande.getLocalisationQuartier())
                 .notesSupplementaires(demande.getNotesSupplementaires())
+                .version(demande.getVersion())
                 .createdAt(demande.getCreatedAt())
                 .build();
     }
@@ -0,0 +1,21 @@
+package com.immobilier.app.dto;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import java.util.Map;
+
+// A result page with facet counts for the same filters, serialized as the page plus a "facets" object:
+// {"typeBien": {"APPARTEMENT": 120, ...}, "ville": {"Casablanca": 80, ...}, ...}
+public class FacetedPage<T> extends PageImpl<T> {
+    private final Map<String, Map<String, Long>> facets;
+
+    public FacetedPage(Page<T> page, Map<String, Map<String, Long>> facets) {
+        super(page.getContent(), page.getPageable(), page.getTotalElements());
+        this.facets = facets;
+    }
+
+    public Map<String, Map<String, Long>> getFacets() {
+        return facets;
+    }
+}
@@ -0,0 +1,27 @@
+package com.immobilier.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarketStatsDto {
+    // null when the figures cover every ville, quartier or type
+    private String ville;
+    private String quartier;
+    private String typeBien;
+    private long listings;
+    // Listings per statutOffre
+    private Map<String, Long> byStatut;
+    // Price per m² in MAD, over the listings with both a price and a surface
+    private long priced;
+    private Double prixM2Mean;
+    private Double prixM2P10;
+    private Double prixM2Median;
+    private Double prixM2P90;
+}
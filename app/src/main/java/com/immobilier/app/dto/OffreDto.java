@@ -1,6 +1,7 @@
 package com.immobilier.app.dto;
 
 import com.immobilier.app.entity.Offre;
+import com.immobilier.app.entity.OffreReadModel;
 import com.immobilier.app.entity.Offre.TypeBien;
 import com.immobilier.app.entity.Offre.StatutOffre;
 import lombok.AllArgsConstructor;
@@ -31,6 +32,7 @@ public class OffreDto {
     private Integer nbChambresOffre;
     private StatutOffre statutOffre;
     private List<String> photos;
+    private Long version;
     private LocalDateTime createdAt;
 
     public static OffreDto fromEntity(Offre offre) {
@@ -57,7 +59,30 @@ public class OffreDto {
                 .nbChambresOffre(offre.getNbChambresOffre())
                 .statutOffre(offre.getStatutOffre())
                 .photos(photoUrls)
+                .version(offre.getVersion())
                 .createdAt(offre.getCreatedAt())
                 .build();
     }
+
+    public static OffreDto fromReadModel(OffreReadModel row) {
+        return OffreDto.builder()
+                .id(row.getId())
+                .nomProprietaire(row.getNomProprietaire())
+                .prenomProprietaire(row.getPrenomProprietaire())
+                .telephoneProprietaire(row.getTelephoneProprietaire())
+                .adresseBien(row.getAdresseBien())
+                .surface(row.getSurface())
+                .etage(row.getEtage())
+                .typeBien(row.getTypeBien())
+                .prixPropose(row.getPrixPropose())
+                .localisationVille(row.getLocalisationVille())
+                .localisationQuartier(row.getLocalisationQuartier())
+                .descriptionBien(row.getDescriptionBien())
+                .nbChambresOffre(row.getNbChambresOffre())
+                .statutOffre(row.getStatutOffre())
+                .photos(row.photoUrls())
+                .version(row.getVersion())
+                .createdAt(row.getCreatedAt())
+                .build();
+    }
 } 
\ No newline at end of file
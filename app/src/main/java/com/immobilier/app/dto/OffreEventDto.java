@@ -0,0 +1,34 @@
+package com.immobilier.app.dto;
+
+import com.immobilier.app.entity.Offre.StatutOffre;
+import com.immobilier.app.entity.OffreEvent;
+import com.immobilier.app.entity.OffreEvent.EventType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OffreEventDto {
+    private EventType eventType;
+    private LocalDateTime occurredAt;
+    private Double prixBefore;
+    private Double prixAfter;
+    private StatutOffre statutBefore;
+    private StatutOffre statutAfter;
+
+    public static OffreEventDto fromEntity(OffreEvent event) {
+        return OffreEventDto.builder()
+                .eventType(event.getEventType())
+                .occurredAt(event.getOccurredAt())
+                .prixBefore(event.getPrixBefore())
+                .prixAfter(event.getPrixAfter())
+                .statutBefore(event.getStatutBefore())
+                .statutAfter(event.getStatutAfter())
+                .build();
+    }
+}
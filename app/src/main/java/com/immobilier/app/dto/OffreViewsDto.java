@@ -0,0 +1,16 @@
+package com.immobilier.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// An offer of the most viewed ranking with its views over the last 7 days
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OffreViewsDto {
+    private long views;
+    private OffreDto offre;
+}
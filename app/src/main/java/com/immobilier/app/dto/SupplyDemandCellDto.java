@@ -0,0 +1,24 @@
+package com.immobilier.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SupplyDemandCellDto {
+    private String ville;
+    private String quartier;
+    private String typeBien;
+    // Budget band (OffreReadModel.PRIX_BANDS) of the offer price or of the demande's prixSouhaite
+    private String prixBand;
+    private long offresDisponibles;
+    private long demandes;
+    private long demandesAchat;
+    private long demandesLocation;
+    // demandes - offresDisponibles
+    private long gap;
+}
@@ -0,0 +1,24 @@
+package com.immobilier.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendPointDto {
+    // First day of the day or week
+    private LocalDate periodStart;
+    private long listed;
+    private long priceChanges;
+    // Mean of the asking prices set during the period, by new listings and price changes
+    private Double averagePrice;
+    private long sold;
+    private Double averageSoldPrice;
+    private Double averageDaysOnMarket;
+    private long withdrawn;
+}
@@ -0,0 +1,23 @@
+package com.immobilier.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Upload manifest size and orphan collection counters since the application started
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadCollectorReportDto {
+    private int manifestFiles;
+    private long manifestBytes;
+    // yyyy/MM directory walked last
+    private String lastDirectory;
+    private long scannedFiles;
+    private long reclaimedFiles;
+    private long reclaimedBytes;
+    private LocalDateTime lastRunAt;
+}
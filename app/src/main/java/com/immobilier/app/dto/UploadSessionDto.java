@@ -0,0 +1,22 @@
+package com.immobilier.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// State of a resumable upload; imageUrl is set once it is finalized
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDto {
+    private String id;
+    private long offset;
+    private long length;
+    private boolean complete;
+    private String imageUrl;
+    private String sha256;
+    private LocalDateTime expiresAt;
+}
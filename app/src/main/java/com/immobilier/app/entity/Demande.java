@@ -5,14 +5,25 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 import java.time.LocalDateTime;
 
 @Data
 @Entity
+@DynamicUpdate
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "demandes")
+@Table(name = "demandes", indexes = {
+        // Mirrors V12__Add_Search_Indexes.sql (the load-test schema is generated from the entities)
+        @Index(name = "idx_demandes_type_created", columnList = "type_demande, type_bien, created_at"),
+        @Index(name = "idx_demandes_type_bien_prix", columnList = "type_bien, prix_souhaite"),
+        @Index(name = "idx_demandes_prix", columnList = "prix_souhaite"),
+        @Index(name = "idx_demandes_surface", columnList = "surface_demandee"),
+        @Index(name = "idx_demandes_created_at", columnList = "created_at"),
+        // Mirrors V13__Add_Demande_Localisation.sql
+        @Index(name = "idx_demandes_ville_quartier", columnList = "ville_norm, quartier_norm, created_at")
+})
 public class Demande {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -41,13 +52,26 @@ public class Demande {
     private Double prixSouhaite;
     private String localisationSouhaitee;
 
+    // Structured form of localisationSouhaitee, resolved against the localisations gazetteer
+    private String localisationVille;
+    private String localisationQuartier;
+    private String villeNorm;
+    private String quartierNorm;
+
     @Column(columnDefinition = "TEXT")
     private String notesSupplementaires;
 
+    // Lowercase, accent-free copy of the searchable fields, kept up to date on every save
+    @Column(columnDefinition = "TEXT")
+    private String searchText;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "admin_id")
     private Admin admin;
 
+    @Version
+    private Long version;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -58,11 +82,19 @@ public class Demande {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        refreshSearchText();
     }
 
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
+        refreshSearchText();
+    }
+
+    private void refreshSearchText() {
+        searchText = SearchText.of(nomClient, prenomClient, localisationSouhaitee, notesSupplementaires);
+        villeNorm = SearchText.normalize(localisationVille);
+        quartierNorm = SearchText.normalize(localisationQuartier);
     }
 
     public enum TypeDemande {
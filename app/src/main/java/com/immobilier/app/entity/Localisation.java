@@ -0,0 +1,40 @@
+package com.immobilier.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Gazetteer entry: one known (ville, quartier) pair with its canonical spelling.
+// Filled from the locations used by offers; demandes are resolved against it.
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "localisations", uniqueConstraints =
+        @UniqueConstraint(name = "uk_localisations_norm", columnNames = {"ville_norm", "quartier_norm"}))
+public class Localisation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String ville;
+
+    @Column(nullable = false)
+    private String quartier;
+
+    @Column(nullable = false)
+    private String villeNorm;
+
+    @Column(nullable = false)
+    private String quartierNorm;
+
+    @PrePersist
+    protected void onCreate() {
+        villeNorm = SearchText.normalize(ville);
+        quartierNorm = SearchText.normalize(quartier);
+    }
+}
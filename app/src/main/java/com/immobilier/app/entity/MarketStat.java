@@ -0,0 +1,51 @@
+package com.immobilier.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Persisted copy of one market statistics cell (see MarketStatsService). villeNorm, quartierNorm
+// and typeBien are "*" for the cells that aggregate over that dimension.
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "market_stats", uniqueConstraints =
+        @UniqueConstraint(name = "uk_market_stats_cell", columnNames = {"ville_norm", "quartier_norm", "type_bien"}))
+public class MarketStat {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String villeNorm;
+
+    @Column(nullable = false)
+    private String quartierNorm;
+
+    @Column(nullable = false, length = 20)
+    private String typeBien;
+
+    private long listingCount;
+    private long disponibleCount;
+    private long reserveCount;
+    private long venduCount;
+
+    // Offers with both a price and a surface, the population of the price-per-m² figures
+    private long pricedCount;
+
+    private Double prixM2Mean;
+    private Double prixM2P10;
+    private Double prixM2Median;
+    private Double prixM2P90;
+
+    @Lob
+    private byte[] digest;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -5,15 +5,25 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.SQLRestriction;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
 @Entity
+@DynamicUpdate
+// Deleted offers wait for OffreDeletionService with deleted_at set and are invisible to JPA meanwhile
+@SQLRestriction("deleted_at IS NULL")
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "offres")
+@Table(name = "offres", indexes = {
+        // Mirrors V16__Create_Offre_Archive.sql, used to find the offers to archive
+        @Index(name = "idx_offres_statut_updated", columnList = "statut_offre, updated_at"),
+        // Mirrors V17__Add_Offre_Deleted_At.sql
+        @Index(name = "idx_offres_deleted_at", columnList = "deleted_at")
+})
 public class Offre {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -63,12 +73,18 @@ public class Offre {
     @JoinColumn(name = "admin_id")
     private Admin admin;
 
+    @Version
+    private Long version;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -0,0 +1,116 @@
+package com.immobilier.app.entity;
+
+import com.immobilier.app.entity.Offre.StatutOffre;
+import com.immobilier.app.entity.Offre.TypeBien;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Offer moved out of offres by OffreArchiveService, with the columns of its read model row so that
+// archived offers are filtered and returned like live ones (GET /offres?includeArchived=true)
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "offres_archive", indexes = {
+        // Mirrors V16__Create_Offre_Archive.sql
+        @Index(name = "idx_offres_archive_created_at", columnList = "created_at"),
+        @Index(name = "idx_offres_archive_ville_type_prix", columnList = "ville_norm, type_bien, prix_propose"),
+        @Index(name = "idx_offres_archive_archived_at", columnList = "archived_at")
+})
+public class OffreArchive {
+    @Id
+    @Column(name = "offre_id")
+    private Long id;
+
+    private String nomProprietaire;
+    private String prenomProprietaire;
+    private String telephoneProprietaire;
+    private String adresseBien;
+    private Double surface;
+    private Integer etage;
+
+    @Enumerated(EnumType.STRING)
+    private TypeBien typeBien;
+
+    private Double prixPropose;
+    private String localisationVille;
+    private String localisationQuartier;
+
+    @Column(columnDefinition = "TEXT")
+    private String descriptionBien;
+
+    private Integer nbChambresOffre;
+
+    @Enumerated(EnumType.STRING)
+    private StatutOffre statutOffre;
+
+    @Column(columnDefinition = "TEXT")
+    private String photosJson;
+
+    @Column(length = 500)
+    private String firstPhotoUrl;
+
+    private Integer photoCount;
+
+    private String villeNorm;
+    private String quartierNorm;
+
+    @Column(columnDefinition = "TEXT")
+    private String searchText;
+
+    @Column(length = 20)
+    private String prixBand;
+
+    @Column(length = 20)
+    private String surfaceBand;
+
+    private Long version;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "admin_id")
+    private Long adminId;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    // Detached read model row with the same values, for code that serves both kinds of offers
+    public OffreReadModel toReadModel() {
+        return OffreReadModel.builder()
+                .id(id)
+                .nomProprietaire(nomProprietaire)
+                .prenomProprietaire(prenomProprietaire)
+                .telephoneProprietaire(telephoneProprietaire)
+                .adresseBien(adresseBien)
+                .surface(surface)
+                .etage(etage)
+                .typeBien(typeBien)
+                .prixPropose(prixPropose)
+                .localisationVille(localisationVille)
+                .localisationQuartier(localisationQuartier)
+                .descriptionBien(descriptionBien)
+                .nbChambresOffre(nbChambresOffre)
+                .statutOffre(statutOffre)
+                .photosJson(photosJson)
+                .firstPhotoUrl(firstPhotoUrl)
+                .photoCount(photoCount)
+                .villeNorm(villeNorm)
+                .quartierNorm(quartierNorm)
+                .searchText(searchText)
+                .prixBand(prixBand)
+                .surfaceBand(surfaceBand)
+                .version(version)
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+package com.immobilier.app.entity;
+
+import com.immobilier.app.entity.Offre.StatutOffre;
+import com.immobilier.app.entity.Offre.TypeBien;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Append-only history of offer listings, price changes, status changes and deletions, written in the
+// transaction of the change. Each row carries the offer's location, type and listing date so that
+// OffreHistoryService can roll events up without joining offres, which may no longer hold the offer.
+// On MySQL the table is partitioned by month of occurred_at (V15__Create_Offre_Events.sql).
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "offre_events", indexes = {
+        @Index(name = "idx_offre_events_offre", columnList = "offre_id, occurred_at"),
+        @Index(name = "idx_offre_events_occurred", columnList = "occurred_at")
+})
+public class OffreEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "offre_id", nullable = false)
+    private Long offreId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EventType eventType;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    private String villeNorm;
+    private String quartierNorm;
+
+    @Enumerated(EnumType.STRING)
+    private TypeBien typeBien;
+
+    private Double surface;
+    private Double prixBefore;
+    private Double prixAfter;
+
+    @Enumerated(EnumType.STRING)
+    private StatutOffre statutBefore;
+
+    @Enumerated(EnumType.STRING)
+    private StatutOffre statutAfter;
+
+    // createdAt of the offer, for days on market
+    private LocalDateTime listedAt;
+
+    public enum EventType {
+        CREATED, PRICE_CHANGED, STATUS_CHANGED, DELETED
+    }
+}
@@ -8,7 +8,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "offre_photos")
+@Table(name = "offre_photos", indexes = {
+        // Mirrors V17__Add_Offre_Deleted_At.sql
+        @Index(name = "idx_offre_photos_url", columnList = "photo_url")
+})
 @Data
 @Builder
 @NoArgsConstructor
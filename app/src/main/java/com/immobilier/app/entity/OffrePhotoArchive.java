@@ -0,0 +1,38 @@
+package com.immobilier.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// offre_photos row of an archived offer, moved with its id by OffreArchiveService
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "offre_photos_archive", indexes = {
+        @Index(name = "idx_offre_photos_archive_offre_id", columnList = "offre_id"),
+        @Index(name = "idx_offre_photos_archive_url", columnList = "photo_url")
+})
+public class OffrePhotoArchive {
+    @Id
+    private Long id;
+
+    @Column(name = "offre_id", nullable = false)
+    private Long offreId;
+
+    @Column(name = "photo_url", nullable = false, length = 500)
+    private String photoUrl;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,147 @@
+package com.immobilier.app.entity;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.immobilier.app.entity.Offre.StatutOffre;
+import com.immobilier.app.entity.Offre.TypeBien;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Read side of offers: one row per offer with its photos, normalized search columns and facet
+// buckets precomputed. Written by OffreReadModelService in the same transaction as offres.
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "offre_read_model", indexes = {
+        // Mirrors V12__Add_Search_Indexes.sql (the load-test schema is generated from the entities)
+        @Index(name = "idx_orm_created_at", columnList = "created_at"),
+        @Index(name = "idx_orm_ville_quartier_created", columnList = "ville_norm, quartier_norm, created_at"),
+        @Index(name = "idx_orm_ville_type_prix", columnList = "ville_norm, type_bien, prix_propose"),
+        @Index(name = "idx_orm_type_prix", columnList = "type_bien, prix_propose"),
+        @Index(name = "idx_orm_prix", columnList = "prix_propose"),
+        @Index(name = "idx_orm_surface", columnList = "surface"),
+        @Index(name = "idx_orm_statut_created", columnList = "statut_offre, created_at")
+})
+public class OffreReadModel {
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<List<String>> URL_LIST = new TypeReference<>() {};
+
+    @Id
+    @Column(name = "offre_id")
+    private Long id;
+
+    private String nomProprietaire;
+    private String prenomProprietaire;
+    private String telephoneProprietaire;
+    private String adresseBien;
+    private Double surface;
+    private Integer etage;
+
+    @Enumerated(EnumType.STRING)
+    private TypeBien typeBien;
+
+    private Double prixPropose;
+    private String localisationVille;
+    private String localisationQuartier;
+
+    @Column(columnDefinition = "TEXT")
+    private String descriptionBien;
+
+    private Integer nbChambresOffre;
+
+    @Enumerated(EnumType.STRING)
+    private StatutOffre statutOffre;
+
+    // Photo URLs in upload order, as a JSON array
+    @Column(columnDefinition = "TEXT")
+    private String photosJson;
+
+    @Column(length = 500)
+    private String firstPhotoUrl;
+
+    private Integer photoCount;
+
+    // Lowercase, accent-free copies used by filters and keyword search
+    private String villeNorm;
+    private String quartierNorm;
+
+    @Column(columnDefinition = "TEXT")
+    private String searchText;
+
+    // Facet buckets
+    @Column(length = 20)
+    private String prixBand;
+
+    @Column(length = 20)
+    private String surfaceBand;
+
+    private Long version;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public List<String> photoUrls() {
+        if (photosJson == null || photosJson.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return JSON.readValue(photosJson, URL_LIST);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt photo list for offer " + id, e);
+        }
+    }
+
+    public static String photosJson(List<String> photoUrls) {
+        try {
+            return JSON.writeValueAsString(photoUrls);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Upper bounds (exclusive) and labels of the price buckets; the last bucket is open
+    public static final double[] PRIX_BAND_LIMITS = {500_000, 1_000_000, 2_000_000, 5_000_000};
+    public static final String[] PRIX_BANDS = {"0-500k", "500k-1M", "1M-2M", "2M-5M", "5M+"};
+
+    public static String prixBand(Double prix) {
+        if (prix == null) {
+            return null;
+        }
+        for (int i = 0; i < PRIX_BAND_LIMITS.length; i++) {
+            if (prix < PRIX_BAND_LIMITS[i]) {
+                return PRIX_BANDS[i];
+            }
+        }
+        return PRIX_BANDS[PRIX_BANDS.length - 1];
+    }
+
+    public static String surfaceBand(Double surface) {
+        if (surface == null) {
+            return null;
+        }
+        if (surface < 50) {
+            return "0-50";
+        }
+        if (surface < 100) {
+            return "50-100";
+        }
+        if (surface < 200) {
+            return "100-200";
+        }
+        if (surface < 500) {
+            return "200-500";
+        }
+        return "500+";
+    }
+}
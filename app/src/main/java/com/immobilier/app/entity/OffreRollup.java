@@ -0,0 +1,64 @@
+package com.immobilier.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+// Offer events aggregated per day or ISO week and per (ville, quartier, type). Only sums and counts
+// are stored so that rows can be incremented as new events arrive; averages are derived when read.
+// quartierNorm and villeNorm are "" when the offer had none.
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "offre_rollups", uniqueConstraints =
+        @UniqueConstraint(name = "uk_offre_rollups_cell",
+                columnNames = {"period", "ville_norm", "quartier_norm", "type_bien", "period_start"}),
+        indexes = @Index(name = "idx_offre_rollups_period_start", columnList = "period, period_start"))
+public class OffreRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Period period;
+
+    // First day of the day or week (Monday)
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(nullable = false)
+    private String villeNorm;
+
+    @Column(nullable = false)
+    private String quartierNorm;
+
+    @Column(nullable = false, length = 20)
+    private String typeBien;
+
+    // New listings
+    private long listedCount;
+
+    private long priceChangeCount;
+
+    // Asking prices set during the period, by a new listing or a price change
+    private long pricedCount;
+    private double priceSum;
+
+    // Offers that went to VENDU, their price and the days since they were listed
+    private long soldCount;
+    private double soldPriceSum;
+    private double daysOnMarketSum;
+
+    // Offers deleted
+    private long withdrawnCount;
+
+    public enum Period {
+        DAY, WEEK
+    }
+}
@@ -0,0 +1,43 @@
+package com.immobilier.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.io.Serializable;
+
+// One of the nearest neighbors of an offer, neighborRank 0 being the closest
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(OffreSimilar.Key.class)
+@Table(name = "offre_similar", indexes = {
+        // Mirrors V21__Create_Offre_Similar.sql
+        @Index(name = "idx_offre_similar_similar_id", columnList = "similar_id")
+})
+public class OffreSimilar {
+    @Id
+    @Column(name = "offre_id")
+    private Long offreId;
+
+    @Id
+    @Column(name = "neighbor_rank")
+    private Integer neighborRank;
+
+    @Column(name = "similar_id", nullable = false)
+    private Long similarId;
+
+    @Column(nullable = false)
+    private double score;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long offreId;
+        private Integer neighborRank;
+    }
+}
@@ -0,0 +1,41 @@
+package com.immobilier.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// Views of one offer on one day
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(OffreViewCount.Key.class)
+@Table(name = "offre_view_counts", indexes = {
+        // Mirrors V20__Create_Offre_View_Counts.sql
+        @Index(name = "idx_offre_view_counts_view_day", columnList = "view_day")
+})
+public class OffreViewCount {
+    @Id
+    @Column(name = "offre_id")
+    private Long offreId;
+
+    @Id
+    @Column(name = "view_day")
+    private LocalDate viewDay;
+
+    @Column(nullable = false)
+    private long views;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long offreId;
+        private LocalDate viewDay;
+    }
+}
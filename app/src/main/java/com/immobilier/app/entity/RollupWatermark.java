@@ -0,0 +1,25 @@
+package com.immobilier.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Last event folded into a rollup, updated in the same transaction as the rollup rows
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "rollup_watermarks")
+public class RollupWatermark {
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    private long lastEventId;
+
+    private LocalDateTime lastOccurredAt;
+}
@@ -0,0 +1,26 @@
+package com.immobilier.app.entity;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Lowercase, accent-free form stored in the *_norm and search_text columns. Filter values
+// must go through normalize() too, so "Fès", "FES" and "fes" all match the same rows.
+public final class SearchText {
+    private SearchText() {
+    }
+
+    public static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String stripped = Normalizer.normalize(value, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return stripped.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    public static String of(String... parts) {
+        return normalize(Stream.of(parts).filter(Objects::nonNull).collect(Collectors.joining(" ")));
+    }
+}
@@ -0,0 +1,25 @@
+package com.immobilier.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Change counter of a table, bumped in the transaction of every write to it (ChangeTracker)
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "table_versions")
+public class TableVersion {
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    private long version;
+
+    private LocalDateTime updatedAt;
+}
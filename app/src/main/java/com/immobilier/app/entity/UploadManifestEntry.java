@@ -0,0 +1,37 @@
+package com.immobilier.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// A stored upload, keyed by its public URL (/uploads/yyyy/MM/name)
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "upload_manifest", indexes = {
+        // Mirrors V18__Create_Upload_Manifest.sql
+        @Index(name = "idx_upload_manifest_created_at", columnList = "created_at")
+})
+public class UploadManifestEntry {
+    @Id
+    @Column(length = 500)
+    private String path;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // An offer using the file when last checked, null when none
+    @Column(name = "referenced_by")
+    private Long referencedBy;
+}
@@ -0,0 +1,59 @@
+package com.immobilier.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// A resumable chunked upload, written to storage under objectKey
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "upload_sessions", indexes = {
+        // Mirrors V19__Create_Upload_Sessions.sql
+        @Index(name = "idx_upload_sessions_expires_at", columnList = "expires_at")
+})
+public class UploadSession {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "object_key", nullable = false, length = 500)
+    private String objectKey;
+
+    @Column(name = "content_type", nullable = false, length = 100)
+    private String contentType;
+
+    @Column(name = "upload_length", nullable = false)
+    private long uploadLength;
+
+    // Bytes stored so far, always at a chunk boundary
+    @Column(name = "upload_offset", nullable = false)
+    private long uploadOffset;
+
+    @Column(name = "chunk_count", nullable = false)
+    private int chunkCount;
+
+    @Column(name = "storage_handle", nullable = false, length = 1024)
+    private String storageHandle;
+
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public boolean isComplete() {
+        return completedAt != null;
+    }
+}
@@ -0,0 +1,131 @@
+package com.immobilier.app.loadtest;
+
+import com.immobilier.app.entity.Offre.TypeBien;
+import com.immobilier.app.repository.OffreReadModelRepository;
+import com.immobilier.app.service.OffreCatalog;
+import com.immobilier.app.service.OffreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// Latency of offer list queries answered by the in-memory catalog versus the SQL query on
+// offre_read_model, on the seeded data. Runs once after seeding when app.loadtest.catalog-benchmark=true:
+//
+//   mvn -Ploadtest spring-boot:run -Dspring-boot.run.profiles=loadtest \
+//       -Dspring-boot.run.arguments="--app.loadtest.catalog-benchmark=true --app.loadtest.duration-seconds=0"
+//
+// "catalog ids" is the bitmap search alone, "catalog page" adds reading the 20 rows by primary key
+// (what GET /offres does), "sql page" is the filtered query with its COUNT. Times are p50/p99 of
+// app.loadtest.catalog-iterations runs after as many warmup runs.
+@Component
+@Profile("loadtest")
+@ConditionalOnProperty(name = "app.loadtest.catalog-benchmark", havingValue = "true")
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class CatalogBenchmark implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogBenchmark.class);
+
+    private final OffreCatalog catalog;
+    private final OffreService offreService;
+    private final OffreReadModelRepository readModelRepository;
+
+    @Value("${app.loadtest.catalog-iterations:200}")
+    private int iterations;
+
+    public CatalogBenchmark(OffreCatalog catalog, OffreService offreService,
+                            OffreReadModelRepository readModelRepository) {
+        this.catalog = catalog;
+        this.offreService = offreService;
+        this.readModelRepository = readModelRepository;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!catalog.isReady()) {
+            logger.warn("Catalog benchmark skipped: the catalog is disabled or not built");
+            return;
+        }
+        Pageable recent = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt"));
+        Pageable cheapest = PageRequest.of(0, 20, Sort.by(Sort.Direction.ASC, "prixPropose"));
+        Pageable deep = PageRequest.of(50, 20, Sort.by(Sort.Direction.DESC, "createdAt"));
+        Map<String, Query> queries = new LinkedHashMap<>();
+        queries.put("no filter", new Query(null, null, null, null, null, null, null, recent));
+        queries.put("type", new Query(TypeBien.APPARTEMENT, null, null, null, null, null, null, recent));
+        queries.put("ville", new Query(null, null, null, null, null, "casablanca", null, recent));
+        queries.put("ville + quartier", new Query(null, null, null, null, null, "casablanca", "maarif", recent));
+        queries.put("type + price range", new Query(TypeBien.VILLA, 2_000_000.0, 6_000_000.0, null, null, null, null, recent));
+        queries.put("ville + type + price + surface", new Query(TypeBien.APPARTEMENT, 500_000.0, 1_500_000.0,
+                60.0, 120.0, "rabat", null, recent));
+        queries.put("price range by price", new Query(null, 800_000.0, 1_200_000.0, null, null, null, null, cheapest));
+        queries.put("type, page 50", new Query(TypeBien.APPARTEMENT, null, null, null, null, null, null, deep));
+
+        StringBuilder report = new StringBuilder(String.format("%n%-32s %8s %12s %12s %12s %8s%n",
+                "query", "matches", "catalog ids", "catalog page", "sql page", "speedup"));
+        for (Map.Entry<String, Query> entry : queries.entrySet()) {
+            Query q = entry.getValue();
+            Page<Long> ids = q.catalog(catalog).orElseThrow();
+            long sqlTotal = q.sql(readModelRepository).getTotalElements();
+            if (sqlTotal != ids.getTotalElements()) {
+                logger.warn("Catalog and SQL disagree on '{}': {} vs {} matches", entry.getKey(),
+                        ids.getTotalElements(), sqlTotal);
+            }
+            long[] idsOnly = time(() -> q.catalog(catalog));
+            long[] page = time(() -> q.page(offreService));
+            long[] sql = time(() -> q.sql(readModelRepository));
+            report.append(String.format("%-32s %8d %12s %12s %12s %7.0fx%n", entry.getKey(), ids.getTotalElements(),
+                    micros(idsOnly), micros(page), micros(sql), (double) sql[0] / Math.max(1, page[0])));
+        }
+        logger.info("Catalog benchmark (p50/p99 in microseconds):{}", report);
+    }
+
+    // {p50, p99} in nanoseconds
+    private long[] time(Supplier<?> query) {
+        long[] samples = new long[iterations];
+        for (int i = -iterations; i < iterations; i++) {
+            long started = System.nanoTime();
+            query.get();
+            if (i >= 0) {
+                samples[i] = System.nanoTime() - started;
+            }
+        }
+        Arrays.sort(samples);
+        return new long[]{samples[samples.length / 2], samples[(int) (samples.length * 0.99)]};
+    }
+
+    private static String micros(long[] percentiles) {
+        return String.format("%d/%d", percentiles[0] / 1000, percentiles[1] / 1000);
+    }
+
+    private record Query(TypeBien typeBien, Double prixMin, Double prixMax, Double surfaceMin, Double surfaceMax,
+                         String ville, String quartier, Pageable pageable) {
+
+        Optional<Page<Long>> catalog(OffreCatalog catalog) {
+            return catalog.search(typeBien, null, prixMin, prixMax, surfaceMin, surfaceMax, ville, quartier, pageable);
+        }
+
+        Object page(OffreService offreService) {
+            return offreService.findAllWithFilters(typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                    ville, quartier, null, pageable);
+        }
+
+        Page<?> sql(OffreReadModelRepository repository) {
+            return repository.findAllWithFilters(typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                    ville, quartier, null, pageable);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.immobilier.app.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.immobilier.app.dto.DemandeDto;
+import com.immobilier.app.dto.OffreDto;
+import com.immobilier.app.service.DemandeService;
+import com.immobilier.app.service.OffreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPOutputStream;
+
+// Payload size and CPU cost of each response encoding on pages built from the seeded data.
+// Runs once after seeding when app.loadtest.encoding-benchmark=true:
+//
+//   mvn -Ploadtest spring-boot:run -Dspring-boot.run.profiles=loadtest \
+//       -Dspring-boot.run.arguments="--app.loadtest.encoding-benchmark=true --app.loadtest.duration-seconds=0"
+//
+// Times are the median of app.loadtest.encoding-iterations runs after as many warmup runs.
+@Component
+@Profile("loadtest")
+@ConditionalOnProperty(name = "app.loadtest.encoding-benchmark", havingValue = "true")
+// After DerivedDataInitializer, which fills the read model the offer pages come from
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class EncodingBenchmark implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(EncodingBenchmark.class);
+
+    private final OffreService offreService;
+    private final DemandeService demandeService;
+    private final Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+
+    @Value("${app.loadtest.encoding-iterations:50}")
+    private int iterations;
+
+    public EncodingBenchmark(OffreService offreService, DemandeService demandeService,
+                             ObjectMapper objectMapper, Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.offreService = offreService;
+        this.demandeService = demandeService;
+        mappers.put("json", objectMapper);
+        mappers.put("cbor", objectMapperBuilder.factory(new CBORFactory()).build());
+        mappers.put("smile", objectMapperBuilder.factory(new SmileFactory()).build());
+    }
+
+    @Override
+    public void run(String... args) throws IOException {
+        Map<String, Object> pages = new LinkedHashMap<>();
+        pages.put("offres page 20", offresPage(20));
+        pages.put("offres page 100", offresPage(100));
+        pages.put("offres page 1000", offresPage(1000));
+        pages.put("demandes page 20", demandesPage(20));
+        pages.put("demandes page 1000", demandesPage(1000));
+        pages.put("offres /all (5000)", offresPage(5000).getContent());
+
+        StringBuilder report = new StringBuilder(String.format("%n%-22s %-6s %10s %10s %7s %11s %11s%n",
+                "page", "format", "bytes", "gzip", "ratio", "encode us", "gzip us"));
+        for (Map.Entry<String, Object> page : pages.entrySet()) {
+            long jsonBytes = 0;
+            for (Map.Entry<String, ObjectMapper> mapper : mappers.entrySet()) {
+                Measurement m = measure(mapper.getValue(), page.getValue());
+                if (jsonBytes == 0) {
+                    jsonBytes = m.bytes;
+                }
+                report.append(String.format("%-22s %-6s %10d %10d %6.0f%% %11.0f %11.0f%n",
+                        page.getKey(), mapper.getKey(), m.bytes, m.gzipBytes,
+                        m.gzipBytes * 100.0 / jsonBytes, m.encodeMicros, m.gzipMicros));
+            }
+        }
+        logger.info("Encoding benchmark (ratio = gzip size vs raw JSON):{}", report);
+    }
+
+    private Page<OffreDto> offresPage(int size) {
+        // Multi-get keeps the full DTO shape, photos included, without a session per row
+        Map<Long, OffreDto> found = offreService.findByIds(LongStream.rangeClosed(1, size).boxed().toList());
+        List<OffreDto> content = new ArrayList<>(found.values());
+        return new PageImpl<>(content, PageRequest.of(0, size), 200_000);
+    }
+
+    private Page<DemandeDto> demandesPage(int size) {
+        return demandeService.findAllWithFilters(null, null, null, null, null, null, null, null, null,
+                PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "createdAt")));
+    }
+
+    private Measurement measure(ObjectMapper mapper, Object page) throws IOException {
+        long[] encode = new long[iterations];
+        long[] gzip = new long[iterations];
+        byte[] body = null;
+        byte[] compressed = null;
+        for (int i = -iterations; i < iterations; i++) {
+            long started = System.nanoTime();
+            body = mapper.writeValueAsBytes(page);
+            long encoded = System.nanoTime();
+            compressed = gzip(body);
+            long zipped = System.nanoTime();
+            if (i >= 0) {
+                encode[i] = encoded - started;
+                gzip[i] = zipped - encoded;
+            }
+        }
+        return new Measurement(body.length, compressed.length, median(encode) / 1000.0, median(gzip) / 1000.0);
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+            zip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private record Measurement(long bytes, long gzipBytes, double encodeMicros, double gzipMicros) {
+    }
+}
@@ -0,0 +1,123 @@
+package com.immobilier.app.loadtest;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-endpoint latency histograms with ~3% relative precision.
+// Buckets are log-linear (HdrHistogram style) so recording is lock-free and allocation-free.
+public class LatencyRecorder {
+    private static final int SUB_BUCKETS = 64;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int MAX_SHIFT = 40;
+    private static final int BUCKETS = SUB_BUCKETS + MAX_SHIFT * HALF;
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public void record(String endpoint, long latencyMicros, boolean error) {
+        histograms.computeIfAbsent(endpoint, key -> new Histogram()).record(latencyMicros, error);
+    }
+
+    public Map<String, Histogram> snapshot() {
+        return new TreeMap<>(histograms);
+    }
+
+    public String report(double elapsedSeconds) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%n%-34s %9s %9s %7s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        long total = 0;
+        for (Map.Entry<String, Histogram> entry : snapshot().entrySet()) {
+            Histogram histogram = entry.getValue();
+            long count = histogram.count();
+            total += count;
+            report.append(String.format("%-34s %9d %9.1f %7d %10.2f %10.2f %10.2f %10.2f%n",
+                    entry.getKey(), count, count / elapsedSeconds, histogram.errors(),
+                    histogram.percentile(50) / 1000.0, histogram.percentile(99) / 1000.0,
+                    histogram.percentile(99.9) / 1000.0, histogram.max() / 1000.0));
+        }
+        report.append(String.format("%-34s %9d %9.1f%n", "TOTAL", total, total / elapsedSeconds));
+        return report.toString();
+    }
+
+    public static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private volatile long max;
+
+        void record(long micros, boolean error) {
+            long value = Math.max(micros, 0);
+            buckets.incrementAndGet(indexOf(value));
+            count.increment();
+            sum.add(value);
+            if (error) {
+                errors.increment();
+            }
+            if (value > max) {
+                synchronized (this) {
+                    if (value > max) {
+                        max = value;
+                    }
+                }
+            }
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long errors() {
+            return errors.sum();
+        }
+
+        public long max() {
+            return max;
+        }
+
+        public double mean() {
+            long n = count();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        // Returns the latency in microseconds below which the given percentage of requests fall
+        public long percentile(double percent) {
+            long n = count();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percent / 100.0 * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= Math.max(rank, 1)) {
+                    return Math.min(valueOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        private static int indexOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - 5;
+            if (shift > MAX_SHIFT) {
+                return BUCKETS - 1;
+            }
+            return SUB_BUCKETS + (shift - 1) * HALF + (int) ((value >> shift) - HALF);
+        }
+
+        private static long valueOf(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = (index - SUB_BUCKETS) / HALF + 1;
+            long mantissa = (index - SUB_BUCKETS) % HALF + HALF;
+            return (mantissa << shift) + (1L << shift) / 2;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.immobilier.app.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drives a mixed read/list/search/write/upload workload against the running app (or app.loadtest.target-url)
+// and prints per-endpoint throughput and latency percentiles.
+//
+// closed: app.loadtest.clients workers each send a request, wait for the answer, then think.
+// open:   requests are started on a Poisson schedule at app.loadtest.rate-per-second whatever the response
+//         times are, and latency is measured from the scheduled start so queueing is not hidden.
+@Component
+@Profile("loadtest")
+public class LoadTestDriver {
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestDriver.class);
+    private static final int MAX_IN_FLIGHT = 10_000;
+    private static final String BOUNDARY = "loadtest-boundary";
+    // Smallest valid PNG (1x1 transparent pixel)
+    private static final byte[] PNG = java.util.Base64.getDecoder().decode(
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAQAAAC1HAwCAAAAC0lEQVR42mNkYAAAAAYAAjCB0C8AAAAASUVORK5CYII=");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @Value("${app.loadtest.target-url:}")
+    private String targetUrl;
+
+    @Value("${app.loadtest.seed:42}")
+    private long seed;
+
+    @Value("${app.loadtest.mode:closed}")
+    private String mode;
+
+    @Value("${app.loadtest.clients:16}")
+    private int clients;
+
+    @Value("${app.loadtest.think-time-ms:0}")
+    private long thinkTimeMs;
+
+    @Value("${app.loadtest.rate-per-second:200}")
+    private double ratePerSecond;
+
+    @Value("${app.loadtest.warmup-seconds:10}")
+    private int warmupSeconds;
+
+    @Value("${app.loadtest.duration-seconds:60}")
+    private int durationSeconds;
+
+    @Value("${app.loadtest.mix.read:40}")
+    private int readWeight;
+
+    @Value("${app.loadtest.mix.list:25}")
+    private int listWeight;
+
+    @Value("${app.loadtest.mix.search:20}")
+    private int searchWeight;
+
+    @Value("${app.loadtest.mix.write:10}")
+    private int writeWeight;
+
+    @Value("${app.loadtest.mix.upload:5}")
+    private int uploadWeight;
+
+    @Value("${app.loadtest.exit-on-finish:true}")
+    private boolean exitOnFinish;
+
+    private volatile long maxOffreId;
+    private volatile long maxDemandeId;
+
+    public LoadTestDriver(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady(ApplicationReadyEvent event) {
+        ApplicationContext context = event.getApplicationContext();
+        String baseUrl = targetUrl.isBlank()
+                ? "http://localhost:" + context.getEnvironment().getProperty("local.server.port", "8080")
+                : targetUrl;
+        Thread runner = new Thread(() -> {
+            int exitCode = 0;
+            try {
+                run(baseUrl);
+            } catch (Exception e) {
+                logger.error("Load test failed", e);
+                exitCode = 1;
+            }
+            if (exitOnFinish) {
+                int code = exitCode;
+                System.exit(SpringApplication.exit(context, () -> code));
+            }
+        }, "loadtest-driver");
+        runner.start();
+    }
+
+    public void run(String baseUrl) throws InterruptedException {
+        maxOffreId = queryMaxId("offres");
+        maxDemandeId = queryMaxId("demandes");
+        logger.info("Load test against {} ({} mode, warmup {}s, duration {}s)", baseUrl, mode, warmupSeconds, durationSeconds);
+
+        if (warmupSeconds > 0) {
+            drive(baseUrl, new LatencyRecorder(), warmupSeconds, seed ^ 0x5DEECE66DL);
+        }
+        LatencyRecorder recorder = new LatencyRecorder();
+        long started = System.nanoTime();
+        drive(baseUrl, recorder, durationSeconds, seed);
+        double elapsed = (System.nanoTime() - started) / 1e9;
+        logger.info("Load test results:{}", recorder.report(elapsed));
+    }
+
+    private void drive(String baseUrl, LatencyRecorder recorder, int seconds, long runSeed) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        if ("open".equalsIgnoreCase(mode)) {
+            driveOpen(baseUrl, recorder, deadline, runSeed);
+        } else {
+            driveClosed(baseUrl, recorder, deadline, runSeed);
+        }
+    }
+
+    private void driveClosed(String baseUrl, LatencyRecorder recorder, long deadline, long runSeed)
+            throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(clients);
+        SplittableRandom parent = new SplittableRandom(runSeed);
+        for (int i = 0; i < clients; i++) {
+            SplittableRandom random = parent.split();
+            workers.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    Operation operation = nextOperation(baseUrl, random);
+                    long start = System.nanoTime();
+                    boolean error;
+                    try {
+                        HttpResponse<Void> response = httpClient.send(operation.request(), HttpResponse.BodyHandlers.discarding());
+                        error = response.statusCode() >= 400;
+                    } catch (Exception e) {
+                        error = true;
+                    }
+                    recorder.record(operation.endpoint(), (System.nanoTime() - start) / 1000, error);
+                    if (thinkTimeMs > 0) {
+                        try {
+                            Thread.sleep(thinkTimeMs);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    private void driveOpen(String baseUrl, LatencyRecorder recorder, long deadline, long runSeed)
+            throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(runSeed);
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        AtomicLong dropped = new AtomicLong();
+        long next = System.nanoTime();
+        while (next < deadline) {
+            long delay = next - System.nanoTime();
+            if (delay > 0) {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+            Operation operation = nextOperation(baseUrl, random);
+            long intended = next;
+            if (!inFlight.tryAcquire()) {
+                dropped.incrementAndGet();
+                recorder.record(operation.endpoint(), (System.nanoTime() - intended) / 1000, true);
+            } else {
+                httpClient.sendAsync(operation.request(), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, failure) -> {
+                            inFlight.release();
+                            boolean error = failure != null || response.statusCode() >= 400;
+                            recorder.record(operation.endpoint(), (System.nanoTime() - intended) / 1000, error);
+                        });
+            }
+            // Exponential inter-arrival times give a Poisson arrival process
+            next += (long) (-Math.log(1.0 - random.nextDouble()) / ratePerSecond * 1e9);
+        }
+        inFlight.acquire(MAX_IN_FLIGHT);
+        if (dropped.get() > 0) {
+            logger.warn("{} requests were dropped because {} were already in flight", dropped.get(), MAX_IN_FLIGHT);
+        }
+    }
+
+    private Operation nextOperation(String baseUrl, SplittableRandom random) {
+        int choice = SyntheticDataGenerator.pick(random,
+                new int[]{readWeight, listWeight, searchWeight, writeWeight, uploadWeight});
+        return switch (choice) {
+            case 0 -> read(baseUrl, random);
+            case 1 -> list(baseUrl, random);
+            case 2 -> search(baseUrl, random);
+            case 3 -> write(baseUrl, random);
+            default -> upload(baseUrl);
+        };
+    }
+
+    private Operation read(String baseUrl, SplittableRandom random) {
+        if (random.nextInt(4) == 0) {
+            return get(baseUrl, "GET /demandes/{id}", "/demandes/" + randomId(random, maxDemandeId));
+        }
+        return get(baseUrl, "GET /offres/{id}", "/offres/" + randomId(random, maxOffreId));
+    }
+
+    private Operation list(String baseUrl, SplittableRandom random) {
+        // Most users stay on the first pages
+        int page = random.nextInt(10) < 7 ? random.nextInt(3) : random.nextInt(200);
+        String sortBy = random.nextInt(4) == 0 ? "prixPropose" : "createdAt";
+        return get(baseUrl, "GET /offres/paginated",
+                "/offres/paginated?page=" + page + "&size=30&sortBy=" + sortBy + "&sortDir=desc");
+    }
+
+    private Operation search(String baseUrl, SplittableRandom random) {
+        String[] localisation = SyntheticDataGenerator.LOCALISATIONS[
+                SyntheticDataGenerator.pick(random, SyntheticDataGenerator.CITY_WEIGHTS)];
+        String typeBien = SyntheticDataGenerator.TYPES_BIEN[
+                SyntheticDataGenerator.pick(random, SyntheticDataGenerator.TYPE_WEIGHTS)];
+        if (random.nextInt(4) == 0) {
+            StringBuilder query = new StringBuilder("/demandes?size=20&typeBien=").append(typeBien);
+            if (random.nextBoolean()) {
+                query.append("&prixMax=").append(500_000 + random.nextInt(40) * 100_000);
+            }
+            if (random.nextInt(5) == 0) {
+                query.append("&searchKeyword=").append(encode(localisation[0]));
+            }
+            return get(baseUrl, "GET /demandes (search)", query.toString());
+        }
+        StringBuilder query = new StringBuilder("/offres?size=20&ville=").append(encode(localisation[0]));
+        if (random.nextBoolean()) {
+            query.append("&typeBien=").append(typeBien);
+        }
+        if (random.nextBoolean()) {
+            query.append("&quartier=").append(encode(localisation[1 + random.nextInt(localisation.length - 1)]));
+        }
+        if (random.nextBoolean()) {
+            int min = random.nextInt(20) * 100_000;
+            query.append("&prixMin=").append(min).append("&prixMax=").append(min + 500_000 + random.nextInt(30) * 100_000);
+        }
+        if (random.nextInt(3) == 0) {
+            query.append("&surfaceMin=").append(40 + random.nextInt(100));
+        }
+        if (random.nextInt(10) == 0) {
+            query.append("&searchKeyword=").append(random.nextBoolean() ? "terrasse" : "vue%20mer");
+        }
+        return get(baseUrl, "GET /offres (search)", query.toString());
+    }
+
+    private Operation write(String baseUrl, SplittableRandom random) {
+        int choice = random.nextInt(10);
+        if (choice < 5) {
+            String[] localisation = SyntheticDataGenerator.LOCALISATIONS[random.nextInt(SyntheticDataGenerator.LOCALISATIONS.length)];
+            String body = "{\"nomProprietaire\":\"Load\",\"prenomProprietaire\":\"Test\"," +
+                    "\"telephoneProprietaire\":\"0600000000\",\"adresseBien\":\"1 Rue du Test\"," +
+                    "\"surface\":" + (40 + random.nextInt(200)) + ",\"etage\":" + random.nextInt(10) + "," +
+                    "\"typeBien\":\"APPARTEMENT\",\"prixPropose\":" + (500_000 + random.nextInt(3_000_000)) + "," +
+                    "\"localisationVille\":\"" + localisation[0] + "\"," +
+                    "\"localisationQuartier\":\"" + localisation[1] + "\"," +
+                    "\"descriptionBien\":\"Bien généré par le test de charge\",\"nbChambresOffre\":3}";
+            return json(baseUrl, "POST /offres", "POST", "/offres", body);
+        }
+        if (choice < 8) {
+            String statut = random.nextBoolean() ? "RESERVE" : "DISPONIBLE";
+            return json(baseUrl, "PATCH /offres/{id}/status", "PATCH",
+                    "/offres/" + randomId(random, maxOffreId) + "/status", "{\"statutOffre\":\"" + statut + "\"}");
+        }
+        String body = "{\"nomClient\":\"Load\",\"prenomClient\":\"Test\",\"telephoneClient\":\"0600000000\"," +
+                "\"typeDemande\":\"ACHAT\",\"typeBien\":\"APPARTEMENT\",\"surfaceDemandee\":" + (40 + random.nextInt(150)) +
+                ",\"nbChambres\":3,\"prixSouhaite\":" + (500_000 + random.nextInt(2_000_000)) +
+                ",\"localisationSouhaitee\":\"Casablanca, Maarif\"}";
+        return json(baseUrl, "POST /demandes", "POST", "/demandes", body);
+    }
+
+    private Operation upload(String baseUrl) {
+        List<byte[]> parts = new ArrayList<>();
+        parts.add(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"image\"; filename=\"loadtest.png\"\r\n" +
+                "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        parts.add(PNG);
+        parts.add(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/images/upload"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArrays(parts))
+                .build();
+        return new Operation("POST /api/images/upload", request);
+    }
+
+    private Operation get(String baseUrl, String endpoint, String path) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return new Operation(endpoint, request);
+    }
+
+    private Operation json(String baseUrl, String endpoint, String method, String path, String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return new Operation(endpoint, request);
+    }
+
+    private long queryMaxId(String table) {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        return max != null ? Math.max(max, 1) : 1;
+    }
+
+    private static long randomId(SplittableRandom random, long max) {
+        return 1 + random.nextLong(max);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private record Operation(String endpoint, HttpRequest request) {
+    }
+}
@@ -0,0 +1,265 @@
+package com.immobilier.app.loadtest;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Seeds offres, offre_photos and demandes with realistic, reproducible rows.
+// The same seed always produces the same dataset, so runs can be compared.
+@Component
+@Profile("loadtest")
+@Order(1)
+@RequiredArgsConstructor
+public class SyntheticDataGenerator implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    static final String[][] LOCALISATIONS = {
+            {"Casablanca", "Maarif", "Anfa", "Sidi Maarouf", "California", "Ain Diab", "Gauthier", "Bourgogne"},
+            {"Rabat", "Agdal", "Hassan", "Hay Riad", "Souissi", "Océan"},
+            {"Marrakech", "Palmeraie", "Hivernage", "Guéliz", "Médina", "Targa"},
+            {"Fès", "Ville Nouvelle", "Fès El Bali", "Fès El Jdid", "Saiss"},
+            {"Tanger", "Malabata", "California", "Marina", "Old Medina", "Iberia"},
+            {"Agadir", "Founty", "Talborjt", "Hay Mohammadi"},
+    };
+    // Relative share of listings per city, same order as LOCALISATIONS
+    static final int[] CITY_WEIGHTS = {35, 20, 18, 10, 12, 5};
+    static final double[] CITY_PRICE_FACTOR = {1.25, 1.15, 1.1, 0.8, 1.0, 0.9};
+
+    static final String[] TYPES_BIEN = {"APPARTEMENT", "VILLA", "BUREAUX", "COMMERCE", "TERRAIN"};
+    static final int[] TYPE_WEIGHTS = {55, 15, 10, 10, 10};
+    private static final double[] TYPE_BASE_PRICE = {1_400_000, 4_200_000, 2_600_000, 1_900_000, 1_100_000};
+    private static final double[] TYPE_BASE_SURFACE = {85, 320, 140, 90, 600};
+
+    private static final String[] STATUTS = {"DISPONIBLE", "RESERVE", "VENDU"};
+    private static final int[] STATUT_WEIGHTS = {70, 10, 20};
+
+    private static final String[] NOMS = {"Alaoui", "Benali", "Chraibi", "El Idrissi", "Fassi", "Bennani", "Tazi",
+            "Berrada", "Lahlou", "Sqalli", "Amrani", "Ouazzani", "Kettani", "Naciri", "Zniber"};
+    private static final String[] PRENOMS = {"Youssef", "Fatima", "Mohammed", "Khadija", "Omar", "Salma", "Karim",
+            "Imane", "Hamza", "Nadia", "Mehdi", "Sara", "Amine", "Leila", "Rachid"};
+    private static final String[] RUES = {"Rue", "Avenue", "Boulevard", "Impasse", "Place"};
+    private static final String[] ADJECTIFS = {"lumineux", "spacieux", "rénové", "calme", "moderne", "traditionnel"};
+    private static final String[] ATOUTS = {"avec terrasse", "vue mer", "proche tram", "avec parking",
+            "avec jardin", "proche écoles", "résidence sécurisée", "double exposition"};
+    private static final String[] NOTES = {"Budget négociable", "Urgent, mutation professionnelle",
+            "Famille avec enfants", "Investissement locatif", "Proche transports souhaité", "Premier achat"};
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.loadtest.seed:42}")
+    private long seed;
+
+    @Value("${app.loadtest.offres:200000}")
+    private int offres;
+
+    @Value("${app.loadtest.demandes:100000}")
+    private int demandes;
+
+    @Value("${app.loadtest.max-photos-per-offre:4}")
+    private int maxPhotosPerOffre;
+
+    @Value("${app.loadtest.batch-size:5000}")
+    private int batchSize;
+
+    @Override
+    public void run(String... args) {
+        long existing = count("offres");
+        if (existing >= offres) {
+            logger.info("Skipping data generation, offres already holds {} rows", existing);
+            return;
+        }
+        long started = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        generateOffres(random, maxId("offres") + 1);
+        generateDemandes(random, maxId("demandes") + 1);
+        logger.info("Generated {} offres and {} demandes in {} ms",
+                offres, demandes, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void generateOffres(SplittableRandom random, long firstId) {
+        String offreSql = "INSERT INTO offres (id, nom_proprietaire, prenom_proprietaire, telephone_proprietaire, " +
+                "adresse_bien, surface, etage, type_bien, prix_propose, localisation_ville, localisation_quartier, " +
+                "description_bien, nb_chambres_offre, statut_offre, version, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?)";
+        String photoSql = "INSERT INTO offre_photos (offre_id, photo_url, created_at, updated_at) VALUES (?, ?, ?, ?)";
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        List<Object[]> offreRows = new ArrayList<>(batchSize);
+        List<Object[]> photoRows = new ArrayList<>(batchSize * maxPhotosPerOffre);
+        for (int i = 0; i < offres; i++) {
+            long id = firstId + i;
+            int city = pick(random, CITY_WEIGHTS);
+            String[] localisation = LOCALISATIONS[city];
+            String quartier = localisation[1 + random.nextInt(localisation.length - 1)];
+            int type = pick(random, TYPE_WEIGHTS);
+            double surface = round(TYPE_BASE_SURFACE[type] * logNormal(random, 0.45), 1);
+            double prix = round(TYPE_BASE_PRICE[type] * CITY_PRICE_FACTOR[city] * logNormal(random, 0.5), -3);
+            Integer chambres = type <= 1 ? 1 + (int) Math.min(7, surface / 35) : null;
+            Integer etage = type == 0 || type == 2 ? random.nextInt(12) : null;
+            Timestamp createdAt = Timestamp.valueOf(now.minusMinutes(random.nextInt(2 * 365 * 24 * 60)));
+
+            offreRows.add(new Object[]{
+                    id,
+                    NOMS[random.nextInt(NOMS.length)],
+                    PRENOMS[random.nextInt(PRENOMS.length)],
+                    telephone(random),
+                    (1 + random.nextInt(250)) + " " + RUES[random.nextInt(RUES.length)] + " " +
+                            NOMS[random.nextInt(NOMS.length)] + ", " + quartier,
+                    surface,
+                    etage,
+                    TYPES_BIEN[type],
+                    prix,
+                    localisation[0],
+                    quartier,
+                    description(random, type, quartier),
+                    chambres,
+                    STATUTS[pick(random, STATUT_WEIGHTS)],
+                    createdAt,
+                    createdAt
+            });
+
+            int photos = random.nextInt(maxPhotosPerOffre + 1);
+            for (int p = 0; p < photos; p++) {
+                photoRows.add(new Object[]{id, photoUrl(random, createdAt), createdAt, createdAt});
+            }
+
+            if (offreRows.size() == batchSize) {
+                flush(offreSql, offreRows);
+                flush(photoSql, photoRows);
+            }
+        }
+        flush(offreSql, offreRows);
+        flush(photoSql, photoRows);
+        restartIdentity("offres", firstId + offres);
+        logger.info("Generated {} offres", offres);
+    }
+
+    private void generateDemandes(SplittableRandom random, long firstId) {
+        String sql = "INSERT INTO demandes (id, nom_client, prenom_client, telephone_client, type_demande, type_bien, " +
+                "surface_demandee, nb_chambres, etage_souhaite, prix_souhaite, localisation_souhaitee, " +
+                "notes_supplementaires, version, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?)";
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        List<Object[]> rows = new ArrayList<>(batchSize);
+        for (int i = 0; i < demandes; i++) {
+            int city = pick(random, CITY_WEIGHTS);
+            String[] localisation = LOCALISATIONS[city];
+            int type = pick(random, TYPE_WEIGHTS);
+            boolean location = random.nextInt(100) < 35;
+            double surface = round(TYPE_BASE_SURFACE[type] * logNormal(random, 0.35), 0);
+            double prix = TYPE_BASE_PRICE[type] * CITY_PRICE_FACTOR[city] * logNormal(random, 0.4);
+            // Rental budgets are monthly rents, roughly 0.5% of the sale price
+            prix = location ? round(prix * 0.005, -2) : round(prix, -4);
+            // A third of the clients only name a city
+            String souhait = random.nextInt(3) == 0 ? localisation[0]
+                    : localisation[0] + ", " + localisation[1 + random.nextInt(localisation.length - 1)];
+            Timestamp createdAt = Timestamp.valueOf(now.minusMinutes(random.nextInt(365 * 24 * 60)));
+
+            rows.add(new Object[]{
+                    firstId + i,
+                    NOMS[random.nextInt(NOMS.length)],
+                    PRENOMS[random.nextInt(PRENOMS.length)],
+                    telephone(random),
+                    location ? "LOCATION" : "ACHAT",
+                    TYPES_BIEN[type],
+                    surface,
+                    type <= 1 ? 1 + random.nextInt(5) : null,
+                    type == 0 ? random.nextInt(8) : null,
+                    prix,
+                    souhait,
+                    NOTES[random.nextInt(NOTES.length)],
+                    createdAt,
+                    createdAt
+            });
+            if (rows.size() == batchSize) {
+                flush(sql, rows);
+            }
+        }
+        flush(sql, rows);
+        restartIdentity("demandes", firstId + demandes);
+        logger.info("Generated {} demandes", demandes);
+    }
+
+    private void flush(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+            rows.clear();
+        }
+    }
+
+    private long count(String table) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+        return count != null ? count : 0;
+    }
+
+    private long maxId(String table) {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        return max != null ? max : 0;
+    }
+
+    // MySQL moves AUTO_INCREMENT past explicit ids by itself, H2 needs to be told
+    private void restartIdentity(String table, long next) {
+        String product = jdbcTemplate.execute((Connection connection) -> connection.getMetaData().getDatabaseProductName());
+        if ("H2".equals(product)) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next);
+        }
+    }
+
+    static int pick(SplittableRandom random, int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int r = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            r -= weights[i];
+            if (r < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static double logNormal(SplittableRandom random, double sigma) {
+        // Box-Muller, good enough for spreading prices and surfaces
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        double gaussian = Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2.0 * Math.PI * u2);
+        return Math.exp(sigma * gaussian - sigma * sigma / 2.0);
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.max(Math.round(value * scale) / scale, 1.0);
+    }
+
+    private static String telephone(SplittableRandom random) {
+        return "0" + (6 + random.nextInt(2)) + String.format("%08d", random.nextInt(100_000_000));
+    }
+
+    private static String description(SplittableRandom random, int type, String quartier) {
+        return TYPES_BIEN[type].charAt(0) + TYPES_BIEN[type].substring(1).toLowerCase() + " " +
+                ADJECTIFS[random.nextInt(ADJECTIFS.length)] + " " + ATOUTS[random.nextInt(ATOUTS.length)] +
+                ", situé à " + quartier + ". " + ATOUTS[random.nextInt(ATOUTS.length)] + ", " +
+                ADJECTIFS[random.nextInt(ADJECTIFS.length)] + " et bien entretenu.";
+    }
+
+    private static String photoUrl(SplittableRandom random, Timestamp createdAt) {
+        LocalDateTime date = createdAt.toLocalDateTime();
+        return String.format("/uploads/%d/%02d/%016x%016x.jpg",
+                date.getYear(), date.getMonthValue(), random.nextLong(), random.nextLong());
+    }
+}
@@ -0,0 +1,10 @@
+package com.immobilier.app.repository;
+
+import java.time.LocalDateTime;
+
+// Validator columns of a row, read without loading the entity
+public interface ChangeStamp {
+    Long getVersion();
+
+    LocalDateTime getUpdatedAt();
+}
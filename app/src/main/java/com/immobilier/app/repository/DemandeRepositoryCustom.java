@@ -0,0 +1,74 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.Demande;
+import com.immobilier.app.entity.Demande.TypeBien;
+import com.immobilier.app.entity.Demande.TypeDemande;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface DemandeRepositoryCustom {
+    // Attributes that can be requested or sorted on in a sparse fieldset
+    Set<String> FIELDS = Set.of("id", "nomClient", "prenomClient", "telephoneClient",
+            "typeDemande", "typeBien", "surfaceDemandee", "nbChambres", "etageSouhaite", "prixSouhaite",
+            "localisationSouhaitee", "localisationVille", "localisationQuartier", "notesSupplementaires", "version", "createdAt", "updatedAt");
+
+    // ville, quartier and searchKeyword are expected normalized (see SearchText.normalize)
+    Page<Demande> findAllWithFilters(
+        TypeDemande typeDemande,
+        TypeBien typeBien,
+        Double prixMin,
+        Double prixMax,
+        Double surfaceMin,
+        Double surfaceMax,
+        String ville,
+        String quartier,
+        String searchKeyword,
+        Pageable pageable
+    );
+
+    // Same filters as findAllWithFilters, selecting only the given fields
+    Page<Map<String, Object>> findFieldsWithFilters(
+        List<String> fields,
+        TypeDemande typeDemande,
+        TypeBien typeBien,
+        Double prixMin,
+        Double prixMax,
+        Double surfaceMin,
+        Double surfaceMax,
+        String ville,
+        String quartier,
+        String searchKeyword,
+        Pageable pageable
+    );
+
+    // Demandes an offer with these characteristics would satisfy: same type and ville, and a quartier,
+    // budget and minimum surface that are either unset or compatible. ville and quartier normalized.
+    Page<Demande> findMatching(
+        TypeBien typeBien,
+        Double prix,
+        Double surface,
+        String ville,
+        String quartier,
+        Pageable pageable
+    );
+
+    // Row count per [typeDemande, typeBien, villeNorm, quartierNorm, prix band] combination, the band
+    // following OffreReadModel.PRIX_BANDS, then an inPrixRange 1/0 column when prixMin or prixMax is
+    // given, then the count. With multiSelect only surface and keyword are filtered in SQL (see FacetCounts).
+    List<Object[]> countFacets(
+        TypeDemande typeDemande,
+        TypeBien typeBien,
+        Double prixMin,
+        Double prixMax,
+        Double surfaceMin,
+        Double surfaceMax,
+        String ville,
+        String quartier,
+        String searchKeyword,
+        boolean multiSelect
+    );
+}
@@ -0,0 +1,167 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.Demande;
+import com.immobilier.app.entity.Demande.TypeBien;
+import com.immobilier.app.entity.Demande.TypeDemande;
+import com.immobilier.app.entity.OffreReadModel;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class DemandeRepositoryCustomImpl implements DemandeRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Demande> findAllWithFilters(
+            TypeDemande typeDemande,
+            TypeBien typeBien,
+            Double prixMin,
+            Double prixMax,
+            Double surfaceMin,
+            Double surfaceMax,
+            String ville,
+            String quartier,
+            String searchKeyword,
+            Pageable pageable) {
+        return query().entities(
+                (cb, root) -> filters(cb, root, typeDemande, typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                        ville, quartier, searchKeyword),
+                pageable);
+    }
+
+    @Override
+    public Page<Map<String, Object>> findFieldsWithFilters(
+            List<String> fields,
+            TypeDemande typeDemande,
+            TypeBien typeBien,
+            Double prixMin,
+            Double prixMax,
+            Double surfaceMin,
+            Double surfaceMax,
+            String ville,
+            String quartier,
+            String searchKeyword,
+            Pageable pageable) {
+        return query().fields(fields,
+                (cb, root) -> filters(cb, root, typeDemande, typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                        ville, quartier, searchKeyword),
+                pageable);
+    }
+
+    @Override
+    public Page<Demande> findMatching(
+            TypeBien typeBien,
+            Double prix,
+            Double surface,
+            String ville,
+            String quartier,
+            Pageable pageable) {
+        return query().entities((cb, d) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            // Equality on ville_norm leads, so idx_demandes_ville_quartier narrows the rows first
+            if (ville != null) {
+                predicates.add(cb.equal(d.get("villeNorm"), ville));
+            }
+            if (quartier != null) {
+                predicates.add(cb.or(cb.equal(d.get("quartierNorm"), quartier), cb.isNull(d.get("quartierNorm"))));
+            }
+            if (typeBien != null) {
+                predicates.add(cb.equal(d.get("typeBien"), typeBien));
+            }
+            if (prix != null) {
+                predicates.add(cb.or(cb.isNull(d.get("prixSouhaite")), cb.ge(d.get("prixSouhaite"), prix)));
+            }
+            if (surface != null) {
+                predicates.add(cb.or(cb.isNull(d.get("surfaceDemandee")), cb.le(d.get("surfaceDemandee"), surface)));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        }, pageable);
+    }
+
+    @Override
+    public List<Object[]> countFacets(
+            TypeDemande typeDemande,
+            TypeBien typeBien,
+            Double prixMin,
+            Double prixMax,
+            Double surfaceMin,
+            Double surfaceMax,
+            String ville,
+            String quartier,
+            String searchKeyword,
+            boolean multiSelect) {
+        return query().counts(
+                (cb, root) -> {
+                    List<Expression<?>> dimensions = new ArrayList<>(List.of(root.get("typeDemande"),
+                            root.get("typeBien"), root.get("villeNorm"), root.get("quartierNorm"),
+                            prixBand(cb, root.get("prixSouhaite"))));
+                    if (prixMin != null || prixMax != null) {
+                        dimensions.add(FilteredQuery.inRange(cb, root.get("prixSouhaite"), prixMin, prixMax));
+                    }
+                    return dimensions;
+                },
+                (cb, root) -> multiSelect
+                        ? filters(cb, root, null, null, null, null, surfaceMin, surfaceMax, null, null, searchKeyword)
+                        : filters(cb, root, typeDemande, typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                        ville, quartier, searchKeyword));
+    }
+
+    // Same buckets as OffreReadModel.prixBand, computed in SQL
+    private static Expression<String> prixBand(CriteriaBuilder cb, Expression<Double> prix) {
+        CriteriaBuilder.Case<String> band = cb.selectCase();
+        for (int i = 0; i < OffreReadModel.PRIX_BAND_LIMITS.length; i++) {
+            band = band.when(cb.lt(prix, OffreReadModel.PRIX_BAND_LIMITS[i]), OffreReadModel.PRIX_BANDS[i]);
+        }
+        return band.when(cb.isNotNull(prix), OffreReadModel.PRIX_BANDS[OffreReadModel.PRIX_BANDS.length - 1])
+                .otherwise(cb.nullLiteral(String.class));
+    }
+
+    private FilteredQuery<Demande> query() {
+        return new FilteredQuery<>(entityManager, Demande.class, FIELDS);
+    }
+
+    // ville, quartier and searchKeyword arrive normalized (see SearchText.normalize)
+    private static Predicate filters(CriteriaBuilder cb, Root<Demande> d, TypeDemande typeDemande, TypeBien typeBien,
+                                     Double prixMin, Double prixMax, Double surfaceMin, Double surfaceMax,
+                                     String ville, String quartier, String searchKeyword) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (typeDemande != null) {
+            predicates.add(cb.equal(d.get("typeDemande"), typeDemande));
+        }
+        if (typeBien != null) {
+            predicates.add(cb.equal(d.get("typeBien"), typeBien));
+        }
+        if (prixMin != null) {
+            predicates.add(cb.ge(d.get("prixSouhaite"), prixMin));
+        }
+        if (prixMax != null) {
+            predicates.add(cb.le(d.get("prixSouhaite"), prixMax));
+        }
+        if (surfaceMin != null) {
+            predicates.add(cb.ge(d.get("surfaceDemandee"), surfaceMin));
+        }
+        if (surfaceMax != null) {
+            predicates.add(cb.le(d.get("surfaceDemandee"), surfaceMax));
+        }
+        if (ville != null) {
+            predicates.add(cb.equal(d.get("villeNorm"), ville));
+        }
+        if (quartier != null) {
+            predicates.add(cb.equal(d.get("quartierNorm"), quartier));
+        }
+        if (searchKeyword != null) {
+            predicates.add(cb.like(d.get("searchText"), "%" + searchKeyword + "%"));
+        }
+        return cb.and(predicates.toArray(new Predicate[0]));
+    }
+}
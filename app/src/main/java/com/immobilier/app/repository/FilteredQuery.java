@@ -0,0 +1,148 @@
+package com.immobilier.app.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+// Runs a filtered, paged Criteria query. Only the predicates of the filters actually given are
+// emitted, so the database can pick the index matching each combination (a static
+// "(:x IS NULL OR col = :x)" query hides that from the planner). fields() selects only the
+// requested attributes as a tuple, so unused columns (TEXT descriptions, contact fields) are never read.
+class FilteredQuery<T> {
+    private final EntityManager entityManager;
+    private final Class<T> entityClass;
+    private final Set<String> allowedFields;
+    // Response field name -> entity attribute, for fields not named after their attribute
+    private final Map<String, String> attributes;
+
+    FilteredQuery(EntityManager entityManager, Class<T> entityClass, Set<String> allowedFields) {
+        this(entityManager, entityClass, allowedFields, Map.of());
+    }
+
+    FilteredQuery(EntityManager entityManager, Class<T> entityClass, Set<String> allowedFields,
+                  Map<String, String> attributes) {
+        this.entityManager = entityManager;
+        this.entityClass = entityClass;
+        this.allowedFields = allowedFields;
+        this.attributes = attributes;
+    }
+
+    private String attribute(String field) {
+        return attributes.getOrDefault(field, field);
+    }
+
+    Page<T> entities(BiFunction<CriteriaBuilder, Root<T>, Predicate> filters, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(entityClass);
+        Root<T> root = query.from(entityClass);
+        query.select(root).where(filters.apply(cb, root)).orderBy(orders(cb, root, pageable));
+        List<T> rows = page(entityManager.createQuery(query), pageable).getResultList();
+        return toPage(rows, filters, pageable);
+    }
+
+    Page<Map<String, Object>> fields(
+            List<String> fields,
+            BiFunction<CriteriaBuilder, Root<T>, Predicate> filters,
+            Pageable pageable) {
+        for (String field : fields) {
+            if (!allowedFields.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(entityClass);
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String field : fields) {
+            selections.add(root.get(attribute(field)).alias(field));
+        }
+        query.multiselect(selections).where(filters.apply(cb, root)).orderBy(orders(cb, root, pageable));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : page(entityManager.createQuery(query), pageable).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                row.put(field, tuple.get(field));
+            }
+            rows.add(row);
+        }
+        return toPage(rows, filters, pageable);
+    }
+
+    // One row per combination of the given expressions with its row count: [dimension..., count]
+    List<Object[]> counts(BiFunction<CriteriaBuilder, Root<T>, List<Expression<?>>> dimensions,
+                          BiFunction<CriteriaBuilder, Root<T>, Predicate> filters) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<T> root = query.from(entityClass);
+        List<Expression<?>> groups = dimensions.apply(cb, root);
+        List<Selection<?>> selections = new ArrayList<>(groups);
+        selections.add(cb.count(root));
+        query.multiselect(selections).where(filters.apply(cb, root)).groupBy(groups);
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    // 1 when value is within [min, max] (open bounds when null), 0 otherwise, as a group-by dimension
+    static Expression<Integer> inRange(CriteriaBuilder cb, Expression<Double> value, Double min, Double max) {
+        List<Predicate> bounds = new ArrayList<>();
+        if (min != null) {
+            bounds.add(cb.ge(value, min));
+        }
+        if (max != null) {
+            bounds.add(cb.le(value, max));
+        }
+        return cb.<Integer>selectCase().when(cb.and(bounds.toArray(new Predicate[0])), 1).otherwise(0);
+    }
+
+    private List<Order> orders(CriteriaBuilder cb, Root<T> root, Pageable pageable) {
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : pageable.getSort()) {
+            if (!allowedFields.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Unknown sort field: " + order.getProperty());
+            }
+            String attribute = attribute(order.getProperty());
+            orders.add(order.isAscending() ? cb.asc(root.get(attribute)) : cb.desc(root.get(attribute)));
+        }
+        return orders;
+    }
+
+    private static <R> TypedQuery<R> page(TypedQuery<R> query, Pageable pageable) {
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        return query;
+    }
+
+    private <R> Page<R> toPage(List<R> rows, BiFunction<CriteriaBuilder, Root<T>, Predicate> filters,
+                               Pageable pageable) {
+        // Same shortcut as Spring Data: no COUNT when the page is the first and last one
+        if (pageable.isUnpaged() || (pageable.getOffset() == 0 && rows.size() < pageable.getPageSize())) {
+            return new PageImpl<>(rows, pageable, rows.size());
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<T> countRoot = countQuery.from(entityClass);
+        countQuery.select(cb.count(countRoot)).where(filters.apply(cb, countRoot));
+        return new PageImpl<>(rows, pageable, entityManager.createQuery(countQuery).getSingleResult());
+    }
+}
@@ -0,0 +1,16 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.Localisation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface LocalisationRepository extends JpaRepository<Localisation, Long> {
+
+    // [ville, quartier] of every located offer, as entered
+    @Query("SELECT DISTINCT o.localisationVille, o.localisationQuartier FROM Offre o " +
+            "WHERE o.localisationVille IS NOT NULL AND o.localisationQuartier IS NOT NULL")
+    List<Object[]> findOffreLocalisations();
+}
@@ -0,0 +1,7 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.MarketStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MarketStatRepository extends JpaRepository<MarketStat, Long> {
+}
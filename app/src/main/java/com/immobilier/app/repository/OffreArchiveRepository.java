@@ -0,0 +1,7 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.OffreArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface OffreArchiveRepository extends JpaRepository<OffreArchive, Long> {
+}
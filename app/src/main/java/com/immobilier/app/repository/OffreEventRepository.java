@@ -0,0 +1,9 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.OffreEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.List;
+
+public interface OffreEventRepository extends JpaRepository<OffreEvent, Long> {
+    List<OffreEvent> findByOffreIdOrderByOccurredAtAscIdAsc(Long offreId);
+}
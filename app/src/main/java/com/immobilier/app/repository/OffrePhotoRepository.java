@@ -2,7 +2,11 @@ package com.immobilier.app.repository;
 
 import com.immobilier.app.entity.OffrePhoto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,4 +15,15 @@ public interface OffrePhotoRepository extends JpaRepository<OffrePhoto, Long> {
     List<OffrePhoto> findByOffreId(Long offreId);
     
     void deleteByOffreId(Long offreId);
+
+    @Query("SELECT p.photoUrl FROM OffrePhoto p WHERE p.offre.id IN :offreIds")
+    List<String> findPhotoUrlsByOffreIds(@Param("offreIds") Collection<Long> offreIds);
+
+    // [offreId, photoUrl] of every photo of the given offers, in upload order
+    @Query("SELECT p.offre.id, p.photoUrl FROM OffrePhoto p WHERE p.offre.id IN :offreIds ORDER BY p.id")
+    List<Object[]> findPhotoUrlsGroupedByOffreIds(@Param("offreIds") Collection<Long> offreIds);
+
+    @Modifying
+    @Query("DELETE FROM OffrePhoto p WHERE p.offre.id IN :offreIds")
+    int deleteByOffreIds(@Param("offreIds") Collection<Long> offreIds);
 } 
\ No newline at end of file
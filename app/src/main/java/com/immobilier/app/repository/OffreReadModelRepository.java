@@ -0,0 +1,36 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.Offre.StatutOffre;
+import com.immobilier.app.entity.OffreReadModel;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface OffreReadModelRepository extends JpaRepository<OffreReadModel, Long>, OffreReadModelRepositoryCustom {
+    Optional<ChangeStamp> findStampById(Long id);
+
+    // Mirrors OffreRepository.updateStatus / updateStatusByIds, so versions stay equal on both sides
+    @Modifying
+    @Query("UPDATE OffreReadModel r SET r.statutOffre = :statut, r.updatedAt = :now, r.version = r.version + 1 " +
+           "WHERE r.id IN :ids")
+    int updateStatusByIds(
+        @Param("ids") Collection<Long> ids,
+        @Param("statut") StatutOffre statut,
+        @Param("now") LocalDateTime now
+    );
+
+    // Ids of the offers whose normalized search text contains the (already normalized) keyword, at most
+    // one page of them. The leading wildcard cannot use an index, so this scans offre_read_model.
+    @Query("SELECT r.id FROM OffreReadModel r WHERE r.searchText LIKE CONCAT('%', :keyword, '%')")
+    List<Long> findIdsBySearchText(@Param("keyword") String keyword, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM OffreReadModel r WHERE r.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
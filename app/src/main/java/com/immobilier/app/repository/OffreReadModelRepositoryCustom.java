@@ -0,0 +1,76 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.Offre.TypeBien;
+import com.immobilier.app.entity.OffreReadModel;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface OffreReadModelRepositoryCustom {
+    // Attributes that can be requested or sorted on in a sparse fieldset
+    Set<String> FIELDS = Set.of("id", "nomProprietaire", "prenomProprietaire",
+            "telephoneProprietaire", "adresseBien", "surface", "etage", "typeBien", "prixPropose",
+            "localisationVille", "localisationQuartier", "descriptionBien", "nbChambresOffre", "statutOffre",
+            "version", "createdAt", "updatedAt", "photo");
+
+    // ville, quartier and searchKeyword are expected normalized (see SearchText.normalize)
+    Page<OffreReadModel> findAllWithFilters(
+        TypeBien typeBien,
+        Double prixMin,
+        Double prixMax,
+        Double surfaceMin,
+        Double surfaceMax,
+        String ville,
+        String quartier,
+        String searchKeyword,
+        Pageable pageable
+    );
+
+    // Same filters as findAllWithFilters over live and archived offers; archived rows come back detached.
+    // Each table is read up to the end of the page, so callers bound the page depth (MAX_MERGED_ROWS).
+    Page<OffreReadModel> findAllWithFiltersIncludingArchived(
+        TypeBien typeBien,
+        Double prixMin,
+        Double prixMax,
+        Double surfaceMin,
+        Double surfaceMax,
+        String ville,
+        String quartier,
+        String searchKeyword,
+        Pageable pageable
+    );
+
+    int MAX_MERGED_ROWS = 10_000;
+
+    // Same filters as findAllWithFilters, selecting only the given fields ("photo" is the first photo URL)
+    Page<Map<String, Object>> findFieldsWithFilters(
+        List<String> fields,
+        TypeBien typeBien,
+        Double prixMin,
+        Double prixMax,
+        Double surfaceMin,
+        Double surfaceMax,
+        String ville,
+        String quartier,
+        String searchKeyword,
+        Pageable pageable
+    );
+
+    // Row count per [typeBien, statutOffre, villeNorm, quartierNorm, prixBand] combination, followed by
+    // an inPrixRange 1/0 column when prixMin or prixMax is given, then the count. With multiSelect only
+    // surface and keyword are filtered in SQL; the facet filters are left to the caller (see FacetCounts).
+    List<Object[]> countFacets(
+        TypeBien typeBien,
+        Double prixMin,
+        Double prixMax,
+        Double surfaceMin,
+        Double surfaceMax,
+        String ville,
+        String quartier,
+        String searchKeyword,
+        boolean multiSelect
+    );
+}
@@ -0,0 +1,182 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.OffreArchive;
+import com.immobilier.app.entity.OffreReadModel;
+import com.immobilier.app.entity.Offre.TypeBien;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+public class OffreReadModelRepositoryCustomImpl implements OffreReadModelRepositoryCustom {
+    private static final Map<String, String> ATTRIBUTES = Map.of("photo", "firstPhotoUrl");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<OffreReadModel> findAllWithFilters(
+            TypeBien typeBien,
+            Double prixMin,
+            Double prixMax,
+            Double surfaceMin,
+            Double surfaceMax,
+            String ville,
+            String quartier,
+            String searchKeyword,
+            Pageable pageable) {
+        return query().entities(
+                (cb, root) -> filters(cb, root, typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                        ville, quartier, searchKeyword),
+                pageable);
+    }
+
+    @Override
+    public Page<OffreReadModel> findAllWithFiltersIncludingArchived(
+            TypeBien typeBien,
+            Double prixMin,
+            Double prixMax,
+            Double surfaceMin,
+            Double surfaceMax,
+            String ville,
+            String quartier,
+            String searchKeyword,
+            Pageable pageable) {
+        int end = (int) (pageable.getOffset() + pageable.getPageSize());
+        // Without a sort the merge still needs a total order
+        Sort sort = pageable.getSort().isSorted() ? pageable.getSort() : Sort.by("id");
+        Pageable top = PageRequest.of(0, end, sort);
+        Page<OffreReadModel> live = query().entities(
+                (cb, root) -> filters(cb, root, typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                        ville, quartier, searchKeyword),
+                top);
+        Page<OffreArchive> archived = archiveQuery().entities(
+                (cb, root) -> filters(cb, root, typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                        ville, quartier, searchKeyword),
+                top);
+        List<OffreReadModel> merged = new ArrayList<>(live.getContent());
+        archived.forEach(row -> merged.add(row.toReadModel()));
+        merged.sort(comparator(sort));
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        return new PageImpl<>(merged.subList(from, Math.min(end, merged.size())), pageable,
+                live.getTotalElements() + archived.getTotalElements());
+    }
+
+    // Same order as the SQL ORDER BY: enums by name, nulls first when ascending
+    private static Comparator<OffreReadModel> comparator(Sort sort) {
+        Comparator<OffreReadModel> comparator = null;
+        for (Sort.Order order : sort) {
+            String attribute = ATTRIBUTES.getOrDefault(order.getProperty(), order.getProperty());
+            Comparator<OffreReadModel> next = Comparator.comparing(row -> sortKey(row, attribute),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            next = order.isAscending() ? next : next.reversed();
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator.thenComparing(OffreReadModel::getId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> sortKey(OffreReadModel row, String attribute) {
+        Object value = new BeanWrapperImpl(row).getPropertyValue(attribute);
+        return (Comparable<Object>) (value instanceof Enum<?> e ? e.name() : value);
+    }
+
+    @Override
+    public Page<Map<String, Object>> findFieldsWithFilters(
+            List<String> fields,
+            TypeBien typeBien,
+            Double prixMin,
+            Double prixMax,
+            Double surfaceMin,
+            Double surfaceMax,
+            String ville,
+            String quartier,
+            String searchKeyword,
+            Pageable pageable) {
+        return query().fields(fields,
+                (cb, root) -> filters(cb, root, typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                        ville, quartier, searchKeyword),
+                pageable);
+    }
+
+    @Override
+    public List<Object[]> countFacets(
+            TypeBien typeBien,
+            Double prixMin,
+            Double prixMax,
+            Double surfaceMin,
+            Double surfaceMax,
+            String ville,
+            String quartier,
+            String searchKeyword,
+            boolean multiSelect) {
+        return query().counts(
+                (cb, root) -> {
+                    List<Expression<?>> dimensions = new ArrayList<>(List.of(root.get("typeBien"),
+                            root.get("statutOffre"), root.get("villeNorm"), root.get("quartierNorm"),
+                            root.get("prixBand")));
+                    if (prixMin != null || prixMax != null) {
+                        dimensions.add(FilteredQuery.inRange(cb, root.get("prixPropose"), prixMin, prixMax));
+                    }
+                    return dimensions;
+                },
+                (cb, root) -> multiSelect
+                        ? filters(cb, root, null, null, null, surfaceMin, surfaceMax, null, null, searchKeyword)
+                        : filters(cb, root, typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                        ville, quartier, searchKeyword));
+    }
+
+    private FilteredQuery<OffreReadModel> query() {
+        return new FilteredQuery<>(entityManager, OffreReadModel.class, FIELDS, ATTRIBUTES);
+    }
+
+    private FilteredQuery<OffreArchive> archiveQuery() {
+        return new FilteredQuery<>(entityManager, OffreArchive.class, FIELDS, ATTRIBUTES);
+    }
+
+    // ville, quartier and searchKeyword arrive normalized (see SearchText.normalize). offres_archive has
+    // the same attributes as the read model, so the predicates apply to both.
+    private static Predicate filters(CriteriaBuilder cb, Root<?> o, TypeBien typeBien, Double prixMin,
+                                     Double prixMax, Double surfaceMin, Double surfaceMax, String ville,
+                                     String quartier, String searchKeyword) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (typeBien != null) {
+            predicates.add(cb.equal(o.get("typeBien"), typeBien));
+        }
+        if (prixMin != null) {
+            predicates.add(cb.ge(o.get("prixPropose"), prixMin));
+        }
+        if (prixMax != null) {
+            predicates.add(cb.le(o.get("prixPropose"), prixMax));
+        }
+        if (surfaceMin != null) {
+            predicates.add(cb.ge(o.get("surface"), surfaceMin));
+        }
+        if (surfaceMax != null) {
+            predicates.add(cb.le(o.get("surface"), surfaceMax));
+        }
+        if (ville != null) {
+            predicates.add(cb.equal(o.get("villeNorm"), ville));
+        }
+        if (quartier != null) {
+            predicates.add(cb.equal(o.get("quartierNorm"), quartier));
+        }
+        if (searchKeyword != null) {
+            predicates.add(cb.like(o.get("searchText"), "%" + searchKeyword + "%"));
+        }
+        return cb.and(predicates.toArray(new Predicate[0]));
+    }
+}
@@ -1,37 +1,45 @@
 package com.immobilier.app.repository;
 
 import com.immobilier.app.entity.Offre;
-import com.immobilier.app.entity.Offre.TypeBien;
 import com.immobilier.app.entity.Offre.StatutOffre;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 public interface OffreRepository extends JpaRepository<Offre, Long> {
-    @Query("SELECT o FROM Offre o WHERE " +
-           "(:typeBien IS NULL OR o.typeBien = :typeBien) AND " +
-           "(:prixMin IS NULL OR o.prixPropose >= :prixMin) AND " +
-           "(:prixMax IS NULL OR o.prixPropose <= :prixMax) AND " +
-           "(:surfaceMin IS NULL OR o.surface >= :surfaceMin) AND " +
-           "(:surfaceMax IS NULL OR o.surface <= :surfaceMax) AND " +
-           "(:ville IS NULL OR o.localisationVille = :ville) AND " +
-           "(:quartier IS NULL OR o.localisationQuartier = :quartier) AND " +
-           "(:searchKeyword IS NULL OR " +
-           "LOWER(o.nomProprietaire) LIKE LOWER(CONCAT('%', :searchKeyword, '%')) OR " +
-           "LOWER(o.prenomProprietaire) LIKE LOWER(CONCAT('%', :searchKeyword, '%')) OR " +
-           "LOWER(o.adresseBien) LIKE LOWER(CONCAT('%', :searchKeyword, '%')) OR " +
-           "LOWER(o.descriptionBien) LIKE LOWER(CONCAT('%', :searchKeyword, '%')))")
-    Page<Offre> findAllWithFilters(
-        @Param("typeBien") TypeBien typeBien,
-        @Param("prixMin") Double prixMin,
-        @Param("prixMax") Double prixMax,
-        @Param("surfaceMin") Double surfaceMin,
-        @Param("surfaceMax") Double surfaceMax,
-        @Param("ville") String ville,
-        @Param("quartier") String quartier,
-        @Param("searchKeyword") String searchKeyword,
-        Pageable pageable
+    // Conditional status change in a single statement; a null version skips the optimistic check
+    @Modifying
+    @Query("UPDATE Offre o SET o.statutOffre = :statut, o.updatedAt = :now, o.version = o.version + 1 " +
+           "WHERE o.id = :id AND (:version IS NULL OR o.version = :version)")
+    int updateStatus(
+        @Param("id") Long id,
+        @Param("statut") StatutOffre statut,
+        @Param("version") Long version,
+        @Param("now") LocalDateTime now
     );
-} 
\ No newline at end of file
+
+    // Keyset batches for rebuilding the read model
+    List<Offre> findByIdGreaterThanOrderById(Long id, Pageable pageable);
+
+    @Query("SELECT o.id FROM Offre o WHERE o.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Offre o SET o.statutOffre = :statut, o.updatedAt = :now, o.version = o.version + 1 " +
+           "WHERE o.id IN :ids")
+    int updateStatusByIds(
+        @Param("ids") Collection<Long> ids,
+        @Param("statut") StatutOffre statut,
+        @Param("now") LocalDateTime now
+    );
+
+    // The rows are removed later by OffreDeletionService
+    @Modifying
+    @Query("UPDATE Offre o SET o.deletedAt = :now WHERE o.id IN :ids AND o.deletedAt IS NULL")
+    int markDeleted(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,28 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.OffreRollup;
+import com.immobilier.app.entity.OffreRollup.Period;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface OffreRollupRepository extends JpaRepository<OffreRollup, Long> {
+    // One row per period start: [periodStart, listed, priceChanges, priced, priceSum, sold, soldPriceSum,
+    // daysOnMarketSum, withdrawn], summed over the cells matching the optional filters
+    @Query("SELECT r.periodStart, SUM(r.listedCount), SUM(r.priceChangeCount), SUM(r.pricedCount), SUM(r.priceSum), " +
+           "SUM(r.soldCount), SUM(r.soldPriceSum), SUM(r.daysOnMarketSum), SUM(r.withdrawnCount) " +
+           "FROM OffreRollup r WHERE r.period = :period AND r.periodStart BETWEEN :from AND :to " +
+           "AND (:ville IS NULL OR r.villeNorm = :ville) AND (:quartier IS NULL OR r.quartierNorm = :quartier) " +
+           "AND (:typeBien IS NULL OR r.typeBien = :typeBien) " +
+           "GROUP BY r.periodStart ORDER BY r.periodStart")
+    List<Object[]> sumByPeriodStart(
+        @Param("period") Period period,
+        @Param("from") LocalDate from,
+        @Param("to") LocalDate to,
+        @Param("ville") String ville,
+        @Param("quartier") String quartier,
+        @Param("typeBien") String typeBien
+    );
+}
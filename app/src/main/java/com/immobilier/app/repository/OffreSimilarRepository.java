@@ -0,0 +1,13 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.OffreSimilar;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.List;
+
+public interface OffreSimilarRepository extends JpaRepository<OffreSimilar, OffreSimilar.Key> {
+    // Closest first, served from the primary key
+    @Query("SELECT s.similarId FROM OffreSimilar s WHERE s.offreId = :offreId ORDER BY s.neighborRank")
+    List<Long> findSimilarIds(@Param("offreId") Long offreId);
+}
@@ -0,0 +1,14 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.OffreViewCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface OffreViewCountRepository extends JpaRepository<OffreViewCount, OffreViewCount.Key> {
+    // [offreId, views] summed over the days from since on
+    @Query("SELECT v.offreId, SUM(v.views) FROM OffreViewCount v WHERE v.viewDay >= :since GROUP BY v.offreId")
+    List<Object[]> sumSince(@Param("since") LocalDate since);
+}
@@ -0,0 +1,7 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.RollupWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface RollupWatermarkRepository extends JpaRepository<RollupWatermark, String> {
+}
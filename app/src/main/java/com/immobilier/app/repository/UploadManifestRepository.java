@@ -0,0 +1,7 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.UploadManifestEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface UploadManifestRepository extends JpaRepository<UploadManifestEntry, String> {
+}
@@ -0,0 +1,34 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.UploadSession;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Chunks are written outside any transaction, the offset is then moved in one of its own
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    // Not read-only, so that it is answered by the primary: the offset must be the current one
+    @Override
+    @Transactional
+    Optional<UploadSession> findById(String id);
+
+    // Moves the offset past a stored chunk, unless another request did it first
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.uploadOffset = :newOffset, s.chunkCount = s.chunkCount + 1 " +
+           "WHERE s.id = :id AND s.uploadOffset = :offset AND s.completedAt IS NULL")
+    int advance(@Param("id") String id, @Param("offset") long offset, @Param("newOffset") long newOffset);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.sha256 = :sha256, s.completedAt = :now WHERE s.id = :id")
+    int markCompleted(@Param("id") String id, @Param("sha256") String sha256, @Param("now") LocalDateTime now);
+
+    List<UploadSession> findByExpiresAtBeforeOrderByExpiresAt(LocalDateTime cutoff, Pageable pageable);
+}
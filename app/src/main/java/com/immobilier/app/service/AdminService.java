@@ -4,6 +4,7 @@ import com.immobilier.app.entity.Admin;
 import com.immobilier.app.repository.AdminRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,14 +15,17 @@ public class AdminService {
     @Autowired
     private AdminRepository adminRepository;
 
+    @Transactional(readOnly = true)
     public List<Admin> getAllAdmins() {
         return adminRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Optional<Admin> getAdminById(Long id) {
         return adminRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Admin> findByEmail(String email) {
         return adminRepository.findByEmail(email);
     }
@@ -0,0 +1,232 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.dto.ChangeEventDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// In-process change stream: offer and demande writes are appended, once committed, to a ring of the
+// last app.events.capacity events with increasing sequence numbers, and pushed to the SSE subscribers.
+// Writers only append; each subscriber is a cursor into the ring, drained by a pool thread while it has
+// events to send, so a slow client holds its own thread and never the writers or the other clients.
+// A client that falls more than the ring behind, or resumes from a sequence no longer held, gets a
+// "reset" event and reloads the list.
+@Service
+public class ChangeEventLog {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeEventLog.class);
+    private static final int DRAIN_BATCH = 100;
+
+    private final ChangeEventDto[] ring;
+    private final int maxSubscribers;
+    private final long timeoutMs;
+    private final long heartbeatMs;
+    private final ExecutorService dispatcher;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // Guarded by this. Sequence numbers start at the boot time in microseconds, so a client resuming
+    // with an id from an earlier run is never mistaken for one that is up to date.
+    private final long firstSequence = System.currentTimeMillis() * 1000;
+    private long nextSequence = firstSequence;
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        // Null for every entity
+        final String entity;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile long cursor;
+        volatile long lastSentAt = System.currentTimeMillis();
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, String entity, long cursor) {
+            this.emitter = emitter;
+            this.entity = entity;
+            this.cursor = cursor;
+        }
+    }
+
+    public ChangeEventLog(@Value("${app.events.capacity:10000}") int capacity,
+                          @Value("${app.events.max-subscribers:500}") int maxSubscribers,
+                          @Value("${app.events.timeout-ms:1800000}") long timeoutMs,
+                          @Value("${app.events.heartbeat-ms:15000}") long heartbeatMs) {
+        this.ring = new ChangeEventDto[capacity];
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMs = timeoutMs;
+        this.heartbeatMs = heartbeatMs;
+        AtomicInteger threads = new AtomicInteger();
+        // At most one drain per subscriber is queued or running, so the pool never needs more threads
+        // than there are subscribers
+        this.dispatcher = new ThreadPoolExecutor(0, maxSubscribers, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                task -> {
+                    Thread thread = new Thread(task, "change-events-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.closed = true;
+            subscriber.emitter.complete();
+        }
+        dispatcher.shutdownNow();
+    }
+
+    public void publish(String entity, ChangeEventDto.Type type, Collection<Long> ids) {
+        publish(entity, type, ids, null);
+    }
+
+    // Appended once the writing transaction commits, so the order is the commit order
+    public void publish(String entity, ChangeEventDto.Type type, Collection<Long> ids, String statut) {
+        ChangeEventDto event = ChangeEventDto.builder()
+                .entity(entity)
+                .type(type)
+                .ids(List.copyOf(ids))
+                .statut(statut)
+                .occurredAt(LocalDateTime.now())
+                .build();
+        AfterCommit.run(() -> append(event));
+    }
+
+    private void append(ChangeEventDto event) {
+        synchronized (this) {
+            event.setSequence(nextSequence);
+            ring[(int) ((nextSequence - firstSequence) % ring.length)] = event;
+            nextSequence++;
+        }
+        for (Subscriber subscriber : subscribers) {
+            schedule(subscriber);
+        }
+    }
+
+    public synchronized long lastSequence() {
+        return nextSequence - 1;
+    }
+
+    // Oldest sequence still in the ring
+    private long oldestSequence() {
+        return Math.max(firstSequence, nextSequence - ring.length);
+    }
+
+    // Events after the given sequence, null when some of them are no longer held
+    private synchronized List<ChangeEventDto> after(long sequence, int max) {
+        if (sequence == nextSequence - 1) {
+            return List.of();
+        }
+        if (sequence + 1 < oldestSequence() || sequence >= nextSequence) {
+            return null;
+        }
+        List<ChangeEventDto> events = new ArrayList<>();
+        for (long next = sequence + 1; next < nextSequence && events.size() < max; next++) {
+            events.add(ring[(int) ((next - firstSequence) % ring.length)]);
+        }
+        return events;
+    }
+
+    // since: last sequence the client has seen, null to start from now
+    public SseEmitter subscribe(Long since, String entity) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Too many subscribers");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, entity, since != null ? since : lastSequence());
+        Runnable remove = () -> {
+            subscriber.closed = true;
+            subscribers.remove(subscriber);
+        };
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // Keeps idle connections open through proxies and finds the clients that went away
+    @Scheduled(fixedDelayString = "${app.events.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            schedule(subscriber);
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.closed && subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> drain(subscriber));
+            } catch (RuntimeException e) {
+                // Shutting down
+                subscriber.scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            while (!subscriber.closed) {
+                List<ChangeEventDto> events = after(subscriber.cursor, DRAIN_BATCH);
+                if (events == null) {
+                    long oldest;
+                    synchronized (this) {
+                        oldest = oldestSequence();
+                    }
+                    subscriber.emitter.send(SseEmitter.event().name("reset").id(Long.toString(oldest - 1))
+                            .data(Map.of("sequence", oldest - 1), MediaType.APPLICATION_JSON));
+                    subscriber.cursor = oldest - 1;
+                    subscriber.lastSentAt = System.currentTimeMillis();
+                    continue;
+                }
+                if (events.isEmpty()) {
+                    break;
+                }
+                for (ChangeEventDto event : events) {
+                    if (subscriber.entity == null || subscriber.entity.equals(event.getEntity())) {
+                        subscriber.emitter.send(SseEmitter.event().id(Long.toString(event.getSequence()))
+                                .data(event, MediaType.APPLICATION_JSON));
+                    }
+                    subscriber.cursor = event.getSequence();
+                }
+                subscriber.lastSentAt = System.currentTimeMillis();
+            }
+            if (!subscriber.closed && System.currentTimeMillis() - subscriber.lastSentAt >= heartbeatMs) {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                subscriber.lastSentAt = System.currentTimeMillis();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client gone
+            subscriber.closed = true;
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        // An event appended while the drain was ending found it still scheduled
+        if (!subscriber.closed && subscriber.cursor < lastSequence()) {
+            schedule(subscriber);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.repository.ChangeStamp;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.function.Function;
+
+// Per-table change counters, used as ETag / Last-Modified validators for list and search pages.
+// The counters are rows of table_versions, bumped in the writing transaction, so writes from every
+// node and job move them, and a page read while the write is in flight never sees the new tag.
+@Service
+public class ChangeTracker {
+    public static final String OFFRES = "offres";
+    public static final String DEMANDES = "demandes";
+
+    private static final String BUMP =
+            "UPDATE table_versions SET version = version + 1, updated_at = CURRENT_TIMESTAMP(3) WHERE name = ?";
+    private static final String INSERT =
+            "INSERT INTO table_versions (name, version, updated_at) VALUES (?, 1, CURRENT_TIMESTAMP(3))";
+    private static final String READ =
+            "SELECT version, updated_at, CURRENT_TIMESTAMP(3) FROM table_versions WHERE name = ?";
+
+    // Validators of one table: the tag and the Last-Modified time, -1 when there is none to send
+    public record Stamp(String etag, long lastModified) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ChangeTracker(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+    }
+
+    public void changed(String table) {
+        // The counter row is locked until commit; flushing first makes it the last lock a write takes,
+        // so two writers can't each hold a row the other waits for
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            entityManager.flush();
+        }
+        if (jdbcTemplate.update(BUMP, table) == 0) {
+            try {
+                jdbcTemplate.update(INSERT, table);
+            } catch (DuplicateKeyException e) {
+                jdbcTemplate.update(BUMP, table);
+            }
+        }
+    }
+
+    public Stamp stamp(String table) {
+        List<Stamp> stamps = jdbcTemplate.query(READ, (rs, i) -> stamp(table, rs.getLong(1),
+                rs.getTimestamp(2), rs.getTimestamp(3)), table);
+        return stamps.isEmpty() ? new Stamp(etag(table, 0), -1) : stamps.get(0);
+    }
+
+    // Reads the stamp, then the page, in one read-only transaction: both come from the same connection and
+    // snapshot, so a page from a lagging replica is never cached under the tag of a newer primary commit
+    public <T> T read(String table, Function<Stamp, T> page) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        return transaction.execute(status -> {
+            T result = page.apply(stamp(table));
+            // Nothing to commit; rolling back also ends quietly a read that marked it rollback-only
+            status.setRollbackOnly();
+            return result;
+        });
+    }
+
+    private static Stamp stamp(String table, long version, Timestamp updatedAt, Timestamp now) {
+        // Last-Modified has whole seconds: until the second of the last write is over, another write
+        // could land in it under the same date, so only the tag is sent
+        long lastModified = updatedAt.getTime() / 1000 * 1000;
+        return new Stamp(etag(table, version), now.getTime() / 1000 * 1000 > lastModified ? lastModified : -1);
+    }
+
+    // Weak tags: compressed and uncompressed bodies share them
+    private static String etag(String table, long version) {
+        return "W/\"" + table + "-" + version + "\"";
+    }
+
+    public static String etag(String table, Long id, ChangeStamp stamp) {
+        return "W/\"" + table + "-" + id + "-v" + stamp.getVersion() + "\"";
+    }
+
+    public static long lastModified(ChangeStamp stamp) {
+        return stamp.getUpdatedAt() != null
+                ? stamp.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : -1;
+    }
+}
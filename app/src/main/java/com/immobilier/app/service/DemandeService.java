@@ -1,22 +1,51 @@
 package com.immobilier.app.service;
 
+import com.immobilier.app.dto.ChangeEventDto;
 import com.immobilier.app.dto.DemandeDto;
+import com.immobilier.app.dto.OffreDto;
 import com.immobilier.app.entity.Demande;
 import com.immobilier.app.entity.Demande.TypeDemande;
 import com.immobilier.app.entity.Demande.TypeBien;
+import com.immobilier.app.entity.SearchText;
+import com.immobilier.app.repository.ChangeStamp;
 import com.immobilier.app.repository.DemandeRepository;
+import com.immobilier.app.repository.DemandeRepositoryCustom;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 @Service
 @RequiredArgsConstructor
 public class DemandeService {
+    private static final Logger logger = LoggerFactory.getLogger(DemandeService.class);
+    private static final int BACKFILL_BATCH = 1000;
+
+    // Default shape of list views, without client contact details or notes
+    public static final List<String> SUMMARY_FIELDS = List.of("id", "typeDemande", "typeBien", "prixSouhaite",
+            "surfaceDemandee", "localisationSouhaitee", "createdAt");
+
     private final DemandeRepository demandeRepository;
+    private final ChangeTracker changeTracker;
+    private final ChangeEventLog changeEventLog;
+    private final JdbcTemplate jdbcTemplate;
+    private final LocalisationService localisationService;
+    private final SupplyDemandService supplyDemand;
 
+    @Transactional(readOnly = true)
     public Page<DemandeDto> findAllWithFilters(
             TypeDemande typeDemande,
             TypeBien typeBien,
@@ -24,14 +53,97 @@ public class DemandeService {
             Double prixMax,
             Double surfaceMin,
             Double surfaceMax,
+            String ville,
+            String quartier,
             String searchKeyword,
             Pageable pageable) {
+        OffreService.checkFields(List.of(), pageable, DemandeRepositoryCustom.FIELDS);
         return demandeRepository.findAllWithFilters(
                 typeDemande, typeBien, prixMin, prixMax,
-                surfaceMin, surfaceMax, searchKeyword, pageable)
+                surfaceMin, surfaceMax, SearchText.normalize(ville), SearchText.normalize(quartier),
+                SearchText.normalize(searchKeyword), pageable)
                 .map(DemandeDto::fromEntity);
     }
 
+    // Sparse fieldset: only the requested columns are selected
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findFieldsWithFilters(
+            String fields,
+            TypeDemande typeDemande,
+            TypeBien typeBien,
+            Double prixMin,
+            Double prixMax,
+            Double surfaceMin,
+            Double surfaceMax,
+            String ville,
+            String quartier,
+            String searchKeyword,
+            Pageable pageable) {
+        List<String> columns = "summary".equals(fields) ? SUMMARY_FIELDS : OffreService.parseFields(fields);
+        OffreService.checkFields(columns, pageable, DemandeRepositoryCustom.FIELDS);
+        return demandeRepository.findFieldsWithFilters(columns,
+                typeDemande, typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                SearchText.normalize(ville), SearchText.normalize(quartier),
+                SearchText.normalize(searchKeyword), pageable);
+    }
+
+    // Counts per typeDemande, typeBien, ville, quartier and prixBand among the demandes matching the
+    // filters, from one grouped query (see OffreService.facets for multiSelect)
+    @Transactional(readOnly = true)
+    public Map<String, Map<String, Long>> facets(
+            TypeDemande typeDemande,
+            TypeBien typeBien,
+            Double prixMin,
+            Double prixMax,
+            Double surfaceMin,
+            Double surfaceMax,
+            String ville,
+            String quartier,
+            String searchKeyword,
+            boolean multiSelect) {
+        String villeNorm = SearchText.normalize(ville);
+        String quartierNorm = SearchText.normalize(quartier);
+        List<Object[]> rows = demandeRepository.countFacets(typeDemande, typeBien, prixMin, prixMax,
+                surfaceMin, surfaceMax, villeNorm, quartierNorm, SearchText.normalize(searchKeyword), multiSelect);
+        Map<String, Predicate<Object[]>> filters = new HashMap<>();
+        if (typeDemande != null) {
+            filters.put("typeDemande", row -> typeDemande.equals(row[0]));
+        }
+        if (typeBien != null) {
+            filters.put("typeBien", row -> typeBien.equals(row[1]));
+        }
+        if (villeNorm != null) {
+            filters.put("ville", row -> villeNorm.equals(row[2]));
+        }
+        if (quartierNorm != null) {
+            filters.put("quartier", row -> quartierNorm.equals(row[3]));
+        }
+        if (prixMin != null || prixMax != null) {
+            filters.put("prixBand", row -> ((Number) row[5]).intValue() == 1);
+        }
+        Map<String, Map<String, Long>> facets = FacetCounts.aggregate(
+                List.of("typeDemande", "typeBien", "ville", "quartier", "prixBand"), rows, filters, multiSelect);
+        facets.put("ville", FacetCounts.relabel(facets.get("ville"), localisationService::villeLabel));
+        facets.put("quartier", FacetCounts.relabel(facets.get("quartier"), localisationService::quartierLabel));
+        return facets;
+    }
+
+    // Demandes the given offer could satisfy (see DemandeRepositoryCustom.findMatching)
+    @Transactional(readOnly = true)
+    public Page<DemandeDto> findMatching(OffreDto offre, Pageable pageable) {
+        OffreService.checkFields(List.of(), pageable, DemandeRepositoryCustom.FIELDS);
+        TypeBien typeBien = offre.getTypeBien() != null ? TypeBien.valueOf(offre.getTypeBien().name()) : null;
+        return demandeRepository.findMatching(typeBien, offre.getPrixPropose(), offre.getSurface(),
+                SearchText.normalize(offre.getLocalisationVille()), SearchText.normalize(offre.getLocalisationQuartier()),
+                pageable)
+                .map(DemandeDto::fromEntity);
+    }
+
+    public Optional<ChangeStamp> findStamp(Long id) {
+        return demandeRepository.findStampById(id);
+    }
+
+    @Transactional(readOnly = true)
     public Optional<DemandeDto> findById(Long id) {
         return demandeRepository.findById(id)
                 .map(DemandeDto::fromEntity);
@@ -53,40 +165,165 @@ public class DemandeService {
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
+        locate(demande, dto, false);
 
-        return DemandeDto.fromEntity(demandeRepository.save(demande));
+        Demande saved = demandeRepository.save(demande);
+        supplyDemand.upsertDemande(saved);
+        changeTracker.changed(ChangeTracker.DEMANDES);
+        changeEventLog.publish(ChangeTracker.DEMANDES, ChangeEventDto.Type.CREATED, List.of(saved.getId()));
+        return DemandeDto.fromEntity(saved);
     }
 
+    // PUT: replaces every editable field on the managed entity, only modified columns are written
+    @Transactional
     public Optional<DemandeDto> update(Long id, DemandeDto dto) {
         return demandeRepository.findById(id)
                 .map(existingDemande -> {
-                    Demande updatedDemande = Demande.builder()
-                            .id(id)
-                            .admin(existingDemande.getAdmin())
-                            .nomClient(dto.getNomClient())
-                            .prenomClient(dto.getPrenomClient())
-                            .telephoneClient(dto.getTelephoneClient())
-                            .typeDemande(dto.getTypeDemande())
-                            .typeBien(dto.getTypeBien())
-                            .surfaceDemandee(dto.getSurfaceDemandee())
-                            .nbChambres(dto.getNbChambres())
-                            .etageSouhaite(dto.getEtageSouhaite())
-                            .prixSouhaite(dto.getPrixSouhaite())
-                            .localisationSouhaitee(dto.getLocalisationSouhaitee())
-                            .notesSupplementaires(dto.getNotesSupplementaires())
-                            .createdAt(existingDemande.getCreatedAt())
-                            .updatedAt(LocalDateTime.now())
-                            .build();
-
-                    return DemandeDto.fromEntity(demandeRepository.save(updatedDemande));
+                    checkVersion(existingDemande, dto.getVersion());
+                    applyChanges(existingDemande, dto, false);
+                    Demande saved = demandeRepository.saveAndFlush(existingDemande);
+                    supplyDemand.upsertDemande(saved);
+                    changeTracker.changed(ChangeTracker.DEMANDES);
+                    changeEventLog.publish(ChangeTracker.DEMANDES, ChangeEventDto.Type.UPDATED, List.of(id));
+                    return DemandeDto.fromEntity(saved);
                 });
     }
 
-    public void delete(Long id) {
-        demandeRepository.deleteById(id);
+    // PATCH: only fields present (non-null) in the request are changed
+    @Transactional
+    public Optional<DemandeDto> patch(Long id, DemandeDto dto) {
+        return demandeRepository.findById(id)
+                .map(existingDemande -> {
+                    checkVersion(existingDemande, dto.getVersion());
+                    applyChanges(existingDemande, dto, true);
+                    Demande saved = demandeRepository.saveAndFlush(existingDemande);
+                    supplyDemand.upsertDemande(saved);
+                    changeTracker.changed(ChangeTracker.DEMANDES);
+                    changeEventLog.publish(ChangeTracker.DEMANDES, ChangeEventDto.Type.UPDATED, List.of(id));
+                    return DemandeDto.fromEntity(saved);
+                });
+    }
+
+    private void checkVersion(Demande demande, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(demande.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Demande.class, demande.getId());
+        }
+    }
+
+    private void applyChanges(Demande demande, DemandeDto dto, boolean partial) {
+        apply(partial, dto.getNomClient(), demande::setNomClient);
+        apply(partial, dto.getPrenomClient(), demande::setPrenomClient);
+        apply(partial, dto.getTelephoneClient(), demande::setTelephoneClient);
+        apply(partial, dto.getTypeDemande(), demande::setTypeDemande);
+        apply(partial, dto.getTypeBien(), demande::setTypeBien);
+        apply(partial, dto.getSurfaceDemandee(), demande::setSurfaceDemandee);
+        apply(partial, dto.getNbChambres(), demande::setNbChambres);
+        apply(partial, dto.getEtageSouhaite(), demande::setEtageSouhaite);
+        apply(partial, dto.getPrixSouhaite(), demande::setPrixSouhaite);
+        apply(partial, dto.getLocalisationSouhaitee(), demande::setLocalisationSouhaitee);
+        apply(partial, dto.getNotesSupplementaires(), demande::setNotesSupplementaires);
+        locate(demande, dto, partial);
     }
 
+    // Structured ville/quartier win when given (and fill localisationSouhaitee if it is missing),
+    // otherwise they are parsed from localisationSouhaitee whenever that is written
+    private void locate(Demande demande, DemandeDto dto, boolean partial) {
+        LocalisationService.Location location;
+        if (dto.getLocalisationVille() != null) {
+            location = localisationService.resolve(dto.getLocalisationVille(), dto.getLocalisationQuartier());
+            if (dto.getLocalisationSouhaitee() == null && location != null) {
+                demande.setLocalisationSouhaitee(location.label());
+            }
+        } else if (!partial || dto.getLocalisationSouhaitee() != null) {
+            location = localisationService.parse(demande.getLocalisationSouhaitee());
+        } else {
+            return;
+        }
+        demande.setLocalisationVille(location != null ? location.ville() : null);
+        demande.setLocalisationQuartier(location != null ? location.quartier() : null);
+    }
+
+    private static <T> void apply(boolean partial, T value, Consumer<T> setter) {
+        if (!partial || value != null) {
+            setter.accept(value);
+        }
+    }
+
+    // False when the demande does not exist
+    @Transactional
+    public boolean delete(Long id) {
+        Optional<Demande> demande = demandeRepository.findById(id);
+        if (demande.isEmpty()) {
+            return false;
+        }
+        demandeRepository.delete(demande.get());
+        supplyDemand.removeDemande(id);
+        changeTracker.changed(ChangeTracker.DEMANDES);
+        changeEventLog.publish(ChangeTracker.DEMANDES, ChangeEventDto.Type.DELETED, List.of(id));
+        return true;
+    }
+
+    @Transactional(readOnly = true)
     public java.util.List<DemandeDto> findAll() {
         return demandeRepository.findAll().stream().map(DemandeDto::fromEntity).toList();
     }
-} 
\ No newline at end of file
+
+    // Fills search_text for rows written before the column existed or inserted with plain SQL.
+    // Plain JDBC on purpose: going through the entity would bump version and updated_at.
+    public void backfillSearchText() {
+        long lastId = 0;
+        int total = 0;
+        while (true) {
+            List<Object[]> updates = new ArrayList<>();
+            List<Long> ids = new ArrayList<>();
+            jdbcTemplate.query("SELECT id, nom_client, prenom_client, localisation_souhaitee, notes_supplementaires " +
+                            "FROM demandes WHERE search_text IS NULL AND id > ? ORDER BY id LIMIT " + BACKFILL_BATCH,
+                    rs -> {
+                        long id = rs.getLong(1);
+                        ids.add(id);
+                        updates.add(new Object[]{SearchText.of(rs.getString(2), rs.getString(3),
+                                rs.getString(4), rs.getString(5)), id});
+                    }, lastId);
+            if (ids.isEmpty()) {
+                break;
+            }
+            jdbcTemplate.batchUpdate("UPDATE demandes SET search_text = ? WHERE id = ?", updates);
+            lastId = ids.get(ids.size() - 1);
+            total += ids.size();
+        }
+        if (total > 0) {
+            logger.info("Filled search_text for {} demandes", total);
+        }
+    }
+
+    // Fills localisation_ville/quartier for rows written before the columns existed, same rules as locate()
+    public void backfillLocalisations() {
+        long lastId = 0;
+        int total = 0;
+        while (true) {
+            List<Object[]> updates = new ArrayList<>();
+            List<Long> ids = new ArrayList<>();
+            jdbcTemplate.query("SELECT id, localisation_souhaitee FROM demandes WHERE ville_norm IS NULL " +
+                            "AND localisation_souhaitee IS NOT NULL AND id > ? ORDER BY id LIMIT " + BACKFILL_BATCH,
+                    rs -> {
+                        long id = rs.getLong(1);
+                        ids.add(id);
+                        LocalisationService.Location location = localisationService.parse(rs.getString(2));
+                        if (location != null) {
+                            updates.add(new Object[]{location.ville(), location.quartier(),
+                                    SearchText.normalize(location.ville()), SearchText.normalize(location.quartier()), id});
+                        }
+                    }, lastId);
+            if (ids.isEmpty()) {
+                break;
+            }
+            jdbcTemplate.batchUpdate("UPDATE demandes SET localisation_ville = ?, localisation_quartier = ?, " +
+                    "ville_norm = ?, quartier_norm = ? WHERE id = ?", updates);
+            lastId = ids.get(ids.size() - 1);
+            total += updates.size();
+        }
+        if (total > 0) {
+            logger.info("Parsed the location of {} demandes", total);
+        }
+    }
+}
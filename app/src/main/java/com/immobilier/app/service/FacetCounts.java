@@ -0,0 +1,60 @@
+package com.immobilier.app.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+// Turns the rows of a grouped count query ([facet value..., extra filter columns..., count]) into
+// counts per value of each facet. filters holds, per facet name, the test a row must pass for that
+// facet's own filter; with multiSelect a facet ignores its own filter, so one query serves every facet.
+final class FacetCounts {
+    private FacetCounts() {
+    }
+
+    static Map<String, Map<String, Long>> aggregate(List<String> facets, List<Object[]> rows,
+                                                    Map<String, Predicate<Object[]>> filters, boolean multiSelect) {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        for (int i = 0; i < facets.size(); i++) {
+            String facet = facets.get(i);
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (Object[] row : rows) {
+                if (row[i] == null || !passes(row, filters, multiSelect ? facet : null)) {
+                    continue;
+                }
+                counts.merge(String.valueOf(row[i]), ((Number) row[row.length - 1]).longValue(), Long::sum);
+            }
+            result.put(facet, sorted(counts));
+        }
+        return result;
+    }
+
+    private static boolean passes(Object[] row, Map<String, Predicate<Object[]>> filters, String except) {
+        for (Map.Entry<String, Predicate<Object[]>> filter : filters.entrySet()) {
+            if (!filter.getKey().equals(except) && !filter.getValue().test(row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Replaces normalized keys by display labels, adding up keys that end up with the same label
+    static Map<String, Long> relabel(Map<String, Long> counts, UnaryOperator<String> label) {
+        Map<String, Long> relabeled = new LinkedHashMap<>();
+        counts.forEach((key, count) -> relabeled.merge(label.apply(key), count, Long::sum));
+        return sorted(relabeled);
+    }
+
+    // Most frequent first
+    private static Map<String, Long> sorted(Map<String, Long> counts) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : entries) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+}
@@ -1,24 +1,35 @@
 package com.immobilier.app.service;
 
 import com.immobilier.app.config.FileStorageConfig;
+import com.immobilier.app.storage.StorageBackend;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HexFormat;
 import java.util.UUID;
 
 @Service
 public class FileStorageService {
 
     private final FileStorageConfig fileStorageConfig;
+    private final StorageBackend storage;
+    private final UploadManifestService uploadManifest;
 
-    public FileStorageService(FileStorageConfig fileStorageConfig) {
+    public FileStorageService(FileStorageConfig fileStorageConfig, StorageBackend storage,
+                              UploadManifestService uploadManifest) {
         this.fileStorageConfig = fileStorageConfig;
+        this.storage = storage;
+        this.uploadManifest = uploadManifest;
     }
 
     public String storeFile(MultipartFile file) throws IOException {
@@ -33,65 +44,92 @@ public class FileStorageService {
             throw new IllegalArgumentException("Only image files are allowed");
         }
 
+        String key = newKey(file.getOriginalFilename());
+
+        // Stream it to the storage backend, hashing it on the way
+        MessageDigest digest = sha256();
+        long size;
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            size = storage.write(key, in, file.getSize(), contentType);
+        }
+
+        // Return the URL path for frontend access
+        String url = urlOf(key);
+        uploadManifest.add(url, size, HexFormat.of().formatHex(digest.digest()), LocalDateTime.now());
+        return url;
+    }
+
+    // Storage key of a new upload, organized by year/month, the directories walked by UploadCollector
+    public String newKey(String originalFilename) {
         // Get file extension
-        String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
         String fileExtension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        if (originalFilename != null) {
+            String cleaned = StringUtils.cleanPath(originalFilename);
+            String extension = cleaned.contains(".") ? cleaned.substring(cleaned.lastIndexOf(".")) : "";
+            if (extension.matches("\\.[A-Za-z0-9]{1,10}")) {
+                fileExtension = extension;
+            }
         }
 
         // Generate unique filename
         String filename = UUID.randomUUID().toString() + fileExtension;
+        LocalDate now = LocalDate.now();
+        return now.getYear() + "/" + String.format("%02d", now.getMonthValue()) + "/" + filename;
+    }
 
-        // Create upload directory if it doesn't exist
-        Path uploadPath = fileStorageConfig.getUploadPath();
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+    // Hex SHA-256 of a stored file, for files that predate the manifest
+    public String sha256(String key) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(storage.read(key), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
         }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-        // Create subdirectories for better organization (by year/month)
-        java.time.LocalDate now = java.time.LocalDate.now();
-        Path yearMonthPath = uploadPath.resolve(String.valueOf(now.getYear()))
-                .resolve(String.format("%02d", now.getMonthValue()));
-        
-        if (!Files.exists(yearMonthPath)) {
-            Files.createDirectories(yearMonthPath);
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
+    }
 
-        // Save file
-        Path targetPath = yearMonthPath.resolve(filename);
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+    // Public URL of a storage key: /uploads/yyyy/MM/name
+    public String urlOf(String key) {
+        return fileStorageConfig.getUploadPathString() + "/" + key;
+    }
 
-        // Return the URL path for frontend access
-        return fileStorageConfig.getUploadPathString() + "/" + 
-               now.getYear() + "/" + 
-               String.format("%02d", now.getMonthValue()) + "/" + 
-               filename;
+    // Storage key of a public URL, null for URLs outside the upload path
+    public String keyOf(String fileUrl) {
+        String prefix = fileStorageConfig.getUploadPathString() + "/";
+        return fileUrl != null && fileUrl.startsWith(prefix) ? fileUrl.substring(prefix.length()) : null;
     }
 
-    public void deleteFile(String fileUrl) {
+    // False when the file exists but could not be deleted, so that the caller can retry
+    public boolean deleteFile(String fileUrl) {
+        String key = keyOf(fileUrl);
+        if (key == null) {
+            return true;
+        }
         try {
-            if (fileUrl != null && fileUrl.startsWith(fileStorageConfig.getUploadPathString())) {
-                String relativePath = fileUrl.substring(fileStorageConfig.getUploadPathString().length());
-                Path filePath = fileStorageConfig.getUploadPath().resolve(relativePath.substring(1));
-                
-                if (Files.exists(filePath)) {
-                    Files.delete(filePath);
-                }
-            }
+            storage.delete(key);
+            uploadManifest.remove(fileUrl);
+            return true;
         } catch (IOException e) {
             // Log error but don't throw exception for file deletion failures
             System.err.println("Failed to delete file: " + fileUrl + " - " + e.getMessage());
+            return false;
         }
     }
 
-    public boolean fileExists(String fileUrl) {
-        if (fileUrl == null || !fileUrl.startsWith(fileStorageConfig.getUploadPathString())) {
-            return false;
+    public void deleteFiles(Collection<String> fileUrls) {
+        for (String fileUrl : fileUrls) {
+            deleteFile(fileUrl);
         }
-        
-        String relativePath = fileUrl.substring(fileStorageConfig.getUploadPathString().length());
-        Path filePath = fileStorageConfig.getUploadPath().resolve(relativePath.substring(1));
-        return Files.exists(filePath);
     }
-} 
\ No newline at end of file
+
+    // Answered by the upload manifest, without touching the disk
+    public boolean fileExists(String fileUrl) {
+        return uploadManifest.contains(fileUrl);
+    }
+}
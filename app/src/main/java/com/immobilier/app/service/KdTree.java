@@ -0,0 +1,105 @@
+package com.immobilier.app.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+// 2-d tree over the offers of one partition, stored implicitly in one array: the middle of each range is
+// the node, the halves before and after it its subtrees, split on x and y in turn. It is rebuilt rather
+// than updated, which keeps it balanced; a partition is one type of property in one city, so that is cheap.
+final class KdTree {
+
+    // candidate: may be returned as a neighbor; other points are only found by within()
+    record Point(long id, double x, double y, String quartier, boolean candidate) {
+    }
+
+    record Neighbor(long id, double score) {
+    }
+
+    private static final Comparator<Point> BY_X = Comparator.comparingDouble(Point::x);
+    private static final Comparator<Point> BY_Y = Comparator.comparingDouble(Point::y);
+
+    private final Point[] points;
+
+    KdTree(Collection<Point> points) {
+        this.points = points.toArray(new Point[0]);
+        build(0, this.points.length, 0);
+    }
+
+    private void build(int from, int to, int axis) {
+        if (to - from <= 1) {
+            return;
+        }
+        Arrays.sort(points, from, to, axis == 0 ? BY_X : BY_Y);
+        int mid = (from + to) >>> 1;
+        build(from, mid, 1 - axis);
+        build(mid + 1, to, 1 - axis);
+    }
+
+    static double distance(Point a, Point b) {
+        return Math.hypot(a.x() - b.x(), a.y() - b.y());
+    }
+
+    // The k candidates other than the query with the lowest distance + penalty, closest first. Penalties
+    // are not negative, so a subtree farther than the current k-th score cannot improve the result.
+    List<Neighbor> nearest(Point query, int k, ToDoubleFunction<Point> penalty) {
+        PriorityQueue<Neighbor> best = new PriorityQueue<>(
+                Comparator.comparingDouble(Neighbor::score).reversed().thenComparingLong(Neighbor::id));
+        nearest(0, points.length, 0, query, k, penalty, best);
+        List<Neighbor> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Neighbor::score).thenComparingLong(Neighbor::id));
+        return result;
+    }
+
+    private void nearest(int from, int to, int axis, Point query, int k, ToDoubleFunction<Point> penalty,
+                         PriorityQueue<Neighbor> best) {
+        if (from >= to) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        Point node = points[mid];
+        if (node.candidate() && node.id() != query.id()) {
+            double score = distance(query, node) + penalty.applyAsDouble(node);
+            if (best.size() < k) {
+                best.add(new Neighbor(node.id(), score));
+            } else if (score < best.peek().score()) {
+                best.poll();
+                best.add(new Neighbor(node.id(), score));
+            }
+        }
+        double diff = axis == 0 ? query.x() - node.x() : query.y() - node.y();
+        boolean left = diff < 0;
+        nearest(left ? from : mid + 1, left ? mid : to, 1 - axis, query, k, penalty, best);
+        if (best.size() < k || Math.abs(diff) < best.peek().score()) {
+            nearest(left ? mid + 1 : from, left ? to : mid, 1 - axis, query, k, penalty, best);
+        }
+    }
+
+    // Every point within radius of center, the center itself included
+    void within(Point center, double radius, Consumer<Point> action) {
+        within(0, points.length, 0, center, radius, action);
+    }
+
+    private void within(int from, int to, int axis, Point center, double radius, Consumer<Point> action) {
+        if (from >= to) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        Point node = points[mid];
+        if (distance(center, node) <= radius) {
+            action.accept(node);
+        }
+        double diff = axis == 0 ? center.x() - node.x() : center.y() - node.y();
+        if (diff - radius <= 0) {
+            within(from, mid, 1 - axis, center, radius, action);
+        }
+        if (diff + radius >= 0) {
+            within(mid + 1, to, 1 - axis, center, radius, action);
+        }
+    }
+}
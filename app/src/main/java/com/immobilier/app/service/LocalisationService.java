@@ -0,0 +1,227 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.entity.Localisation;
+import com.immobilier.app.entity.SearchText;
+import com.immobilier.app.repository.LocalisationRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Canonical (ville, quartier) pairs, learned from offers, and the parser that turns the free-text
+// localisationSouhaitee of a demande ("Casablanca, Maarif", "maârif", "Rabat") into ville/quartier.
+// The table is small, so lookups go to an in-memory copy that is replaced on every addition.
+@Service
+@RequiredArgsConstructor
+public class LocalisationService {
+    private static final Logger logger = LoggerFactory.getLogger(LocalisationService.class);
+    private static final Pattern SEPARATORS = Pattern.compile("[,;/]");
+
+    private final LocalisationRepository localisationRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private volatile Gazetteer gazetteer;
+
+    public record Location(String ville, String quartier) {
+        public String label() {
+            return quartier != null ? ville + ", " + quartier : ville;
+        }
+    }
+
+    // Adds the locations of offers created before the gazetteer existed or inserted with plain SQL
+    public void syncFromOffres() {
+        Gazetteer current = reload();
+        int added = 0;
+        for (Object[] row : localisationRepository.findOffreLocalisations()) {
+            String ville = clean((String) row[0]);
+            String quartier = clean((String) row[1]);
+            if (ville != null && quartier != null && !current.knows(ville, quartier)) {
+                localisationRepository.save(Localisation.builder().ville(ville).quartier(quartier).build());
+                current = current.with(ville, quartier);
+                added++;
+            }
+        }
+        gazetteer = current;
+        if (added > 0) {
+            logger.info("Added {} locations from offers to the gazetteer", added);
+        }
+    }
+
+    // Records the location of an offer once its transaction commits
+    public void register(String ville, String quartier) {
+        String v = clean(ville);
+        String q = clean(quartier);
+        if (v == null || q == null || gazetteer().knows(v, q)) {
+            return;
+        }
+        AfterCommit.run(() -> insert(v, q));
+    }
+
+    private void insert(String ville, String quartier) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transaction.executeWithoutResult(status -> localisationRepository.save(
+                    Localisation.builder().ville(ville).quartier(quartier).build()));
+        } catch (DataIntegrityViolationException e) {
+            // Added concurrently under another spelling of the same name
+            reload();
+            return;
+        }
+        synchronized (this) {
+            gazetteer = gazetteer().with(ville, quartier);
+        }
+    }
+
+    // Canonical spelling of a structured location; unknown names are kept as given
+    public Location resolve(String ville, String quartier) {
+        String v = clean(ville);
+        String q = clean(quartier);
+        if (v == null) {
+            return null;
+        }
+        Gazetteer current = gazetteer();
+        String villeNorm = SearchText.normalize(v);
+        return new Location(current.villes.getOrDefault(villeNorm, v),
+                q == null ? null : current.quartier(villeNorm, SearchText.normalize(q)).orElse(q));
+    }
+
+    // Display spelling of a normalized ville, or the value itself when the gazetteer does not know it
+    public String villeLabel(String villeNorm) {
+        return gazetteer().villes.getOrDefault(villeNorm, villeNorm);
+    }
+
+    // Display spelling of a normalized quartier, looked up in any ville
+    public String quartierLabel(String quartierNorm) {
+        Gazetteer current = gazetteer();
+        for (String villeNorm : current.villesByQuartier.getOrDefault(quartierNorm, List.of())) {
+            Optional<String> label = current.quartier(villeNorm, quartierNorm);
+            if (label.isPresent()) {
+                return label.get();
+            }
+        }
+        return quartierNorm;
+    }
+
+    // Splits free text on , ; / and looks for a known ville and one of its quartiers among the parts,
+    // in any order. A lone known quartier that exists in a single ville gives that ville. When nothing
+    // is known the first part is taken as the ville and the second as the quartier.
+    public Location parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        List<String> parts = new ArrayList<>();
+        for (String part : SEPARATORS.split(text)) {
+            String cleaned = clean(part);
+            if (cleaned != null) {
+                parts.add(cleaned);
+            }
+        }
+        if (parts.isEmpty()) {
+            return null;
+        }
+        Gazetteer current = gazetteer();
+        for (int i = 0; i < parts.size(); i++) {
+            String villeNorm = SearchText.normalize(parts.get(i));
+            if (!current.villes.containsKey(villeNorm)) {
+                continue;
+            }
+            String quartier = null;
+            for (int j = 0; j < parts.size() && quartier == null; j++) {
+                if (j != i) {
+                    quartier = current.quartier(villeNorm, SearchText.normalize(parts.get(j))).orElse(null);
+                }
+            }
+            if (quartier == null && parts.size() > 1) {
+                quartier = parts.get(i == 0 ? 1 : 0);
+            }
+            return new Location(current.villes.get(villeNorm), quartier);
+        }
+        for (String part : parts) {
+            List<String> villes = current.villesByQuartier.getOrDefault(SearchText.normalize(part), List.of());
+            if (villes.size() == 1) {
+                String villeNorm = villes.get(0);
+                return new Location(current.villes.get(villeNorm),
+                        current.quartier(villeNorm, SearchText.normalize(part)).orElse(part));
+            }
+        }
+        return new Location(parts.get(0), parts.size() > 1 ? parts.get(1) : null);
+    }
+
+    private Gazetteer gazetteer() {
+        Gazetteer current = gazetteer;
+        return current != null ? current : reload();
+    }
+
+    private synchronized Gazetteer reload() {
+        Gazetteer loaded = new Gazetteer();
+        for (Localisation localisation : localisationRepository.findAll()) {
+            loaded = loaded.with(localisation.getVille(), localisation.getQuartier());
+        }
+        gazetteer = loaded;
+        return loaded;
+    }
+
+    private static String clean(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim().replaceAll("\\s+", " ");
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    // Immutable lookup tables keyed by normalized names; with() returns a copy
+    private static final class Gazetteer {
+        private final Map<String, String> villes;
+        private final Map<String, Map<String, String>> quartiers;
+        private final Map<String, List<String>> villesByQuartier;
+
+        Gazetteer() {
+            this(Map.of(), Map.of(), Map.of());
+        }
+
+        private Gazetteer(Map<String, String> villes, Map<String, Map<String, String>> quartiers,
+                          Map<String, List<String>> villesByQuartier) {
+            this.villes = villes;
+            this.quartiers = quartiers;
+            this.villesByQuartier = villesByQuartier;
+        }
+
+        boolean knows(String ville, String quartier) {
+            return quartier(SearchText.normalize(ville), SearchText.normalize(quartier)).isPresent();
+        }
+
+        Optional<String> quartier(String villeNorm, String quartierNorm) {
+            return Optional.ofNullable(quartiers.getOrDefault(villeNorm, Map.of()).get(quartierNorm));
+        }
+
+        Gazetteer with(String ville, String quartier) {
+            String villeNorm = SearchText.normalize(ville);
+            String quartierNorm = SearchText.normalize(quartier);
+            Map<String, String> nextVilles = new HashMap<>(villes);
+            nextVilles.putIfAbsent(villeNorm, ville);
+            Map<String, Map<String, String>> nextQuartiers = new HashMap<>(quartiers);
+            Map<String, String> ofVille = new HashMap<>(quartiers.getOrDefault(villeNorm, Map.of()));
+            ofVille.putIfAbsent(quartierNorm, quartier);
+            nextQuartiers.put(villeNorm, ofVille);
+            Map<String, List<String>> nextByQuartier = new HashMap<>(villesByQuartier);
+            List<String> villesOf = new ArrayList<>(villesByQuartier.getOrDefault(quartierNorm, List.of()));
+            if (!villesOf.contains(villeNorm)) {
+                villesOf.add(villeNorm);
+            }
+            nextByQuartier.put(quartierNorm, villesOf);
+            return new Gazetteer(nextVilles, nextQuartiers, nextByQuartier);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.dto.MarketStatsDto;
+import com.immobilier.app.entity.MarketStat;
+import com.immobilier.app.entity.Offre.StatutOffre;
+import com.immobilier.app.entity.Offre.TypeBien;
+import com.immobilier.app.entity.OffreReadModel;
+import com.immobilier.app.entity.SearchText;
+import com.immobilier.app.repository.MarketStatRepository;
+import com.tdunning.math.stats.TDigest;
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Price-per-m² statistics (listings per status, mean, p10/median/p90) per ville, quartier and typeBien.
+// Kept in memory and updated after every offer write commits. Each offer feeds six cells, from
+// (ville, quartier, type) up to (*, *, *), so a lookup is one map read whatever the number of offers.
+// Quantiles come from a t-digest per cell. A t-digest cannot forget a value, so once an offer changes
+// price or is deleted the digest of a small cell is rebuilt from its members, and that of a large one
+// when more than 10% of its values are stale. Changed cells are
+// written to market_stats every app.market-stats.flush-ms.
+@Service
+@RequiredArgsConstructor
+public class MarketStatsService {
+    private static final Logger logger = LoggerFactory.getLogger(MarketStatsService.class);
+    public static final String ALL = "*";
+    private static final double COMPRESSION = 100;
+    private static final double MAX_STALE_RATIO = 0.1;
+    private static final int EXACT_CELL_SIZE = 1000;
+    private static final StatutOffre[] STATUTS = StatutOffre.values();
+    private static final String SELECT = "SELECT offre_id, ville_norm, quartier_norm, type_bien, statut_offre, " +
+            "prix_propose, surface FROM offre_read_model";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MarketStatRepository marketStatRepository;
+    private final LocalisationService localisationService;
+
+    // Written under the monitor of this service; cells is replaced as a whole by rebuild()
+    private final Map<Long, Listing> listings = new HashMap<>();
+    private volatile Map<CellKey, Cell> cells = new ConcurrentHashMap<>();
+    private final Set<CellKey> dirty = ConcurrentHashMap.newKeySet();
+    private volatile boolean resync;
+    private volatile boolean ready;
+
+    private record CellKey(String ville, String quartier, String typeBien) {
+    }
+
+    // What one offer contributes: its cells, status and price per m² (null without price or surface)
+    private record Listing(String ville, String quartier, String typeBien, StatutOffre statut, Double prixM2) {
+        static Listing of(String villeNorm, String quartierNorm, TypeBien typeBien, StatutOffre statut,
+                          Double prix, Double surface) {
+            Double prixM2 = prix != null && surface != null && surface > 0 ? prix / surface : null;
+            return new Listing(villeNorm, villeNorm != null ? quartierNorm : null,
+                    typeBien != null ? typeBien.name() : ALL, statut, prixM2);
+        }
+
+        Set<CellKey> cells() {
+            Set<CellKey> keys = new LinkedHashSet<>();
+            for (String type : new String[]{typeBien, ALL}) {
+                keys.add(new CellKey(ALL, ALL, type));
+                if (ville != null) {
+                    keys.add(new CellKey(ville, ALL, type));
+                    if (quartier != null) {
+                        keys.add(new CellKey(ville, quartier, type));
+                    }
+                }
+            }
+            return keys;
+        }
+
+        boolean samePlaceAndPrice(Listing other) {
+            return Objects.equals(ville, other.ville) && Objects.equals(quartier, other.quartier)
+                    && typeBien.equals(other.typeBien) && Objects.equals(prixM2, other.prixM2);
+        }
+    }
+
+    // Figures of a cell as of its last change; readers only ever see this immutable copy
+    private record Figures(long listings, long[] byStatut, long priced, Double mean, Double p10, Double median,
+                           Double p90) {
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        listings.clear();
+        Map<CellKey, Cell> built = new ConcurrentHashMap<>();
+        jdbcTemplate.query(SELECT, rs -> {
+            long id = rs.getLong(1);
+            Listing listing = Listing.of(rs.getString(2), rs.getString(3), enumValue(TypeBien.class, rs.getString(4)),
+                    enumValue(StatutOffre.class, rs.getString(5)), rs.getObject(6, Double.class),
+                    rs.getObject(7, Double.class));
+            listings.put(id, listing);
+            for (CellKey key : listing.cells()) {
+                built.computeIfAbsent(key, k -> new Cell()).add(id, listing);
+            }
+        });
+        built.values().forEach(Cell::publish);
+        cells = built;
+        dirty.addAll(built.keySet());
+        resync = true;
+        ready = true;
+        logger.info("Market statistics built: {} offers in {} cells, in {} ms", listings.size(), built.size(),
+                System.currentTimeMillis() - started);
+    }
+
+    // Applied after the transaction that wrote the row commits, so rolled back writes never show up
+    public void upsert(OffreReadModel row) {
+        Listing listing = Listing.of(row.getVilleNorm(), row.getQuartierNorm(), row.getTypeBien(),
+                row.getStatutOffre(), row.getPrixPropose(), row.getSurface());
+        AfterCommit.run(() -> apply(row.getId(), listing));
+    }
+
+    public void updateStatus(Collection<Long> offreIds, StatutOffre statut) {
+        List<Long> copy = List.copyOf(offreIds);
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                for (Long id : copy) {
+                    Listing current = listings.get(id);
+                    if (current != null) {
+                        apply(id, new Listing(current.ville, current.quartier, current.typeBien, statut,
+                                current.prixM2));
+                    }
+                }
+            }
+        });
+    }
+
+    public void remove(Collection<Long> offreIds) {
+        List<Long> copy = List.copyOf(offreIds);
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                for (Long id : copy) {
+                    Listing previous = listings.remove(id);
+                    if (previous != null) {
+                        for (CellKey key : previous.cells()) {
+                            Cell cell = cells.get(key);
+                            cell.remove(id, previous);
+                            settle(key, cell);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private synchronized void apply(Long id, Listing next) {
+        if (!ready) {
+            return;
+        }
+        Listing previous = listings.put(id, next);
+        if (previous != null && previous.samePlaceAndPrice(next)) {
+            // Status change: only the per-status counts move
+            for (CellKey key : next.cells()) {
+                Cell cell = cells.get(key);
+                cell.byStatut[statutIndex(previous.statut)]--;
+                cell.byStatut[statutIndex(next.statut)]++;
+                settle(key, cell);
+            }
+            return;
+        }
+        if (previous != null) {
+            for (CellKey key : previous.cells()) {
+                Cell cell = cells.get(key);
+                cell.remove(id, previous);
+                settle(key, cell);
+            }
+        }
+        for (CellKey key : next.cells()) {
+            Cell cell = cells.computeIfAbsent(key, k -> new Cell());
+            cell.add(id, next);
+            settle(key, cell);
+        }
+    }
+
+    private void settle(CellKey key, Cell cell) {
+        long size = cell.digest.size();
+        if (cell.stale > 0 && (size <= EXACT_CELL_SIZE || cell.stale > MAX_STALE_RATIO * size)) {
+            cell.recompute(listings);
+        }
+        cell.publish();
+        dirty.add(key);
+    }
+
+    // ville and quartier are matched case and accent insensitively; quartier needs a ville
+    public Optional<MarketStatsDto> find(String ville, String quartier, TypeBien typeBien) {
+        String villeNorm = SearchText.normalize(ville);
+        String quartierNorm = SearchText.normalize(quartier);
+        if (quartierNorm != null && villeNorm == null) {
+            throw new IllegalArgumentException("quartier requires ville");
+        }
+        CellKey key = new CellKey(villeNorm != null ? villeNorm : ALL, quartierNorm != null ? quartierNorm : ALL,
+                typeBien != null ? typeBien.name() : ALL);
+        Cell cell = cells.get(key);
+        Figures figures = cell != null ? cell.figures : null;
+        return figures != null && figures.listings > 0 ? Optional.of(toDto(key, figures)) : Optional.empty();
+    }
+
+    // One entry per ville, or per quartier of the given ville, most listings first
+    public List<MarketStatsDto> breakdown(String ville, TypeBien typeBien) {
+        String villeNorm = SearchText.normalize(ville);
+        String type = typeBien != null ? typeBien.name() : ALL;
+        List<MarketStatsDto> result = new ArrayList<>();
+        cells.forEach((key, cell) -> {
+            boolean child = villeNorm == null
+                    ? !key.ville.equals(ALL) && key.quartier.equals(ALL)
+                    : key.ville.equals(villeNorm) && !key.quartier.equals(ALL);
+            Figures figures = cell.figures;
+            if (child && key.typeBien.equals(type) && figures.listings > 0) {
+                result.add(toDto(key, figures));
+            }
+        });
+        result.sort(Comparator.comparingLong(MarketStatsDto::getListings).reversed());
+        return result;
+    }
+
+    private MarketStatsDto toDto(CellKey key, Figures figures) {
+        Map<String, Long> byStatut = new LinkedHashMap<>();
+        for (StatutOffre statut : STATUTS) {
+            byStatut.put(statut.name(), figures.byStatut[statut.ordinal()]);
+        }
+        return MarketStatsDto.builder()
+                .ville(key.ville.equals(ALL) ? null : localisationService.villeLabel(key.ville))
+                .quartier(key.quartier.equals(ALL) ? null : localisationService.quartierLabel(key.quartier))
+                .typeBien(key.typeBien.equals(ALL) ? null : key.typeBien)
+                .listings(figures.listings)
+                .byStatut(byStatut)
+                .priced(figures.priced)
+                .prixM2Mean(figures.mean)
+                .prixM2P10(figures.p10)
+                .prixM2Median(figures.median)
+                .prixM2P90(figures.p90)
+                .build();
+    }
+
+    // Writes the cells changed since the last run. After a rebuild, rows of cells that no longer exist are dropped.
+    @Scheduled(fixedDelayString = "${app.market-stats.flush-ms:60000}",
+            initialDelayString = "${app.market-stats.flush-ms:60000}")
+    @Transactional
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<CellKey> changed = new ArrayList<>(dirty);
+        dirty.removeAll(changed);
+        boolean dropMissing = resync;
+        resync = false;
+        Map<CellKey, Cell> current = cells;
+        Map<CellKey, MarketStat> rows = new HashMap<>();
+        for (MarketStat row : marketStatRepository.findAll()) {
+            CellKey key = new CellKey(row.getVilleNorm(), row.getQuartierNorm(), row.getTypeBien());
+            if (dropMissing && !current.containsKey(key)) {
+                marketStatRepository.delete(row);
+            } else {
+                rows.put(key, row);
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<MarketStat> updated = new ArrayList<>();
+        for (CellKey key : changed) {
+            Cell cell = current.get(key);
+            if (cell == null) {
+                continue;
+            }
+            byte[] digest;
+            Figures figures;
+            synchronized (this) {
+                digest = cell.digestBytes();
+                figures = cell.figures;
+            }
+            MarketStat row = rows.getOrDefault(key, MarketStat.builder()
+                    .villeNorm(key.ville).quartierNorm(key.quartier).typeBien(key.typeBien).build());
+            row.setListingCount(figures.listings);
+            row.setDisponibleCount(figures.byStatut[StatutOffre.DISPONIBLE.ordinal()]);
+            row.setReserveCount(figures.byStatut[StatutOffre.RESERVE.ordinal()]);
+            row.setVenduCount(figures.byStatut[StatutOffre.VENDU.ordinal()]);
+            row.setPricedCount(figures.priced);
+            row.setPrixM2Mean(figures.mean);
+            row.setPrixM2P10(figures.p10);
+            row.setPrixM2Median(figures.median);
+            row.setPrixM2P90(figures.p90);
+            row.setDigest(digest);
+            row.setUpdatedAt(now);
+            updated.add(row);
+        }
+        marketStatRepository.saveAll(updated);
+        logger.debug("Flushed {} market statistics cells", updated.size());
+    }
+
+    private static int statutIndex(StatutOffre statut) {
+        return statut != null ? statut.ordinal() : STATUTS.length;
+    }
+
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String name) {
+        return name != null ? Enum.valueOf(type, name) : null;
+    }
+
+    // Members are kept so that the digest can be recomputed once too many of its values are stale
+    private static final class Cell {
+        private final Roaring64Bitmap members = new Roaring64Bitmap();
+        // One slot per StatutOffre, plus one for offers without status
+        private final long[] byStatut = new long[STATUTS.length + 1];
+        private TDigest digest = TDigest.createMergingDigest(COMPRESSION);
+        private long priced;
+        private double sum;
+        // Values still in the digest whose offer was deleted or changed price
+        private long stale;
+        private volatile Figures figures = new Figures(0, new long[STATUTS.length + 1], 0, null, null, null, null);
+
+        void add(long id, Listing listing) {
+            members.addLong(id);
+            byStatut[statutIndex(listing.statut)]++;
+            if (listing.prixM2 != null) {
+                digest.add(listing.prixM2);
+                priced++;
+                sum += listing.prixM2;
+            }
+        }
+
+        void remove(long id, Listing listing) {
+            members.removeLong(id);
+            byStatut[statutIndex(listing.statut)]--;
+            if (listing.prixM2 != null) {
+                priced--;
+                sum -= listing.prixM2;
+                stale++;
+            }
+        }
+
+        void recompute(Map<Long, Listing> listings) {
+            digest = TDigest.createMergingDigest(COMPRESSION);
+            sum = 0;
+            LongIterator it = members.getLongIterator();
+            while (it.hasNext()) {
+                Double prixM2 = listings.get(it.next()).prixM2;
+                if (prixM2 != null) {
+                    digest.add(prixM2);
+                    sum += prixM2;
+                }
+            }
+            stale = 0;
+        }
+
+        void publish() {
+            boolean any = priced > 0;
+            figures = new Figures(members.getLongCardinality(), byStatut.clone(), priced,
+                    any ? sum / priced : null,
+                    any ? digest.quantile(0.1) : null,
+                    any ? digest.quantile(0.5) : null,
+                    any ? digest.quantile(0.9) : null);
+        }
+
+        byte[] digestBytes() {
+            ByteBuffer buffer = ByteBuffer.allocate(digest.smallByteSize());
+            digest.asSmallBytes(buffer);
+            return buffer.array();
+        }
+    }
+}
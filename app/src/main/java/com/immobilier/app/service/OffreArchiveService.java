@@ -0,0 +1,125 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.dto.ChangeEventDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Moves offers that have been VENDU for more than app.archive.after-days days, with their photos, from
+// offres / offre_photos to offres_archive / offre_photos_archive and drops them from the read model, the
+// catalog and the in-memory statistics. Each batch is one short transaction; the pause between batches
+// leaves the database to the live traffic. Photo files are kept, archived offers still show them.
+@Service
+public class OffreArchiveService {
+    private static final Logger logger = LoggerFactory.getLogger(OffreArchiveService.class);
+    // updated_at is set by every change, including the one to VENDU, so it bounds the sale date.
+    // The rows are locked so that a concurrent update waits for the move and then finds nothing.
+    private static final String SELECT_IDS = "SELECT o.id FROM offres o JOIN offre_read_model r ON r.offre_id = o.id " +
+            "WHERE o.statut_offre = 'VENDU' AND o.updated_at < ? ORDER BY o.updated_at, o.id LIMIT ? FOR UPDATE";
+    private static final String ARCHIVE_OFFRES = "INSERT INTO offres_archive (" + OffreReadModelService.COLUMNS +
+            ", admin_id, archived_at) SELECT r." + OffreReadModelService.COLUMNS.replace(", ", ", r.") +
+            ", o.admin_id, ? FROM offre_read_model r JOIN offres o ON o.id = r.offre_id WHERE r.offre_id IN (%s)";
+    private static final String ARCHIVE_PHOTOS = "INSERT INTO offre_photos_archive (id, offre_id, photo_url, " +
+            "created_at, updated_at, archived_at) SELECT id, offre_id, photo_url, created_at, updated_at, ? " +
+            "FROM offre_photos WHERE offre_id IN (%s)";
+    private static final String DELETE_PHOTOS = "DELETE FROM offre_photos WHERE offre_id IN (%s)";
+    private static final String DELETE_OFFRES = "DELETE FROM offres WHERE id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final OffreReadModelService readModelService;
+    private final ChangeTracker changeTracker;
+    private final ChangeEventLog changeEventLog;
+    private final boolean enabled;
+    private final int afterDays;
+    private final int batchSize;
+    private final long pauseMs;
+
+    public OffreArchiveService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               OffreReadModelService readModelService, ChangeTracker changeTracker,
+                               ChangeEventLog changeEventLog,
+                               @Value("${app.archive.enabled:true}") boolean enabled,
+                               @Value("${app.archive.after-days:180}") int afterDays,
+                               @Value("${app.archive.batch-size:500}") int batchSize,
+                               @Value("${app.archive.pause-ms:200}") long pauseMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.readModelService = readModelService;
+        this.changeTracker = changeTracker;
+        this.changeEventLog = changeEventLog;
+        this.enabled = enabled;
+        this.afterDays = afterDays;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+    }
+
+    @Scheduled(fixedDelayString = "${app.archive.interval-ms:3600000}",
+            initialDelayString = "${app.archive.interval-ms:3600000}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(afterDays);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int total = 0;
+        Integer moved;
+        do {
+            moved = transaction.execute(status -> archiveBatch(cutoff));
+            total += moved;
+            if (moved == batchSize && !pause()) {
+                break;
+            }
+        } while (moved == batchSize);
+        if (total > 0) {
+            logger.info("Archived {} offers sold before {} in {} ms", total, cutoff,
+                    System.currentTimeMillis() - started);
+        }
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_IDS, Long.class, Timestamp.valueOf(cutoff), batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String in = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object> args = new ArrayList<>();
+        args.add(now);
+        args.addAll(ids);
+        jdbcTemplate.update(String.format(ARCHIVE_OFFRES, in), args.toArray());
+        jdbcTemplate.update(String.format(ARCHIVE_PHOTOS, in), args.toArray());
+        jdbcTemplate.update(String.format(DELETE_PHOTOS, in), ids.toArray());
+        jdbcTemplate.update(String.format(DELETE_OFFRES, in), ids.toArray());
+        readModelService.evict(ids);
+        changeTracker.changed(ChangeTracker.OFFRES);
+        // The offers leave the lists; stream clients learn it once the batch commits
+        changeEventLog.publish(ChangeTracker.OFFRES, ChangeEventDto.Type.ARCHIVED, ids);
+        return ids.size();
+    }
+
+    // False when interrupted, e.g. on shutdown
+    private boolean pause() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,640 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.entity.Offre.StatutOffre;
+import com.immobilier.app.entity.Offre.TypeBien;
+import com.immobilier.app.entity.OffreReadModel;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory index of every offer used to answer filtered list queries without SQL.
+// Each offer gets a dense int position; equality filters (type, statut, ville, quartier) are
+// Roaring bitmaps of positions, price/surface/date ranges are binary searches over sorted
+// arrays, and a query is the intersection of those bitmaps. Only the ids of the requested page
+// come out, the rows themselves are then read from offre_read_model by primary key.
+//
+// Built from offre_read_model at startup (DerivedDataInitializer) and kept current by
+// OffreReadModelService after each write commits. Keyword searches and sorts on other
+// columns are not indexed here and return empty, which sends the caller back to SQL.
+@Component
+public class OffreCatalog {
+    private static final Logger logger = LoggerFactory.getLogger(OffreCatalog.class);
+    private static final String SELECT = "SELECT offre_id, type_bien, statut_offre, ville_norm, quartier_norm, " +
+            "prix_propose, surface, created_at FROM offre_read_model ORDER BY offre_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int keywordMaxIds;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+    private long[] ids = new long[0];
+    private int size;
+    private final Map<Long, Integer> positions = new HashMap<>();
+    private final RoaringBitmap live = new RoaringBitmap();
+    private final Map<TypeBien, RoaringBitmap> byType = new EnumMap<>(TypeBien.class);
+    private final Map<StatutOffre, RoaringBitmap> byStatut = new EnumMap<>(StatutOffre.class);
+    private final Map<String, RoaringBitmap> byVille = new HashMap<>();
+    private final Map<String, RoaringBitmap> byQuartier = new HashMap<>();
+    private final Map<String, RoaringBitmap> byPrixBand = new HashMap<>();
+    // Current attribute values by position, needed to move a position out of its old bitmaps
+    private TypeBien[] types = new TypeBien[0];
+    private StatutOffre[] statuts = new StatutOffre[0];
+    private String[] villes = new String[0];
+    private String[] quartiers = new String[0];
+    private String[] prixBands = new String[0];
+    private final Map<String, SortedColumn> columns = Map.of(
+            "id", new SortedColumn(),
+            "createdAt", new SortedColumn(),
+            "prixPropose", new SortedColumn(),
+            "surface", new SortedColumn());
+
+    public OffreCatalog(JdbcTemplate jdbcTemplate, @Value("${app.catalog.enabled:true}") boolean enabled,
+                        @Value("${app.catalog.keyword-max-ids:10000}") int keywordMaxIds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.keywordMaxIds = keywordMaxIds;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Ids of one page of offers matching the filters, or empty when the query has to go to SQL.
+    // ville and quartier are expected normalized.
+    public Optional<Page<Long>> search(TypeBien typeBien, StatutOffre statut, Double prixMin, Double prixMax,
+                                       Double surfaceMin, Double surfaceMax, String ville, String quartier,
+                                       Pageable pageable) {
+        if (!ready || pageable.isUnpaged() || pageable.getSort().stream().count() > 1) {
+            return Optional.empty();
+        }
+        Sort.Order order = pageable.getSort().stream().findFirst().orElse(null);
+        if (order != null && !columns.containsKey(order.getProperty())) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matches = filter(typeBien, statut, prixMin, prixMax, surfaceMin, surfaceMax, ville, quartier);
+            int total = matches.getCardinality();
+            int[] page;
+            if (order == null) {
+                page = slice(matches, (int) pageable.getOffset(), pageable.getPageSize());
+            } else {
+                // When the sort column is also range-filtered, the walk can start at the range bound
+                Double from = null;
+                Double to = null;
+                if (order.getProperty().equals("prixPropose")) {
+                    from = prixMin;
+                    to = prixMax;
+                } else if (order.getProperty().equals("surface")) {
+                    from = surfaceMin;
+                    to = surfaceMax;
+                }
+                page = columns.get(order.getProperty()).page(matches, order.isAscending(),
+                        (int) pageable.getOffset(), pageable.getPageSize(), from, to);
+            }
+            List<Long> content = new ArrayList<>(page.length);
+            for (int position : page) {
+                content.add(ids[position]);
+            }
+            return Optional.of(new PageImpl<>(content, pageable, total));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bitmap of live positions matching every given filter; null filters are ignored
+    RoaringBitmap filter(TypeBien typeBien, StatutOffre statut, Double prixMin, Double prixMax,
+                         Double surfaceMin, Double surfaceMax, String ville, String quartier) {
+        List<RoaringBitmap> terms = new ArrayList<>();
+        if (typeBien != null) {
+            terms.add(byType.getOrDefault(typeBien, new RoaringBitmap()));
+        }
+        if (statut != null) {
+            terms.add(byStatut.getOrDefault(statut, new RoaringBitmap()));
+        }
+        if (ville != null) {
+            terms.add(byVille.getOrDefault(ville, new RoaringBitmap()));
+        }
+        if (quartier != null) {
+            terms.add(byQuartier.getOrDefault(quartier, new RoaringBitmap()));
+        }
+        // Smallest first keeps the intermediate results small
+        terms.sort((a, b) -> Integer.compare(a.getCardinality(), b.getCardinality()));
+        RoaringBitmap result = terms.isEmpty() ? live.clone() : RoaringBitmap.and(live, terms.get(0));
+        for (int i = 1; i < terms.size() && !result.isEmpty(); i++) {
+            result.and(terms.get(i));
+        }
+        if (prixMin != null || prixMax != null) {
+            result = columns.get("prixPropose").restrict(result, prixMin, prixMax);
+        }
+        if (surfaceMin != null || surfaceMax != null) {
+            result = columns.get("surface").restrict(result, surfaceMin, surfaceMax);
+        }
+        return result;
+    }
+
+    // Counts per value of each facet for the offers matching the filters, from one AND-cardinality per
+    // value, so the cost depends on the number of facet values rather than on the number of matches.
+    // keywordMatches, when not null, restricts the offers further: it is given a limit and returns at most
+    // that many ids found by a keyword search. It is only called once the catalog is ready, outside the
+    // lock, and a keyword matching more than keyword-max-ids offers is left to SQL, which counts the
+    // matches without loading their ids.
+    // With multiSelect each facet is counted without its own filter, so the other values of a facet
+    // the user already filtered on keep their counts.
+    public Optional<Map<String, Map<String, Long>>> facets(TypeBien typeBien, StatutOffre statut, Double prixMin,
+                                                           Double prixMax, Double surfaceMin, Double surfaceMax,
+                                                           String ville, String quartier,
+                                                           IntFunction<List<Long>> keywordMatches,
+                                                           boolean multiSelect) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        List<Long> keywordIds = null;
+        if (keywordMatches != null) {
+            keywordIds = keywordMatches.apply(keywordMaxIds + 1);
+            if (keywordIds.size() > keywordMaxIds) {
+                return Optional.empty();
+            }
+        }
+        lock.readLock().lock();
+        try {
+            Map<String, RoaringBitmap> terms = new LinkedHashMap<>();
+            if (typeBien != null) {
+                terms.put("typeBien", byType.getOrDefault(typeBien, new RoaringBitmap()));
+            }
+            if (statut != null) {
+                terms.put("statutOffre", byStatut.getOrDefault(statut, new RoaringBitmap()));
+            }
+            if (ville != null) {
+                terms.put("ville", byVille.getOrDefault(ville, new RoaringBitmap()));
+            }
+            if (quartier != null) {
+                terms.put("quartier", byQuartier.getOrDefault(quartier, new RoaringBitmap()));
+            }
+            if (prixMin != null || prixMax != null) {
+                terms.put("prixBand", columns.get("prixPropose").restrict(live, prixMin, prixMax));
+            }
+            if (surfaceMin != null || surfaceMax != null) {
+                terms.put("surface", columns.get("surface").restrict(live, surfaceMin, surfaceMax));
+            }
+            if (keywordIds != null) {
+                RoaringBitmap matches = new RoaringBitmap();
+                for (Long id : keywordIds) {
+                    Integer position = positions.get(id);
+                    if (position != null) {
+                        matches.add(position);
+                    }
+                }
+                terms.put("keyword", matches);
+            }
+            RoaringBitmap all = intersect(terms, null);
+            Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+            facets.put("typeBien", count(byType, multiSelect ? intersect(terms, "typeBien") : all));
+            facets.put("statutOffre", count(byStatut, multiSelect ? intersect(terms, "statutOffre") : all));
+            facets.put("ville", count(byVille, multiSelect ? intersect(terms, "ville") : all));
+            facets.put("quartier", count(byQuartier, multiSelect ? intersect(terms, "quartier") : all));
+            facets.put("prixBand", count(byPrixBand, multiSelect ? intersect(terms, "prixBand") : all));
+            return Optional.of(facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private RoaringBitmap intersect(Map<String, RoaringBitmap> terms, String except) {
+        RoaringBitmap result = live.clone();
+        for (Map.Entry<String, RoaringBitmap> term : terms.entrySet()) {
+            if (!term.getKey().equals(except)) {
+                result.and(term.getValue());
+            }
+        }
+        return result;
+    }
+
+    // Values with at least one match, most frequent first
+    private static <K> Map<String, Long> count(Map<K, RoaringBitmap> index, RoaringBitmap matches) {
+        List<Map.Entry<String, Long>> counts = new ArrayList<>();
+        for (Map.Entry<K, RoaringBitmap> value : index.entrySet()) {
+            long count = RoaringBitmap.andCardinality(value.getValue(), matches);
+            if (count > 0) {
+                counts.add(Map.entry(String.valueOf(value.getKey()), count));
+            }
+        }
+        counts.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : counts) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    private static int[] slice(RoaringBitmap matches, int offset, int limit) {
+        int[] page = new int[Math.max(0, Math.min(limit, matches.getCardinality() - offset))];
+        IntIterator it = matches.getIntIterator();
+        for (int skipped = 0; skipped < offset && it.hasNext(); skipped++) {
+            it.next();
+        }
+        for (int i = 0; i < page.length; i++) {
+            page[i] = it.next();
+        }
+        return page;
+    }
+
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            clear();
+            jdbcTemplate.query(SELECT, rs -> {
+                put(rs.getLong(1), enumValue(TypeBien.class, rs.getString(2)), enumValue(StatutOffre.class, rs.getString(3)),
+                        rs.getString(4), rs.getString(5), rs.getObject(6, Double.class),
+                        rs.getObject(7, Double.class), rs.getTimestamp(8));
+            });
+            for (SortedColumn column : columns.values()) {
+                column.compact();
+            }
+            live.runOptimize();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Offer catalog built: {} offers, {} bitmap bytes, in {} ms", live.getCardinality(),
+                bitmapBytes(), System.currentTimeMillis() - started);
+    }
+
+    // Applied after the transaction that wrote the row commits, so rolled back writes never show up
+    public void upsert(OffreReadModel row) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                put(row.getId(), row.getTypeBien(), row.getStatutOffre(), row.getVilleNorm(), row.getQuartierNorm(),
+                        row.getPrixPropose(), row.getSurface(),
+                        row.getCreatedAt() != null ? Timestamp.valueOf(row.getCreatedAt()) : null);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void updateStatus(Collection<Long> offreIds, StatutOffre statut) {
+        List<Long> copy = List.copyOf(offreIds);
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                for (Long id : copy) {
+                    Integer position = positions.get(id);
+                    if (position != null) {
+                        move(byStatut, statuts[position], statut, position);
+                        statuts[position] = statut;
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void remove(Collection<Long> offreIds) {
+        List<Long> copy = List.copyOf(offreIds);
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                for (Long id : copy) {
+                    Integer position = positions.remove(id);
+                    if (position != null) {
+                        // The position is retired rather than reused: clearing live hides it from every query
+                        live.remove(position);
+                        move(byType, types[position], null, position);
+                        move(byStatut, statuts[position], null, position);
+                        move(byVille, villes[position], null, position);
+                        move(byQuartier, quartiers[position], null, position);
+                        move(byPrixBand, prixBands[position], null, position);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private void put(long id, TypeBien type, StatutOffre statut, String ville, String quartier,
+                     Double prix, Double surface, Timestamp createdAt) {
+        Integer existing = positions.get(id);
+        int position;
+        if (existing != null) {
+            position = existing;
+        } else {
+            position = size++;
+            grow(size);
+            ids[position] = id;
+            positions.put(id, position);
+            live.add(position);
+        }
+        move(byType, types[position], type, position);
+        move(byStatut, statuts[position], statut, position);
+        move(byVille, villes[position], ville, position);
+        move(byQuartier, quartiers[position], quartier, position);
+        String prixBand = OffreReadModel.prixBand(prix);
+        move(byPrixBand, prixBands[position], prixBand, position);
+        types[position] = type;
+        statuts[position] = statut;
+        villes[position] = ville;
+        quartiers[position] = quartier;
+        prixBands[position] = prixBand;
+        setValue("id", position, id);
+        setValue("createdAt", position, createdAt != null ? createdAt.getTime() : null);
+        setValue("prixPropose", position, prix);
+        setValue("surface", position, surface);
+    }
+
+    private void setValue(String column, int position, Number value) {
+        if (ready) {
+            columns.get(column).set(position, value);
+        } else {
+            columns.get(column).load(position, value);
+        }
+    }
+
+    private static <K> void move(Map<K, RoaringBitmap> index, K from, K to, int position) {
+        if (from != null && !from.equals(to)) {
+            RoaringBitmap bitmap = index.get(from);
+            bitmap.remove(position);
+            if (bitmap.isEmpty()) {
+                index.remove(from);
+            }
+        }
+        if (to != null) {
+            index.computeIfAbsent(to, k -> new RoaringBitmap()).add(position);
+        }
+    }
+
+    private void grow(int needed) {
+        if (needed <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(needed, ids.length + (ids.length >> 1) + 1024);
+        ids = Arrays.copyOf(ids, capacity);
+        types = Arrays.copyOf(types, capacity);
+        statuts = Arrays.copyOf(statuts, capacity);
+        villes = Arrays.copyOf(villes, capacity);
+        quartiers = Arrays.copyOf(quartiers, capacity);
+        prixBands = Arrays.copyOf(prixBands, capacity);
+        for (SortedColumn column : columns.values()) {
+            column.grow(capacity);
+        }
+    }
+
+    private void clear() {
+        ids = new long[0];
+        types = new TypeBien[0];
+        statuts = new StatutOffre[0];
+        villes = new String[0];
+        quartiers = new String[0];
+        prixBands = new String[0];
+        size = 0;
+        positions.clear();
+        live.clear();
+        byType.clear();
+        byStatut.clear();
+        byVille.clear();
+        byQuartier.clear();
+        byPrixBand.clear();
+        for (SortedColumn column : columns.values()) {
+            column.clear();
+        }
+    }
+
+    private long bitmapBytes() {
+        long bytes = live.getLongSizeInBytes();
+        for (Map<?, RoaringBitmap> index : List.of(byType, byStatut, byVille, byQuartier, byPrixBand)) {
+            for (RoaringBitmap bitmap : index.values()) {
+                bytes += bitmap.getLongSizeInBytes();
+            }
+        }
+        return bytes;
+    }
+
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String name) {
+        return name != null ? Enum.valueOf(type, name) : null;
+    }
+
+    // Numeric column kept as a value per position plus the positions sorted by value. Updates only
+    // write the value and mark the position stale; stale positions are checked one by one until
+    // enough of them pile up to be worth re-sorting. Missing values sort first, as in MySQL.
+    static final class SortedColumn {
+        private static final int COMPACT_THRESHOLD = 4096;
+
+        private double[] values = new double[0];
+        private int[] order = new int[0];
+        private double[] sorted = new double[0];
+        private RoaringBitmap stale = new RoaringBitmap();
+
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        void set(int position, Number value) {
+            load(position, value);
+            if (stale.getCardinality() > COMPACT_THRESHOLD) {
+                compact();
+            }
+        }
+
+        // As set, without compacting: rebuild() loads every row, then sorts once
+        void load(int position, Number value) {
+            values[position] = value != null ? value.doubleValue() : Double.NaN;
+            stale.add(position);
+        }
+
+        int staleCount() {
+            return stale.getCardinality();
+        }
+
+        void clear() {
+            values = new double[0];
+            order = new int[0];
+            sorted = new double[0];
+            stale = new RoaringBitmap();
+        }
+
+        // Re-sorts every position seen so far; retired positions stay in and are filtered by the live bitmap
+        void compact() {
+            int count = order.length + stale.getCardinality();
+            Integer[] boxed = new Integer[count];
+            RoaringBitmap all = new RoaringBitmap();
+            for (int position : order) {
+                all.add(position);
+            }
+            all.or(stale);
+            int i = 0;
+            for (IntIterator it = all.getIntIterator(); it.hasNext(); ) {
+                boxed[i++] = it.next();
+            }
+            boxed = Arrays.copyOf(boxed, i);
+            Arrays.sort(boxed, (a, b) -> Double.compare(key(a), key(b)));
+            order = new int[boxed.length];
+            sorted = new double[boxed.length];
+            for (int j = 0; j < boxed.length; j++) {
+                order[j] = boxed[j];
+                sorted[j] = key(boxed[j]);
+            }
+            stale = new RoaringBitmap();
+        }
+
+        private double key(int position) {
+            double value = values[position];
+            return Double.isNaN(value) ? Double.NEGATIVE_INFINITY : value;
+        }
+
+        // Positions of candidates whose value is within [min, max]; a null bound is open and missing
+        // values never match. Checks the candidates one by one when there are fewer of them than
+        // positions in the range, otherwise intersects with a bitmap of the range.
+        RoaringBitmap restrict(RoaringBitmap candidates, Double min, Double max) {
+            double lo = min != null ? min : -Double.MAX_VALUE;
+            double hi = max != null ? max : Double.MAX_VALUE;
+            int from = lowerBound(lo);
+            int to = upperBound(hi);
+            if (candidates.getCardinality() <= to - from + stale.getCardinality()) {
+                int[] kept = new int[candidates.getCardinality()];
+                int count = 0;
+                for (IntIterator it = candidates.getIntIterator(); it.hasNext(); ) {
+                    int position = it.next();
+                    if (within(position, lo, hi)) {
+                        kept[count++] = position;
+                    }
+                }
+                return RoaringBitmap.bitmapOf(Arrays.copyOf(kept, count));
+            }
+            RoaringBitmap range = RoaringBitmap.bitmapOfUnordered(Arrays.copyOfRange(order, from, Math.max(from, to)));
+            range.andNot(stale);
+            for (IntIterator it = stale.getIntIterator(); it.hasNext(); ) {
+                int position = it.next();
+                if (within(position, lo, hi)) {
+                    range.add(position);
+                }
+            }
+            range.and(candidates);
+            return range;
+        }
+
+        private boolean within(int position, double lo, double hi) {
+            double value = values[position];
+            return !Double.isNaN(value) && value >= lo && value <= hi;
+        }
+
+        private int lowerBound(double value) {
+            int lo = 0;
+            int hi = sorted.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sorted[mid] < value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private int upperBound(double value) {
+            int lo = 0;
+            int hi = sorted.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sorted[mid] <= value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        // offset/limit slice of the matching positions ordered by this column. min/max, when given,
+        // bound the values of every match and let the walk skip the part of the order outside them.
+        int[] page(RoaringBitmap matches, boolean ascending, int offset, int limit, Double min, Double max) {
+            int total = matches.getCardinality();
+            int wanted = Math.max(0, Math.min(limit, total - offset));
+            if (wanted == 0) {
+                return new int[0];
+            }
+            // Few matches: sorting them directly beats walking the whole order array
+            if ((long) total * 32 < order.length) {
+                Integer[] boxed = Arrays.stream(matches.toArray()).boxed().toArray(Integer[]::new);
+                Arrays.sort(boxed, (a, b) -> ascending
+                        ? Double.compare(key(a), key(b)) : Double.compare(key(b), key(a)));
+                int[] page = new int[wanted];
+                for (int i = 0; i < wanted; i++) {
+                    page[i] = boxed[offset + i];
+                }
+                return page;
+            }
+            // Otherwise merge the order array (minus stale positions) with the sorted stale matches
+            RoaringBitmap staleMatches = RoaringBitmap.and(matches, stale);
+            Integer[] extra = Arrays.stream(staleMatches.toArray()).boxed().toArray(Integer[]::new);
+            Arrays.sort(extra, (a, b) -> ascending
+                    ? Double.compare(key(a), key(b)) : Double.compare(key(b), key(a)));
+            int[] page = new int[wanted];
+            int filled = 0;
+            int skipped = 0;
+            int e = 0;
+            int i = ascending
+                    ? (min != null ? lowerBound(min) : 0)
+                    : (max != null ? upperBound(max) : order.length) - 1;
+            while (filled < wanted) {
+                int next;
+                boolean fromOrder = false;
+                while ((ascending ? i < order.length : i >= 0)
+                        && (stale.contains(order[i]) || !matches.contains(order[i]))) {
+                    i += ascending ? 1 : -1;
+                }
+                boolean orderLeft = ascending ? i < order.length : i >= 0;
+                if (e < extra.length && (!orderLeft || (ascending
+                        ? key(extra[e]) < key(order[i]) : key(extra[e]) > key(order[i])))) {
+                    next = extra[e++];
+                } else if (orderLeft) {
+                    next = order[i];
+                    fromOrder = true;
+                } else {
+                    break;
+                }
+                if (fromOrder) {
+                    i += ascending ? 1 : -1;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    page[filled++] = next;
+                }
+            }
+            return filled == wanted ? page : Arrays.copyOf(page, filled);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.dto.DeletionProgressDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Second half of offer deletion: OffreService only marks offers (deleted_at) and drops them from the
+// read side. This worker removes the photo rows and offers of marked offers in batches, one transaction
+// each, and after the commit deletes the photo files no other live or archived offer refers to.
+// A failing batch is retried offer by offer; offers and files that keep failing are given up after
+// MAX_ATTEMPTS tries and reported in progress().
+@Service
+public class OffreDeletionService {
+    private static final Logger logger = LoggerFactory.getLogger(OffreDeletionService.class);
+    private static final int MAX_ATTEMPTS = 5;
+    private static final String SELECT_IDS = "SELECT id FROM offres WHERE deleted_at IS NOT NULL " +
+            "ORDER BY deleted_at, id LIMIT ?";
+    private static final String COUNT_PENDING = "SELECT COUNT(*) FROM offres WHERE deleted_at IS NOT NULL";
+    private static final String SELECT_PHOTOS = "SELECT photo_url FROM offre_photos WHERE offre_id IN (%s)";
+    private static final String DELETE_PHOTOS = "DELETE FROM offre_photos WHERE offre_id IN (%s)";
+    private static final String DELETE_VIEWS = "DELETE FROM offre_view_counts WHERE offre_id IN (%s)";
+    private static final String DELETE_OFFRES = "DELETE FROM offres WHERE deleted_at IS NOT NULL AND id IN (%s)";
+    private static final String REFERENCED = "SELECT photo_url FROM offre_photos WHERE photo_url IN (%1$s) " +
+            "UNION SELECT photo_url FROM offre_photos_archive WHERE photo_url IN (%1$s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final FileStorageService fileStorageService;
+    private final int batchSize;
+
+    // Guarded by this
+    private final Map<Long, Integer> offreFailures = new HashMap<>();
+    private final Map<String, Integer> fileRetries = new LinkedHashMap<>();
+    private long deletedOffres;
+    private long deletedFiles;
+    private long failedFiles;
+    private LocalDateTime lastRunAt;
+
+    public OffreDeletionService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                FileStorageService fileStorageService,
+                                @Value("${app.offre-deletion.batch-size:200}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.fileStorageService = fileStorageService;
+        this.batchSize = batchSize;
+    }
+
+    public DeletionProgressDto progress() {
+        long pending = jdbcTemplate.queryForObject(COUNT_PENDING, Long.class);
+        synchronized (this) {
+            return DeletionProgressDto.builder()
+                    .pendingOffres(pending)
+                    .deletedOffres(deletedOffres)
+                    .deletedFiles(deletedFiles)
+                    .retryingFiles(fileRetries.size())
+                    .failedOffres(given(offreFailures))
+                    .failedFiles(failedFiles)
+                    .lastRunAt(lastRunAt)
+                    .build();
+        }
+    }
+
+    private static List<Long> given(Map<Long, Integer> failures) {
+        List<Long> ids = new ArrayList<>();
+        failures.forEach((id, attempts) -> {
+            if (attempts >= MAX_ATTEMPTS) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    @Scheduled(fixedDelayString = "${app.offre-deletion.interval-ms:5000}",
+            initialDelayString = "${app.offre-deletion.interval-ms:5000}")
+    public void process() {
+        long started = System.currentTimeMillis();
+        int files = retryFiles();
+        int offres = 0;
+        while (true) {
+            List<Long> ids = nextBatch();
+            if (ids.isEmpty()) {
+                break;
+            }
+            int deleted = delete(ids);
+            offres += deleted;
+            // Failed offers are tried again on the next run, not right away
+            if (ids.size() < batchSize || deleted < ids.size()) {
+                break;
+            }
+        }
+        synchronized (this) {
+            lastRunAt = LocalDateTime.now();
+        }
+        if (offres > 0 || files > 0) {
+            logger.info("Deleted {} offers and retried {} photo files in {} ms", offres, files,
+                    System.currentTimeMillis() - started);
+        }
+    }
+
+    // Oldest marked offers, without those given up on
+    private List<Long> nextBatch() {
+        Set<Long> skipped;
+        synchronized (this) {
+            skipped = new HashSet<>(given(offreFailures));
+        }
+        List<Long> ids = new ArrayList<>(jdbcTemplate.queryForList(SELECT_IDS, Long.class, batchSize + skipped.size()));
+        ids.removeAll(skipped);
+        return ids.size() > batchSize ? ids.subList(0, batchSize) : ids;
+    }
+
+    // Deletes the batch in one transaction, or offer by offer when that fails
+    private int delete(List<Long> ids) {
+        try {
+            return deleteInTransaction(ids);
+        } catch (DataAccessException e) {
+            logger.warn("Deleting a batch of {} offers failed, retrying one by one: {}", ids.size(), e.getMessage());
+        }
+        int deleted = 0;
+        for (Long id : ids) {
+            try {
+                deleted += deleteInTransaction(List.of(id));
+            } catch (DataAccessException e) {
+                int attempts;
+                synchronized (this) {
+                    attempts = offreFailures.merge(id, 1, Integer::sum);
+                }
+                if (attempts >= MAX_ATTEMPTS) {
+                    logger.error("Giving up deleting offer {} after {} attempts", id, attempts, e);
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private record Deleted(int offres, Set<String> orphans) {
+    }
+
+    // The files are deleted once the rows are gone for good, outside the transaction
+    private int deleteInTransaction(List<Long> ids) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Deleted deleted = transaction.execute(status -> {
+            String in = placeholders(ids.size());
+            Object[] args = ids.toArray();
+            List<String> photoUrls = jdbcTemplate.queryForList(String.format(SELECT_PHOTOS, in), String.class, args);
+            jdbcTemplate.update(String.format(DELETE_PHOTOS, in), args);
+            jdbcTemplate.update(String.format(DELETE_VIEWS, in), args);
+            int count = jdbcTemplate.update(String.format(DELETE_OFFRES, in), args);
+            Set<String> orphans = new HashSet<>(photoUrls);
+            if (!orphans.isEmpty()) {
+                List<Object> urls = new ArrayList<>(orphans);
+                urls.addAll(orphans);
+                orphans.removeAll(jdbcTemplate.queryForList(
+                        String.format(REFERENCED, placeholders(orphans.size())), String.class, urls.toArray()));
+            }
+            return new Deleted(count, orphans);
+        });
+        synchronized (this) {
+            deletedOffres += deleted.offres;
+            ids.forEach(offreFailures::remove);
+        }
+        deleteFiles(deleted.orphans);
+        return deleted.offres;
+    }
+
+    private void deleteFiles(Collection<String> urls) {
+        for (String url : urls) {
+            boolean deleted = fileStorageService.deleteFile(url);
+            synchronized (this) {
+                if (deleted) {
+                    deletedFiles++;
+                } else {
+                    fileRetries.putIfAbsent(url, 0);
+                }
+            }
+        }
+    }
+
+    private int retryFiles() {
+        Map<String, Integer> retries;
+        synchronized (this) {
+            retries = new LinkedHashMap<>(fileRetries);
+        }
+        for (Map.Entry<String, Integer> retry : retries.entrySet()) {
+            boolean deleted = fileStorageService.deleteFile(retry.getKey());
+            synchronized (this) {
+                if (deleted) {
+                    fileRetries.remove(retry.getKey());
+                    deletedFiles++;
+                } else if (retry.getValue() + 1 >= MAX_ATTEMPTS) {
+                    fileRetries.remove(retry.getKey());
+                    failedFiles++;
+                    logger.error("Giving up deleting photo file {} after {} attempts", retry.getKey(), MAX_ATTEMPTS);
+                } else {
+                    fileRetries.put(retry.getKey(), retry.getValue() + 1);
+                }
+            }
+        }
+        return retries.size();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
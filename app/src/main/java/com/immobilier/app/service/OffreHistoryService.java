@@ -0,0 +1,325 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.dto.OffreEventDto;
+import com.immobilier.app.dto.TrendPointDto;
+import com.immobilier.app.entity.Offre.StatutOffre;
+import com.immobilier.app.entity.Offre.TypeBien;
+import com.immobilier.app.entity.OffreEvent;
+import com.immobilier.app.entity.OffreEvent.EventType;
+import com.immobilier.app.entity.OffreReadModel;
+import com.immobilier.app.entity.OffreRollup.Period;
+import com.immobilier.app.entity.RollupWatermark;
+import com.immobilier.app.entity.SearchText;
+import com.immobilier.app.repository.OffreEventRepository;
+import com.immobilier.app.repository.OffreRollupRepository;
+import com.immobilier.app.repository.RollupWatermarkRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Offer history: appends to offre_events in the transaction of every listing, price, status change and
+// deletion, and folds new events into the daily and weekly offre_rollups. Trend queries only read the rollups.
+@Service
+@RequiredArgsConstructor
+public class OffreHistoryService {
+    private static final Logger logger = LoggerFactory.getLogger(OffreHistoryService.class);
+    private static final String ROLLUP = "offre_rollups";
+    private static final int ROLLUP_BATCH = 5000;
+    private static final int MAX_TREND_POINTS = 400;
+    // Events are only folded once this old, so that a transaction still open when its event got its id
+    // has committed by then; a longer transaction would see its event skipped
+    private static final Duration COMMIT_LAG = Duration.ofMinutes(1);
+    private static final int PARTITIONS_AHEAD = 2;
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private static final String COLUMNS = "INSERT INTO offre_events (offre_id, event_type, occurred_at, ville_norm, " +
+            "quartier_norm, type_bien, surface, prix_before, prix_after, statut_before, statut_after, listed_at) ";
+    // The previous values come from the read model, so these run before it is updated
+    private static final String STATUS_EVENTS = COLUMNS + "SELECT offre_id, 'STATUS_CHANGED', ?, ville_norm, " +
+            "quartier_norm, type_bien, surface, prix_propose, prix_propose, statut_offre, ?, created_at " +
+            "FROM offre_read_model WHERE offre_id IN (%s) AND (statut_offre IS NULL OR statut_offre <> ?)";
+    private static final String DELETE_EVENTS = COLUMNS + "SELECT offre_id, 'DELETED', ?, ville_norm, " +
+            "quartier_norm, type_bien, surface, prix_propose, NULL, statut_offre, NULL, created_at " +
+            "FROM offre_read_model WHERE offre_id IN (%s)";
+    private static final String NEW_EVENTS = "SELECT id, event_type, occurred_at, ville_norm, quartier_norm, " +
+            "type_bien, prix_after, statut_after, listed_at FROM offre_events " +
+            "WHERE occurred_at >= ? AND occurred_at < ? AND id > ? ORDER BY id LIMIT ?";
+    private static final String INCREMENT = "UPDATE offre_rollups SET listed_count = listed_count + ?, " +
+            "price_change_count = price_change_count + ?, priced_count = priced_count + ?, price_sum = price_sum + ?, " +
+            "sold_count = sold_count + ?, sold_price_sum = sold_price_sum + ?, " +
+            "days_on_market_sum = days_on_market_sum + ?, withdrawn_count = withdrawn_count + ? " +
+            "WHERE period = ? AND ville_norm = ? AND quartier_norm = ? AND type_bien = ? AND period_start = ?";
+    private static final String INSERT = "INSERT INTO offre_rollups (listed_count, price_change_count, priced_count, " +
+            "price_sum, sold_count, sold_price_sum, days_on_market_sum, withdrawn_count, period, ville_norm, " +
+            "quartier_norm, type_bien, period_start) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final OffreEventRepository offreEventRepository;
+    private final OffreRollupRepository offreRollupRepository;
+    private final RollupWatermarkRepository watermarkRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    // After OffreReadModelService.project: a new offer, or the price and status it had before
+    public void recordChange(OffreReadModel row, boolean created, Double prixBefore, StatutOffre statutBefore) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OffreEvent> events = new ArrayList<>();
+        if (created) {
+            events.add(event(row, EventType.CREATED, now, null, null));
+        } else {
+            if (!Objects.equals(prixBefore, row.getPrixPropose())) {
+                events.add(event(row, EventType.PRICE_CHANGED, now, prixBefore, row.getStatutOffre()));
+            }
+            if (statutBefore != row.getStatutOffre()) {
+                events.add(event(row, EventType.STATUS_CHANGED, now, row.getPrixPropose(), statutBefore));
+            }
+        }
+        offreEventRepository.saveAll(events);
+    }
+
+    private static OffreEvent event(OffreReadModel row, EventType type, LocalDateTime now,
+                                    Double prixBefore, StatutOffre statutBefore) {
+        return OffreEvent.builder()
+                .offreId(row.getId())
+                .eventType(type)
+                .occurredAt(now)
+                .villeNorm(row.getVilleNorm())
+                .quartierNorm(row.getQuartierNorm())
+                .typeBien(row.getTypeBien())
+                .surface(row.getSurface())
+                .prixBefore(prixBefore)
+                .prixAfter(row.getPrixPropose())
+                .statutBefore(statutBefore)
+                .statutAfter(row.getStatutOffre())
+                .listedAt(row.getCreatedAt())
+                .build();
+    }
+
+    public void recordStatusChange(Collection<Long> ids, StatutOffre statut, LocalDateTime now) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(now));
+        args.add(statut.name());
+        args.addAll(ids);
+        args.add(statut.name());
+        jdbcTemplate.update(String.format(STATUS_EVENTS, placeholders(ids.size())), args.toArray());
+    }
+
+    public void recordDeletion(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(LocalDateTime.now()));
+        args.addAll(ids);
+        jdbcTemplate.update(String.format(DELETE_EVENTS, placeholders(ids.size())), args.toArray());
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    public List<OffreEventDto> history(Long offreId) {
+        return offreEventRepository.findByOffreIdOrderByOccurredAtAscIdAsc(offreId).stream()
+                .map(OffreEventDto::fromEntity)
+                .toList();
+    }
+
+    // Per day or week between from and to (defaults: the last 30 days or 12 weeks), summed over the
+    // matching ville / quartier / type cells of offre_rollups. Events of the last minute are not in yet.
+    public List<TrendPointDto> trends(Period period, String ville, String quartier, TypeBien typeBien,
+                                      LocalDate from, LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : period == Period.DAY ? end.minusDays(29) : end.minusWeeks(11);
+        if (period == Period.WEEK) {
+            start = start.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+        long points = (period == Period.DAY ? ChronoUnit.DAYS : ChronoUnit.WEEKS).between(start, end);
+        if (end.isBefore(start) || points >= MAX_TREND_POINTS) {
+            throw new IllegalArgumentException("from must be before to, at most " + MAX_TREND_POINTS + " periods apart");
+        }
+        List<TrendPointDto> trend = new ArrayList<>();
+        for (Object[] row : offreRollupRepository.sumByPeriodStart(period, start, end, SearchText.normalize(ville),
+                SearchText.normalize(quartier), typeBien != null ? typeBien.name() : null)) {
+            long priced = ((Number) row[3]).longValue();
+            long sold = ((Number) row[5]).longValue();
+            trend.add(TrendPointDto.builder()
+                    .periodStart((LocalDate) row[0])
+                    .listed(((Number) row[1]).longValue())
+                    .priceChanges(((Number) row[2]).longValue())
+                    .averagePrice(priced > 0 ? ((Number) row[4]).doubleValue() / priced : null)
+                    .sold(sold)
+                    .averageSoldPrice(sold > 0 ? ((Number) row[6]).doubleValue() / sold : null)
+                    .averageDaysOnMarket(sold > 0 ? ((Number) row[7]).doubleValue() / sold : null)
+                    .withdrawn(((Number) row[8]).longValue())
+                    .build());
+        }
+        return trend;
+    }
+
+    // Folds the events recorded since the last run into offre_rollups, in batches. Each batch updates the
+    // rollups and the watermark in one transaction, so an event is counted exactly once.
+    @Scheduled(fixedDelayString = "${app.offre-history.rollup-ms:60000}",
+            initialDelayString = "${app.offre-history.rollup-ms:60000}")
+    public void rollUp() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int total = 0;
+        Integer folded;
+        do {
+            folded = transaction.execute(status -> rollUpBatch());
+            total += folded;
+        } while (folded == ROLLUP_BATCH);
+        if (total > 0) {
+            logger.debug("Folded {} offer events into the rollups", total);
+        }
+    }
+
+    private int rollUpBatch() {
+        RollupWatermark watermark = watermarkRepository.findById(ROLLUP)
+                .orElseGet(() -> RollupWatermark.builder().name(ROLLUP).build());
+        // The lower bound on occurred_at lets MySQL prune the partitions already folded
+        LocalDateTime since = watermark.getLastOccurredAt() != null
+                ? watermark.getLastOccurredAt().minus(COMMIT_LAG) : LocalDateTime.of(1970, 1, 1, 0, 0);
+        LocalDateTime cutoff = LocalDateTime.now().minus(COMMIT_LAG);
+        Map<List<Object>, Delta> deltas = new LinkedHashMap<>();
+        long[] last = {watermark.getLastEventId()};
+        LocalDateTime[] lastOccurred = {watermark.getLastOccurredAt()};
+        int[] count = {0};
+        jdbcTemplate.query(NEW_EVENTS, rs -> {
+            EventType type = EventType.valueOf(rs.getString(2));
+            LocalDateTime occurredAt = rs.getTimestamp(3).toLocalDateTime();
+            Double prix = rs.getObject(7, Double.class);
+            Timestamp listedAt = rs.getTimestamp(9);
+            for (Period period : Period.values()) {
+                LocalDate day = occurredAt.toLocalDate();
+                LocalDate start = period == Period.DAY ? day : day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                List<Object> key = List.of(period.name(), Objects.toString(rs.getString(4), ""),
+                        Objects.toString(rs.getString(5), ""), Objects.toString(rs.getString(6), MarketStatsService.ALL),
+                        start);
+                deltas.computeIfAbsent(key, k -> new Delta())
+                        .add(type, prix, rs.getString(8), listedAt != null ? listedAt.toLocalDateTime() : null, occurredAt);
+            }
+            last[0] = rs.getLong(1);
+            if (lastOccurred[0] == null || occurredAt.isAfter(lastOccurred[0])) {
+                lastOccurred[0] = occurredAt;
+            }
+            count[0]++;
+        }, Timestamp.valueOf(since), Timestamp.valueOf(cutoff), watermark.getLastEventId(), ROLLUP_BATCH);
+        if (count[0] == 0) {
+            return 0;
+        }
+        for (Map.Entry<List<Object>, Delta> entry : deltas.entrySet()) {
+            Delta d = entry.getValue();
+            List<Object> args = new ArrayList<>(List.of(d.listed, d.priceChanges, d.priced, d.priceSum, d.sold,
+                    d.soldPriceSum, d.daysOnMarketSum, d.withdrawn));
+            args.addAll(entry.getKey());
+            if (jdbcTemplate.update(INCREMENT, args.toArray()) == 0) {
+                jdbcTemplate.update(INSERT, args.toArray());
+            }
+        }
+        watermark.setLastEventId(last[0]);
+        watermark.setLastOccurredAt(lastOccurred[0]);
+        watermarkRepository.save(watermark);
+        return count[0];
+    }
+
+    // Keeps monthly partitions of offre_events for the current month and the next PARTITIONS_AHEAD ones,
+    // split off the catch-all pmax partition. Only on MySQL and only when the table was created partitioned.
+    @Scheduled(cron = "${app.offre-history.partition-cron:0 0 3 * * *}")
+    public void ensurePartitions() {
+        try {
+            String database = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                    DatabaseMetaData::getDatabaseProductName);
+            if (!database.toLowerCase().contains("mysql") && !database.toLowerCase().contains("mariadb")) {
+                return;
+            }
+        } catch (MetaDataAccessException e) {
+            logger.warn("Could not check offre_events partitions", e);
+            return;
+        }
+        List<String> partitions = jdbcTemplate.queryForList("SELECT partition_name FROM information_schema.partitions " +
+                "WHERE table_schema = DATABASE() AND table_name = 'offre_events' AND partition_name IS NOT NULL", String.class);
+        if (!partitions.contains("pmax")) {
+            logger.warn("offre_events is not partitioned, monthly partitions are not managed");
+            return;
+        }
+        YearMonth latest = null;
+        for (String name : partitions) {
+            if (!name.equals("pmax")) {
+                YearMonth month = YearMonth.parse(name.substring(1), DateTimeFormatter.ofPattern("yyyyMM"));
+                latest = latest == null || month.isAfter(latest) ? month : latest;
+            }
+        }
+        List<String> added = new ArrayList<>();
+        YearMonth month = latest != null ? latest.plusMonths(1) : YearMonth.now();
+        for (; !month.isAfter(YearMonth.now().plusMonths(PARTITIONS_AHEAD)); month = month.plusMonths(1)) {
+            added.add(String.format("PARTITION %s VALUES LESS THAN ('%s')", month.format(PARTITION_NAME),
+                    month.plusMonths(1).atDay(1)));
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE offre_events REORGANIZE PARTITION pmax INTO (" + String.join(", ", added) +
+                ", PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+        logger.info("Added {} monthly partitions to offre_events", added.size());
+    }
+
+    // Increments of one rollup row
+    private static final class Delta {
+        private long listed;
+        private long priceChanges;
+        private long priced;
+        private double priceSum;
+        private long sold;
+        private double soldPriceSum;
+        private double daysOnMarketSum;
+        private long withdrawn;
+
+        void add(EventType type, Double prix, String statutAfter, LocalDateTime listedAt, LocalDateTime occurredAt) {
+            switch (type) {
+                case CREATED -> listed++;
+                case PRICE_CHANGED -> priceChanges++;
+                case STATUS_CHANGED -> {
+                    if (StatutOffre.VENDU.name().equals(statutAfter)) {
+                        sold++;
+                        soldPriceSum += prix != null ? prix : 0;
+                        if (listedAt != null) {
+                            daysOnMarketSum += Duration.between(listedAt, occurredAt).toMinutes() / (24.0 * 60);
+                        }
+                    }
+                }
+                case DELETED -> withdrawn++;
+            }
+            if ((type == EventType.CREATED || type == EventType.PRICE_CHANGED) && prix != null) {
+                priced++;
+                priceSum += prix;
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.entity.Offre;
+import com.immobilier.app.entity.Offre.StatutOffre;
+import com.immobilier.app.entity.OffreReadModel;
+import com.immobilier.app.entity.SearchText;
+import com.immobilier.app.repository.OffrePhotoRepository;
+import com.immobilier.app.repository.OffreReadModelRepository;
+import com.immobilier.app.repository.OffreRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Keeps offre_read_model in step with offres. Every method is meant to run inside the
+// transaction of the write it mirrors, so readers never see one side without the other.
+@Service
+@RequiredArgsConstructor
+public class OffreReadModelService {
+    private static final Logger logger = LoggerFactory.getLogger(OffreReadModelService.class);
+    private static final int REBUILD_BATCH = 2000;
+    // Columns of offre_read_model, also those of offres_archive before admin_id and archived_at
+    static final String COLUMNS = "offre_id, nom_proprietaire, " +
+            "prenom_proprietaire, telephone_proprietaire, adresse_bien, surface, etage, type_bien, prix_propose, " +
+            "localisation_ville, localisation_quartier, description_bien, nb_chambres_offre, statut_offre, " +
+            "photos_json, first_photo_url, photo_count, ville_norm, quartier_norm, search_text, prix_band, " +
+            "surface_band, version, created_at, updated_at";
+    private static final String INSERT = "INSERT INTO offre_read_model (" + COLUMNS + ") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final OffreReadModelRepository readModelRepository;
+    private final OffreRepository offreRepository;
+    private final OffrePhotoRepository offrePhotoRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final OffreCatalog catalog;
+    private final MarketStatsService marketStats;
+    private final OffreHistoryService history;
+    private final SupplyDemandService supplyDemand;
+    private final OffreSimilarService similar;
+
+    // Re-projects one offer after it was created or changed; the offer must be flushed
+    public OffreReadModel project(Offre offre) {
+        List<String> photoUrls = new ArrayList<>();
+        for (Object[] row : offrePhotoRepository.findPhotoUrlsGroupedByOffreIds(List.of(offre.getId()))) {
+            photoUrls.add((String) row[1]);
+        }
+        OffreReadModel row = readModelRepository.findById(offre.getId()).orElseGet(OffreReadModel::new);
+        boolean created = row.getId() == null;
+        Double prixBefore = row.getPrixPropose();
+        StatutOffre statutBefore = row.getStatutOffre();
+        copy(offre, photoUrls, row);
+        OffreReadModel saved = readModelRepository.save(row);
+        history.recordChange(saved, created, prixBefore, statutBefore);
+        catalog.upsert(saved);
+        marketStats.upsert(saved);
+        supplyDemand.upsertOffre(saved);
+        similar.markChanged(List.of(saved.getId()));
+        return saved;
+    }
+
+    public void updateStatus(Collection<Long> ids, StatutOffre statut, LocalDateTime now) {
+        history.recordStatusChange(ids, statut, now);
+        readModelRepository.updateStatusByIds(ids, statut, now);
+        catalog.updateStatus(ids, statut);
+        marketStats.updateStatus(ids, statut);
+        supplyDemand.updateOffreStatus(ids, statut);
+        similar.markChanged(ids);
+    }
+
+    public void remove(Collection<Long> ids) {
+        history.recordDeletion(ids);
+        readModelRepository.deleteByIds(ids);
+        catalog.remove(ids);
+        marketStats.remove(ids);
+        supplyDemand.removeOffres(ids);
+        similar.markChanged(ids);
+    }
+
+    // Drops archived offers from the read side; unlike remove() this is not recorded as a deletion
+    public void evict(Collection<Long> ids) {
+        readModelRepository.deleteByIds(ids);
+        catalog.remove(ids);
+        marketStats.remove(ids);
+        supplyDemand.removeOffres(ids);
+        similar.markChanged(ids);
+    }
+
+    static void copy(Offre offre, List<String> photoUrls, OffreReadModel row) {
+        row.setId(offre.getId());
+        row.setNomProprietaire(offre.getNomProprietaire());
+        row.setPrenomProprietaire(offre.getPrenomProprietaire());
+        row.setTelephoneProprietaire(offre.getTelephoneProprietaire());
+        row.setAdresseBien(offre.getAdresseBien());
+        row.setSurface(offre.getSurface());
+        row.setEtage(offre.getEtage());
+        row.setTypeBien(offre.getTypeBien());
+        row.setPrixPropose(offre.getPrixPropose());
+        row.setLocalisationVille(offre.getLocalisationVille());
+        row.setLocalisationQuartier(offre.getLocalisationQuartier());
+        row.setDescriptionBien(offre.getDescriptionBien());
+        row.setNbChambresOffre(offre.getNbChambresOffre());
+        row.setStatutOffre(offre.getStatutOffre());
+        row.setPhotosJson(OffreReadModel.photosJson(photoUrls));
+        row.setFirstPhotoUrl(photoUrls.isEmpty() ? null : photoUrls.get(0));
+        row.setPhotoCount(photoUrls.size());
+        row.setVilleNorm(SearchText.normalize(offre.getLocalisationVille()));
+        row.setQuartierNorm(SearchText.normalize(offre.getLocalisationQuartier()));
+        row.setSearchText(SearchText.of(offre.getNomProprietaire(), offre.getPrenomProprietaire(),
+                offre.getAdresseBien(), offre.getDescriptionBien()));
+        row.setPrixBand(OffreReadModel.prixBand(offre.getPrixPropose()));
+        row.setSurfaceBand(OffreReadModel.surfaceBand(offre.getSurface()));
+        row.setVersion(offre.getVersion());
+        row.setCreatedAt(offre.getCreatedAt());
+        row.setUpdatedAt(offre.getUpdatedAt());
+    }
+
+    // Rebuilds the whole read model when its row count no longer matches offres, e.g. on the
+    // first start after the migration or after rows were loaded with plain SQL
+    public void rebuildIfStale() {
+        long offres = offreRepository.count();
+        long projected = readModelRepository.count();
+        if (offres != projected) {
+            logger.info("Offer read model has {} rows for {} offers, rebuilding", projected, offres);
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> jdbcTemplate.update("DELETE FROM offre_read_model"));
+
+        long lastId = 0;
+        int total = 0;
+        while (true) {
+            long after = lastId;
+            List<Offre> batch = transaction.execute(status -> {
+                List<Offre> offres = offreRepository.findByIdGreaterThanOrderById(after, PageRequest.of(0, REBUILD_BATCH));
+                if (!offres.isEmpty()) {
+                    insert(offres);
+                }
+                return offres;
+            });
+            if (batch.isEmpty()) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+            total += batch.size();
+        }
+        logger.info("Rebuilt offer read model: {} rows in {} ms", total, System.currentTimeMillis() - started);
+    }
+
+    private void insert(List<Offre> offres) {
+        Map<Long, List<String>> photos = new HashMap<>();
+        List<Long> ids = offres.stream().map(Offre::getId).toList();
+        for (Object[] row : offrePhotoRepository.findPhotoUrlsGroupedByOffreIds(ids)) {
+            photos.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((String) row[1]);
+        }
+        List<Object[]> rows = new ArrayList<>(offres.size());
+        for (Offre offre : offres) {
+            OffreReadModel r = new OffreReadModel();
+            copy(offre, photos.getOrDefault(offre.getId(), List.of()), r);
+            rows.add(new Object[]{r.getId(), r.getNomProprietaire(), r.getPrenomProprietaire(),
+                    r.getTelephoneProprietaire(), r.getAdresseBien(), r.getSurface(), r.getEtage(),
+                    name(r.getTypeBien()), r.getPrixPropose(), r.getLocalisationVille(), r.getLocalisationQuartier(),
+                    r.getDescriptionBien(), r.getNbChambresOffre(), name(r.getStatutOffre()), r.getPhotosJson(),
+                    r.getFirstPhotoUrl(), r.getPhotoCount(), r.getVilleNorm(), r.getQuartierNorm(), r.getSearchText(),
+                    r.getPrixBand(), r.getSurfaceBand(), r.getVersion(), timestamp(r.getCreatedAt()),
+                    timestamp(r.getUpdatedAt())});
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    private static Timestamp timestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+}
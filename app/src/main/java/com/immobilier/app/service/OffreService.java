@@ -1,32 +1,71 @@
 package com.immobilier.app.service;
 
+import com.immobilier.app.dto.BulkResultDto;
+import com.immobilier.app.dto.ChangeEventDto;
+import com.immobilier.app.dto.DemandeDto;
 import com.immobilier.app.dto.OffreDto;
 import com.immobilier.app.entity.Offre;
 import com.immobilier.app.entity.Offre.TypeBien;
 import com.immobilier.app.entity.OffrePhoto;
+import com.immobilier.app.entity.OffreReadModel;
+import com.immobilier.app.entity.SearchText;
+import com.immobilier.app.repository.ChangeStamp;
+import com.immobilier.app.repository.OffreArchiveRepository;
 import com.immobilier.app.repository.OffreRepository;
+import com.immobilier.app.repository.OffreReadModelRepository;
+import com.immobilier.app.repository.OffreReadModelRepositoryCustom;
 import com.immobilier.app.repository.OffrePhotoRepository;
+import com.immobilier.app.repository.OffreSimilarRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.io.IOException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 @Service
 @RequiredArgsConstructor
 public class OffreService {
+    // Default shape of list views: enough for a card, without descriptions or owner contact details
+    public static final List<String> SUMMARY_FIELDS = List.of("id", "typeBien", "prixPropose", "surface",
+            "localisationVille", "localisationQuartier", "photo");
+
     private final OffreRepository offreRepository;
     private final OffrePhotoRepository offrePhotoRepository;
+    private final OffreReadModelRepository readModelRepository;
+    private final OffreArchiveRepository archiveRepository;
+    private final OffreSimilarRepository similarRepository;
+    private final OffreReadModelService readModelService;
     private final FileStorageService fileStorageService;
+    private final UploadManifestService uploadManifest;
+    private final ChangeTracker changeTracker;
+    private final ChangeEventLog changeEventLog;
+    private final LocalisationService localisationService;
+    private final OffreCatalog catalog;
     
     public String uploadImage(MultipartFile image) throws IOException {
         return fileStorageService.storeFile(image);
     }
 
+    @Transactional(readOnly = true)
     public Page<OffreDto> findAllWithFilters(
             TypeBien typeBien,
             Double prixMin,
@@ -37,17 +76,200 @@ public class OffreService {
             String quartier,
             String searchKeyword,
             Pageable pageable) {
-        return offreRepository.findAllWithFilters(
+        checkFields(List.of(), pageable, OffreReadModelRepositoryCustom.FIELDS);
+        if (searchKeyword == null) {
+            Optional<Page<Long>> ids = catalog.search(typeBien, null, prixMin, prixMax, surfaceMin, surfaceMax,
+                    SearchText.normalize(ville), SearchText.normalize(quartier), pageable);
+            if (ids.isPresent()) {
+                return hydrate(ids.get());
+            }
+        }
+        return readModelRepository.findAllWithFilters(
+                typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                SearchText.normalize(ville), SearchText.normalize(quartier),
+                SearchText.normalize(searchKeyword), pageable)
+                .map(OffreDto::fromReadModel);
+    }
+
+    // includeArchived mode: live offers and those moved to offres_archive, merged in one order
+    @Transactional(readOnly = true)
+    public Page<OffreDto> findAllIncludingArchived(
+            TypeBien typeBien,
+            Double prixMin,
+            Double prixMax,
+            Double surfaceMin,
+            Double surfaceMax,
+            String ville,
+            String quartier,
+            String searchKeyword,
+            Pageable pageable) {
+        checkFields(List.of(), pageable, OffreReadModelRepositoryCustom.FIELDS);
+        if (pageable.isUnpaged()
+                || pageable.getOffset() + pageable.getPageSize() > OffreReadModelRepositoryCustom.MAX_MERGED_ROWS) {
+            throw new IllegalArgumentException("Pages past " + OffreReadModelRepositoryCustom.MAX_MERGED_ROWS
+                    + " rows are not served with archives");
+        }
+        return readModelRepository.findAllWithFiltersIncludingArchived(
+                typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                SearchText.normalize(ville), SearchText.normalize(quartier),
+                SearchText.normalize(searchKeyword), pageable)
+                .map(OffreDto::fromReadModel);
+    }
+
+    // Counts per typeBien, statutOffre, ville, quartier and prixBand among the offers matching the filters.
+    // With multiSelect each facet is counted without its own filter, so the other values of a selected
+    // facet keep their counts. The catalog counts with one bitmap intersection per value; a keyword
+    // search is first turned into the set of matching ids, unless it matches too many offers.
+    @Transactional(readOnly = true)
+    public Map<String, Map<String, Long>> facets(
+            TypeBien typeBien,
+            Double prixMin,
+            Double prixMax,
+            Double surfaceMin,
+            Double surfaceMax,
+            String ville,
+            String quartier,
+            String searchKeyword,
+            boolean multiSelect) {
+        String villeNorm = SearchText.normalize(ville);
+        String quartierNorm = SearchText.normalize(quartier);
+        String keyword = SearchText.normalize(searchKeyword);
+        Map<String, Map<String, Long>> facets = catalog.facets(typeBien, null, prixMin, prixMax, surfaceMin, surfaceMax,
+                        villeNorm, quartierNorm,
+                        keyword != null
+                                ? limit -> readModelRepository.findIdsBySearchText(keyword, PageRequest.of(0, limit))
+                                : null,
+                        multiSelect)
+                .orElseGet(() -> countFacets(typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                        villeNorm, quartierNorm, keyword, multiSelect));
+        facets.put("ville", FacetCounts.relabel(facets.get("ville"), localisationService::villeLabel));
+        facets.put("quartier", FacetCounts.relabel(facets.get("quartier"), localisationService::quartierLabel));
+        return facets;
+    }
+
+    private Map<String, Map<String, Long>> countFacets(TypeBien typeBien, Double prixMin, Double prixMax,
+                                                       Double surfaceMin, Double surfaceMax, String villeNorm,
+                                                       String quartierNorm, String keyword, boolean multiSelect) {
+        List<Object[]> rows = readModelRepository.countFacets(typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
+                villeNorm, quartierNorm, keyword, multiSelect);
+        Map<String, Predicate<Object[]>> filters = new HashMap<>();
+        if (typeBien != null) {
+            filters.put("typeBien", row -> typeBien.equals(row[0]));
+        }
+        if (villeNorm != null) {
+            filters.put("ville", row -> villeNorm.equals(row[2]));
+        }
+        if (quartierNorm != null) {
+            filters.put("quartier", row -> quartierNorm.equals(row[3]));
+        }
+        if (prixMin != null || prixMax != null) {
+            filters.put("prixBand", row -> ((Number) row[5]).intValue() == 1);
+        }
+        return FacetCounts.aggregate(List.of("typeBien", "statutOffre", "ville", "quartier", "prixBand"),
+                rows, filters, multiSelect);
+    }
+
+    // Reads the rows of a page of ids found in the catalog, keeping the catalog's order
+    private Page<OffreDto> hydrate(Page<Long> ids) {
+        Map<Long, OffreDto> found = findByIds(ids.getContent());
+        List<OffreDto> content = ids.getContent().stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(content, ids.getPageable(), ids.getTotalElements());
+    }
+
+    // Offers that satisfy a demande: same type, ville and (when the demande names one) quartier,
+    // within its budget and at least its surface
+    @Transactional(readOnly = true)
+    public Page<OffreDto> findMatching(DemandeDto demande, Pageable pageable) {
+        TypeBien typeBien = demande.getTypeBien() != null ? TypeBien.valueOf(demande.getTypeBien().name()) : null;
+        return findAllWithFilters(typeBien, null, demande.getPrixSouhaite(), demande.getSurfaceDemandee(), null,
+                demande.getLocalisationVille(), demande.getLocalisationQuartier(), null, pageable);
+    }
+
+    // Sparse fieldset: only the requested columns are selected, "photo" is the first photo URL
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findFieldsWithFilters(
+            String fields,
+            TypeBien typeBien,
+            Double prixMin,
+            Double prixMax,
+            Double surfaceMin,
+            Double surfaceMax,
+            String ville,
+            String quartier,
+            String searchKeyword,
+            Pageable pageable) {
+        List<String> columns = "summary".equals(fields) ? SUMMARY_FIELDS : parseFields(fields);
+        checkFields(columns, pageable, OffreReadModelRepositoryCustom.FIELDS);
+        return readModelRepository.findFieldsWithFilters(columns,
                 typeBien, prixMin, prixMax, surfaceMin, surfaceMax,
-                ville, quartier, searchKeyword, pageable)
-                .map(OffreDto::fromEntity);
+                SearchText.normalize(ville), SearchText.normalize(quartier),
+                SearchText.normalize(searchKeyword), pageable);
     }
 
+    static List<String> parseFields(String fields) {
+        List<String> parsed = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .distinct()
+                .toList();
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("No fields requested");
+        }
+        return parsed;
+    }
+
+    // Validated here because the repository would wrap the error in a data access exception
+    static void checkFields(List<String> columns, Pageable pageable, Set<String> allowed) {
+        for (String column : columns) {
+            if (!allowed.contains(column)) {
+                throw new IllegalArgumentException("Unknown field: " + column);
+            }
+        }
+        pageable.getSort().forEach(order -> {
+            if (!allowed.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Unknown sort field: " + order.getProperty());
+            }
+        });
+    }
+
+    public Optional<ChangeStamp> findStamp(Long id) {
+        return readModelRepository.findStampById(id);
+    }
+
+    @Transactional(readOnly = true)
     public Optional<OffreDto> findById(Long id) {
-        return offreRepository.findById(id)
-                .map(OffreDto::fromEntity);
+        return readModelRepository.findById(id)
+                .map(OffreDto::fromReadModel);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<OffreDto> findArchivedById(Long id) {
+        return archiveRepository.findById(id)
+                .map(archived -> OffreDto.fromReadModel(archived.toReadModel()));
     }
 
+    // Multi-get: one IN query on the read model, photos come with each row
+    @Transactional(readOnly = true)
+    public Map<Long, OffreDto> findByIds(Collection<Long> ids) {
+        Map<Long, OffreDto> offres = new HashMap<>();
+        for (OffreReadModel row : readModelRepository.findAllById(ids)) {
+            offres.put(row.getId(), OffreDto.fromReadModel(row));
+        }
+        return offres;
+    }
+
+    // Precomputed by OffreSimilarService, closest first; offers removed since are skipped
+    @Transactional(readOnly = true)
+    public List<OffreDto> findSimilar(Long id) {
+        List<Long> ids = similarRepository.findSimilarIds(id);
+        Map<Long, OffreDto> offres = findByIds(ids);
+        return ids.stream().map(offres::get).filter(Objects::nonNull).toList();
+    }
+
+    @Transactional
     public OffreDto create(OffreDto dto) {
         // Create the offer first
         Offre offre = Offre.builder()
@@ -69,6 +291,9 @@ public class OffreService {
                 .build();
 
         Offre savedOffre = offreRepository.save(offre);
+        changeTracker.changed(ChangeTracker.OFFRES);
+        changeEventLog.publish(ChangeTracker.OFFRES, ChangeEventDto.Type.CREATED, List.of(savedOffre.getId()));
+        localisationService.register(savedOffre.getLocalisationVille(), savedOffre.getLocalisationQuartier());
 
         // Save photos to the separate table
         if (dto.getPhotos() != null && !dto.getPhotos().isEmpty()) {
@@ -81,76 +306,98 @@ public class OffreService {
                         .build();
                 offrePhotoRepository.save(photo);
             }
+            uploadManifest.reference(dto.getPhotos(), savedOffre.getId());
         }
 
-        return OffreDto.fromEntity(savedOffre);
+        return OffreDto.fromReadModel(readModelService.project(savedOffre));
     }
 
+    // PUT: replaces every editable field but keeps photos, admin and createdAt.
+    // Changes are applied to the managed entity so only modified columns are written.
+    @Transactional
     public Optional<OffreDto> update(Long id, OffreDto dto) {
         return offreRepository.findById(id)
                 .map(existingOffre -> {
-                    Offre updatedOffre = Offre.builder()
-                            .id(id)
-                            .admin(existingOffre.getAdmin())
-                            .nomProprietaire(dto.getNomProprietaire())
-                            .prenomProprietaire(dto.getPrenomProprietaire())
-                            .telephoneProprietaire(dto.getTelephoneProprietaire())
-                            .adresseBien(dto.getAdresseBien())
-                            .surface(dto.getSurface())
-                            .etage(dto.getEtage())
-                            .typeBien(dto.getTypeBien())
-                            .prixPropose(dto.getPrixPropose())
-                            .localisationVille(dto.getLocalisationVille())
-                            .localisationQuartier(dto.getLocalisationQuartier())
-                            .descriptionBien(dto.getDescriptionBien())
-                            .nbChambresOffre(dto.getNbChambresOffre())
-                            .statutOffre(dto.getStatutOffre())
-                            .createdAt(existingOffre.getCreatedAt())
-                            .updatedAt(LocalDateTime.now())
-                            .build();
-
-                    return OffreDto.fromEntity(offreRepository.save(updatedOffre));
+                    checkVersion(existingOffre, dto.getVersion());
+                    applyChanges(existingOffre, dto, false);
+                    changeTracker.changed(ChangeTracker.OFFRES);
+                    changeEventLog.publish(ChangeTracker.OFFRES, ChangeEventDto.Type.UPDATED, List.of(id));
+                    localisationService.register(existingOffre.getLocalisationVille(),
+                            existingOffre.getLocalisationQuartier());
+                    return OffreDto.fromReadModel(readModelService.project(offreRepository.saveAndFlush(existingOffre)));
                 });
     }
 
-    public void delete(Long id) {
-        try {
-            // Check if the offer exists first
-            if (!offreRepository.existsById(id)) {
-                throw new RuntimeException("Offer with ID " + id + " not found");
-            }
-            
-            // Try to delete photos first as a safety measure
-            // The CASCADE constraint should handle this automatically, but we'll do it manually as a fallback
-            try {
-                List<OffrePhoto> photos = offrePhotoRepository.findByOffreId(id);
-                if (!photos.isEmpty()) {
-                    offrePhotoRepository.deleteByOffreId(id);
-                    System.out.println("Manually deleted " + photos.size() + " photos for offer ID: " + id);
-                }
-            } catch (Exception e) {
-                System.err.println("Warning: Could not manually delete photos for offer ID " + id + ": " + e.getMessage());
-                // Continue with offer deletion - CASCADE should handle it
-            }
-            
-            // Delete the offer (CASCADE should automatically delete related photos)
-            offreRepository.deleteById(id);
-            
-            System.out.println("Successfully deleted offer with ID: " + id);
-        } catch (Exception e) {
-            System.err.println("Error deleting offer with ID " + id + ": " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("Failed to delete offer: " + e.getMessage(), e);
+    // PATCH: only fields present (non-null) in the request are changed
+    @Transactional
+    public Optional<OffreDto> patch(Long id, OffreDto dto) {
+        return offreRepository.findById(id)
+                .map(existingOffre -> {
+                    checkVersion(existingOffre, dto.getVersion());
+                    applyChanges(existingOffre, dto, true);
+                    changeTracker.changed(ChangeTracker.OFFRES);
+                    changeEventLog.publish(ChangeTracker.OFFRES, ChangeEventDto.Type.UPDATED, List.of(id));
+                    localisationService.register(existingOffre.getLocalisationVille(),
+                            existingOffre.getLocalisationQuartier());
+                    return OffreDto.fromReadModel(readModelService.project(offreRepository.saveAndFlush(existingOffre)));
+                });
+    }
+
+    private void checkVersion(Offre offre, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(offre.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Offre.class, offre.getId());
         }
     }
 
+    private void applyChanges(Offre offre, OffreDto dto, boolean partial) {
+        apply(partial, dto.getNomProprietaire(), offre::setNomProprietaire);
+        apply(partial, dto.getPrenomProprietaire(), offre::setPrenomProprietaire);
+        apply(partial, dto.getTelephoneProprietaire(), offre::setTelephoneProprietaire);
+        apply(partial, dto.getAdresseBien(), offre::setAdresseBien);
+        apply(partial, dto.getSurface(), offre::setSurface);
+        apply(partial, dto.getEtage(), offre::setEtage);
+        apply(partial, dto.getTypeBien(), offre::setTypeBien);
+        apply(partial, dto.getPrixPropose(), offre::setPrixPropose);
+        apply(partial, dto.getLocalisationVille(), offre::setLocalisationVille);
+        apply(partial, dto.getLocalisationQuartier(), offre::setLocalisationQuartier);
+        apply(partial, dto.getDescriptionBien(), offre::setDescriptionBien);
+        apply(partial, dto.getNbChambresOffre(), offre::setNbChambresOffre);
+        // The status is mandatory, a missing value never clears it
+        apply(true, dto.getStatutOffre(), offre::setStatutOffre);
+    }
+
+    private static <T> void apply(boolean partial, T value, Consumer<T> setter) {
+        if (!partial || value != null) {
+            setter.accept(value);
+        }
+    }
+
+    // Marks the offer deleted, which hides it from every read at once; OffreDeletionService removes
+    // the rows and photo files in the background. False when the offer does not exist.
+    @Transactional
+    public boolean delete(Long id) {
+        if (offreRepository.markDeleted(List.of(id), LocalDateTime.now()) == 0) {
+            return false;
+        }
+        readModelService.remove(List.of(id));
+        changeTracker.changed(ChangeTracker.OFFRES);
+        changeEventLog.publish(ChangeTracker.OFFRES, ChangeEventDto.Type.DELETED, List.of(id));
+        return true;
+    }
+
+    @Transactional
     public Optional<OffreDto> addPhotos(Long id, List<MultipartFile> photos) {
         return offreRepository.findById(id)
                 .map(offre -> {
+                    // Touching the offer bumps its version, so cached copies get revalidated
+                    offre.setUpdatedAt(LocalDateTime.now());
+                    changeTracker.changed(ChangeTracker.OFFRES);
                     // Add new photo URLs to the separate table
+                    List<String> photoUrls = new ArrayList<>();
                     for (MultipartFile photo : photos) {
                         try {
                             String photoUrl = uploadImage(photo);
+                            photoUrls.add(photoUrl);
                             OffrePhoto offrePhoto = OffrePhoto.builder()
                                     .offre(offre)
                                     .photoUrl(photoUrl)
@@ -162,38 +409,80 @@ public class OffreService {
                             throw new RuntimeException("Failed to upload photo", e);
                         }
                     }
-                    return OffreDto.fromEntity(offre);
+                    uploadManifest.reference(photoUrls, offre.getId());
+                    changeEventLog.publish(ChangeTracker.OFFRES, ChangeEventDto.Type.PHOTOS_ADDED, List.of(id));
+                    return OffreDto.fromReadModel(readModelService.project(offreRepository.saveAndFlush(offre)));
                 });
     }
 
-    public List<Offre> findAll() {
-        return offreRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<OffreDto> findAll() {
+        return readModelRepository.findAll().stream().map(OffreDto::fromReadModel).toList();
     }
 
-    public Optional<OffreDto> updateStatus(Long id, Offre.StatutOffre newStatus) {
-        return offreRepository.findById(id)
-                .map(existingOffre -> {
-                    Offre updatedOffre = Offre.builder()
-                            .id(id)
-                            .admin(existingOffre.getAdmin())
-                            .nomProprietaire(existingOffre.getNomProprietaire())
-                            .prenomProprietaire(existingOffre.getPrenomProprietaire())
-                            .telephoneProprietaire(existingOffre.getTelephoneProprietaire())
-                            .adresseBien(existingOffre.getAdresseBien())
-                            .surface(existingOffre.getSurface())
-                            .etage(existingOffre.getEtage())
-                            .typeBien(existingOffre.getTypeBien())
-                            .prixPropose(existingOffre.getPrixPropose())
-                            .localisationVille(existingOffre.getLocalisationVille())
-                            .localisationQuartier(existingOffre.getLocalisationQuartier())
-                            .descriptionBien(existingOffre.getDescriptionBien())
-                            .nbChambresOffre(existingOffre.getNbChambresOffre())
-                            .statutOffre(newStatus)
-                            .createdAt(existingOffre.getCreatedAt())
-                            .updatedAt(LocalDateTime.now())
-                            .build();
-
-                    return OffreDto.fromEntity(offreRepository.save(updatedOffre));
-                });
+    // Single conditional UPDATE, then the updated row with its new version. Empty when the offer does
+    // not exist; throws when expectedVersion is given and no longer matches.
+    @Transactional
+    public Optional<OffreDto> updateStatus(Long id, Offre.StatutOffre newStatus, Long expectedVersion) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = offreRepository.updateStatus(id, newStatus, expectedVersion, now);
+        if (updated > 0) {
+            readModelService.updateStatus(List.of(id), newStatus, now);
+            changeTracker.changed(ChangeTracker.OFFRES);
+            changeEventLog.publish(ChangeTracker.OFFRES, ChangeEventDto.Type.STATUS_CHANGED, List.of(id),
+                    newStatus.name());
+        }
+        if (updated == 0 && expectedVersion != null && offreRepository.existsById(id)) {
+            throw new ObjectOptimisticLockingFailureException(Offre.class, id);
+        }
+        if (updated == 0) {
+            return Optional.empty();
+        }
+        return readModelRepository.findById(id).map(OffreDto::fromReadModel);
+    }
+
+    // One existence query and one UPDATE for the whole id list
+    @Transactional
+    public BulkResultDto bulkUpdateStatus(List<Long> ids, Offre.StatutOffre newStatus) {
+        Set<Long> existing = existingIds(ids);
+        if (!existing.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            offreRepository.updateStatusByIds(existing, newStatus, now);
+            readModelService.updateStatus(existing, newStatus, now);
+            changeTracker.changed(ChangeTracker.OFFRES);
+            changeEventLog.publish(ChangeTracker.OFFRES, ChangeEventDto.Type.STATUS_CHANGED, existing,
+                    newStatus.name());
+        }
+        return bulkResult(ids, existing, "UPDATED");
+    }
+
+    // Set-based delete: the offers are marked with one statement and left to OffreDeletionService
+    @Transactional
+    public BulkResultDto bulkDelete(List<Long> ids) {
+        Set<Long> existing = existingIds(ids);
+        if (!existing.isEmpty()) {
+            offreRepository.markDeleted(existing, LocalDateTime.now());
+            readModelService.remove(existing);
+            changeTracker.changed(ChangeTracker.OFFRES);
+            changeEventLog.publish(ChangeTracker.OFFRES, ChangeEventDto.Type.DELETED, existing);
+        }
+        return bulkResult(ids, existing, "DELETED");
+    }
+
+    private Set<Long> existingIds(List<Long> ids) {
+        return ids.isEmpty() ? Set.of() : new HashSet<>(offreRepository.findExistingIds(new HashSet<>(ids)));
+    }
+
+    private static BulkResultDto bulkResult(List<Long> ids, Set<Long> existing, String outcome) {
+        Map<Long, String> results = new LinkedHashMap<>();
+        for (Long id : ids) {
+            results.put(id, existing.contains(id) ? outcome : "NOT_FOUND");
+        }
+        return BulkResultDto.builder()
+                .requested(results.size())
+                .succeeded(existing.size())
+                .notFound(results.size() - existing.size())
+                .results(results)
+                .build();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,333 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.entity.Offre.StatutOffre;
+import com.immobilier.app.entity.Offre.TypeBien;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Similar offers, stored in offre_similar so that GET /offres/{id}/similar is one primary key lookup.
+// Offers are split by (typeBien, ville); inside a partition an offer is the point (log prix, log surface),
+// each axis divided by its standard deviation for the type, and its neighbors are the k DISPONIBLE offers
+// with the lowest distance, plus quartier-penalty when they are in another quartier. There are no
+// coordinates for quartiers, so "adjacent" means another quartier of the same city.
+//
+// The job keeps the points and one KdTree per partition in memory. Offers written since its last run
+// (reported after commit by OffreReadModelService) are reloaded, and only these lists are recomputed:
+// the changed offers', those that contained a changed offer (idx_offre_similar_similar_id), and those
+// whose k-th neighbor is farther than a changed offer now is, found with a radius search around it.
+// Everything is recomputed on the first run and every full-rebuild-hours, which also picks up the
+// writes of other nodes and the drift of the scales.
+@Service
+public class OffreSimilarService {
+    private static final Logger logger = LoggerFactory.getLogger(OffreSimilarService.class);
+    private static final String SELECT = "SELECT offre_id, type_bien, statut_offre, ville_norm, quartier_norm, " +
+            "prix_propose, surface FROM offre_read_model";
+    private static final String SELECT_IDS = SELECT + " WHERE offre_id IN (%s)";
+    private static final String REFERENCING = "SELECT DISTINCT offre_id FROM offre_similar WHERE similar_id IN (%s)";
+    private static final String DELETE_STALE = "DELETE FROM offre_similar WHERE offre_id NOT IN " +
+            "(SELECT offre_id FROM offre_read_model)";
+    private static final String DELETE = "DELETE FROM offre_similar WHERE offre_id IN (%s)";
+    private static final String INSERT = "INSERT INTO offre_similar (offre_id, neighbor_rank, similar_id, score) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final int k;
+    private final double quartierPenalty;
+    private final int batchSize;
+    private final long pauseMs;
+    private final Duration fullRebuild;
+
+    // Offers written since the last run, added after commit
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+
+    // Only used by the job thread
+    private final Map<Long, Row> rows = new HashMap<>();
+    private final Map<Partition, Set<Long>> members = new HashMap<>();
+    private final Map<Partition, KdTree> trees = new HashMap<>();
+    private final Map<TypeBien, Scale> scales = new EnumMap<>(TypeBien.class);
+    // Score of the k-th neighbor by offer, infinite while it has fewer
+    private final Map<Long, Double> kth = new HashMap<>();
+    private volatile Instant builtAt;
+
+    private record Partition(TypeBien type, String ville) {
+    }
+
+    // logSurface is NaN when the surface is unknown
+    private record Row(long id, Partition partition, String quartier, boolean disponible, double logPrix,
+                       double logSurface) {
+    }
+
+    // Unknown surfaces take the type's mean
+    private record Scale(double prix, double surface, double meanSurface) {
+    }
+
+    public OffreSimilarService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               @Value("${app.similar.k:10}") int k,
+                               @Value("${app.similar.quartier-penalty:0.5}") double quartierPenalty,
+                               @Value("${app.similar.batch-size:500}") int batchSize,
+                               @Value("${app.similar.pause-ms:20}") long pauseMs,
+                               @Value("${app.similar.full-rebuild-hours:24}") long fullRebuildHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.k = k;
+        this.quartierPenalty = quartierPenalty;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+        this.fullRebuild = Duration.ofHours(fullRebuildHours);
+    }
+
+    public void markChanged(Collection<Long> offreIds) {
+        List<Long> ids = List.copyOf(offreIds);
+        AfterCommit.run(() -> changed.addAll(ids));
+    }
+
+    // Recomputes everything on the next run, for offers loaded without going through OffreReadModelService
+    public void requestRebuild() {
+        builtAt = null;
+    }
+
+    @Scheduled(fixedDelayString = "${app.similar.interval-ms:30000}",
+            initialDelayString = "${app.similar.interval-ms:30000}")
+    public void refresh() {
+        if (builtAt == null || builtAt.plus(fullRebuild).isBefore(Instant.now())) {
+            rebuild();
+            return;
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        // Writes committed from here on wait for the next run
+        List<Long> ids = new ArrayList<>(changed);
+        changed.removeAll(ids);
+        try {
+            update(ids);
+        } catch (RuntimeException e) {
+            changed.addAll(ids);
+            logger.warn("Could not update the similar offers of {} offers: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    private void rebuild() {
+        long started = System.currentTimeMillis();
+        changed.clear();
+        List<Row> loaded = new ArrayList<>();
+        try {
+            jdbcTemplate.query(SELECT, rs -> {
+                loaded.add(row(rs));
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Could not load the offers for similar offers: {}", e.getMessage());
+            return;
+        }
+        rows.clear();
+        members.clear();
+        kth.clear();
+        loaded.forEach(this::put);
+        computeScales();
+        trees.clear();
+        new ArrayList<>(members.keySet()).forEach(this::buildTree);
+        if (!recompute(new ArrayList<>(rows.keySet()))) {
+            return;
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> jdbcTemplate.update(DELETE_STALE));
+        builtAt = Instant.now();
+        logger.info("Computed the similar offers of {} offers in {} partitions in {} ms", rows.size(), trees.size(),
+                System.currentTimeMillis() - started);
+    }
+
+    private void update(List<Long> ids) {
+        Map<Long, Row> fresh = new HashMap<>();
+        Set<Long> affected = new HashSet<>(ids);
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            String in = placeholders(batch.size());
+            jdbcTemplate.query(String.format(SELECT_IDS, in), rs -> {
+                Row row = row(rs);
+                fresh.put(row.id(), row);
+            }, batch.toArray());
+            affected.addAll(jdbcTemplate.queryForList(String.format(REFERENCING, in), Long.class, batch.toArray()));
+        }
+        Set<Partition> touched = new HashSet<>();
+        for (Long id : ids) {
+            Row previous = rows.remove(id);
+            if (previous != null) {
+                members.get(previous.partition()).remove(id);
+                touched.add(previous.partition());
+            }
+            kth.remove(id);
+            Row row = fresh.get(id);
+            if (row != null) {
+                put(row);
+                touched.add(row.partition());
+            }
+        }
+        touched.forEach(this::buildTree);
+        // A changed offer enters the list of every offer it is now closer to than that offer's k-th neighbor;
+        // no such offer is farther than the largest k-th score of the partition
+        Map<Partition, Double> radii = new HashMap<>();
+        for (Row row : fresh.values()) {
+            if (!row.disponible()) {
+                continue;
+            }
+            KdTree.Point center = point(row);
+            double radius = radii.computeIfAbsent(row.partition(), partition -> members.get(partition).stream()
+                    .mapToDouble(id -> kth.getOrDefault(id, Double.POSITIVE_INFINITY))
+                    .max().orElse(0));
+            trees.get(row.partition()).within(center, radius, other -> {
+                if (other.id() != row.id() && KdTree.distance(center, other) + penalty(center, other)
+                        < kth.getOrDefault(other.id(), Double.POSITIVE_INFINITY)) {
+                    affected.add(other.id());
+                }
+            });
+        }
+        recompute(new ArrayList<>(affected));
+    }
+
+    // Replaces the stored lists of the given offers, batch by batch; offers no longer known lose theirs
+    private boolean recompute(List<Long> ids) {
+        Collections.sort(ids);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            if (from > 0 && !pause()) {
+                return false;
+            }
+            List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            List<Object[]> inserts = new ArrayList<>();
+            for (Long id : batch) {
+                Row row = rows.get(id);
+                if (row == null) {
+                    continue;
+                }
+                KdTree.Point query = point(row);
+                List<KdTree.Neighbor> neighbors = trees.get(row.partition())
+                        .nearest(query, k, other -> penalty(query, other));
+                for (int rank = 0; rank < neighbors.size(); rank++) {
+                    inserts.add(new Object[]{id, rank, neighbors.get(rank).id(), neighbors.get(rank).score()});
+                }
+                kth.put(id, neighbors.size() < k ? Double.POSITIVE_INFINITY
+                        : neighbors.get(neighbors.size() - 1).score());
+            }
+            transaction.executeWithoutResult(status -> {
+                jdbcTemplate.update(String.format(DELETE, placeholders(batch.size())), batch.toArray());
+                if (!inserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT, inserts);
+                }
+            });
+        }
+        return true;
+    }
+
+    private void put(Row row) {
+        rows.put(row.id(), row);
+        members.computeIfAbsent(row.partition(), p -> new HashSet<>()).add(row.id());
+    }
+
+    private void buildTree(Partition partition) {
+        Set<Long> ids = members.get(partition);
+        if (ids == null || ids.isEmpty()) {
+            members.remove(partition);
+            trees.remove(partition);
+            return;
+        }
+        List<KdTree.Point> points = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            points.add(point(rows.get(id)));
+        }
+        trees.put(partition, new KdTree(points));
+    }
+
+    // Standard deviations of log prix and log surface per type, 1 when there is no spread
+    private void computeScales() {
+        Map<TypeBien, double[]> sums = new EnumMap<>(TypeBien.class);
+        for (Row row : rows.values()) {
+            // n, sum, sum of squares for prix, then for the known surfaces
+            double[] s = sums.computeIfAbsent(row.partition().type(), t -> new double[6]);
+            s[0]++;
+            s[1] += row.logPrix();
+            s[2] += row.logPrix() * row.logPrix();
+            if (!Double.isNaN(row.logSurface())) {
+                s[3]++;
+                s[4] += row.logSurface();
+                s[5] += row.logSurface() * row.logSurface();
+            }
+        }
+        scales.clear();
+        sums.forEach((type, s) -> {
+            double meanSurface = s[3] > 0 ? s[4] / s[3] : 0;
+            scales.put(type, new Scale(deviation(s[0], s[1], s[2]), deviation(s[3], s[4], s[5]), meanSurface));
+        });
+    }
+
+    private static double deviation(double n, double sum, double squares) {
+        if (n < 2) {
+            return 1;
+        }
+        double variance = squares / n - (sum / n) * (sum / n);
+        return variance > 1e-12 ? Math.sqrt(variance) : 1;
+    }
+
+    private KdTree.Point point(Row row) {
+        Scale scale = scales.getOrDefault(row.partition().type(), new Scale(1, 1, 0));
+        double logSurface = Double.isNaN(row.logSurface()) ? scale.meanSurface() : row.logSurface();
+        return new KdTree.Point(row.id(), row.logPrix() / scale.prix(), logSurface / scale.surface(),
+                row.quartier(), row.disponible());
+    }
+
+    private double penalty(KdTree.Point a, KdTree.Point b) {
+        return Objects.equals(a.quartier(), b.quartier()) ? 0 : quartierPenalty;
+    }
+
+    private static Row row(ResultSet rs) throws SQLException {
+        double surface = rs.getDouble("surface");
+        boolean noSurface = rs.wasNull() || surface <= 0;
+        return new Row(rs.getLong("offre_id"),
+                new Partition(TypeBien.valueOf(rs.getString("type_bien")),
+                        Objects.toString(rs.getString("ville_norm"), "")),
+                Objects.toString(rs.getString("quartier_norm"), ""),
+                StatutOffre.DISPONIBLE.name().equals(rs.getString("statut_offre")),
+                Math.log(Math.max(rs.getDouble("prix_propose"), 1)),
+                noSurface ? Double.NaN : Math.log(surface));
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    // False when interrupted, e.g. on shutdown
+    private boolean pause() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.dto.OffreDto;
+import com.immobilier.app.dto.OffreViewsDto;
+import com.immobilier.app.repository.OffreViewCountRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// View counts of GET /offres/{id}. A view is one LongAdder increment in memory; every flush-ms the
+// counters are drained and added to offre_view_counts (one row per offer and day) with batched UPDATEs
+// and INSERTs in one transaction. A failed flush puts its counts back for the next one, so a crash
+// loses at most the views of one interval. The most viewed ranking covers the last 7 days: weekly
+// totals and a top-K set are kept in memory and moved as counts are flushed, and rebuilt from the
+// table when the day changes, so the table is never sorted to answer it.
+@Service
+public class OffreViewService {
+    private static final Logger logger = LoggerFactory.getLogger(OffreViewService.class);
+    private static final String INCREMENT = "UPDATE offre_view_counts SET views = views + ? " +
+            "WHERE offre_id = ? AND view_day = ?";
+    private static final String INSERT = "INSERT INTO offre_view_counts (views, offre_id, view_day) VALUES (?, ?, ?)";
+    private static final String PRUNE = "DELETE FROM offre_view_counts WHERE view_day < ?";
+    private static final int WEEK_DAYS = 7;
+
+    private record Ranked(long offreId, long views) {
+    }
+
+    private static final Comparator<Ranked> BY_VIEWS = Comparator.comparingLong(Ranked::views).reversed()
+            .thenComparingLong(Ranked::offreId);
+
+    private final OffreViewCountRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final OffreService offreService;
+    private final int topK;
+    private final int retentionDays;
+
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    // Guarded by this: flushed views of the last 7 days, the topK highest and the day they were built on
+    private Map<Long, Long> weekly = new HashMap<>();
+    private final TreeSet<Ranked> top = new TreeSet<>(BY_VIEWS);
+    private final Map<Long, Ranked> ranked = new HashMap<>();
+    private LocalDate builtOn;
+
+    public OffreViewService(OffreViewCountRepository repository, JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager, OffreService offreService,
+                            @Value("${app.views.top-k:100}") int topK,
+                            @Value("${app.views.retention-days:90}") int retentionDays) {
+        this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.offreService = offreService;
+        this.topK = topK;
+        this.retentionDays = retentionDays;
+    }
+
+    public void recordView(Long offreId) {
+        pending.computeIfAbsent(offreId, id -> new LongAdder()).increment();
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    @Scheduled(fixedDelayString = "${app.views.flush-ms:5000}", initialDelayString = "${app.views.flush-ms:5000}")
+    public synchronized void flush() {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(builtOn)) {
+            rebuild(today);
+        }
+        Map<Long, Long> drained = new HashMap<>();
+        for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+            long views = entry.getValue().sumThenReset();
+            if (views > 0) {
+                drained.put(entry.getKey(), views);
+            } else {
+                // Not viewed for a whole interval. A view landing during the removal can be lost,
+                // an accepted cost for not locking the counters.
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> write(today, drained));
+        } catch (RuntimeException e) {
+            drained.forEach((id, views) -> pending.computeIfAbsent(id, k -> new LongAdder()).add(views));
+            logger.warn("Could not flush the views of {} offers, retrying: {}", drained.size(), e.getMessage());
+            return;
+        }
+        drained.forEach((id, views) -> rank(id, weekly.merge(id, views, Long::sum)));
+    }
+
+    private void write(LocalDate today, Map<Long, Long> drained) {
+        Date day = Date.valueOf(today);
+        List<Object[]> rows = new ArrayList<>();
+        drained.forEach((id, views) -> rows.add(new Object[]{views, id, day}));
+        int[] updated = jdbcTemplate.batchUpdate(INCREMENT, rows);
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                inserts.add(rows.get(i));
+            }
+        }
+        // A concurrent insert from another node fails the transaction, the counts are retried as updates
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, inserts);
+        }
+    }
+
+    // Reloads the weekly totals from the table and drops the rows past the retention
+    private void rebuild(LocalDate today) {
+        try {
+            jdbcTemplate.update(PRUNE, Date.valueOf(today.minusDays(retentionDays)));
+            Map<Long, Long> totals = new HashMap<>();
+            for (Object[] row : repository.sumSince(today.minusDays(WEEK_DAYS - 1))) {
+                totals.put((Long) row[0], ((Number) row[1]).longValue());
+            }
+            weekly = totals;
+            top.clear();
+            ranked.clear();
+            totals.forEach(this::rank);
+            builtOn = today;
+        } catch (RuntimeException e) {
+            logger.warn("Could not reload the weekly view counts: {}", e.getMessage());
+        }
+    }
+
+    // Counts only grow between rebuilds, so an offer outside the set enters it once it passes the last one
+    private void rank(long offreId, long views) {
+        Ranked previous = ranked.remove(offreId);
+        if (previous != null) {
+            top.remove(previous);
+        }
+        if (top.size() < topK || views > top.last().views()) {
+            Ranked entry = new Ranked(offreId, views);
+            top.add(entry);
+            ranked.put(offreId, entry);
+            if (top.size() > topK) {
+                ranked.remove(top.pollLast().offreId());
+            }
+        }
+    }
+
+    // Most viewed offers of the last 7 days, as of the last flush; deleted or archived ones are skipped
+    public List<OffreViewsDto> mostViewed(int limit) {
+        if (limit < 1 || limit > topK) {
+            throw new IllegalArgumentException("limit must be between 1 and " + topK);
+        }
+        List<Ranked> leaders = new ArrayList<>();
+        synchronized (this) {
+            for (Ranked entry : top) {
+                leaders.add(entry);
+            }
+        }
+        Map<Long, OffreDto> offres = offreService.findByIds(leaders.stream().map(Ranked::offreId).toList());
+        List<OffreViewsDto> result = new ArrayList<>();
+        for (Ranked entry : leaders) {
+            OffreDto offre = offres.get(entry.offreId());
+            if (offre != null) {
+                result.add(OffreViewsDto.builder().views(entry.views()).offre(offre).build());
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,311 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.dto.UploadSessionDto;
+import com.immobilier.app.entity.UploadSession;
+import com.immobilier.app.repository.UploadSessionRepository;
+import com.immobilier.app.storage.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Resumable chunked uploads (tus-style): create a session, append chunks at the current offset, then
+// finalize. Each chunk is streamed from the request straight to the storage backend, written next to
+// its final location, so memory stays bounded and the bytes are written once. A chunk either lands
+// whole or leaves the offset unchanged, so a client that lost a response asks for the offset and
+// resumes from there. The SHA-256 is computed as the chunks go through, on the node that took them;
+// when a session moves between nodes the file is read back once to hash it.
+//
+// busy only serializes the requests of one upload on this node, and each of them re-reads the session
+// once it holds the lock. Two nodes can still write the same chunk at the same time; the conditional
+// advance() lets only one of them move the offset, and the other is told to resume from it.
+@Service
+public class ResumableUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(ResumableUploadService.class);
+    // Enough for every signature checked below
+    private static final int SIGNATURE_BYTES = 12;
+    private static final Map<String, byte[][]> SIGNATURES = Map.of(
+            "image/jpeg", new byte[][]{{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}},
+            "image/png", new byte[][]{{(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A}},
+            "image/gif", new byte[][]{{'G', 'I', 'F', '8', '7', 'a'}, {'G', 'I', 'F', '8', '9', 'a'}},
+            // RIFF, the size, then WEBP
+            "image/webp", new byte[][]{{'R', 'I', 'F', 'F'}});
+
+    private final UploadSessionRepository repository;
+    private final StorageBackend storage;
+    private final FileStorageService fileStorageService;
+    private final UploadManifestService uploadManifest;
+    private final long maxSize;
+    private final long maxChunkSize;
+    private final long expiryHours;
+
+    // Session ids with a request in progress on this node
+    private final Set<String> busy = ConcurrentHashMap.newKeySet();
+    // Hash of the chunks taken by this node, by session id
+    private final Map<String, Hashing> hashes = new ConcurrentHashMap<>();
+
+    private record Hashing(long offset, MessageDigest digest) {
+    }
+
+    public ResumableUploadService(UploadSessionRepository repository, StorageBackend storage,
+                                  FileStorageService fileStorageService, UploadManifestService uploadManifest,
+                                  @Value("${app.uploads.max-size-mb:200}") long maxSizeMb,
+                                  @Value("${app.uploads.max-chunk-mb:16}") long maxChunkMb,
+                                  @Value("${app.uploads.expiry-hours:24}") long expiryHours) {
+        this.repository = repository;
+        this.storage = storage;
+        this.fileStorageService = fileStorageService;
+        this.uploadManifest = uploadManifest;
+        this.maxSize = maxSizeMb * 1024 * 1024;
+        this.maxChunkSize = maxChunkMb * 1024 * 1024;
+        this.expiryHours = expiryHours;
+    }
+
+    public UploadSessionDto create(long length, String filename, String contentType) throws IOException {
+        if (length <= 0 || length > maxSize) {
+            throw new IllegalArgumentException("Upload length must be between 1 and " + maxSize + " bytes");
+        }
+        if (contentType == null || !SIGNATURES.containsKey(contentType)) {
+            throw new IllegalArgumentException("Only " + String.join(", ", SIGNATURES.keySet()) + " images are allowed");
+        }
+        String key = fileStorageService.newKey(filename);
+        LocalDateTime now = LocalDateTime.now();
+        UploadSession session = UploadSession.builder()
+                .id(UUID.randomUUID().toString())
+                .objectKey(key)
+                .contentType(contentType)
+                .uploadLength(length)
+                .uploadOffset(0)
+                .chunkCount(0)
+                .storageHandle(storage.startChunked(key, contentType))
+                .createdAt(now)
+                .expiresAt(now.plusHours(expiryHours))
+                .build();
+        return toDto(repository.save(session));
+    }
+
+    public Optional<UploadSessionDto> find(String id) {
+        return session(id).map(this::toDto);
+    }
+
+    // Stores the chunk starting at offset; size is the request's Content-Length
+    public Optional<UploadSessionDto> append(String id, long offset, long size, InputStream content)
+            throws IOException {
+        if (session(id).isEmpty()) {
+            return Optional.empty();
+        }
+        lock(id);
+        try {
+            // Read under the lock: a row read before it may predate the chunk that just finished
+            Optional<UploadSession> found = session(id);
+            if (found.isEmpty()) {
+                return Optional.empty();
+            }
+            UploadSession session = found.get();
+            if (session.isComplete()) {
+                throw new IllegalStateException("Upload is already finalized");
+            }
+            if (offset != session.getUploadOffset()) {
+                throw new IllegalStateException("Upload offset is " + session.getUploadOffset());
+            }
+            long end = offset + size;
+            if (size <= 0 || size > maxChunkSize) {
+                throw new IllegalArgumentException("Chunk size must be between 1 and " + maxChunkSize + " bytes");
+            }
+            if (end > session.getUploadLength()) {
+                throw new IllegalArgumentException("Chunk ends past the upload length");
+            }
+            if (end < session.getUploadLength() && size < storage.minChunkSize()) {
+                throw new IllegalArgumentException("Chunks before the last one need at least "
+                        + storage.minChunkSize() + " bytes");
+            }
+            InputStream in = content;
+            if (offset == 0) {
+                in = new BufferedInputStream(content, SIGNATURE_BYTES);
+                checkSignature(in, session.getContentType());
+            }
+            // A copy, so that a failed chunk leaves the hash where it was
+            MessageDigest digest = digestAt(id, offset);
+            if (digest != null) {
+                in = new DigestInputStream(in, digest);
+            }
+            storage.writeChunk(session.getObjectKey(), session.getStorageHandle(), session.getChunkCount(),
+                    offset, in, size);
+            if (repository.advance(id, offset, end) == 0) {
+                throw new IllegalStateException("Upload was changed by another request");
+            }
+            if (digest != null) {
+                hashes.put(id, new Hashing(end, digest));
+            }
+            session.setUploadOffset(end);
+            session.setChunkCount(session.getChunkCount() + 1);
+            return Optional.of(toDto(session));
+        } finally {
+            busy.remove(id);
+        }
+    }
+
+    // Makes the uploaded file available once every chunk is stored; repeating it is harmless
+    public Optional<UploadSessionDto> finalizeUpload(String id) throws IOException {
+        Optional<UploadSession> found = session(id);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        if (found.get().isComplete()) {
+            return Optional.of(toDto(found.get()));
+        }
+        lock(id);
+        try {
+            found = session(id);
+            if (found.isEmpty()) {
+                return Optional.empty();
+            }
+            UploadSession session = found.get();
+            if (session.isComplete()) {
+                return Optional.of(toDto(session));
+            }
+            if (session.getUploadOffset() != session.getUploadLength()) {
+                throw new IllegalStateException("Upload offset is " + session.getUploadOffset() + " of "
+                        + session.getUploadLength());
+            }
+            String key = session.getObjectKey();
+            storage.completeChunked(key, session.getStorageHandle());
+            Hashing hashing = hashes.get(id);
+            String sha256 = hashing != null && hashing.offset() == session.getUploadLength()
+                    ? HexFormat.of().formatHex(hashing.digest().digest())
+                    : fileStorageService.sha256(key);
+            LocalDateTime now = LocalDateTime.now();
+            String url = fileStorageService.urlOf(key);
+            if (!uploadManifest.contains(url)) {
+                uploadManifest.add(url, session.getUploadLength(), sha256, now);
+            }
+            repository.markCompleted(id, sha256, now);
+            hashes.remove(id);
+            session.setSha256(sha256);
+            session.setCompletedAt(now);
+            return Optional.of(toDto(session));
+        } finally {
+            busy.remove(id);
+        }
+    }
+
+    // Drops an upload; the file of a finalized one stays
+    public boolean abort(String id) throws IOException {
+        Optional<UploadSession> found = repository.findById(id);
+        if (found.isEmpty()) {
+            return false;
+        }
+        lock(id);
+        try {
+            discard(found.get());
+            return true;
+        } finally {
+            busy.remove(id);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.uploads.cleanup-interval-ms:600000}",
+            initialDelayString = "${app.uploads.cleanup-interval-ms:600000}")
+    public void expire() {
+        List<UploadSession> expired;
+        do {
+            expired = repository.findByExpiresAtBeforeOrderByExpiresAt(LocalDateTime.now(), PageRequest.of(0, 100));
+            for (UploadSession session : expired) {
+                if (!busy.add(session.getId())) {
+                    continue;
+                }
+                try {
+                    discard(session);
+                } catch (IOException e) {
+                    logger.warn("Could not abort expired upload {}: {}", session.getId(), e.getMessage());
+                    return;
+                } finally {
+                    busy.remove(session.getId());
+                }
+            }
+        } while (expired.size() == 100);
+    }
+
+    private void discard(UploadSession session) throws IOException {
+        if (!session.isComplete()) {
+            storage.abortChunked(session.getObjectKey(), session.getStorageHandle());
+        }
+        repository.deleteById(session.getId());
+        hashes.remove(session.getId());
+    }
+
+    private Optional<UploadSession> session(String id) {
+        return repository.findById(id).filter(session -> session.getExpiresAt().isAfter(LocalDateTime.now()));
+    }
+
+    // Concurrent requests on one upload would write the same chunk; the second one is turned away
+    private void lock(String id) {
+        if (!busy.add(id)) {
+            throw new IllegalStateException("Upload is being written by another request");
+        }
+    }
+
+    // Null when this node did not see the chunks before offset
+    private MessageDigest digestAt(String id, long offset) {
+        if (offset == 0) {
+            return FileStorageService.sha256();
+        }
+        Hashing hashing = hashes.get(id);
+        if (hashing == null || hashing.offset() != offset) {
+            hashes.remove(id);
+            return null;
+        }
+        try {
+            return (MessageDigest) hashing.digest().clone();
+        } catch (CloneNotSupportedException e) {
+            return null;
+        }
+    }
+
+    // The first bytes must match the declared type
+    private static void checkSignature(InputStream in, String contentType) throws IOException {
+        in.mark(SIGNATURE_BYTES);
+        byte[] head = in.readNBytes(SIGNATURE_BYTES);
+        in.reset();
+        boolean matches = false;
+        for (byte[] signature : SIGNATURES.get(contentType)) {
+            matches |= head.length >= signature.length
+                    && Arrays.equals(head, 0, signature.length, signature, 0, signature.length);
+        }
+        if (matches && contentType.equals("image/webp")) {
+            matches = head.length >= 12 && Arrays.equals(head, 8, 12, new byte[]{'W', 'E', 'B', 'P'}, 0, 4);
+        }
+        if (!matches) {
+            throw new IllegalArgumentException("File content does not match " + contentType);
+        }
+    }
+
+    private UploadSessionDto toDto(UploadSession session) {
+        return UploadSessionDto.builder()
+                .id(session.getId())
+                .offset(session.getUploadOffset())
+                .length(session.getUploadLength())
+                .complete(session.isComplete())
+                .imageUrl(session.isComplete() ? fileStorageService.urlOf(session.getObjectKey()) : null)
+                .sha256(session.getSha256())
+                .expiresAt(session.getExpiresAt())
+                .build();
+    }
+}
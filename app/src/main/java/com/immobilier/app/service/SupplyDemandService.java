@@ -0,0 +1,273 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.dto.SupplyDemandCellDto;
+import com.immobilier.app.entity.Demande;
+import com.immobilier.app.entity.Demande.TypeDemande;
+import com.immobilier.app.entity.Offre;
+import com.immobilier.app.entity.Offre.StatutOffre;
+import com.immobilier.app.entity.OffreReadModel;
+import com.immobilier.app.entity.SearchText;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Supply/demand matrix: DISPONIBLE offers against demandes per (ville, quartier, typeBien, budget band),
+// the band following OffreReadModel.PRIX_BANDS. Counters are moved after every offer and demande write
+// commits; each offer and demande is remembered with the cell it counts in, so an update only needs
+// its new values. A periodic reconciliation recounts from the tables and replaces the matrix, logging
+// any drift. Writes committed while it scans are replayed on the new matrix; they are idempotent.
+@Service
+@RequiredArgsConstructor
+public class SupplyDemandService {
+    private static final Logger logger = LoggerFactory.getLogger(SupplyDemandService.class);
+    private static final String SELECT_OFFRES = "SELECT offre_id, ville_norm, quartier_norm, type_bien, prix_propose, " +
+            "statut_offre FROM offre_read_model";
+    private static final String SELECT_DEMANDES = "SELECT id, ville_norm, quartier_norm, type_bien, prix_souhaite, " +
+            "type_demande FROM demandes";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LocalisationService localisationService;
+
+    // Guarded by this
+    private Matrix matrix = new Matrix();
+    private List<Consumer<Matrix>> replay;
+    private long version;
+    private boolean reconciled;
+    private volatile Snapshot snapshot = new Snapshot(-1, List.of());
+
+    // Location fields are "" when unknown, prixBand is "" for a demande without budget
+    private record Cell(String ville, String quartier, String typeBien, String prixBand) {
+        static Cell of(String villeNorm, String quartierNorm, Enum<?> typeBien, Double prix) {
+            return new Cell(Objects.toString(villeNorm, ""), Objects.toString(quartierNorm, ""),
+                    typeBien != null ? typeBien.name() : "", Objects.toString(OffreReadModel.prixBand(prix), ""));
+        }
+    }
+
+    private record Supply(Cell cell, boolean disponible) {
+    }
+
+    private record Demand(Cell cell, TypeDemande typeDemande) {
+    }
+
+    private record Snapshot(long version, List<SupplyDemandCellDto> cells) {
+    }
+
+    // Cells matching the optional filters, largest unmet demand first
+    public List<SupplyDemandCellDto> matrix(String ville, String quartier, String typeBien) {
+        String villeNorm = SearchText.normalize(ville);
+        String quartierNorm = SearchText.normalize(quartier);
+        List<SupplyDemandCellDto> result = new ArrayList<>();
+        for (SupplyDemandCellDto cell : snapshot().cells) {
+            if ((villeNorm == null || villeNorm.equals(SearchText.normalize(cell.getVille())))
+                    && (quartierNorm == null || quartierNorm.equals(SearchText.normalize(cell.getQuartier())))
+                    && (typeBien == null || typeBien.equals(cell.getTypeBien()))) {
+                result.add(cell);
+            }
+        }
+        return result;
+    }
+
+    // Changes on every write, for ETags
+    public synchronized long version() {
+        return version;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        synchronized (this) {
+            if (current.version == version) {
+                return current;
+            }
+            List<SupplyDemandCellDto> cells = new ArrayList<>();
+            matrix.counts.forEach((cell, c) -> {
+                if (c[0] + c[1] + c[2] > 0) {
+                    cells.add(SupplyDemandCellDto.builder()
+                            .ville(cell.ville.isEmpty() ? null : localisationService.villeLabel(cell.ville))
+                            .quartier(cell.quartier.isEmpty() ? null : localisationService.quartierLabel(cell.quartier))
+                            .typeBien(cell.typeBien.isEmpty() ? null : cell.typeBien)
+                            .prixBand(cell.prixBand.isEmpty() ? null : cell.prixBand)
+                            .offresDisponibles(c[0])
+                            .demandes(c[1] + c[2])
+                            .demandesAchat(c[1])
+                            .demandesLocation(c[2])
+                            .gap(c[1] + c[2] - c[0])
+                            .build());
+                }
+            });
+            cells.sort(Comparator.comparingLong(SupplyDemandCellDto::getGap).reversed());
+            snapshot = new Snapshot(version, List.copyOf(cells));
+            return snapshot;
+        }
+    }
+
+    public void upsertOffre(OffreReadModel row) {
+        Supply supply = new Supply(Cell.of(row.getVilleNorm(), row.getQuartierNorm(), row.getTypeBien(),
+                row.getPrixPropose()), row.getStatutOffre() == StatutOffre.DISPONIBLE);
+        Long id = row.getId();
+        afterCommit(m -> m.putOffre(id, supply));
+    }
+
+    public void updateOffreStatus(Collection<Long> offreIds, StatutOffre statut) {
+        List<Long> ids = List.copyOf(offreIds);
+        afterCommit(m -> {
+            for (Long id : ids) {
+                Supply current = m.offres.get(id);
+                if (current != null) {
+                    m.putOffre(id, new Supply(current.cell, statut == StatutOffre.DISPONIBLE));
+                }
+            }
+        });
+    }
+
+    public void removeOffres(Collection<Long> offreIds) {
+        List<Long> ids = List.copyOf(offreIds);
+        afterCommit(m -> ids.forEach(m::removeOffre));
+    }
+
+    // After the demande was flushed, so that its normalized location is set
+    public void upsertDemande(Demande demande) {
+        Demand demand = new Demand(Cell.of(demande.getVilleNorm(), demande.getQuartierNorm(), demande.getTypeBien(),
+                demande.getPrixSouhaite()), demande.getTypeDemande());
+        Long id = demande.getId();
+        afterCommit(m -> m.putDemande(id, demand));
+    }
+
+    public void removeDemande(Long id) {
+        afterCommit(m -> m.removeDemande(id));
+    }
+
+    private void afterCommit(Consumer<Matrix> change) {
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                change.accept(matrix);
+                if (replay != null) {
+                    replay.add(change);
+                }
+                version++;
+            }
+        });
+    }
+
+    // Recounts from the tables without blocking writers, then swaps the result in
+    @Scheduled(fixedDelayString = "${app.supply-demand.reconcile-ms:600000}",
+            initialDelayString = "${app.supply-demand.reconcile-ms:600000}")
+    public void reconcile() {
+        long started = System.currentTimeMillis();
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        Matrix counted = new Matrix();
+        try {
+            jdbcTemplate.query(SELECT_OFFRES, rs -> {
+                counted.putOffre(rs.getLong(1), new Supply(Cell.of(rs.getString(2), rs.getString(3),
+                        enumValue(Offre.TypeBien.class, rs.getString(4)),
+                        rs.getObject(5, Double.class)), StatutOffre.DISPONIBLE.name().equals(rs.getString(6))));
+            });
+            jdbcTemplate.query(SELECT_DEMANDES, rs -> {
+                counted.putDemande(rs.getLong(1), new Demand(Cell.of(rs.getString(2), rs.getString(3),
+                        enumValue(Demande.TypeBien.class, rs.getString(4)), rs.getObject(5, Double.class)),
+                        enumValue(TypeDemande.class, rs.getString(6))));
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                replay = null;
+            }
+            throw e;
+        }
+        int drifted;
+        synchronized (this) {
+            replay.forEach(change -> change.accept(counted));
+            replay = null;
+            // The first count replaces the empty startup matrix, nothing has drifted yet
+            drifted = reconciled ? counted.drift(matrix) : 0;
+            matrix = counted;
+            reconciled = true;
+            version++;
+        }
+        if (drifted > 0) {
+            logger.warn("Supply/demand matrix reconciled: {} cells had drifted", drifted);
+        }
+        logger.debug("Supply/demand matrix recounted: {} offers, {} demandes in {} ms", counted.offres.size(),
+                counted.demandes.size(), System.currentTimeMillis() - started);
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String name) {
+        return name != null ? Enum.valueOf(type, name) : null;
+    }
+
+    // Per cell: [DISPONIBLE offers, ACHAT demandes, LOCATION demandes]
+    private static final class Matrix {
+        private final Map<Long, Supply> offres = new HashMap<>();
+        private final Map<Long, Demand> demandes = new HashMap<>();
+        private final Map<Cell, long[]> counts = new HashMap<>();
+
+        void putOffre(long id, Supply supply) {
+            removeOffre(id);
+            offres.put(id, supply);
+            if (supply.disponible) {
+                add(supply.cell, 0, 1);
+            }
+        }
+
+        void removeOffre(long id) {
+            Supply previous = offres.remove(id);
+            if (previous != null && previous.disponible) {
+                add(previous.cell, 0, -1);
+            }
+        }
+
+        void putDemande(long id, Demand demand) {
+            removeDemande(id);
+            demandes.put(id, demand);
+            add(demand.cell, slot(demand.typeDemande), 1);
+        }
+
+        void removeDemande(long id) {
+            Demand previous = demandes.remove(id);
+            if (previous != null) {
+                add(previous.cell, slot(previous.typeDemande), -1);
+            }
+        }
+
+        private static int slot(TypeDemande typeDemande) {
+            return typeDemande == TypeDemande.LOCATION ? 2 : 1;
+        }
+
+        private void add(Cell cell, int slot, long delta) {
+            long[] c = counts.computeIfAbsent(cell, k -> new long[3]);
+            c[slot] += delta;
+            if (c[0] == 0 && c[1] == 0 && c[2] == 0) {
+                counts.remove(cell);
+            }
+        }
+
+        // Number of cells whose counts differ from the other matrix
+        int drift(Matrix other) {
+            Set<Cell> cells = new HashSet<>(counts.keySet());
+            cells.addAll(other.counts.keySet());
+            int drifted = 0;
+            for (Cell cell : cells) {
+                long[] mine = counts.getOrDefault(cell, new long[3]);
+                long[] theirs = other.counts.getOrDefault(cell, new long[3]);
+                if (mine[0] != theirs[0] || mine[1] != theirs[1] || mine[2] != theirs[2]) {
+                    drifted++;
+                }
+            }
+            return drifted;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.dto.UploadCollectorReportDto;
+import com.immobilier.app.storage.StorageBackend;
+import com.immobilier.app.storage.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Incremental garbage collector for uploads. Each run walks one yyyy/MM directory of the storage
+// backend, resuming after the one walked last, and checks its files against offre_photos and
+// offre_photos_archive in batches. Files no offer uses and older than the grace period (an upload
+// waiting for its offer to be saved) are deleted; files missing from the manifest are added to it and
+// manifest rows whose file is gone are dropped. The pause between batches keeps the disk and database
+// load low.
+@Service
+public class UploadCollector {
+    private static final Logger logger = LoggerFactory.getLogger(UploadCollector.class);
+    private static final String REFERENCED = "SELECT photo_url, MIN(offre_id) FROM offre_photos " +
+            "WHERE photo_url IN (%1$s) GROUP BY photo_url UNION ALL SELECT photo_url, MIN(offre_id) " +
+            "FROM offre_photos_archive WHERE photo_url IN (%1$s) GROUP BY photo_url";
+
+    private final StorageBackend storage;
+    private final FileStorageService fileStorageService;
+    private final UploadManifestService uploadManifest;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration grace;
+    private final int batchSize;
+    private final long pauseMs;
+
+    // Guarded by this
+    private String lastDirectory = "";
+    private long scannedFiles;
+    private long reclaimedFiles;
+    private long reclaimedBytes;
+    private LocalDateTime lastRunAt;
+
+    public UploadCollector(StorageBackend storage, FileStorageService fileStorageService,
+                           UploadManifestService uploadManifest, JdbcTemplate jdbcTemplate,
+                           @Value("${app.upload-gc.grace-hours:24}") long graceHours,
+                           @Value("${app.upload-gc.batch-size:200}") int batchSize,
+                           @Value("${app.upload-gc.pause-ms:50}") long pauseMs) {
+        this.storage = storage;
+        this.fileStorageService = fileStorageService;
+        this.uploadManifest = uploadManifest;
+        this.jdbcTemplate = jdbcTemplate;
+        this.grace = Duration.ofHours(graceHours);
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+    }
+
+    public synchronized UploadCollectorReportDto report() {
+        return UploadCollectorReportDto.builder()
+                .manifestFiles(uploadManifest.fileCount())
+                .manifestBytes(uploadManifest.totalBytes())
+                .lastDirectory(lastDirectory.isEmpty() ? null : lastDirectory)
+                .scannedFiles(scannedFiles)
+                .reclaimedFiles(reclaimedFiles)
+                .reclaimedBytes(reclaimedBytes)
+                .lastRunAt(lastRunAt)
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${app.upload-gc.interval-ms:60000}",
+            initialDelayString = "${app.upload-gc.interval-ms:60000}")
+    public void collect() {
+        List<String> directories = monthDirectories();
+        if (directories.isEmpty()) {
+            return;
+        }
+        String previous;
+        synchronized (this) {
+            previous = lastDirectory;
+        }
+        String directory = directories.stream()
+                .filter(name -> name.compareTo(previous) > 0)
+                .findFirst()
+                .orElse(directories.get(0));
+        try {
+            collect(directory);
+        } catch (IOException e) {
+            logger.warn("Could not walk upload directory {}: {}", directory, e.getMessage());
+        }
+        synchronized (this) {
+            lastDirectory = directory;
+            lastRunAt = LocalDateTime.now();
+        }
+    }
+
+    // "yyyy/MM" names of the month directories, in order
+    private List<String> monthDirectories() {
+        List<String> directories = new ArrayList<>();
+        try {
+            for (String year : storage.directories("")) {
+                if (year.matches("\\d{4}")) {
+                    for (String month : storage.directories(year + "/")) {
+                        if (month.matches("\\d{2}")) {
+                            directories.add(year + "/" + month);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not list the upload directories: {}", e.getMessage());
+            return List.of();
+        }
+        Collections.sort(directories);
+        return directories;
+    }
+
+    private void collect(String directory) throws IOException {
+        long started = System.currentTimeMillis();
+        List<StoredObject> files = new ArrayList<>(storage.list(directory + "/"));
+        files.sort(Comparator.comparing(StoredObject::key));
+        Instant cutoff = Instant.now().minus(grace);
+        Set<String> seen = new HashSet<>();
+        long reclaimed = 0;
+        int deleted = 0;
+        for (int from = 0; from < files.size(); from += batchSize) {
+            if (from > 0 && !pause()) {
+                return;
+            }
+            Map<String, StoredObject> batch = new HashMap<>();
+            for (StoredObject file : files.subList(from, Math.min(from + batchSize, files.size()))) {
+                batch.put(fileStorageService.urlOf(file.key()), file);
+            }
+            seen.addAll(batch.keySet());
+            Map<String, Long> references = references(batch.keySet());
+            for (Map.Entry<String, StoredObject> entry : batch.entrySet()) {
+                String url = entry.getKey();
+                StoredObject file = entry.getValue();
+                if (!references.containsKey(url) && file.lastModified().isBefore(cutoff)) {
+                    if (fileStorageService.deleteFile(url)) {
+                        reclaimed += file.size();
+                        deleted++;
+                    }
+                    continue;
+                }
+                if (!uploadManifest.contains(url)) {
+                    try {
+                        uploadManifest.add(url, file.size(), fileStorageService.sha256(file.key()),
+                                LocalDateTime.ofInstant(file.lastModified(), ZoneId.systemDefault()));
+                    } catch (IOException e) {
+                        // Deleted meanwhile
+                        continue;
+                    }
+                }
+                references.putIfAbsent(url, null);
+            }
+            uploadManifest.reference(references);
+        }
+        // Manifest rows of files removed behind the application's back
+        String prefix = fileStorageService.urlOf(directory + "/");
+        for (String url : uploadManifest.urlsUnder(prefix)) {
+            // Checked again, the file may have been uploaded after the listing
+            if (!seen.contains(url) && !storage.exists(fileStorageService.keyOf(url))) {
+                uploadManifest.remove(url);
+            }
+        }
+        synchronized (this) {
+            scannedFiles += files.size();
+            reclaimedFiles += deleted;
+            reclaimedBytes += reclaimed;
+        }
+        if (deleted > 0) {
+            logger.info("Reclaimed {} orphan uploads ({} bytes) in {} in {} ms", deleted, reclaimed, directory,
+                    System.currentTimeMillis() - started);
+        }
+    }
+
+    public boolean isReferenced(String url) {
+        return !references(Set.of(url)).isEmpty();
+    }
+
+    // URL -> an offer using it, for the URLs used by a live or archived offer
+    private Map<String, Long> references(Set<String> urls) {
+        Map<String, Long> references = new HashMap<>();
+        if (urls.isEmpty()) {
+            return references;
+        }
+        List<Object> args = new ArrayList<>(urls);
+        args.addAll(urls);
+        jdbcTemplate.query(String.format(REFERENCED, String.join(", ", Collections.nCopies(urls.size(), "?"))),
+                rs -> {
+                    references.putIfAbsent(rs.getString(1), rs.getLong(2));
+                }, args.toArray());
+        return references;
+    }
+
+    // False when interrupted, e.g. on shutdown
+    private boolean pause() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.entity.UploadManifestEntry;
+import com.immobilier.app.repository.UploadManifestRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Manifest of the files stored under the upload directory (upload_manifest): URL, size, SHA-256,
+// creation time and an offer using it. The URL -> size map is kept in memory, so existence checks
+// never stat the disk; it is loaded on first use and changed once each write of this node commits.
+// Files stored through another node are not in it yet: a miss is looked up in upload_manifest and
+// cached when found. A file deleted through another node can still be a hit here, its URL then
+// answers 404 from the store itself.
+@Service
+@RequiredArgsConstructor
+public class UploadManifestService {
+    private static final Logger logger = LoggerFactory.getLogger(UploadManifestService.class);
+    private static final String SET_REFERENCE = "UPDATE upload_manifest SET referenced_by = ? WHERE path = ?";
+
+    private final UploadManifestRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Map<String, Long> sizes;
+
+    public boolean contains(String url) {
+        if (url == null) {
+            return false;
+        }
+        Map<String, Long> current = sizes();
+        if (current.containsKey(url)) {
+            return true;
+        }
+        Optional<UploadManifestEntry> entry = repository.findById(url);
+        entry.ifPresent(found -> current.put(url, found.getSizeBytes()));
+        return entry.isPresent();
+    }
+
+    public int fileCount() {
+        return sizes().size();
+    }
+
+    public long totalBytes() {
+        return sizes().values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    // URLs of the manifest that start with the given prefix, e.g. the files of one month directory
+    public List<String> urlsUnder(String prefix) {
+        List<String> urls = new ArrayList<>();
+        for (String url : sizes().keySet()) {
+            if (url.startsWith(prefix)) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
+    public void add(String url, long size, String sha256, LocalDateTime createdAt) {
+        repository.save(UploadManifestEntry.builder()
+                .path(url)
+                .sizeBytes(size)
+                .sha256(sha256)
+                .createdAt(createdAt)
+                .build());
+        AfterCommit.run(() -> sizes().put(url, size));
+    }
+
+    public void remove(String url) {
+        repository.deleteById(url);
+        AfterCommit.run(() -> sizes().remove(url));
+    }
+
+    // Records which offer uses each URL (null for none); URLs missing from the manifest are ignored
+    public void reference(Map<String, Long> offreIdsByUrl) {
+        List<Object[]> rows = new ArrayList<>();
+        offreIdsByUrl.forEach((url, offreId) -> rows.add(new Object[]{offreId, url}));
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(SET_REFERENCE, rows);
+        }
+    }
+
+    public void reference(Collection<String> urls, Long offreId) {
+        Map<String, Long> offreIdsByUrl = new HashMap<>();
+        urls.forEach(url -> offreIdsByUrl.put(url, offreId));
+        reference(offreIdsByUrl);
+    }
+
+    private Map<String, Long> sizes() {
+        Map<String, Long> current = sizes;
+        return current != null ? current : load();
+    }
+
+    private synchronized Map<String, Long> load() {
+        if (sizes != null) {
+            return sizes;
+        }
+        Map<String, Long> loaded = new ConcurrentHashMap<>();
+        jdbcTemplate.query("SELECT path, size_bytes FROM upload_manifest",
+                rs -> {
+                    loaded.put(rs.getString(1), rs.getLong(2));
+                });
+        sizes = loaded;
+        logger.info("Loaded the upload manifest: {} files", loaded.size());
+        return loaded;
+    }
+
+}
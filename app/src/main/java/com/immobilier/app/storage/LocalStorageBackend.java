@@ -0,0 +1,152 @@
+package com.immobilier.app.storage;
+
+import com.immobilier.app.config.FileStorageConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Files under app.file.upload-dir, served by FileStorageConfig as static resources. Only usable with a
+// single application node, or with the directory on a shared volume.
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "local", matchIfMissing = true)
+public class LocalStorageBackend implements StorageBackend {
+    // Chunked uploads are written next to their final path and renamed once complete
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    private final FileStorageConfig fileStorageConfig;
+
+    public LocalStorageBackend(FileStorageConfig fileStorageConfig) {
+        this.fileStorageConfig = fileStorageConfig;
+    }
+
+    private Path resolve(String key) {
+        Path root = fileStorageConfig.getUploadPath().toAbsolutePath().normalize();
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Key outside the upload directory: " + key);
+        }
+        return path;
+    }
+
+    @Override
+    public long write(String key, InputStream content, long size, String contentType) throws IOException {
+        Path path = resolve(key);
+        Files.createDirectories(path.getParent());
+        return Files.copy(content, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public InputStream read(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public List<String> directories(String prefix) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (Stream<Path> children = Files.list(resolve(prefix))) {
+            children.filter(Files::isDirectory).forEach(child -> names.add(child.getFileName().toString()));
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+        return names;
+    }
+
+    @Override
+    public List<StoredObject> list(String prefix) throws IOException {
+        List<StoredObject> objects = new ArrayList<>();
+        List<Path> files;
+        try (Stream<Path> children = Files.list(resolve(prefix))) {
+            files = children
+                    .filter(Files::isRegularFile)
+                    .filter(child -> !child.getFileName().toString().endsWith(PARTIAL_SUFFIX))
+                    .toList();
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+        for (Path file : files) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                objects.add(new StoredObject(prefix + file.getFileName(), attributes.size(),
+                        attributes.lastModifiedTime().toInstant()));
+            } catch (NoSuchFileException e) {
+                // Deleted meanwhile
+            }
+        }
+        return objects;
+    }
+
+    @Override
+    public String startChunked(String key, String contentType) throws IOException {
+        Path partial = resolve(key + PARTIAL_SUFFIX);
+        Files.createDirectories(partial.getParent());
+        Files.newByteChannel(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING).close();
+        return "";
+    }
+
+    @Override
+    public void writeChunk(String key, String handle, int index, long offset, InputStream content, long size)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(key + PARTIAL_SUFFIX), StandardOpenOption.WRITE)) {
+            // Drops what a failed attempt at this chunk left behind
+            channel.truncate(offset);
+            long written = channel.transferFrom(Channels.newChannel(content), offset, size);
+            if (written != size) {
+                channel.truncate(offset);
+                throw new IOException("Chunk ended after " + written + " of " + size + " bytes");
+            }
+        } catch (NoSuchFileException e) {
+            throw new IOException("No chunked upload for " + key, e);
+        }
+    }
+
+    @Override
+    public void completeChunked(String key, String handle) throws IOException {
+        Path partial = resolve(key + PARTIAL_SUFFIX);
+        Path path = resolve(key);
+        if (!Files.exists(partial) && Files.exists(path)) {
+            return;
+        }
+        Files.move(partial, path, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void abortChunked(String key, String handle) throws IOException {
+        Files.deleteIfExists(resolve(key + PARTIAL_SUFFIX));
+    }
+
+    @Override
+    public long minChunkSize() {
+        return 1;
+    }
+
+    @Override
+    public Optional<URL> presignedReadUrl(String key) {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,308 @@
+package com.immobilier.app.storage;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.Part;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// S3-compatible object store (AWS S3, MinIO, ...), shared by every application node. Content is
+// streamed: a file smaller than one part is sent with a single PUT, a larger one as a multipart upload
+// whose parts are read one after the other and sent in parallel, with at most app.storage.s3.parallelism
+// parts in memory. Clients are redirected to presigned GET URLs, so the nodes never proxy image bytes.
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "s3")
+public class S3StorageBackend implements StorageBackend {
+    private static final Logger logger = LoggerFactory.getLogger(S3StorageBackend.class);
+    // S3 rejects parts below 5 MB, except the last one
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final S3Client s3;
+    private final S3Presigner presigner;
+    private final String bucket;
+    private final int partSize;
+    private final int parallelism;
+    private final Duration presignTtl;
+    private final ExecutorService partUploads;
+
+    public S3StorageBackend(@Value("${app.storage.s3.bucket}") String bucket,
+                            @Value("${app.storage.s3.region:us-east-1}") String region,
+                            @Value("${app.storage.s3.endpoint:}") String endpoint,
+                            @Value("${app.storage.s3.access-key:}") String accessKey,
+                            @Value("${app.storage.s3.secret-key:}") String secretKey,
+                            @Value("${app.storage.s3.path-style:false}") boolean pathStyle,
+                            @Value("${app.storage.s3.part-size-mb:8}") int partSizeMb,
+                            @Value("${app.storage.s3.parallelism:4}") int parallelism,
+                            @Value("${app.storage.s3.presign-ttl-minutes:15}") long presignTtlMinutes,
+                            @Value("${app.storage.s3.create-bucket:false}") boolean createBucket) {
+        AwsCredentialsProvider credentials = accessKey.isEmpty()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3Configuration configuration = S3Configuration.builder().pathStyleAccessEnabled(pathStyle).build();
+        var clientBuilder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(configuration);
+        var presignerBuilder = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(configuration);
+        if (!endpoint.isEmpty()) {
+            clientBuilder.endpointOverride(URI.create(endpoint));
+            presignerBuilder.endpointOverride(URI.create(endpoint));
+        }
+        this.s3 = clientBuilder.build();
+        this.presigner = presignerBuilder.build();
+        this.bucket = bucket;
+        this.partSize = Math.max(MIN_PART_SIZE, partSizeMb * 1024 * 1024);
+        this.parallelism = Math.max(1, parallelism);
+        this.presignTtl = Duration.ofMinutes(presignTtlMinutes);
+        AtomicInteger threads = new AtomicInteger();
+        this.partUploads = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "s3-part-upload-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (createBucket) {
+            createBucketIfMissing();
+        }
+    }
+
+    // For local stand-ins such as MinIO
+    private void createBucketIfMissing() {
+        try {
+            s3.headBucket(b -> b.bucket(bucket));
+        } catch (NoSuchBucketException e) {
+            s3.createBucket(b -> b.bucket(bucket));
+            logger.info("Created bucket {}", bucket);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        partUploads.shutdownNow();
+        presigner.close();
+        s3.close();
+    }
+
+    @Override
+    public long write(String key, InputStream content, long size, String contentType) throws IOException {
+        byte[] first = content.readNBytes(partSize);
+        if (first.length < partSize) {
+            try {
+                s3.putObject(b -> b.bucket(bucket).key(key).contentType(contentType), RequestBody.fromBytes(first));
+            } catch (SdkException e) {
+                throw new IOException("Could not store " + key, e);
+            }
+            return first.length;
+        }
+        return writeMultipart(key, first, content, contentType);
+    }
+
+    private long writeMultipart(String key, byte[] first, InputStream content, String contentType) throws IOException {
+        String uploadId;
+        try {
+            uploadId = s3.createMultipartUpload(b -> b.bucket(bucket).key(key).contentType(contentType)).uploadId();
+        } catch (SdkException e) {
+            throw new IOException("Could not store " + key, e);
+        }
+        Semaphore inFlight = new Semaphore(parallelism);
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        long total = 0;
+        try {
+            byte[] part = first;
+            for (int partNumber = 1; part.length > 0; partNumber++) {
+                inFlight.acquire();
+                byte[] body = part;
+                int number = partNumber;
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        String etag = s3.uploadPart(b -> b.bucket(bucket).key(key).uploadId(uploadId)
+                                .partNumber(number), RequestBody.fromBytes(body)).eTag();
+                        return CompletedPart.builder().partNumber(number).eTag(etag).build();
+                    } finally {
+                        inFlight.release();
+                    }
+                }, partUploads));
+                total += body.length;
+                part = content.readNBytes(partSize);
+            }
+            List<CompletedPart> completed = new ArrayList<>();
+            for (CompletableFuture<CompletedPart> future : parts) {
+                completed.add(future.join());
+            }
+            completed.sort(Comparator.comparing(CompletedPart::partNumber));
+            s3.completeMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(m -> m.parts(completed)));
+            return total;
+        } catch (IOException | SdkException | CompletionException | InterruptedException e) {
+            parts.forEach(future -> future.cancel(true));
+            try {
+                s3.abortMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(uploadId));
+            } catch (SdkException abortFailure) {
+                e.addSuppressed(abortFailure);
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw e instanceof IOException io ? io : new IOException("Could not store " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream read(String key) throws IOException {
+        try {
+            return s3.getObject(b -> b.bucket(bucket).key(key));
+        } catch (SdkException e) {
+            throw new IOException("Could not read " + key, e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3.deleteObject(b -> b.bucket(bucket).key(key));
+        } catch (SdkException e) {
+            throw new IOException("Could not delete " + key, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        try {
+            s3.headObject(b -> b.bucket(bucket).key(key));
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (SdkException e) {
+            throw new IOException("Could not check " + key, e);
+        }
+    }
+
+    @Override
+    public List<String> directories(String prefix) throws IOException {
+        List<String> names = new ArrayList<>();
+        try {
+            for (var page : s3.listObjectsV2Paginator(b -> b.bucket(bucket).prefix(prefix).delimiter("/"))) {
+                for (CommonPrefix common : page.commonPrefixes()) {
+                    String name = common.prefix().substring(prefix.length());
+                    names.add(name.endsWith("/") ? name.substring(0, name.length() - 1) : name);
+                }
+            }
+        } catch (SdkException e) {
+            throw new IOException("Could not list " + prefix, e);
+        }
+        return names;
+    }
+
+    @Override
+    public List<StoredObject> list(String prefix) throws IOException {
+        List<StoredObject> objects = new ArrayList<>();
+        try {
+            for (var page : s3.listObjectsV2Paginator(b -> b.bucket(bucket).prefix(prefix).delimiter("/"))) {
+                for (S3Object object : page.contents()) {
+                    objects.add(new StoredObject(object.key(), object.size(), object.lastModified()));
+                }
+            }
+        } catch (SdkException e) {
+            throw new IOException("Could not list " + prefix, e);
+        }
+        return objects;
+    }
+
+    @Override
+    public String startChunked(String key, String contentType) throws IOException {
+        try {
+            return s3.createMultipartUpload(b -> b.bucket(bucket).key(key).contentType(contentType)).uploadId();
+        } catch (SdkException e) {
+            throw new IOException("Could not start " + key, e);
+        }
+    }
+
+    // Each chunk is one part, streamed as it arrives
+    @Override
+    public void writeChunk(String key, String handle, int index, long offset, InputStream content, long size)
+            throws IOException {
+        try {
+            s3.uploadPart(b -> b.bucket(bucket).key(key).uploadId(handle).partNumber(index + 1),
+                    RequestBody.fromInputStream(content, size));
+        } catch (SdkException e) {
+            throw new IOException("Could not store chunk " + index + " of " + key, e);
+        }
+    }
+
+    @Override
+    public void completeChunked(String key, String handle) throws IOException {
+        try {
+            List<CompletedPart> completed = new ArrayList<>();
+            for (Part part : s3.listPartsPaginator(b -> b.bucket(bucket).key(key).uploadId(handle)).parts()) {
+                completed.add(CompletedPart.builder().partNumber(part.partNumber()).eTag(part.eTag()).build());
+            }
+            s3.completeMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(handle)
+                    .multipartUpload(m -> m.parts(completed)));
+        } catch (NoSuchUploadException e) {
+            // Completed by an earlier attempt
+            if (!exists(key)) {
+                throw new IOException("No chunked upload for " + key, e);
+            }
+        } catch (SdkException e) {
+            throw new IOException("Could not complete " + key, e);
+        }
+    }
+
+    @Override
+    public void abortChunked(String key, String handle) throws IOException {
+        try {
+            s3.abortMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(handle));
+        } catch (NoSuchUploadException e) {
+            // Already gone
+        } catch (SdkException e) {
+            throw new IOException("Could not abort " + key, e);
+        }
+    }
+
+    @Override
+    public long minChunkSize() {
+        return MIN_PART_SIZE;
+    }
+
+    @Override
+    public Optional<URL> presignedReadUrl(String key) {
+        return Optional.of(presigner.presignGetObject(p -> p.signatureDuration(presignTtl)
+                .getObjectRequest(g -> g.bucket(bucket).key(key))).url());
+    }
+}
@@ -0,0 +1,46 @@
+package com.immobilier.app.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.Optional;
+
+// Where uploaded files live. Keys are relative paths ("2024/05/name.jpg"); "/" separates the
+// directory levels that the upload collector walks. Selected with app.storage.backend.
+public interface StorageBackend {
+    // Streams the content under key and returns the number of bytes written; size is -1 when unknown
+    long write(String key, InputStream content, long size, String contentType) throws IOException;
+
+    InputStream read(String key) throws IOException;
+
+    // Deleting a missing key is not an error
+    void delete(String key) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    // Names of the directories directly under prefix ("" for the root, otherwise ending with "/")
+    List<String> directories(String prefix) throws IOException;
+
+    // Files directly under prefix
+    List<StoredObject> list(String prefix) throws IOException;
+
+    // Resumable writes, for chunked uploads. Chunks are written in order, each one all or nothing; writing
+    // chunk index again overwrites it, so a failed chunk can be retried. Until completeChunked the object
+    // is neither readable nor listed. startChunked returns the handle passed to the other calls.
+    String startChunked(String key, String contentType) throws IOException;
+
+    void writeChunk(String key, String handle, int index, long offset, InputStream content, long size)
+            throws IOException;
+
+    // Idempotent, so that a completion whose outcome was lost can be retried
+    void completeChunked(String key, String handle) throws IOException;
+
+    void abortChunked(String key, String handle) throws IOException;
+
+    // Smallest size of a chunk other than the last one
+    long minChunkSize();
+
+    // Time-limited URL that clients read the file from directly, empty when the application serves it
+    Optional<URL> presignedReadUrl(String key);
+}
@@ -0,0 +1,4 @@
+-- Migration to add optimistic locking versions to offres and demandes
+-- Existing rows start at version 0
+ALTER TABLE offres ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE demandes ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,29 @@
+-- Read side of offers: one row per offer, no joins needed to serve it
+-- Filled on the next application start (OffreReadModelService.rebuildIfStale), then kept up to date on every write
+CREATE TABLE IF NOT EXISTS offre_read_model (
+    offre_id BIGINT PRIMARY KEY,
+    nom_proprietaire VARCHAR(255),
+    prenom_proprietaire VARCHAR(255),
+    telephone_proprietaire VARCHAR(20),
+    adresse_bien VARCHAR(500),
+    surface DOUBLE,
+    etage INT,
+    type_bien VARCHAR(20),
+    prix_propose DOUBLE,
+    localisation_ville VARCHAR(255),
+    localisation_quartier VARCHAR(255),
+    description_bien TEXT,
+    nb_chambres_offre INT,
+    statut_offre VARCHAR(20),
+    photos_json TEXT,
+    first_photo_url VARCHAR(500),
+    photo_count INT,
+    ville_norm VARCHAR(255),
+    quartier_norm VARCHAR(255),
+    search_text TEXT,
+    prix_band VARCHAR(20),
+    surface_band VARCHAR(20),
+    version BIGINT,
+    created_at TIMESTAMP NULL,
+    updated_at TIMESTAMP NULL
+);
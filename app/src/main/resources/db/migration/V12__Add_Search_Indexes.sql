@@ -0,0 +1,20 @@
+-- Indexes for the list filters and sorts (GET /offres, /offres/paginated, /demandes).
+-- Offers are read from offre_read_model since V11, so that is the table indexed here.
+-- Keep in sync with the @Table(indexes = ...) of OffreReadModel and Demande.
+CREATE INDEX idx_orm_created_at ON offre_read_model (created_at);
+CREATE INDEX idx_orm_ville_quartier_created ON offre_read_model (ville_norm, quartier_norm, created_at);
+CREATE INDEX idx_orm_ville_type_prix ON offre_read_model (ville_norm, type_bien, prix_propose);
+CREATE INDEX idx_orm_type_prix ON offre_read_model (type_bien, prix_propose);
+CREATE INDEX idx_orm_prix ON offre_read_model (prix_propose);
+CREATE INDEX idx_orm_surface ON offre_read_model (surface);
+CREATE INDEX idx_orm_statut_created ON offre_read_model (statut_offre, created_at);
+
+-- Lowercase, accent-free copy of the searchable demande columns, kept up to date by the
+-- Demande entity; existing rows are filled on the next start (DemandeService.backfillSearchText)
+ALTER TABLE demandes ADD COLUMN search_text TEXT;
+
+CREATE INDEX idx_demandes_type_created ON demandes (type_demande, type_bien, created_at);
+CREATE INDEX idx_demandes_type_bien_prix ON demandes (type_bien, prix_souhaite);
+CREATE INDEX idx_demandes_prix ON demandes (prix_souhaite);
+CREATE INDEX idx_demandes_surface ON demandes (surface_demandee);
+CREATE INDEX idx_demandes_created_at ON demandes (created_at);
@@ -0,0 +1,20 @@
+-- Gazetteer of known (ville, quartier) pairs with their canonical spelling.
+-- Filled from offres on the next application start (LocalisationService.syncFromOffres), then on every offer write
+CREATE TABLE IF NOT EXISTS localisations (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    ville VARCHAR(255) NOT NULL,
+    quartier VARCHAR(255) NOT NULL,
+    ville_norm VARCHAR(255) NOT NULL,
+    quartier_norm VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_localisations_norm UNIQUE (ville_norm, quartier_norm)
+);
+
+-- Structured location of demandes, parsed from localisation_souhaitee.
+-- Existing rows are filled on the next start (DemandeService.backfillLocalisations)
+ALTER TABLE demandes
+    ADD COLUMN localisation_ville VARCHAR(255),
+    ADD COLUMN localisation_quartier VARCHAR(255),
+    ADD COLUMN ville_norm VARCHAR(255),
+    ADD COLUMN quartier_norm VARCHAR(255);
+
+CREATE INDEX idx_demandes_ville_quartier ON demandes (ville_norm, quartier_norm, created_at);
@@ -0,0 +1,21 @@
+-- Price-per-m² statistics per (ville, quartier, type_bien) cell, '*' standing for "all".
+-- Maintained in memory by MarketStatsService and written here periodically; digest is the
+-- serialized t-digest the quantiles come from, so other readers can merge cells themselves.
+CREATE TABLE IF NOT EXISTS market_stats (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    ville_norm VARCHAR(255) NOT NULL,
+    quartier_norm VARCHAR(255) NOT NULL,
+    type_bien VARCHAR(20) NOT NULL,
+    listing_count BIGINT NOT NULL,
+    disponible_count BIGINT NOT NULL,
+    reserve_count BIGINT NOT NULL,
+    vendu_count BIGINT NOT NULL,
+    priced_count BIGINT NOT NULL,
+    prix_m2_mean DOUBLE,
+    prix_m2_p10 DOUBLE,
+    prix_m2_median DOUBLE,
+    prix_m2_p90 DOUBLE,
+    digest LONGBLOB,
+    updated_at DATETIME(6) NOT NULL,
+    CONSTRAINT uk_market_stats_cell UNIQUE (ville_norm, quartier_norm, type_bien)
+);
@@ -0,0 +1,51 @@
+-- Append-only offer history, written in the transaction of each change (OffreHistoryService).
+-- Partitioned by month of occurred_at, so rollups and purges only touch recent partitions. MySQL wants the
+-- partitioning column in every unique key, hence the (id, occurred_at) primary key, and allows no foreign keys.
+-- The table starts with a catch-all partition; OffreHistoryService.ensurePartitions splits monthly ones off it.
+CREATE TABLE IF NOT EXISTS offre_events (
+    id BIGINT AUTO_INCREMENT,
+    offre_id BIGINT NOT NULL,
+    event_type VARCHAR(20) NOT NULL,
+    occurred_at DATETIME(6) NOT NULL,
+    ville_norm VARCHAR(255),
+    quartier_norm VARCHAR(255),
+    type_bien VARCHAR(20),
+    surface DOUBLE,
+    prix_before DOUBLE,
+    prix_after DOUBLE,
+    statut_before VARCHAR(20),
+    statut_after VARCHAR(20),
+    listed_at DATETIME(6),
+    PRIMARY KEY (id, occurred_at),
+    KEY idx_offre_events_offre (offre_id, occurred_at),
+    KEY idx_offre_events_occurred (occurred_at)
+)
+PARTITION BY RANGE COLUMNS (occurred_at) (
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
+
+-- Daily and weekly aggregates of offre_events, maintained incrementally; trend queries only read these
+CREATE TABLE IF NOT EXISTS offre_rollups (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    period VARCHAR(10) NOT NULL,
+    period_start DATE NOT NULL,
+    ville_norm VARCHAR(255) NOT NULL,
+    quartier_norm VARCHAR(255) NOT NULL,
+    type_bien VARCHAR(20) NOT NULL,
+    listed_count BIGINT NOT NULL,
+    price_change_count BIGINT NOT NULL,
+    priced_count BIGINT NOT NULL,
+    price_sum DOUBLE NOT NULL,
+    sold_count BIGINT NOT NULL,
+    sold_price_sum DOUBLE NOT NULL,
+    days_on_market_sum DOUBLE NOT NULL,
+    withdrawn_count BIGINT NOT NULL,
+    CONSTRAINT uk_offre_rollups_cell UNIQUE (period, ville_norm, quartier_norm, type_bien, period_start),
+    KEY idx_offre_rollups_period_start (period, period_start)
+);
+
+CREATE TABLE IF NOT EXISTS rollup_watermarks (
+    name VARCHAR(50) PRIMARY KEY,
+    last_event_id BIGINT NOT NULL,
+    last_occurred_at DATETIME(6)
+);
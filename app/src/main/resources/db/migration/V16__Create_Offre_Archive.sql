@@ -0,0 +1,53 @@
+-- Archive of offers sold long ago (OffreArchiveService). Archived offers leave offres, offre_photos
+-- and offre_read_model, so the hot tables and their indexes only hold the live catalog.
+-- Keep in sync with the @Table of OffreArchive and OffrePhotoArchive.
+
+-- Finds the next offers to archive: VENDU and unchanged since the cutoff
+CREATE INDEX idx_offres_statut_updated ON offres (statut_offre, updated_at);
+
+-- Same columns as offre_read_model, so archived offers are searched with the same filters
+CREATE TABLE IF NOT EXISTS offres_archive (
+    offre_id BIGINT PRIMARY KEY,
+    nom_proprietaire VARCHAR(255),
+    prenom_proprietaire VARCHAR(255),
+    telephone_proprietaire VARCHAR(20),
+    adresse_bien VARCHAR(500),
+    surface DOUBLE,
+    etage INT,
+    type_bien VARCHAR(20),
+    prix_propose DOUBLE,
+    localisation_ville VARCHAR(255),
+    localisation_quartier VARCHAR(255),
+    description_bien TEXT,
+    nb_chambres_offre INT,
+    statut_offre VARCHAR(20),
+    photos_json TEXT,
+    first_photo_url VARCHAR(500),
+    photo_count INT,
+    ville_norm VARCHAR(255),
+    quartier_norm VARCHAR(255),
+    search_text TEXT,
+    prix_band VARCHAR(20),
+    surface_band VARCHAR(20),
+    version BIGINT,
+    created_at TIMESTAMP NULL,
+    updated_at TIMESTAMP NULL,
+    admin_id BIGINT,
+    archived_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_offres_archive_created_at ON offres_archive (created_at);
+CREATE INDEX idx_offres_archive_ville_type_prix ON offres_archive (ville_norm, type_bien, prix_propose);
+CREATE INDEX idx_offres_archive_archived_at ON offres_archive (archived_at);
+
+-- offre_photos rows of archived offers, ids kept
+CREATE TABLE IF NOT EXISTS offre_photos_archive (
+    id BIGINT PRIMARY KEY,
+    offre_id BIGINT NOT NULL,
+    photo_url VARCHAR(500) NOT NULL,
+    created_at TIMESTAMP NULL,
+    updated_at TIMESTAMP NULL,
+    archived_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_offre_photos_archive_offre_id ON offre_photos_archive (offre_id);
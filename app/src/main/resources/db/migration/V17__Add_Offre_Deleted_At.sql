@@ -0,0 +1,8 @@
+-- Deleted offers are first marked and hidden (Offre is restricted to deleted_at IS NULL), then their
+-- rows and photo files are removed in batches by OffreDeletionService
+ALTER TABLE offres ADD COLUMN deleted_at TIMESTAMP NULL;
+CREATE INDEX idx_offres_deleted_at ON offres (deleted_at);
+
+-- A photo file is only removed once no live or archived offer refers to it
+CREATE INDEX idx_offre_photos_url ON offre_photos (photo_url);
+CREATE INDEX idx_offre_photos_archive_url ON offre_photos_archive (photo_url);
@@ -0,0 +1,12 @@
+-- Every file stored under the upload directory, keyed by its public URL (UploadManifestService).
+-- Files uploaded before this table existed are added by UploadCollector as it walks the directories.
+CREATE TABLE IF NOT EXISTS upload_manifest (
+    path VARCHAR(500) PRIMARY KEY,
+    size_bytes BIGINT NOT NULL,
+    sha256 CHAR(64),
+    created_at TIMESTAMP NOT NULL,
+    -- An offer using the file when last checked, NULL when none
+    referenced_by BIGINT NULL
+);
+
+CREATE INDEX idx_upload_manifest_created_at ON upload_manifest (created_at);
@@ -0,0 +1,19 @@
+-- Resumable chunked uploads in progress (ResumableUploadService). Kept in the database so that any
+-- application node can take the next chunk. Keep in sync with the @Table of UploadSession.
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    id CHAR(36) PRIMARY KEY,
+    object_key VARCHAR(500) NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    upload_length BIGINT NOT NULL,
+    -- Bytes stored so far, always at a chunk boundary
+    upload_offset BIGINT NOT NULL,
+    chunk_count INT NOT NULL,
+    -- Backend handle of the upload, e.g. the S3 multipart upload id
+    storage_handle VARCHAR(1024) NOT NULL,
+    sha256 CHAR(64),
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    completed_at TIMESTAMP NULL
+);
+
+CREATE INDEX idx_upload_sessions_expires_at ON upload_sessions (expires_at);
@@ -0,0 +1,11 @@
+-- Views of GET /offres/{id} per offer and day, added in batches by OffreViewService.
+-- Keep in sync with the @Table of OffreViewCount.
+CREATE TABLE IF NOT EXISTS offre_view_counts (
+    offre_id BIGINT NOT NULL,
+    view_day DATE NOT NULL,
+    views BIGINT NOT NULL,
+    PRIMARY KEY (offre_id, view_day)
+);
+
+-- Weekly totals and pruning read by day
+CREATE INDEX idx_offre_view_counts_view_day ON offre_view_counts (view_day);
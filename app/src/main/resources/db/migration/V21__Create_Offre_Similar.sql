@@ -0,0 +1,12 @@
+-- Nearest neighbors of each offer, kept by OffreSimilarService and read by GET /offres/{id}/similar.
+-- Keep in sync with the @Table of OffreSimilar.
+CREATE TABLE IF NOT EXISTS offre_similar (
+    offre_id BIGINT NOT NULL,
+    neighbor_rank INT NOT NULL,
+    similar_id BIGINT NOT NULL,
+    score DOUBLE NOT NULL,
+    PRIMARY KEY (offre_id, neighbor_rank)
+);
+
+-- Lists that contain a changed offer are recomputed
+CREATE INDEX idx_offre_similar_similar_id ON offre_similar (similar_id);
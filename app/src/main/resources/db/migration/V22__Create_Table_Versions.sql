@@ -0,0 +1,12 @@
+-- Per-table change counters behind the ETag / Last-Modified of list pages (ChangeTracker).
+-- Keep in sync with the @Table of TableVersion. Scripts that write offres or demandes directly
+-- must bump the row of the table as well, or clients keep their cached pages.
+CREATE TABLE IF NOT EXISTS table_versions (
+    name VARCHAR(50) PRIMARY KEY,
+    version BIGINT NOT NULL,
+    updated_at DATETIME(3) NOT NULL
+);
+
+INSERT INTO table_versions (name, version, updated_at) VALUES
+    ('offres', 0, CURRENT_TIMESTAMP(3)),
+    ('demandes', 0, CURRENT_TIMESTAMP(3));
@@ -0,0 +1,67 @@
+package com.immobilier.app.controller;
+
+import com.immobilier.app.config.SecurityConfig;
+import com.immobilier.app.service.ChangeTracker;
+import com.immobilier.app.service.DemandeService;
+import com.immobilier.app.service.OffreDeletionService;
+import com.immobilier.app.service.OffreHistoryService;
+import com.immobilier.app.service.OffreService;
+import com.immobilier.app.service.OffreViewService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// PUT replaces the whole resource, so it has to say which version it replaces
+@WebMvcTest({OffreController.class, DemandeController.class})
+@Import(SecurityConfig.class)
+class PutVersionRequiredTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private OffreService offreService;
+    @MockBean
+    private DemandeService demandeService;
+    @MockBean
+    private OffreHistoryService offreHistoryService;
+    @MockBean
+    private OffreDeletionService offreDeletionService;
+    @MockBean
+    private OffreViewService offreViewService;
+    @MockBean
+    private ChangeTracker changeTracker;
+
+    @Test
+    void putWithoutVersionIsRefused() throws Exception {
+        mockMvc.perform(put("/offres/1").contentType(MediaType.APPLICATION_JSON).content("{\"prixPropose\": 1000000}"))
+                .andExpect(status().isPreconditionRequired());
+        mockMvc.perform(put("/demandes/1").contentType(MediaType.APPLICATION_JSON).content("{\"prixSouhaite\": 500000}"))
+                .andExpect(status().isPreconditionRequired());
+        verify(offreService, never()).update(anyLong(), any());
+        verify(demandeService, never()).update(anyLong(), any());
+    }
+
+    @Test
+    void putWithVersionReachesTheService() throws Exception {
+        when(offreService.update(anyLong(), any())).thenReturn(Optional.empty());
+        when(demandeService.update(anyLong(), any())).thenReturn(Optional.empty());
+        mockMvc.perform(put("/offres/1").contentType(MediaType.APPLICATION_JSON).content("{\"version\": 3}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(put("/demandes/1").contentType(MediaType.APPLICATION_JSON).content("{\"version\": 3}"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,84 @@
+package com.immobilier.app.controller;
+
+import com.immobilier.app.config.SecurityConfig;
+import com.immobilier.app.dto.UploadSessionDto;
+import com.immobilier.app.service.ResumableUploadService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.containsStringIgnoringCase;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.options;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Browser CORS preflights for the tus requests of /api/uploads, answered by the Spring Security CorsFilter
+@WebMvcTest(UploadController.class)
+@Import(SecurityConfig.class)
+class UploadControllerCorsTest {
+    private static final String ORIGIN = "http://localhost:3000";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ResumableUploadService uploadService;
+
+    @Test
+    void preflightOfCreateAllowsTheTusHeaders() throws Exception {
+        mockMvc.perform(options("/api/uploads")
+                        .header("Origin", ORIGIN)
+                        .header("Access-Control-Request-Method", "POST")
+                        .header("Access-Control-Request-Headers", "tus-resumable,upload-length,upload-metadata"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Access-Control-Allow-Origin", ORIGIN))
+                .andExpect(header().string("Access-Control-Allow-Headers", containsStringIgnoringCase("Upload-Length")))
+                .andExpect(header().string("Access-Control-Allow-Headers", containsStringIgnoringCase("Upload-Metadata")))
+                .andExpect(header().string("Access-Control-Allow-Headers", containsStringIgnoringCase("Tus-Resumable")));
+    }
+
+    @Test
+    void preflightOfChunkAllowsPatchWithUploadOffset() throws Exception {
+        mockMvc.perform(options("/api/uploads/abc")
+                        .header("Origin", ORIGIN)
+                        .header("Access-Control-Request-Method", "PATCH")
+                        .header("Access-Control-Request-Headers", "content-type,tus-resumable,upload-offset"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Access-Control-Allow-Methods", containsString("PATCH")))
+                .andExpect(header().string("Access-Control-Allow-Headers", containsStringIgnoringCase("Upload-Offset")));
+    }
+
+    @Test
+    void preflightFromAnotherOriginIsRejected() throws Exception {
+        mockMvc.perform(options("/api/uploads")
+                        .header("Origin", "http://evil.example")
+                        .header("Access-Control-Request-Method", "POST")
+                        .header("Access-Control-Request-Headers", "upload-length"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void createExposesTheTusResponseHeaders() throws Exception {
+        when(uploadService.create(anyLong(), any(), any()))
+                .thenReturn(UploadSessionDto.builder().id("abc").length(10).offset(0)
+                        .expiresAt(LocalDateTime.now().plusHours(1)).build());
+        mockMvc.perform(post("/api/uploads")
+                        .header("Origin", ORIGIN)
+                        .header("Tus-Resumable", "1.0.0")
+                        .header("Upload-Length", "10"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Access-Control-Allow-Origin", ORIGIN))
+                .andExpect(header().string("Access-Control-Expose-Headers", containsString("Upload-Offset")))
+                .andExpect(header().string("Access-Control-Expose-Headers", containsString("Location")));
+    }
+}
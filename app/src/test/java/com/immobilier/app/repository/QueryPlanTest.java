@@ -0,0 +1,167 @@
+package com.immobilier.app.repository;
+
+import com.immobilier.app.entity.Demande;
+import com.immobilier.app.entity.Offre;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Query-plan regression test for the list filters of GET /offres and GET /demandes. Each scenario calls
+// the repository method behind one filter/sort combination, records the statements Hibernate sends for
+// it (page and count queries) and EXPLAINs them with their parameters on the seeded load-test schema
+// (H2 in MySQL mode, indexes generated from the entities). A statement that scans a whole table fails
+// the test, except in the scenarios expected to scan, which must scan: there the plan is known and the
+// assertion makes it visible.
+@SpringBootTest(properties = {
+        "app.loadtest.offres=5000",
+        "app.loadtest.demandes=2500",
+        "app.loadtest.warmup-seconds=0",
+        "app.loadtest.duration-seconds=0",
+        "app.loadtest.exit-on-finish=false",
+        "app.catalog.enabled=false"
+})
+@ActiveProfiles("loadtest")
+class QueryPlanTest {
+    // H2 prints the chosen access path as a comment after the table name
+    private static final Pattern H2_ACCESS = Pattern.compile("/\\* (.+?) \\*/", Pattern.DOTALL);
+    private static final Pageable BY_DATE = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt"));
+
+    private static final String UNFILTERED = "no filter: H2 plans a scan followed by a top-N sort " +
+            "(MySQL reads the created_at index backwards up to the LIMIT)";
+    private static final String KEYWORD = "the leading wildcard of LIKE '%keyword%' cannot use a B-tree index, " +
+            "so the keyword alone scans the whole table";
+
+    @TestConfiguration
+    static class Recording {
+        @Bean
+        static BeanPostProcessor statementRecorder() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String name) {
+                    return name.equals("dataSource") ? new StatementRecorder((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OffreReadModelRepository offres;
+
+    @Autowired
+    private DemandeRepository demandes;
+
+    private record Scenario(String name, Supplier<?> call, String knownScan) {
+    }
+
+    @Test
+    void listFiltersUseAnIndexUnlessAScanIsExpected() {
+        List<Scenario> scenarios = List.of(
+                new Scenario("offres by date", () -> offres.findAllWithFilters(
+                        null, null, null, null, null, null, null, null, BY_DATE), UNFILTERED),
+                new Scenario("offres by type", () -> offres.findAllWithFilters(
+                        Offre.TypeBien.APPARTEMENT, null, null, null, null, null, null, null, BY_DATE), null),
+                new Scenario("offres by type and price", () -> offres.findAllWithFilters(
+                        Offre.TypeBien.VILLA, 1_000_000.0, 3_000_000.0, null, null, null, null, null, BY_DATE), null),
+                new Scenario("offres by price", () -> offres.findAllWithFilters(
+                        null, 1_000_000.0, 1_200_000.0, null, null, null, null, null, BY_DATE), null),
+                new Scenario("offres by price, sorted by price", () -> offres.findAllWithFilters(
+                        null, 1_000_000.0, null, null, null, null, null, null,
+                        PageRequest.of(0, 20, Sort.by("prixPropose"))), null),
+                new Scenario("offres by surface", () -> offres.findAllWithFilters(
+                        null, null, null, 100.0, 120.0, null, null, null, BY_DATE), null),
+                new Scenario("offres by ville", () -> offres.findAllWithFilters(
+                        null, null, null, null, null, "casablanca", null, null, BY_DATE), null),
+                new Scenario("offres by ville and quartier", () -> offres.findAllWithFilters(
+                        null, null, null, null, null, "casablanca", "maarif", null, BY_DATE), null),
+                new Scenario("offres by ville, type and price", () -> offres.findAllWithFilters(
+                        Offre.TypeBien.VILLA, null, 2_000_000.0, null, null, "rabat", null, null, BY_DATE), null),
+                new Scenario("offres fields by ville", () -> offres.findFieldsWithFilters(
+                        List.of("id", "prixPropose", "photo"), null, null, null, null, null, "casablanca", null,
+                        null, BY_DATE), null),
+                new Scenario("offres by ville and keyword", () -> offres.findAllWithFilters(
+                        null, null, null, null, null, "casablanca", null, "jardin", BY_DATE), null),
+                new Scenario("offres by keyword", () -> offres.findAllWithFilters(
+                        null, null, null, null, null, null, null, "jardin", BY_DATE), KEYWORD),
+                new Scenario("offre ids by keyword (facets)", () -> offres.findIdsBySearchText(
+                        "jardin", PageRequest.of(0, 10_000)), KEYWORD),
+                new Scenario("demandes by date", () -> demandes.findAllWithFilters(
+                        null, null, null, null, null, null, null, null, null, BY_DATE), UNFILTERED),
+                new Scenario("demandes by type", () -> demandes.findAllWithFilters(
+                        Demande.TypeDemande.ACHAT, null, null, null, null, null, null, null, null, BY_DATE), null),
+                new Scenario("demandes by type and bien", () -> demandes.findAllWithFilters(
+                        Demande.TypeDemande.LOCATION, Demande.TypeBien.APPARTEMENT, null, null, null, null,
+                        null, null, null, BY_DATE), null),
+                new Scenario("demandes by bien and price", () -> demandes.findAllWithFilters(
+                        null, Demande.TypeBien.VILLA, null, 1_500_000.0, null, null, null, null, null, BY_DATE), null),
+                new Scenario("demandes by price", () -> demandes.findAllWithFilters(
+                        null, null, 500_000.0, 600_000.0, null, null, null, null, null, BY_DATE), null),
+                new Scenario("demandes by surface", () -> demandes.findAllWithFilters(
+                        null, null, null, null, 80.0, 90.0, null, null, null, BY_DATE), null),
+                new Scenario("demandes by ville", () -> demandes.findAllWithFilters(
+                        null, null, null, null, null, null, "marrakech", null, null, BY_DATE), null),
+                new Scenario("demandes by ville and quartier", () -> demandes.findAllWithFilters(
+                        null, null, null, null, null, null, "casablanca", "anfa", null, BY_DATE), null),
+                new Scenario("demandes matching an offer", () -> demandes.findMatching(
+                        Demande.TypeBien.VILLA, 2_500_000.0, 300.0, "casablanca", "anfa", BY_DATE), null),
+                new Scenario("demandes by keyword", () -> demandes.findAllWithFilters(
+                        null, null, null, null, null, null, null, null, "maarif", BY_DATE), KEYWORD));
+
+        StatementRecorder recorder = (StatementRecorder) dataSource;
+        List<String> failures = new ArrayList<>();
+        StringBuilder report = new StringBuilder();
+        for (Scenario scenario : scenarios) {
+            List<StatementRecorder.Statement> statements = recorder.record(scenario.call());
+            boolean scans = false;
+            for (StatementRecorder.Statement statement : statements) {
+                String access = access(jdbcTemplate.queryForList("EXPLAIN " + statement.sql(), statement.arguments()));
+                boolean fullScan = access.contains("tableScan");
+                scans |= fullScan;
+                report.append(String.format("%n%-34s %-60s %s", scenario.name(), access, statement.sql()));
+                if (fullScan && scenario.knownScan() == null) {
+                    failures.add(scenario.name() + ": full scan in " + statement.sql());
+                }
+            }
+            if (statements.isEmpty()) {
+                failures.add(scenario.name() + ": no statement recorded");
+            } else if (scenario.knownScan() != null && !scans) {
+                failures.add(scenario.name() + ": expected a full scan (" + scenario.knownScan() + ") but none was planned");
+            }
+        }
+        assertTrue(failures.isEmpty(), String.join("\n", failures) + "\nPlans:" + report);
+    }
+
+    private static String access(List<Map<String, Object>> plan) {
+        List<String> access = new ArrayList<>();
+        for (Map<String, Object> row : plan) {
+            Matcher matcher = H2_ACCESS.matcher(String.valueOf(row.values().iterator().next()));
+            while (matcher.find()) {
+                access.add(matcher.group(1).replaceAll("\\s+", " "));
+            }
+        }
+        return String.join("; ", access);
+    }
+}
@@ -0,0 +1,90 @@
+package com.immobilier.app.repository;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+// Datasource wrapper that records the prepared statements (SQL and bound parameters) issued by the
+// calling thread while record() runs, so tests can inspect the SQL Hibernate actually generates.
+class StatementRecorder extends DelegatingDataSource {
+
+    record Statement(String sql, Map<Integer, Object> parameters) {
+        Object[] arguments() {
+            return parameters.values().toArray();
+        }
+    }
+
+    private final ThreadLocal<List<Statement>> recording = new ThreadLocal<>();
+
+    StatementRecorder(DataSource target) {
+        super(target);
+    }
+
+    List<Statement> record(Supplier<?> call) {
+        List<Statement> statements = new ArrayList<>();
+        recording.set(statements);
+        try {
+            call.get();
+        } finally {
+            recording.remove();
+        }
+        return statements;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(super.getConnection(username, password));
+    }
+
+    private Connection connection(Connection target) {
+        return proxy(Connection.class, target, (proxy, method, args) -> {
+            Object result = invoke(target, method, args);
+            List<Statement> statements = recording.get();
+            if (statements != null && method.getName().equals("prepareStatement") && args[0] instanceof String sql) {
+                Map<Integer, Object> parameters = new TreeMap<>();
+                statements.add(new Statement(sql, parameters));
+                return statement((PreparedStatement) result, parameters);
+            }
+            return result;
+        });
+    }
+
+    // setXxx(index, value, ...) calls fill the parameters; setNull(index, type) binds null
+    private static PreparedStatement statement(PreparedStatement target, Map<Integer, Object> parameters) {
+        return proxy(PreparedStatement.class, target, (proxy, method, args) -> {
+            if (method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, method.getName().equals("setNull") ? null : args[1]);
+            }
+            return invoke(target, method, args);
+        });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(StatementRecorder.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
@@ -0,0 +1,86 @@
+package com.immobilier.app.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The list validators come from table_versions, so every node sharing the database sees the same ones
+class ChangeTrackerTest {
+    private final DriverManagerDataSource dataSource =
+            new DriverManagerDataSource("jdbc:h2:mem:change_tracker;MODE=MySQL;DB_CLOSE_DELAY=-1");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    private final ChangeTracker node = new ChangeTracker(jdbcTemplate, transactionManager);
+    private final ChangeTracker otherNode = new ChangeTracker(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+
+    @BeforeEach
+    void createTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS table_versions");
+        jdbcTemplate.execute("CREATE TABLE table_versions (name VARCHAR(50) PRIMARY KEY, version BIGINT NOT NULL, " +
+                "updated_at DATETIME(3) NOT NULL)");
+    }
+
+    @Test
+    void writeOnOneNodeMovesTheTagOfTheOther() {
+        String before = otherNode.stamp(ChangeTracker.OFFRES).etag();
+        node.changed(ChangeTracker.OFFRES);
+        String after = otherNode.stamp(ChangeTracker.OFFRES).etag();
+        assertNotEquals(before, after);
+        assertEquals(after, node.stamp(ChangeTracker.OFFRES).etag());
+        node.changed(ChangeTracker.OFFRES);
+        assertNotEquals(after, otherNode.stamp(ChangeTracker.OFFRES).etag());
+        // Tables are counted apart
+        assertEquals(before.replace(ChangeTracker.OFFRES, ChangeTracker.DEMANDES),
+                otherNode.stamp(ChangeTracker.DEMANDES).etag());
+    }
+
+    @Test
+    void lastModifiedIsOnlySentOnceItsSecondIsOver() {
+        node.changed(ChangeTracker.OFFRES);
+        // Dated in a second that is not over yet: another write could still land in it under the same date
+        jdbcTemplate.update("UPDATE table_versions SET updated_at = DATEADD(SECOND, 5, CURRENT_TIMESTAMP(3))");
+        assertEquals(-1, node.stamp(ChangeTracker.OFFRES).lastModified());
+
+        Timestamp earlier = Timestamp.valueOf("2026-01-15 10:20:30.456");
+        jdbcTemplate.update("UPDATE table_versions SET updated_at = ? WHERE name = ?", earlier, ChangeTracker.OFFRES);
+        assertEquals(earlier.getTime() / 1000 * 1000, node.stamp(ChangeTracker.OFFRES).lastModified());
+    }
+
+    @Test
+    void tableNeverWrittenHasNoDate() {
+        assertEquals(-1, node.stamp(ChangeTracker.DEMANDES).lastModified());
+    }
+
+    @Test
+    void pageIsReadInTheTransactionOfTheStamp() {
+        node.changed(ChangeTracker.OFFRES);
+        String page = node.read(ChangeTracker.OFFRES, stamp -> {
+            // Same read-only transaction, hence the same connection (and replica) as the stamp
+            assertTrue(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            assertTrue(TransactionSynchronizationManager.hasResource(dataSource));
+            assertEquals(stamp, node.stamp(ChangeTracker.OFFRES));
+            return "page";
+        });
+        assertEquals("page", page);
+    }
+
+    @Test
+    void readMarkedRollbackOnlyStillReturnsItsPage() {
+        // As a nested @Transactional read does when it throws an exception the controller turns into a 400
+        assertEquals("bad request", node.read(ChangeTracker.DEMANDES, stamp ->
+                new TransactionTemplate(transactionManager).execute(status -> {
+                    status.setRollbackOnly();
+                    return "bad request";
+                })));
+    }
+}
@@ -0,0 +1,139 @@
+package com.immobilier.app.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// FacetCounts over grouped count rows against counting the individual listings directly
+class FacetCountsTest {
+    private static final List<String> FACETS = List.of("typeBien", "statut", "ville", "quartier", "prixBand");
+    private static final String[] TYPES = {"APPARTEMENT", "VILLA", "TERRAIN"};
+    private static final String[] STATUTS = {"DISPONIBLE", "VENDU"};
+    private static final String[] VILLES = {"casablanca", "rabat", null};
+    private static final String[] QUARTIERS = {"maarif", "anfa", "agdal", null};
+    private static final String[] BANDS = {"<1M", "1-2M", "2-5M"};
+
+    // One listing: facet values in FACETS order, then its price
+    private record Listing(Object[] values, double prix) {
+    }
+
+    private record Filter(String type, String ville, String quartier, Double prixMin, Double prixMax) {
+        boolean test(Listing listing, String except) {
+            Object[] v = listing.values();
+            return (type == null || "typeBien".equals(except) || type.equals(v[0]))
+                    && (ville == null || "ville".equals(except) || ville.equals(v[2]))
+                    && (quartier == null || "quartier".equals(except) || quartier.equals(v[3]))
+                    && (prixMin == null && prixMax == null || "prixBand".equals(except) || inRange(listing));
+        }
+
+        boolean inRange(Listing listing) {
+            return (prixMin == null || listing.prix() >= prixMin) && (prixMax == null || listing.prix() <= prixMax);
+        }
+    }
+
+    private static <T> T pick(Random random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // What the GROUP BY query returns: [facet values..., inRange, count] per distinct combination
+    private static List<Object[]> grouped(List<Listing> listings, Filter filter) {
+        Map<List<Object>, Long> counts = new LinkedHashMap<>();
+        for (Listing listing : listings) {
+            List<Object> key = new ArrayList<>(Arrays.asList(listing.values()));
+            key.add(filter.inRange(listing) ? 1 : 0);
+            counts.merge(key, 1L, Long::sum);
+        }
+        List<Object[]> rows = new ArrayList<>();
+        counts.forEach((key, count) -> {
+            List<Object> row = new ArrayList<>(key);
+            row.add(count);
+            rows.add(row.toArray());
+        });
+        return rows;
+    }
+
+    private static Map<String, Predicate<Object[]>> filters(Filter filter) {
+        Map<String, Predicate<Object[]>> filters = new HashMap<>();
+        if (filter.type() != null) {
+            filters.put("typeBien", row -> filter.type().equals(row[0]));
+        }
+        if (filter.ville() != null) {
+            filters.put("ville", row -> filter.ville().equals(row[2]));
+        }
+        if (filter.quartier() != null) {
+            filters.put("quartier", row -> filter.quartier().equals(row[3]));
+        }
+        if (filter.prixMin() != null || filter.prixMax() != null) {
+            filters.put("prixBand", row -> ((Number) row[5]).intValue() == 1);
+        }
+        return filters;
+    }
+
+    private static Map<String, Long> bruteForce(List<Listing> listings, Filter filter, int facet, boolean multiSelect) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Listing listing : listings) {
+            Object value = listing.values()[facet];
+            if (value != null && filter.test(listing, multiSelect ? FACETS.get(facet) : null)) {
+                counts.merge(String.valueOf(value), 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    @Test
+    void aggregateMatchesCountingListings() {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            List<Listing> listings = new ArrayList<>();
+            for (int i = random.nextInt(300); i > 0; i--) {
+                listings.add(new Listing(new Object[]{pick(random, TYPES), pick(random, STATUTS), pick(random, VILLES),
+                        pick(random, QUARTIERS), pick(random, BANDS)}, random.nextInt(6_000_000)));
+            }
+            Double prixMin = random.nextBoolean() ? null : (double) random.nextInt(3_000_000);
+            Double prixMax = random.nextBoolean() ? null : (double) random.nextInt(6_000_000);
+            Filter filter = new Filter(random.nextBoolean() ? null : pick(random, TYPES),
+                    random.nextBoolean() ? null : pick(random, VILLES),
+                    random.nextBoolean() ? null : pick(random, QUARTIERS), prixMin, prixMax);
+            for (boolean multiSelect : new boolean[]{false, true}) {
+                Map<String, Map<String, Long>> facets = FacetCounts.aggregate(FACETS, grouped(listings, filter),
+                        filters(filter), multiSelect);
+                assertEquals(FACETS, new ArrayList<>(facets.keySet()));
+                for (int i = 0; i < FACETS.size(); i++) {
+                    Map<String, Long> counts = facets.get(FACETS.get(i));
+                    assertEquals(bruteForce(listings, filter, i, multiSelect), counts,
+                            "round " + round + ", " + filter + ", multiSelect " + multiSelect + ", " + FACETS.get(i));
+                    assertMostFrequentFirst(counts);
+                }
+            }
+        }
+    }
+
+    @Test
+    void relabelAddsUpKeysWithTheSameLabel() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("fes", 4L);
+        counts.put("fès", 3L);
+        counts.put("rabat", 5L);
+        Map<String, Long> relabeled = FacetCounts.relabel(counts, key -> key.startsWith("f") ? "Fès" : "Rabat");
+        assertEquals(Map.of("Fès", 7L, "Rabat", 5L), relabeled);
+        assertEquals(List.of("Fès", "Rabat"), new ArrayList<>(relabeled.keySet()));
+    }
+
+    private static void assertMostFrequentFirst(Map<String, Long> counts) {
+        long previous = Long.MAX_VALUE;
+        for (long count : counts.values()) {
+            assertTrue(count <= previous, "not sorted by count: " + counts);
+            previous = count;
+        }
+    }
+}
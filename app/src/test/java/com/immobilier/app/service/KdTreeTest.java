@@ -0,0 +1,100 @@
+package com.immobilier.app.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// KdTree against a linear scan over the same points
+class KdTreeTest {
+    private static final String[] QUARTIERS = {"maarif", "anfa", "gauthier", "bourgogne"};
+
+    private static List<KdTree.Point> points(Random random, int count) {
+        List<KdTree.Point> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // Clustered x values, as log prices are, so that many points share a split coordinate
+            double x = Math.round(random.nextGaussian() * 20) / 10.0;
+            points.add(new KdTree.Point(i, x, random.nextDouble() * 3, QUARTIERS[random.nextInt(QUARTIERS.length)],
+                    random.nextInt(5) != 0));
+        }
+        return points;
+    }
+
+    private static List<KdTree.Neighbor> bruteForceNearest(List<KdTree.Point> points, KdTree.Point query, int k,
+                                                           ToDoubleFunction<KdTree.Point> penalty) {
+        List<KdTree.Neighbor> all = new ArrayList<>();
+        for (KdTree.Point point : points) {
+            if (point.candidate() && point.id() != query.id()) {
+                all.add(new KdTree.Neighbor(point.id(), KdTree.distance(query, point) + penalty.applyAsDouble(point)));
+            }
+        }
+        all.sort(Comparator.comparingDouble(KdTree.Neighbor::score).thenComparingLong(KdTree.Neighbor::id));
+        return all.subList(0, Math.min(k, all.size()));
+    }
+
+    @Test
+    void nearestMatchesBruteForceWithAndWithoutPenalty() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            List<KdTree.Point> points = points(random, 1 + random.nextInt(400));
+            KdTree tree = new KdTree(points);
+            double quartierPenalty = round % 2 == 0 ? 0 : random.nextDouble() * 2;
+            for (int q = 0; q < 20; q++) {
+                KdTree.Point query = points.get(random.nextInt(points.size()));
+                ToDoubleFunction<KdTree.Point> penalty =
+                        point -> point.quartier().equals(query.quartier()) ? 0 : quartierPenalty;
+                int k = 1 + random.nextInt(15);
+                assertEquals(bruteForceNearest(points, query, k, penalty), tree.nearest(query, k, penalty),
+                        "round " + round + ", query " + query + ", k " + k);
+            }
+        }
+    }
+
+    @Test
+    void nearestReturnsEveryCandidateWhenKExceedsThem() {
+        List<KdTree.Point> points = points(new Random(11), 30);
+        KdTree.Point query = points.get(0);
+        ToDoubleFunction<KdTree.Point> none = point -> 0;
+        assertEquals(bruteForceNearest(points, query, 100, none), new KdTree(points).nearest(query, 100, none));
+    }
+
+    @Test
+    void withinMatchesBruteForce() {
+        Random random = new Random(13);
+        for (int round = 0; round < 50; round++) {
+            List<KdTree.Point> points = points(random, 1 + random.nextInt(400));
+            KdTree tree = new KdTree(points);
+            for (int q = 0; q < 20; q++) {
+                KdTree.Point center = points.get(random.nextInt(points.size()));
+                double radius = random.nextInt(10) == 0 ? 0 : random.nextDouble();
+                Set<Long> expected = new HashSet<>();
+                for (KdTree.Point point : points) {
+                    if (KdTree.distance(center, point) <= radius) {
+                        expected.add(point.id());
+                    }
+                }
+                List<Long> found = new ArrayList<>();
+                tree.within(center, radius, point -> found.add(point.id()));
+                assertEquals(expected, new HashSet<>(found), "round " + round + ", center " + center);
+                assertEquals(expected.size(), found.size(), "a point was reported twice");
+            }
+        }
+    }
+
+    @Test
+    void emptyTree() {
+        KdTree tree = new KdTree(List.of());
+        KdTree.Point query = new KdTree.Point(1, 0, 0, "maarif", true);
+        assertEquals(List.of(), tree.nearest(query, 5, point -> 0));
+        List<KdTree.Point> found = new ArrayList<>();
+        tree.within(query, 10, found::add);
+        assertEquals(List.of(), found);
+    }
+}
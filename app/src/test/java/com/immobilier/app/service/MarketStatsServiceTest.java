@@ -0,0 +1,242 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.dto.MarketStatsDto;
+import com.immobilier.app.entity.Offre.StatutOffre;
+import com.immobilier.app.entity.Offre.TypeBien;
+import com.immobilier.app.entity.OffreReadModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// MarketStatsService against exact figures computed from the offers: counts and mean exactly, the
+// t-digest quantiles by the rank of the returned value among the sorted prices per m²
+class MarketStatsServiceTest {
+    private static final Map<String, String[]> QUARTIERS = new LinkedHashMap<>();
+    private static final TypeBien[] TYPES = {TypeBien.APPARTEMENT, TypeBien.VILLA, TypeBien.TERRAIN};
+    private static final double[] QUANTILES = {0.1, 0.5, 0.9};
+    // t-digest error at compression 100, on top of the 1/n granularity of an exact rank
+    private static final double DIGEST_ERROR = 0.01;
+    // Share of removed values a large cell may still hold before its digest is rebuilt
+    private static final double MAX_STALE_RATIO = 0.1;
+    private static final int EXACT_CELL_SIZE = 1000;
+
+    static {
+        QUARTIERS.put("casablanca", new String[]{"maarif", "anfa", "gauthier"});
+        QUARTIERS.put("rabat", new String[]{"agdal", "hassan"});
+        QUARTIERS.put("agadir", new String[]{"founty"});
+    }
+
+    private record Offer(String ville, String quartier, TypeBien type, StatutOffre statut, Double prix, Double surface) {
+        Double prixM2() {
+            return prix != null && surface != null && surface > 0 ? prix / surface : null;
+        }
+    }
+
+    private final Random random = new Random(5);
+    private final Map<Long, Offer> offers = new HashMap<>();
+    private JdbcTemplate jdbcTemplate;
+    private MarketStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:market_stats_test;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS offre_read_model");
+        jdbcTemplate.execute("CREATE TABLE offre_read_model (offre_id BIGINT PRIMARY KEY, ville_norm VARCHAR(255), " +
+                "quartier_norm VARCHAR(255), type_bien VARCHAR(32), statut_offre VARCHAR(32), prix_propose DOUBLE, " +
+                "surface DOUBLE)");
+        LocalisationService localisationService = mock(LocalisationService.class);
+        when(localisationService.villeLabel(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(localisationService.quartierLabel(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        service = new MarketStatsService(jdbcTemplate, null, localisationService);
+    }
+
+    private Offer randomOffer() {
+        String ville = random.nextInt(20) == 0 ? null : new ArrayList<>(QUARTIERS.keySet()).get(random.nextInt(QUARTIERS.size()));
+        String quartier = ville == null || random.nextInt(10) == 0 ? null
+                : QUARTIERS.get(ville)[random.nextInt(QUARTIERS.get(ville).length)];
+        TypeBien type = random.nextInt(30) == 0 ? null : TYPES[random.nextInt(TYPES.length)];
+        StatutOffre statut = random.nextInt(30) == 0 ? null : StatutOffre.values()[random.nextInt(StatutOffre.values().length)];
+        // Rounded prices so that the same price per m² often repeats, as listed prices do
+        Double prix = random.nextInt(15) == 0 ? null : Math.round(Math.exp(13 + random.nextGaussian() * 0.6) / 10_000) * 10_000.0;
+        Double surface = random.nextInt(15) == 0 ? null : (double) (20 + random.nextInt(400));
+        return new Offer(ville, quartier, type, statut, prix, surface);
+    }
+
+    private static OffreReadModel row(long id, Offer offer) {
+        return OffreReadModel.builder().id(id).villeNorm(offer.ville()).quartierNorm(offer.quartier())
+                .typeBien(offer.type()).statutOffre(offer.statut()).prixPropose(offer.prix()).surface(offer.surface())
+                .build();
+    }
+
+    private void seed(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            Offer offer = randomOffer();
+            offers.put(id, offer);
+            rows.add(new Object[]{id, offer.ville(), offer.quartier(), offer.type() != null ? offer.type().name() : null,
+                    offer.statut() != null ? offer.statut().name() : null, offer.prix(), offer.surface()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO offre_read_model VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+        service.rebuild();
+    }
+
+    @Test
+    void figuresMatchTheOffersAfterRebuild() {
+        seed(20_000);
+        assertTrue(service.isReady());
+        assertAllCells(DIGEST_ERROR);
+    }
+
+    @Test
+    void figuresFollowPriceStatusAndRemovalUpdates() {
+        seed(20_000);
+        long nextId = offers.size() + 1;
+        for (int i = 0; i < 3000; i++) {
+            List<Long> ids = new ArrayList<>(offers.keySet());
+            long id = ids.get(random.nextInt(ids.size()));
+            Offer current = offers.get(id);
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                Offer next = randomOffer();
+                Offer moved = new Offer(current.ville(), current.quartier(), current.type(), current.statut(),
+                        next.prix(), next.surface());
+                offers.put(id, moved);
+                service.upsert(row(id, moved));
+            } else if (operation < 7) {
+                StatutOffre statut = StatutOffre.values()[random.nextInt(StatutOffre.values().length)];
+                offers.put(id, new Offer(current.ville(), current.quartier(), current.type(), statut, current.prix(),
+                        current.surface()));
+                service.updateStatus(List.of(id), statut);
+            } else if (operation < 8) {
+                offers.remove(id);
+                service.remove(List.of(id));
+            } else {
+                Offer added = randomOffer();
+                offers.put(nextId, added);
+                service.upsert(row(nextId++, added));
+            }
+        }
+        // Cells above EXACT_CELL_SIZE may keep up to MAX_STALE_RATIO of removed values in their digest
+        assertAllCells(DIGEST_ERROR + MAX_STALE_RATIO);
+    }
+
+    @Test
+    void emptiedCellIsNotReported() {
+        seed(200);
+        List<Long> inAgadir = offers.entrySet().stream()
+                .filter(entry -> "agadir".equals(entry.getValue().ville()))
+                .map(Map.Entry::getKey)
+                .toList();
+        assertTrue(service.find("agadir", null, null).isPresent());
+        service.remove(inAgadir);
+        assertEquals(Optional.empty(), service.find("agadir", null, null));
+        assertEquals(Optional.empty(), service.find("agadir", "founty", null));
+    }
+
+    @Test
+    void breakdownListsEveryVilleWithItsListings() {
+        seed(5000);
+        Map<String, Long> expected = new HashMap<>();
+        offers.values().forEach(offer -> {
+            if (offer.ville() != null) {
+                expected.merge(offer.ville(), 1L, Long::sum);
+            }
+        });
+        Map<String, Long> actual = new HashMap<>();
+        List<MarketStatsDto> breakdown = service.breakdown(null, null);
+        breakdown.forEach(dto -> actual.put(dto.getVille(), dto.getListings()));
+        assertEquals(expected, actual);
+        for (int i = 1; i < breakdown.size(); i++) {
+            assertTrue(breakdown.get(i - 1).getListings() >= breakdown.get(i).getListings());
+        }
+    }
+
+    private void assertAllCells(double largeCellError) {
+        List<String> villes = new ArrayList<>(QUARTIERS.keySet());
+        villes.add(0, null);
+        List<TypeBien> types = new ArrayList<>(Arrays.asList(TYPES));
+        types.add(0, null);
+        for (String ville : villes) {
+            List<String> quartiers = new ArrayList<>();
+            quartiers.add(null);
+            if (ville != null) {
+                quartiers.addAll(Arrays.asList(QUARTIERS.get(ville)));
+            }
+            for (String quartier : quartiers) {
+                for (TypeBien type : types) {
+                    assertCell(ville, quartier, type, largeCellError);
+                }
+            }
+        }
+    }
+
+    private void assertCell(String ville, String quartier, TypeBien type, double largeCellError) {
+        String cell = ville + "/" + quartier + "/" + type;
+        List<Offer> members = offers.values().stream()
+                .filter(offer -> ville == null || ville.equals(offer.ville()))
+                .filter(offer -> quartier == null || quartier.equals(offer.quartier()))
+                .filter(offer -> type == null || type == offer.type())
+                .toList();
+        Optional<MarketStatsDto> found = service.find(ville, quartier, type);
+        if (members.isEmpty()) {
+            assertEquals(Optional.empty(), found, cell);
+            return;
+        }
+        MarketStatsDto stats = found.orElseThrow(() -> new AssertionError("no statistics for " + cell));
+        assertEquals(members.size(), stats.getListings(), cell);
+        for (StatutOffre statut : StatutOffre.values()) {
+            assertEquals(members.stream().filter(offer -> offer.statut() == statut).count(),
+                    stats.getByStatut().get(statut.name()), cell + " " + statut);
+        }
+
+        double[] prices = members.stream().map(Offer::prixM2).filter(Objects::nonNull)
+                .mapToDouble(Double::doubleValue).sorted().toArray();
+        assertEquals(prices.length, stats.getPriced(), cell);
+        if (prices.length == 0) {
+            assertEquals(null, stats.getPrixM2Mean(), cell);
+            return;
+        }
+        double mean = Arrays.stream(prices).average().orElseThrow();
+        assertEquals(mean, stats.getPrixM2Mean(), mean * 1e-9, cell);
+
+        double error = (prices.length > EXACT_CELL_SIZE ? largeCellError : DIGEST_ERROR) + 1.0 / prices.length;
+        Double[] estimates = {stats.getPrixM2P10(), stats.getPrixM2Median(), stats.getPrixM2P90()};
+        for (int i = 0; i < QUANTILES.length; i++) {
+            double rankError = rankError(prices, estimates[i], QUANTILES[i]);
+            assertTrue(rankError <= error, cell + " q" + QUANTILES[i] + ": " + estimates[i] + " is off by "
+                    + rankError + " in rank (allowed " + error + ")");
+        }
+    }
+
+    // How far q lies outside the range of ranks the value occupies among the sorted values
+    private static double rankError(double[] sorted, double value, double q) {
+        int below = 0;
+        int atOrBelow = 0;
+        for (double v : sorted) {
+            if (v < value) {
+                below++;
+            }
+            if (v <= value) {
+                atOrBelow++;
+            }
+        }
+        return Math.max(0, Math.max((double) below / sorted.length - q, q - (double) atOrBelow / sorted.length));
+    }
+}
@@ -0,0 +1,479 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.entity.Offre.StatutOffre;
+import com.immobilier.app.entity.Offre.TypeBien;
+import com.immobilier.app.entity.OffreReadModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// OffreCatalog and its SortedColumn against filtering and sorting the offers directly, before and after
+// updates leave stale positions behind
+class OffreCatalogTest {
+    private static final String[] VILLES = {"casablanca", "rabat", "tanger", null};
+    private static final String[] QUARTIERS = {"maarif", "anfa", "agdal", "marina", null};
+    private static final List<String> SORTS = Arrays.asList(null, "id", "createdAt", "prixPropose", "surface");
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private record Offer(TypeBien type, StatutOffre statut, String ville, String quartier, Double prix, Double surface,
+                         LocalDateTime createdAt) {
+    }
+
+    private record Query(TypeBien type, StatutOffre statut, Double prixMin, Double prixMax, Double surfaceMin,
+                         Double surfaceMax, String ville, String quartier) {
+        boolean test(Offer offer) {
+            return (type == null || type == offer.type())
+                    && (statut == null || statut == offer.statut())
+                    && (ville == null || ville.equals(offer.ville()))
+                    && (quartier == null || quartier.equals(offer.quartier()))
+                    && within(offer.prix(), prixMin, prixMax)
+                    && within(offer.surface(), surfaceMin, surfaceMax);
+        }
+
+        private static boolean within(Double value, Double min, Double max) {
+            return min == null && max == null
+                    || value != null && (min == null || value >= min) && (max == null || value <= max);
+        }
+    }
+
+    private final Random random = new Random(17);
+    // In position order: a new or re-inserted offer goes last, an updated one keeps its place
+    private final Map<Long, Offer> offers = new LinkedHashMap<>();
+    private JdbcTemplate jdbcTemplate;
+    private OffreCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:offre_catalog_test;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS offre_read_model");
+        jdbcTemplate.execute("CREATE TABLE offre_read_model (offre_id BIGINT PRIMARY KEY, type_bien VARCHAR(32), " +
+                "statut_offre VARCHAR(32), ville_norm VARCHAR(255), quartier_norm VARCHAR(255), prix_propose DOUBLE, " +
+                "surface DOUBLE, created_at TIMESTAMP)");
+        catalog = new OffreCatalog(jdbcTemplate, true, 100);
+    }
+
+    private <T> T pick(T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private <T> T maybe(T value) {
+        return random.nextInt(3) == 0 ? value : null;
+    }
+
+    private Offer randomOffer() {
+        String ville = pick(VILLES);
+        return new Offer(random.nextInt(20) == 0 ? null : pick(TypeBien.values()),
+                random.nextInt(20) == 0 ? null : pick(StatutOffre.values()),
+                ville, ville != null ? pick(QUARTIERS) : null,
+                random.nextInt(15) == 0 ? null : 200_000 + random.nextDouble() * 4_800_000,
+                random.nextInt(15) == 0 ? null : 20 + random.nextDouble() * 480,
+                random.nextInt(30) == 0 ? null : EPOCH.plusSeconds(random.nextInt(50_000_000)));
+    }
+
+    private static OffreReadModel row(long id, Offer offer) {
+        return OffreReadModel.builder().id(id).typeBien(offer.type()).statutOffre(offer.statut())
+                .villeNorm(offer.ville()).quartierNorm(offer.quartier()).prixPropose(offer.prix())
+                .surface(offer.surface()).createdAt(offer.createdAt()).build();
+    }
+
+    private void seed(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            Offer offer = randomOffer();
+            offers.put(id, offer);
+            rows.add(new Object[]{id, offer.type() != null ? offer.type().name() : null,
+                    offer.statut() != null ? offer.statut().name() : null, offer.ville(), offer.quartier(),
+                    offer.prix(), offer.surface(), offer.createdAt() != null ? Timestamp.valueOf(offer.createdAt()) : null});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO offre_read_model VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        catalog.rebuild();
+    }
+
+    // Price, surface, status, and now and then location and type change, offers come and go
+    private void randomUpdates(int count, long[] nextId) {
+        for (int i = 0; i < count; i++) {
+            List<Long> ids = new ArrayList<>(offers.keySet());
+            long id = ids.get(random.nextInt(ids.size()));
+            Offer current = offers.get(id);
+            int operation = random.nextInt(10);
+            if (operation < 4) {
+                Offer other = randomOffer();
+                Offer changed = random.nextBoolean()
+                        ? new Offer(current.type(), current.statut(), current.ville(), current.quartier(), other.prix(),
+                        other.surface(), current.createdAt())
+                        : new Offer(other.type(), current.statut(), other.ville(), other.quartier(), current.prix(),
+                        current.surface(), current.createdAt());
+                offers.put(id, changed);
+                catalog.upsert(row(id, changed));
+            } else if (operation < 6) {
+                StatutOffre statut = pick(StatutOffre.values());
+                offers.put(id, new Offer(current.type(), statut, current.ville(), current.quartier(), current.prix(),
+                        current.surface(), current.createdAt()));
+                catalog.updateStatus(List.of(id), statut);
+            } else if (operation < 8) {
+                offers.remove(id);
+                catalog.remove(List.of(id));
+            } else {
+                // A removed id coming back takes a new position, like a brand new one
+                long added = random.nextInt(4) == 0 && nextId[0] > 1 ? 1 + random.nextInt((int) nextId[0] - 1) : nextId[0]++;
+                if (!offers.containsKey(added)) {
+                    Offer offer = randomOffer();
+                    offers.put(added, offer);
+                    catalog.upsert(row(added, offer));
+                }
+            }
+        }
+    }
+
+    private Query randomQuery() {
+        Double prixMin = maybe(200_000 + random.nextDouble() * 3_000_000);
+        Double prixMax = maybe(1_000_000 + random.nextDouble() * 4_000_000);
+        Double surfaceMin = maybe(20 + random.nextDouble() * 200);
+        Double surfaceMax = maybe(100 + random.nextDouble() * 400);
+        String ville = maybe(pick(VILLES));
+        return new Query(maybe(pick(TypeBien.values())), maybe(pick(StatutOffre.values())), prixMin, prixMax,
+                surfaceMin, surfaceMax, ville, ville != null ? maybe(pick(QUARTIERS)) : null);
+    }
+
+    private static ToDoubleFunction<Map.Entry<Long, Offer>> sortKey(String property) {
+        return entry -> {
+            Offer offer = entry.getValue();
+            Double value = switch (property) {
+                case "id" -> (double) entry.getKey();
+                case "createdAt" -> offer.createdAt() != null
+                        ? (double) Timestamp.valueOf(offer.createdAt()).getTime() : null;
+                case "prixPropose" -> offer.prix();
+                case "surface" -> offer.surface();
+                default -> throw new IllegalArgumentException(property);
+            };
+            // Missing values sort first, as in MySQL
+            return value != null ? value : Double.NEGATIVE_INFINITY;
+        };
+    }
+
+    private Page<Long> search(Query query, Pageable pageable) {
+        return catalog.search(query.type(), query.statut(), query.prixMin(), query.prixMax(), query.surfaceMin(),
+                query.surfaceMax(), query.ville(), query.quartier(), pageable).orElseThrow();
+    }
+
+    // The page must hold the ids at offset..offset+size of the matches in position order, or, when sorted,
+    // ids of matches whose sort keys are those at that place in the sorted order (ties may come in any order)
+    private void assertSearch(Query query, String property, boolean ascending, int offset, int size) {
+        List<Map.Entry<Long, Offer>> expected = offers.entrySet().stream()
+                .filter(entry -> query.test(entry.getValue()))
+                .toList();
+        Pageable pageable = property == null ? PageRequest.of(0, size)
+                : PageRequest.of(0, size, ascending ? Sort.by(property).ascending() : Sort.by(property).descending());
+        pageable = new OffsetPage(offset, pageable);
+        Page<Long> page = search(query, pageable);
+        String context = query + " sort " + property + (ascending ? " asc" : " desc") + " offset " + offset + " size " + size;
+        assertEquals(expected.size(), page.getTotalElements(), context);
+
+        int from = Math.min(offset, expected.size());
+        int to = Math.min(offset + size, expected.size());
+        if (property == null) {
+            assertEquals(expected.subList(from, to).stream().map(Map.Entry::getKey).toList(), page.getContent(), context);
+            return;
+        }
+        ToDoubleFunction<Map.Entry<Long, Offer>> key = sortKey(property);
+        Comparator<Map.Entry<Long, Offer>> order = Comparator.comparingDouble(key);
+        List<Map.Entry<Long, Offer>> sorted = new ArrayList<>(expected);
+        sorted.sort(ascending ? order : order.reversed());
+        List<Double> expectedKeys = sorted.subList(from, to).stream().map(key::applyAsDouble).toList();
+        List<Double> actualKeys = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (Long id : page.getContent()) {
+            Offer offer = offers.get(id);
+            assertTrue(offer != null && query.test(offer), context + ": " + id + " does not match");
+            assertTrue(seen.add(id), context + ": " + id + " twice");
+            actualKeys.add(key.applyAsDouble(Map.entry(id, offer)));
+        }
+        assertEquals(expectedKeys, actualKeys, context);
+    }
+
+    private void assertRandomSearches(int count) {
+        for (int i = 0; i < count; i++) {
+            Query query = randomQuery();
+            int size = 1 + random.nextInt(50);
+            int offset = random.nextInt(4) == 0 ? random.nextInt(2000) : random.nextInt(3) * size;
+            assertSearch(query, SORTS.get(random.nextInt(SORTS.size())), random.nextBoolean(), offset, size);
+        }
+    }
+
+    @Test
+    void searchMatchesFilteringAndSortingTheOffers() {
+        seed(6000);
+        assertRandomSearches(400);
+    }
+
+    @Test
+    void searchStaysExactWhileUpdatesPileUpStalePositions() {
+        seed(6000);
+        long[] nextId = {offers.size() + 1};
+        // Up to several thousand stale positions per column, past the compaction threshold
+        for (int round = 0; round < 8; round++) {
+            randomUpdates(1000, nextId);
+            assertRandomSearches(100);
+        }
+    }
+
+    @Test
+    void catalogBuiltFromAnEmptyTableStaysExactAsOffersArrive() {
+        seed(0);
+        // More offers than the compaction threshold, all of them added after the build
+        for (long id = 1; id <= 5000; id++) {
+            Offer offer = randomOffer();
+            offers.put(id, offer);
+            catalog.upsert(row(id, offer));
+        }
+        assertRandomSearches(100);
+        randomUpdates(1000, new long[]{5001});
+        assertRandomSearches(100);
+    }
+
+    @Test
+    void sortedPagesCoverEveryMatchOnce() {
+        seed(3000);
+        long[] nextId = {offers.size() + 1};
+        randomUpdates(1500, nextId);
+        for (String property : SORTS.subList(1, SORTS.size())) {
+            for (boolean ascending : new boolean[]{true, false}) {
+                Query query = new Query(null, null, property.equals("prixPropose") ? 1_000_000.0 : null, null,
+                        null, property.equals("surface") ? 300.0 : null, null, null);
+                Pageable pageable = PageRequest.of(0, 37,
+                        ascending ? Sort.by(property).ascending() : Sort.by(property).descending());
+                List<Long> all = new ArrayList<>();
+                for (Page<Long> page = search(query, pageable); !page.getContent().isEmpty();
+                     page = search(query, pageable = pageable.next())) {
+                    all.addAll(page.getContent());
+                }
+                Set<Long> expected = new HashSet<>();
+                offers.forEach((id, offer) -> {
+                    if (query.test(offer)) {
+                        expected.add(id);
+                    }
+                });
+                assertEquals(expected.size(), all.size(), property + " returned an offer twice or missed one");
+                assertEquals(expected, new HashSet<>(all), property);
+            }
+        }
+    }
+
+    @Test
+    void facetsMatchCountingTheOffers() {
+        seed(4000);
+        long[] nextId = {offers.size() + 1};
+        randomUpdates(1500, nextId);
+        List<Long> ids = new ArrayList<>(offers.keySet());
+        for (int i = 0; i < 200; i++) {
+            Query query = randomQuery();
+            // Keyword matches may name offers the catalog does not know, they are ignored
+            List<Long> keywordIds = random.nextBoolean() ? null : new ArrayList<>(List.of(-1L));
+            if (keywordIds != null) {
+                for (int k = random.nextInt(100); k > 0; k--) {
+                    keywordIds.add(ids.get(random.nextInt(ids.size())));
+                }
+            }
+            boolean multiSelect = random.nextBoolean();
+            List<Long> matches = keywordIds;
+            Map<String, Map<String, Long>> facets = catalog.facets(query.type(), query.statut(), query.prixMin(),
+                    query.prixMax(), query.surfaceMin(), query.surfaceMax(), query.ville(), query.quartier(),
+                    matches != null ? limit -> matches : null, multiSelect).orElseThrow();
+            Set<Long> keyword = keywordIds != null ? new HashSet<>(keywordIds) : null;
+            String context = query + " keyword " + keywordIds + " multiSelect " + multiSelect;
+            assertEquals(countFacet(query, keyword, multiSelect ? "typeBien" : null, Offer::type), facets.get("typeBien"), context);
+            assertEquals(countFacet(query, keyword, multiSelect ? "statutOffre" : null, Offer::statut), facets.get("statutOffre"), context);
+            assertEquals(countFacet(query, keyword, multiSelect ? "ville" : null, Offer::ville), facets.get("ville"), context);
+            assertEquals(countFacet(query, keyword, multiSelect ? "quartier" : null, Offer::quartier), facets.get("quartier"), context);
+            assertEquals(countFacet(query, keyword, multiSelect ? "prixBand" : null, o -> OffreReadModel.prixBand(o.prix())),
+                    facets.get("prixBand"), context);
+        }
+    }
+
+    @Test
+    void facetsGoToSqlWhenTheKeywordMatchesTooManyOffers() {
+        seed(500);
+        List<Long> tooMany = new ArrayList<>(offers.keySet()).subList(0, 101);
+        assertEquals(Optional.empty(), catalog.facets(null, null, null, null, null, null, null, null,
+                limit -> tooMany.subList(0, Math.min(limit, tooMany.size())), false));
+    }
+
+    private Map<String, Long> countFacet(Query query, Set<Long> keyword, String except,
+                                         Function<Offer, Object> facet) {
+        Query applied = new Query(
+                "typeBien".equals(except) ? null : query.type(),
+                "statutOffre".equals(except) ? null : query.statut(),
+                "prixBand".equals(except) ? null : query.prixMin(),
+                "prixBand".equals(except) ? null : query.prixMax(),
+                query.surfaceMin(), query.surfaceMax(),
+                "ville".equals(except) ? null : query.ville(),
+                "quartier".equals(except) ? null : query.quartier());
+        Map<String, Long> counts = new HashMap<>();
+        offers.forEach((id, offer) -> {
+            Object value = facet.apply(offer);
+            if (value != null && applied.test(offer) && (keyword == null || keyword.contains(id))) {
+                counts.merge(String.valueOf(value), 1L, Long::sum);
+            }
+        });
+        return counts;
+    }
+
+    @Test
+    void writesInATransactionOnlyShowAfterCommit() {
+        seed(100);
+        Query all = new Query(null, null, null, null, null, null, null, null);
+        Offer offer = new Offer(TypeBien.VILLA, StatutOffre.DISPONIBLE, "rabat", "agdal", 3_000_000.0, 250.0, EPOCH);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            catalog.upsert(row(1000, offer));
+            catalog.remove(List.of(1L));
+            assertEquals(100, search(all, PageRequest.of(0, 10)).getTotalElements());
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(100, search(all, PageRequest.of(0, 10)).getTotalElements());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            catalog.upsert(row(1000, offer));
+            catalog.remove(List.of(1L));
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Page<Long> page = search(new Query(TypeBien.VILLA, null, 2_900_000.0, null, null, null, "rabat", "agdal"),
+                PageRequest.of(0, 200));
+        assertTrue(page.getContent().contains(1000L));
+        assertFalse(search(all, PageRequest.of(0, 200)).getContent().contains(1L));
+        assertEquals(100, search(all, PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    void sortedColumnRestrictAndPageMatchBruteForce() {
+        for (int round = 0; round < 30; round++) {
+            int size = 1 + random.nextInt(3000);
+            Double[] values = new Double[size];
+            OffreCatalog.SortedColumn column = new OffreCatalog.SortedColumn();
+            column.grow(size);
+            int compacted = random.nextInt(size + 1);
+            for (int position = 0; position < size; position++) {
+                if (position == compacted) {
+                    column.compact();
+                }
+                values[position] = random.nextInt(10) == 0 ? null : (double) random.nextInt(1000);
+                column.set(position, values[position]);
+            }
+            if (random.nextBoolean()) {
+                column.compact();
+            }
+            // Rewrites leave some positions stale, some of them twice
+            for (int i = random.nextInt(size); i > 0; i--) {
+                int position = random.nextInt(size);
+                values[position] = random.nextInt(10) == 0 ? null : (double) random.nextInt(1000);
+                column.set(position, values[position]);
+            }
+
+            for (int q = 0; q < 30; q++) {
+                RoaringBitmap candidates = new RoaringBitmap();
+                int density = 1 + random.nextInt(64);
+                for (int position = 0; position < size; position++) {
+                    if (random.nextInt(density) == 0) {
+                        candidates.add(position);
+                    }
+                }
+                Double min = random.nextBoolean() ? null : (double) random.nextInt(1000);
+                Double max = random.nextBoolean() ? null : (double) random.nextInt(1000);
+                String context = "round " + round + " size " + size + " [" + min + ", " + max + "]";
+
+                RoaringBitmap expected = new RoaringBitmap();
+                for (int position : candidates.toArray()) {
+                    Double value = values[position];
+                    if (value != null && (min == null || value >= min) && (max == null || value <= max)) {
+                        expected.add(position);
+                    }
+                }
+                RoaringBitmap restricted = column.restrict(candidates, min, max);
+                assertEquals(expected, restricted, context);
+
+                // page() expects matches already within [min, max]; unrestricted matches keep their missing values
+                boolean bounded = random.nextBoolean();
+                RoaringBitmap matches = bounded ? restricted : candidates;
+                boolean ascending = random.nextBoolean();
+                int offset = random.nextInt(Math.max(1, matches.getCardinality() + 5));
+                int limit = 1 + random.nextInt(40);
+                Comparator<Integer> order = Comparator.comparingDouble(
+                        position -> values[position] != null ? values[position] : Double.NEGATIVE_INFINITY);
+                List<Integer> sorted = new ArrayList<>(Arrays.stream(matches.toArray()).boxed().toList());
+                sorted.sort(ascending ? order : order.reversed());
+                List<Double> expectedKeys = sorted.subList(Math.min(offset, sorted.size()),
+                        Math.min(offset + limit, sorted.size())).stream().map(position -> values[position]).toList();
+                int[] page = column.page(matches, ascending, offset, limit, bounded ? min : null, bounded ? max : null);
+                List<Double> actualKeys = new ArrayList<>();
+                for (int position : page) {
+                    assertTrue(matches.contains(position), context + ": " + position + " is not a match");
+                    actualKeys.add(values[position]);
+                }
+                assertEquals(expectedKeys, actualKeys, context + (ascending ? " asc" : " desc") + " offset " + offset);
+            }
+        }
+    }
+
+    @Test
+    void sortedColumnStartedEmptyCompactsPastTheThreshold() {
+        OffreCatalog.SortedColumn column = new OffreCatalog.SortedColumn();
+        column.grow(10_000);
+        for (int position = 0; position < 10_000; position++) {
+            column.set(position, (double) random.nextInt(1000));
+            assertTrue(column.staleCount() <= 4096, "stale positions pile up: " + column.staleCount());
+        }
+    }
+
+    // PageRequest only takes page numbers; the catalog reads getOffset(), so any offset can be tested
+    private static final class OffsetPage extends PageRequest {
+        private final long offset;
+
+        OffsetPage(long offset, Pageable pageable) {
+            super(0, pageable.getPageSize(), pageable.getSort());
+            this.offset = offset;
+        }
+
+        @Override
+        public long getOffset() {
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.immobilier.app.service;
+
+import com.immobilier.app.entity.UploadManifestEntry;
+import com.immobilier.app.repository.UploadManifestRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The in-memory copy of upload_manifest is loaded once; rows written by another node are found on a miss
+class UploadManifestServiceTest {
+    private static final String URL = "/uploads/2026/10/photo.jpg";
+
+    private final UploadManifestRepository repository = mock(UploadManifestRepository.class);
+    private final UploadManifestService manifest = new UploadManifestService(repository, mock(JdbcTemplate.class));
+
+    @Test
+    void fileAddedThroughAnotherNodeIsFoundInTheTable() {
+        when(repository.findById(URL)).thenReturn(Optional.of(UploadManifestEntry.builder().path(URL).sizeBytes(42).build()));
+        assertTrue(manifest.contains(URL));
+        assertTrue(manifest.contains(URL));
+        // Cached after the first lookup
+        verify(repository, times(1)).findById(URL);
+        assertEquals(1, manifest.fileCount());
+        assertEquals(42, manifest.totalBytes());
+    }
+
+    @Test
+    void unknownFileIsMissing() {
+        when(repository.findById(anyString())).thenReturn(Optional.empty());
+        assertFalse(manifest.contains(URL));
+        assertFalse(manifest.contains(null));
+        assertEquals(0, manifest.fileCount());
+    }
+
+    @Test
+    void fileAddedHereIsFoundWithoutALookup() {
+        manifest.add(URL, 10, "abc", null);
+        assertTrue(manifest.contains(URL));
+        verify(repository, never()).findById(any());
+        manifest.remove(URL);
+        when(repository.findById(URL)).thenReturn(Optional.empty());
+        assertFalse(manifest.contains(URL));
+    }
+}
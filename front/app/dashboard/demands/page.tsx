@@ -125,7 +125,7 @@ export default function DemandsPage() {
       setLoading(true);
       setError(null);
       
-      const response = await fetch('http://localhost:8080/demandes/all');
+      const response = await fetch('http://localhost:8080/demandes/all', { credentials: 'include' });
       if (!response.ok) {
         throw new Error(`Failed to fetch demands: ${response.status}`);
       }
@@ -144,7 +144,7 @@ export default function DemandsPage() {
 
   const testBackendConnection = async () => {
     try {
-      const response = await fetch('http://localhost:8080/demandes/all');
+      const response = await fetch('http://localhost:8080/demandes/all', { credentials: 'include' });
       const text = await response.text();
       console.log('Backend test response:', text);
       alert(`Backend connection test: ${response.ok ? 'Success' : 'Failed'} - ${response.status}`);
@@ -165,6 +165,7 @@ export default function DemandsPage() {
       console.log('Attempting to delete demand with ID:', id);
       
       const response = await fetch(`http://localhost:8080/demandes/${id}`, {
+        credentials: 'include',
         method: 'DELETE',
         headers: {
           'Content-Type': 'application/json',
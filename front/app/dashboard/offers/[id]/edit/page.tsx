@@ -25,7 +25,7 @@ export default function EditOfferPage() {
   useEffect(() => {
     if (!offerId) return;
     setLoadingOffer(true);
-    fetch(`http://localhost:8080/offres/${offerId}`)
+    fetch(`http://localhost:8080/offres/${offerId}`, { credentials: 'include' })
       .then((res) => res.json())
       .then((data) => {
         setFormData({
@@ -91,6 +91,7 @@ export default function EditOfferPage() {
         statutOffre: formData.statutOffre || "DISPONIBLE"
       };
       const response = await fetch(`http://localhost:8080/offres/${offerId}`, {
+        credentials: 'include',
         method: "PUT",
         headers: { "Content-Type": "application/json" },
         body: JSON.stringify(offerData),
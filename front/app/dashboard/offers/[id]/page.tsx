@@ -17,7 +17,7 @@ export default function ViewOfferPage() {
   useEffect(() => {
     if (!offerId) return;
     setLoading(true);
-    fetch(`http://localhost:8080/offres/${offerId}`)
+    fetch(`http://localhost:8080/offres/${offerId}`, { credentials: 'include' })
       .then((res) => res.json())
       .then((data) => setOffer(data))
       .finally(() => setLoading(false));
@@ -230,6 +230,7 @@ export default function NewOfferPage() {
       console.log('Submitting offer data:', offerData);
 
       const response = await fetch('http://localhost:8080/offres', {
+        credentials: 'include',
         method: 'POST',
         headers: {
           'Content-Type': 'application/json',
@@ -90,7 +90,7 @@ export default function OffersPage() {
       setLoading(true);
       setError(null);
       
-      const response = await fetch('http://localhost:8080/offres/all');
+      const response = await fetch('http://localhost:8080/offres/all', { credentials: 'include' });
       if (!response.ok) {
         throw new Error(`Failed to fetch offers: ${response.status}`);
       }
@@ -180,7 +180,7 @@ export default function OffersPage() {
 
   const testBackendConnection = async () => {
     try {
-      const response = await fetch('http://localhost:8080/offres/test');
+      const response = await fetch('http://localhost:8080/offres/test', { credentials: 'include' });
       const text = await response.text();
       console.log('Backend test response:', text);
       alert(`Backend connection test: ${text}`);
@@ -201,6 +201,7 @@ export default function OffersPage() {
       console.log('Attempting to delete offer with ID:', id);
       
       const response = await fetch(`http://localhost:8080/offres/${id}`, {
+        credentials: 'include',
         method: 'DELETE',
         headers: {
           'Content-Type': 'application/json',
@@ -254,6 +255,7 @@ export default function OffersPage() {
       console.log(`Attempting to update offer ${id} status from ${currentStatus} to ${newStatus}`);
       
       const response = await fetch(`http://localhost:8080/offres/${id}/status`, {
+        credentials: 'include',
         method: 'PATCH',
         headers: {
           'Content-Type': 'application/json',
@@ -71,14 +71,14 @@ export default function DashboardPage() {
       setError(null);
 
       // Fetch offers data
-      const offersResponse = await fetch('http://localhost:8080/offres/all');
+      const offersResponse = await fetch('http://localhost:8080/offres/all', { credentials: 'include' });
       if (!offersResponse.ok) {
         throw new Error(`Failed to fetch offers: ${offersResponse.status}`);
       }
       const offersData = await offersResponse.json();
 
       // Fetch demands data
-      const demandsResponse = await fetch('http://localhost:8080/demandes');
+      const demandsResponse = await fetch('http://localhost:8080/demandes', { credentials: 'include' });
       if (!demandsResponse.ok) {
         throw new Error(`Failed to fetch demands: ${demandsResponse.status}`);
       }
@@ -148,7 +148,7 @@ export default function OffersPage() {
       if (priceRange.min) params.append('prixMin', priceRange.min);
       if (priceRange.max) params.append('prixMax', priceRange.max);
 
-      const res = await fetch(`http://localhost:8080/offres/paginated?${params}`);
+      const res = await fetch(`http://localhost:8080/offres/paginated?${params}`, { credentials: 'include' });
       
       if (!res.ok) {
         throw new Error(`HTTP error! status: ${res.status}`);
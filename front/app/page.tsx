@@ -76,7 +76,7 @@ export default function LandingPage() {
       setLoading(true);
       setError(null);
       
-      const response = await fetch('http://localhost:8080/offres/all');
+      const response = await fetch('http://localhost:8080/offres/all', { credentials: 'include' });
       if (!response.ok) {
         throw new Error(`Failed to fetch offers: ${response.status}`);
       }
@@ -113,11 +113,11 @@ export default function LandingPage() {
       setStatsLoading(true);
       
       // Fetch offers for statistics
-      const offersResponse = await fetch('http://localhost:8080/offres/all');
+      const offersResponse = await fetch('http://localhost:8080/offres/all', { credentials: 'include' });
       const offersData = offersResponse.ok ? await offersResponse.json() : [];
       
       // Fetch demands for statistics
-      const demandsResponse = await fetch('http://localhost:8080/demandes/all');
+      const demandsResponse = await fetch('http://localhost:8080/demandes/all', { credentials: 'include' });
       const demandsData = demandsResponse.ok ? await demandsResponse.json() : [];
       
       // Calculate statistics
@@ -215,7 +215,7 @@ export default function LandingPage() {
 
   const testBackendConnection = async () => {
     try {
-      const response = await fetch('http://localhost:8080/offres/all');
+      const response = await fetch('http://localhost:8080/offres/all', { credentials: 'include' });
       const text = await response.text();
       console.log('Backend test response:', text);
       alert(`Backend connection test: ${response.ok ? 'Success' : 'Failed'} - ${response.status}`);
@@ -152,6 +152,7 @@ export function ClientDemandForm({ onSuccess, redirectTo }: ClientDemandFormProp
       console.log('Sending demande data:', demandeData);
 
       const response = await fetch('http://localhost:8080/demandes', {
+        credentials: 'include',
         method: 'POST',
         headers: {
           'Content-Type': 'application/json',